@@ -1,17 +1,62 @@
 package com.wangji92.retry.springretryexample.config;
 
+import com.wangji92.retry.springretryexample.support.adaptive.DownstreamHealthClientHttpRequestInterceptor;
+import com.wangji92.retry.springretryexample.support.adaptive.DownstreamHealthRegistry;
+import com.wangji92.retry.springretryexample.support.circuit.CircuitBreakerClientHttpRequestInterceptor;
+import com.wangji92.retry.springretryexample.support.circuit.CircuitBreakerRegistry;
+import com.wangji92.retry.springretryexample.support.http.PooledClientHttpRequestFactory;
+import com.wangji92.retry.springretryexample.support.http.PooledHttpClientProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 
 /**
  * @author 汪小哥
  * @date 02-04-2021
  */
 @Configuration
+@EnableConfigurationProperties(PooledHttpClientProperties.class)
 public class RestTemplateConfig {
+
+    /**
+     * 连接池 keep-alive 复用连接，每次重试、兜底调用不再新建连接
+     *
+     * @param properties
+     * @return
+     */
+    @Bean
+    public PooledClientHttpRequestFactory pooledClientHttpRequestFactory(PooledHttpClientProperties properties) {
+        return new PooledClientHttpRequestFactory(properties);
+    }
+
+    /**
+     * endpoint 级别的熔断 只对 retry.circuit-breaker.instances 里面配置了的 host:port/path 生效
+     * 每个 host:port/path 的错误率、耗时都会记录下来 自适应重试使用 (熔断拒绝的请求没有发出去 不记录)
+     *
+     * @param circuitBreakerRegistry
+     * @return
+     */
+    @Bean
+    public RestTemplate restTemplate(PooledClientHttpRequestFactory pooledClientHttpRequestFactory,
+                                     CircuitBreakerRegistry circuitBreakerRegistry,
+                                     DownstreamHealthRegistry downstreamHealthRegistry) {
+        RestTemplate restTemplate = new RestTemplate(pooledClientHttpRequestFactory);
+        restTemplate.getInterceptors().add(new CircuitBreakerClientHttpRequestInterceptor(circuitBreakerRegistry));
+        restTemplate.getInterceptors().add(new DownstreamHealthClientHttpRequestInterceptor(downstreamHealthRegistry));
+        return restTemplate;
+    }
+
+    /**
+     * 非阻塞的调用 reactor-netty 自己的连接池和 event loop，返回 Mono 的 @Retryable 方法使用
+     * 【endpoint 级别的熔断只加在 RestTemplate 上】
+     *
+     * @param builder spring boot 配置好编解码的 builder
+     * @return
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public WebClient webClient(WebClient.Builder builder) {
+        return builder.build();
     }
 }
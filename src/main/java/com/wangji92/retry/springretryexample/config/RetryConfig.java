@@ -1,13 +1,89 @@
 package com.wangji92.retry.springretryexample.config;
 
+import com.wangji92.retry.springretryexample.dto.TextMessageDto;
+import com.wangji92.retry.springretryexample.support.adaptive.AdaptiveRetryProperties;
+import com.wangji92.retry.springretryexample.support.adaptive.DownstreamHealthRegistry;
+import com.wangji92.retry.springretryexample.support.advisor.RetryableMethodAdvisor;
+import com.wangji92.retry.springretryexample.support.async.AsyncRetryTemplate;
+import com.wangji92.retry.springretryexample.support.backoff.BackOffJitterProperties;
+import com.wangji92.retry.springretryexample.support.backoff.JitterBackOff;
+import com.wangji92.retry.springretryexample.support.backoff.JitterBackOffPolicy;
+import com.wangji92.retry.springretryexample.support.backoff.JitterSleeper;
+import com.wangji92.retry.springretryexample.support.batch.BatchRetryInterceptor;
+import com.wangji92.retry.springretryexample.support.budget.RetryBudgetInterceptor;
+import com.wangji92.retry.springretryexample.support.budget.RetryBudgetPolicy;
+import com.wangji92.retry.springretryexample.support.budget.RetryBudgetProperties;
+import com.wangji92.retry.springretryexample.support.budget.RetryBudgetRegistry;
+import com.wangji92.retry.springretryexample.support.bulkhead.BulkheadInterceptor;
+import com.wangji92.retry.springretryexample.support.bulkhead.BulkheadProperties;
+import com.wangji92.retry.springretryexample.support.bulkhead.BulkheadRegistry;
+import com.wangji92.retry.springretryexample.support.cache.BoundedRetryContextCache;
+import com.wangji92.retry.springretryexample.support.cache.CompactRetryKeyEncoder;
+import com.wangji92.retry.springretryexample.support.cache.JournalRetryContextCache;
+import com.wangji92.retry.springretryexample.support.circuit.CircuitBreakerInterceptor;
+import com.wangji92.retry.springretryexample.support.circuit.CircuitBreakerProperties;
+import com.wangji92.retry.springretryexample.support.circuit.CircuitBreakerRegistry;
+import com.wangji92.retry.springretryexample.support.classify.HttpRetryClassifier;
+import com.wangji92.retry.springretryexample.support.classify.HttpRetryClassifierProperties;
+import com.wangji92.retry.springretryexample.support.cluster.ClusterRetryCoordinator;
+import com.wangji92.retry.springretryexample.support.cluster.ClusterRetryProperties;
+import com.wangji92.retry.springretryexample.support.cluster.InMemoryRetryStateStore;
+import com.wangji92.retry.springretryexample.support.cluster.RetryStateStore;
+import com.wangji92.retry.springretryexample.support.deadletter.DeadLetterDrainer;
+import com.wangji92.retry.springretryexample.support.deadletter.DeadLetterProperties;
+import com.wangji92.retry.springretryexample.support.deadletter.DeadLetterQueue;
+import com.wangji92.retry.springretryexample.support.deadletter.DeadLetterRecoverer;
+import com.wangji92.retry.springretryexample.support.deadletter.RecoverDeadLetterHandler;
+import com.wangji92.retry.springretryexample.support.fallback.FallbackCacheInterceptor;
+import com.wangji92.retry.springretryexample.support.fallback.FallbackCacheProperties;
+import com.wangji92.retry.springretryexample.support.fallback.FallbackResultCache;
+import com.wangji92.retry.springretryexample.support.hedge.HedgeProperties;
+import com.wangji92.retry.springretryexample.support.hedge.HedgingRetryInterceptor;
+import com.wangji92.retry.springretryexample.support.key.LabelRoutingKeyGenerator;
+import com.wangji92.retry.springretryexample.support.key.RetryKeyProperties;
+import com.wangji92.retry.springretryexample.support.metrics.RecoverStackTraceSampler;
+import com.wangji92.retry.springretryexample.support.metrics.RetryMetricsEndpoint;
+import com.wangji92.retry.springretryexample.support.metrics.RetryMetricsListener;
+import com.wangji92.retry.springretryexample.support.reactive.ReactiveRetryAdvisor;
+import com.wangji92.retry.springretryexample.support.reactive.ReactiveRetryInterceptor;
+import com.wangji92.retry.springretryexample.support.recover.ExposedInvocationRecoverer;
+import com.wangji92.retry.springretryexample.support.registry.RetryRegistry;
+import com.wangji92.retry.springretryexample.support.registry.RetryRegistryProperties;
+import com.wangji92.retry.springretryexample.support.singleflight.SingleFlightInterceptor;
+import com.wangji92.retry.springretryexample.support.singleflight.SingleFlightProperties;
+import com.wangji92.retry.springretryexample.support.timelimit.TimeLimitedRetryInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.retry.RetryContext;
+import org.springframework.remoting.RemoteAccessException;
 import org.springframework.retry.RetryListener;
 import org.springframework.retry.annotation.EnableRetry;
-import org.springframework.retry.interceptor.MethodInvocationRetryCallback;
-import org.springframework.retry.listener.MethodInvocationRetryListenerSupport;
+import org.springframework.retry.annotation.RetryConfiguration;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.retry.backoff.ThreadWaitSleeper;
+import org.springframework.retry.interceptor.RetryInterceptorBuilder;
+import org.springframework.retry.interceptor.RetryOperationsInterceptor;
+import org.springframework.retry.policy.RetryContextCache;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * @author 汪小哥
@@ -16,35 +92,446 @@ import org.springframework.retry.listener.MethodInvocationRetryListenerSupport;
 @Slf4j
 @Configuration
 @EnableRetry(proxyTargetClass = true)
+@EnableConfigurationProperties({RetryRegistryProperties.class, CircuitBreakerProperties.class, RetryBudgetProperties.class,
+        HedgeProperties.class, RetryKeyProperties.class, AdaptiveRetryProperties.class, ClusterRetryProperties.class,
+        DeadLetterProperties.class, HttpRetryClassifierProperties.class, SingleFlightProperties.class,
+        FallbackCacheProperties.class, BulkheadProperties.class, BackOffJitterProperties.class})
 public class RetryConfig {
 
     /**
-     * 非必须的 监听器
+     * 重试指标 按 label 记录尝试、成功、兜底、退避、耗时，注册到 micrometer
+     * 【只能有一个 RetryListener 的 bean，注解的方式只有一个的时候才会使用】
+     * /actuator/retry、/actuator/metrics/retry.calls?tag=label:RetryTestService.retryTestService
      *
      * @return
      */
     @Bean
-    public RetryListener retryListenerCustom() {
-        return new MethodInvocationRetryListenerSupport() {
+    public RetryMetricsListener retryMetricsListener(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RetryMetricsListener(meterRegistry.getIfAvailable());
+    }
 
-            @Override
-            protected <T, E extends Throwable> boolean doOpen(RetryContext context, MethodInvocationRetryCallback<T, E> callback) {
-                log.info("retry doOpen count={} method name={}", context.getRetryCount(), callback.getInvocation().getMethod().getName());
-                return super.doOpen(context, callback);
-            }
+    @Bean
+    public RetryMetricsEndpoint retryMetricsEndpoint(RetryMetricsListener retryMetricsListener) {
+        return new RetryMetricsEndpoint(retryMetricsListener);
+    }
 
-            @Override
-            protected <T, E extends Throwable> void doClose(RetryContext context, MethodInvocationRetryCallback<T, E> callback, Throwable throwable) {
-                log.info("retry doClose count={} method name={}", context.getRetryCount(), callback.getInvocation().getMethod().getName());
+    /**
+     * 兜底方法里面打印调用栈 默认关闭，只用来排查问题
+     *
+     * @return
+     */
+    @Bean
+    public RecoverStackTraceSampler recoverStackTraceSampler(@Value("${retry.recover.stack-trace-sample-rate:0}") double sampleRate) {
+        return new RecoverStackTraceSampler(sampleRate);
+    }
+
+    /**
+     * 有状态重试的上下文缓存 有界、过期淘汰、可选堆外；type=journal 的时候持久化到内存映射的 journal 重启之后重试次数不丢
+     * 只有一个 RetryContextCache 的 bean 时 @EnableRetry 注解的方式也会使用它 替换默认的 MapRetryContextCache
+     * {@link org.springframework.retry.annotation.RetryConfiguration#afterPropertiesSet()}
+     * 【journal 在容器关闭的时候 close 刷盘、释放目录的锁】
+     * type=cluster 的时候多个节点共享重试次数 需要 retry.cluster.enabled=true
+     *
+     * @return
+     */
+    @Bean
+    public RetryContextCache retryContextCache(ObjectProvider<ClusterRetryCoordinator> clusterRetryCoordinator,
+                                               @Value("${retry.context-cache.type:bounded}") String type,
+                                               @Value("${retry.context-cache.maximum-size:100000}") int maximumSize,
+                                               @Value("${retry.context-cache.time-to-live:600000}") long timeToLive,
+                                               @Value("${retry.context-cache.concurrency-level:16}") int concurrencyLevel,
+                                               @Value("${retry.context-cache.off-heap:false}") boolean offHeap,
+                                               @Value("${retry.context-cache.journal.directory:${java.io.tmpdir}/spring-retry-example/retry-journal-${server.port:8080}}") String directory,
+                                               @Value("${retry.context-cache.journal.segment-size:67108864}") int segmentSize,
+                                               @Value("${retry.context-cache.journal.compaction-interval:60000}") long compactionInterval) {
+        CompactRetryKeyEncoder keyEncoder = new CompactRetryKeyEncoder()
+                .register(TextMessageDto.class, TextMessageDto::getMessageId);
+        if ("journal".equalsIgnoreCase(type)) {
+            return new JournalRetryContextCache(Paths.get(directory), maximumSize, timeToLive, keyEncoder, segmentSize,
+                    compactionInterval);
+        }
+        if ("cluster".equalsIgnoreCase(type)) {
+            ClusterRetryCoordinator coordinator = clusterRetryCoordinator.getIfAvailable();
+            if (coordinator == null) {
+                throw new IllegalStateException("retry.context-cache.type=cluster requires retry.cluster.enabled=true");
             }
+            return coordinator.contextCache(maximumSize, timeToLive, keyEncoder);
+        }
+        return new BoundedRetryContextCache(maximumSize, timeToLive, concurrencyLevel, keyEncoder, offHeap);
+    }
+
+    /**
+     * 注解方式有状态重试的 key 按 label 选择生成方式，retry-key 使用参数上 @RetryKey 字段的值 不再调用参数对象的 hashCode/equals
+     * 只有一个 MethodArgumentsKeyGenerator 的 bean 时 @EnableRetry 注解的方式才会使用它
+     * {@link org.springframework.retry.annotation.RetryConfiguration#afterPropertiesSet()}
+     *
+     * @return
+     */
+    @Bean
+    public LabelRoutingKeyGenerator retryKeyGenerator(RetryKeyProperties properties) {
+        return new LabelRoutingKeyGenerator(properties);
+    }
+
+    /**
+     * 在最外层暴露 @Retryable 方法的调用 key 生成的时候按方法找到 label
+     *
+     * @return
+     */
+    @Bean
+    public RetryableMethodAdvisor exposeRetryInvocationAdvisor() {
+        return new RetryableMethodAdvisor(ExposeInvocationInterceptor.INSTANCE, RetryableMethodAdvisor.EXPOSE_INVOCATION_ORDER);
+    }
+
+    /**
+     * 注解 @Backoff 的退避按 label 加上抖动 同时失败的调用不会在同一时刻一起重试，没有配置的 label 还是注解上的退避时间
+     * 只有一个 Sleeper 的 bean 时 @EnableRetry 注解的方式才会使用它
+     * {@link org.springframework.retry.annotation.RetryConfiguration#afterPropertiesSet()}
+     *
+     * @return
+     */
+    @Bean
+    public Sleeper retrySleeper(RetryMetricsListener retryMetricsListener, BackOffJitterProperties backOffJitterProperties) {
+        return new JitterSleeper(backOffJitterProperties, retryMetricsListener.recordingSleeper(new ThreadWaitSleeper()));
+    }
+
+    /**
+     * 异步重试 退避期间不占用线程，下一次尝试交给共享的定时器调度
+     * 【定时器、线程池不要暴露成 bean，否则会替换掉 @Scheduled、@Async 默认使用的线程池】
+     *
+     * @return
+     */
+    @Bean(destroyMethod = "shutdown")
+    public AsyncRetryTemplate asyncRetryTemplate(RetryBudgetRegistry retryBudgetRegistry,
+                                                 @Value("${retry.async.timer-threads:2}") int timerThreads,
+                                                 @Value("${retry.async.worker-threads:8}") int workerThreads,
+                                                 @Value("${retry.async.max-attempts:2}") int maxAttempts,
+                                                 @Value("${retry.async.backoff-period:5000}") long backOffPeriod,
+                                                 BackOffJitterProperties backOffJitterProperties) {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(timerThreads, new CustomizableThreadFactory("retry-timer-"));
+        timer.setRemoveOnCancelPolicy(true);
+
+        SimpleRetryPolicy retryPolicy = new SimpleRetryPolicy(maxAttempts,
+                Collections.singletonMap(RemoteAccessException.class, true), true);
+        JitterBackOffPolicy backOffPolicy = new JitterBackOffPolicy(new JitterBackOff(backOffJitterProperties.jitter("asyncRetryTemplate"),
+                backOffPeriod, backOffJitterProperties.getMaxDelay(), 1), backOffJitterProperties.getDeadline());
+
+        return new AsyncRetryTemplate(new RetryBudgetPolicy(retryPolicy, retryBudgetRegistry, "asyncRetryTemplate"), backOffPolicy, timer,
+                Executors.newFixedThreadPool(workerThreads, new CustomizableThreadFactory("retry-worker-")));
+    }
+
+    /**
+     * 命名的重试策略 启动时构建一次，编程方式的重试都从这里取 不再每次调用都 new RetryTemplate、Retryer
+     * 【guava 限时用的线程池由 registry 自己持有，关闭的时候一起关掉】
+     *
+     * @return
+     */
+    @Bean(destroyMethod = "shutdown")
+    public RetryRegistry retryRegistry(RetryRegistryProperties properties,
+                                       ObjectProvider<RetryListener> retryListeners,
+                                       RetryContextCache retryContextCache,
+                                       RetryBudgetRegistry retryBudgetRegistry,
+                                       RetryMetricsListener retryMetricsListener,
+                                       DownstreamHealthRegistry downstreamHealthRegistry,
+                                       HttpRetryClassifier httpRetryClassifier) {
+        return RetryRegistry.builder(properties)
+                .listeners(retryListeners.orderedStream().collect(Collectors.toList()))
+                .retryContextCache(retryContextCache)
+                .retryBudgetRegistry(retryBudgetRegistry)
+                .sleeper(retryMetricsListener.recordingSleeper(new ThreadWaitSleeper()))
+                .downstreamHealthRegistry(downstreamHealthRegistry)
+                .httpRetryClassifier(httpRetryClassifier)
+                .build();
+    }
+
+    /**
+     * 按状态码、异常类型判断是否重试的分类表 启动时算好，registry 里面 http-classified=true 的策略使用
+     *
+     * @return
+     */
+    @Bean
+    public HttpRetryClassifier httpRetryClassifier(HttpRetryClassifierProperties properties) {
+        return new HttpRetryClassifier(properties);
+    }
+
+    /**
+     * 按状态码分类重试的拦截器 @Retryable(interceptor = "classifiedRetryInterceptor")
+     * 401 之类的不再重试直接兜底，429、503 按 Retry-After 等待，兜底找当前类里面的 @Recover
+     *
+     * @return
+     */
+    @Bean
+    public RetryOperationsInterceptor classifiedRetryInterceptor(RetryRegistry retryRegistry,
+                                                                 @Value("${retry.classified-interceptor.policy:retryTestServiceClassified}") String policy) {
+        return RetryInterceptorBuilder.stateless()
+                .retryOperations(retryRegistry.retryTemplate(policy))
+                .recoverer(new ExposedInvocationRecoverer())
+                .label(policy)
+                .build();
+    }
+
+    /**
+     * 每个下游 (host:port/path) 最近的错误率、耗时 RestTemplate 上的拦截器记录，adaptive=true 的策略按这个调整次数和退避
+     *
+     * @return
+     */
+    @Bean
+    public DownstreamHealthRegistry downstreamHealthRegistry(AdaptiveRetryProperties properties) {
+        return new DownstreamHealthRegistry(properties);
+    }
+
+    /**
+     * 自适应重试的拦截器 @Retryable(interceptor = "adaptiveRetryInterceptor")
+     * 次数、退避按 registry 里面 adaptive=true 的策略，兜底找当前类里面的 @Recover
+     *
+     * @return
+     */
+    @Bean
+    public RetryOperationsInterceptor adaptiveRetryInterceptor(RetryRegistry retryRegistry,
+                                                               @Value("${retry.adaptive-interceptor.policy:retryTestServiceAdaptive}") String policy) {
+        return RetryInterceptorBuilder.stateless()
+                .retryOperations(retryRegistry.retryTemplate(policy))
+                .recoverer(new ExposedInvocationRecoverer())
+                .label(policy)
+                .build();
+    }
+
+    /**
+     * 每次尝试限时执行的拦截器 @Retryable(interceptor = "timeLimitedRetryInterceptor")
+     * 重试策略从 registry 里面取，限时和 guava 共用同一个执行器
+     *
+     * @return
+     */
+    @Bean
+    public TimeLimitedRetryInterceptor timeLimitedRetryInterceptor(RetryRegistry retryRegistry,
+                                                                   @Value("${retry.time-limited-interceptor.policy:retryTestService}") String policy,
+                                                                   @Value("${retry.time-limited-interceptor.attempt-timeout:60000}") long attemptTimeout) {
+        return new TimeLimitedRetryInterceptor(retryRegistry.retryTemplate(policy), retryRegistry.timeLimiterExecutor(),
+                attemptTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 对冲请求的拦截器 @Retryable(interceptor = "hedgingRetryInterceptor")
+     * 请求在限时的执行器上执行 (jdk21+ 虚拟线程)，对冲请求从策略的重试预算里面取令牌
+     *
+     * @return
+     */
+    @Bean
+    public HedgingRetryInterceptor hedgingRetryInterceptor(RetryRegistry retryRegistry, HedgeProperties properties,
+                                                           RetryBudgetRegistry retryBudgetRegistry,
+                                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        return new HedgingRetryInterceptor(retryRegistry.retryTemplate(properties.getPolicy()), retryRegistry.timeLimiterExecutor(),
+                properties, retryBudgetRegistry, meterRegistry.getIfAvailable());
+    }
+
+    /**
+     * 批量调用的重试拦截器 @Retryable(interceptor = "batchRetryInterceptor")
+     * 每一轮只重新发送失败的条目，轮数、退避从 registry 的策略里面取，单个条目的异常是否可以重试也按策略的 retryOn 判断
+     *
+     * @return
+     */
+    @Bean
+    public BatchRetryInterceptor batchRetryInterceptor(RetryRegistry retryRegistry,
+                                                       @Value("${retry.batch-interceptor.policy:stateFullRetryTestSendMessages}") String policy) {
+        return new BatchRetryInterceptor(retryRegistry.retryTemplate(policy), retryRegistry.retryableClassifier(policy));
+    }
+
+    /**
+     * 返回 Mono/Flux 的 @Retryable 方法 在订阅的时候按注解的属性重试、兜底，退避不占用 event loop
+     * 有状态重试和注解方式共用 RetryContextCache，在重试拦截器的外面 不会再进入阻塞的 RetryTemplate
+     *
+     * @return
+     */
+    @Bean
+    public ReactiveRetryAdvisor reactiveRetryAdvisor(RetryContextCache retryContextCache,
+                                                     RetryBudgetRegistry retryBudgetRegistry,
+                                                     RetryMetricsListener retryMetricsListener,
+                                                     BackOffJitterProperties backOffJitterProperties,
+                                                     LabelRoutingKeyGenerator retryKeyGenerator) {
+        ReactiveRetryAdvisor advisor = new ReactiveRetryAdvisor(new ReactiveRetryInterceptor(retryContextCache, retryBudgetRegistry,
+                retryMetricsListener, backOffJitterProperties, retryKeyGenerator, Schedulers.parallel()));
+        advisor.setOrder(RetryableMethodAdvisor.REACTIVE_RETRY_ORDER);
+        return advisor;
+    }
+
+    /**
+     * 同一个 key (label + 参数) 的并发调用合并成一次重试 共用返回值或者兜底的结果，下游故障的时候不会每个调用方各自重试
+     * 在重试拦截器的外面 (返回 Mono/Flux 的方法不合并)
+     *
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "retry.single-flight", name = "enabled", havingValue = "true")
+    public RetryableMethodAdvisor singleFlightAdvisor(SingleFlightProperties properties, LabelRoutingKeyGenerator retryKeyGenerator) {
+        return new RetryableMethodAdvisor(new SingleFlightInterceptor(retryKeyGenerator, properties.getLabels()),
+                RetryableMethodAdvisor.SINGLE_FLIGHT_ORDER);
+    }
+
+    @Bean
+    public BulkheadRegistry bulkheadRegistry(BulkheadProperties properties) {
+        return new BulkheadRegistry(properties);
+    }
+
+    /**
+     * 按 label 的隔离舱 在重试拦截器的外面，一个调用的所有尝试和退避都占着许可，满了之后不执行 直接走 @Recover
+     * 在并发调用合并的里面 合并到别的调用上的不占许可
+     *
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "retry.bulkhead", name = "enabled", havingValue = "true")
+    public RetryableMethodAdvisor bulkheadAdvisor(BulkheadRegistry bulkheadRegistry) {
+        return new RetryableMethodAdvisor(new BulkheadInterceptor(bulkheadRegistry), RetryableMethodAdvisor.BULKHEAD_ORDER);
+    }
+
+    /**
+     * 全局、按 label 的重试预算 重试次数最多占第一次尝试的 ratio，所有重试方式共用
+     *
+     * @return
+     */
+    @Bean
+    public RetryBudgetRegistry retryBudgetRegistry(RetryBudgetProperties properties) {
+        return new RetryBudgetRegistry(properties);
+    }
+
+    /**
+     * 多个节点共享重试状态的存储 默认是内存里面的 只适合测试、单机；
+     * 真正多个节点部署的时候替换成 redis 等实现 {@link RetryStateStore}
+     *
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "retry.cluster", name = "enabled", havingValue = "true")
+    public RetryStateStore retryStateStore(ClusterRetryProperties properties) {
+        return new InMemoryRetryStateStore(properties.getNodeTimeout());
+    }
+
+    /**
+     * 按 sync-interval 把有状态重试的上下文、重试预算的变化 批量同步到存储，重试的时候不访问存储
+     * 【容器关闭的时候 close 停止定时同步 最后提交一次】
+     *
+     * @return
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "retry.cluster", name = "enabled", havingValue = "true")
+    public ClusterRetryCoordinator clusterRetryCoordinator(RetryStateStore retryStateStore, ClusterRetryProperties properties,
+                                                           RetryBudgetRegistry retryBudgetRegistry) {
+        ClusterRetryCoordinator coordinator = new ClusterRetryCoordinator(retryStateStore, properties, retryBudgetRegistry);
+        coordinator.start();
+        return coordinator;
+    }
+
+    /**
+     * 重试用完之后的死信队列 写文件按批次刷盘，重启之后没有回放成功的死信还在
+     * 【容器关闭的时候 close 刷盘、释放目录的锁】
+     *
+     * @return
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "retry.dead-letter", name = "enabled", havingValue = "true")
+    public DeadLetterQueue deadLetterQueue(DeadLetterProperties properties) {
+        return new DeadLetterQueue(Paths.get(properties.getDirectory()), properties.getCapacity(), properties.getSegmentSize(),
+                properties.getFlushBatchSize(), properties.getFlushInterval());
+    }
 
-            @Override
-            protected <T, E extends Throwable> void doOnError(RetryContext context, MethodInvocationRetryCallback<T, E> callback, Throwable throwable) {
-                log.info("retry doOnError count={} method name={}", context.getRetryCount(), callback.getInvocation().getMethod().getName());
+    /**
+     * 后台按 drain-rate 回放死信 调用原来的 @Recover 方法
+     *
+     * @return
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "retry.dead-letter", name = "enabled", havingValue = "true")
+    public DeadLetterDrainer deadLetterDrainer(DeadLetterQueue deadLetterQueue, DeadLetterProperties properties,
+                                               BeanFactory beanFactory) {
+        DeadLetterDrainer drainer = new DeadLetterDrainer(deadLetterQueue, new RecoverDeadLetterHandler(beanFactory),
+                properties.getDrainRate(), properties.getRetryDelay(), properties.getMaxRetryDelay(), properties.getMaxFailures());
+        drainer.start();
+        return drainer;
+    }
+
+    /**
+     * 注解方式的兜底 retry.dead-letter.labels 里面的方法交给死信队列，其他的同步兜底
+     *
+     * @return
+     */
+    @Bean
+    public DeadLetterRecoverer deadLetterRecoverer(ObjectProvider<DeadLetterQueue> deadLetterQueue, DeadLetterProperties properties) {
+        return new DeadLetterRecoverer(deadLetterQueue.getIfAvailable(), properties.getLabels());
+    }
+
+    /**
+     * 兜底之前的缓存 retry.fallback-cache.labels 里面的方法重试用完之后 用最近一次成功的返回值兜底，不再调用 @Recover；
+     * 没有打开的时候什么都不缓存 总是走原来的兜底
+     * 【容器关闭的时候 close 停止后台刷新的线程】
+     *
+     * @return
+     */
+    @Bean(destroyMethod = "close")
+    public FallbackResultCache fallbackResultCache(FallbackCacheProperties properties, LabelRoutingKeyGenerator retryKeyGenerator) {
+        if (!properties.isEnabled()) {
+            return new FallbackResultCache(retryKeyGenerator, Collections.emptySet(), 1, 0, 0, null);
+        }
+        ThreadPoolExecutor revalidateExecutor = null;
+        if (properties.getStaleWhileRevalidate() > 0) {
+            // 一个线程够用 同一个 key 同时只有一个刷新，积压满了之后不刷新 下次用到的时候再提交
+            revalidateExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(100),
+                    new CustomizableThreadFactory("retry-revalidate-"));
+        }
+        return new FallbackResultCache(retryKeyGenerator, properties.getLabels(), properties.getMaximumSize(),
+                properties.getTimeToLive(), properties.getStaleWhileRevalidate(), revalidateExecutor);
+    }
+
+    /**
+     * 在重试拦截器和重试预算之间 每次尝试成功之后记录返回值，@Recover 的返回值不会被缓存
+     *
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "retry.fallback-cache", name = "enabled", havingValue = "true")
+    public RetryableMethodAdvisor fallbackCacheAdvisor(FallbackResultCache fallbackResultCache) {
+        return new RetryableMethodAdvisor(new FallbackCacheInterceptor(fallbackResultCache), RetryableMethodAdvisor.FALLBACK_CACHE_ORDER);
+    }
+
+    /**
+     * 注解方式 @Retryable 的重试预算 在重试拦截器和熔断之间，预算用完了不再退避、重试 直接走 @Recover
+     *
+     * @return
+     */
+    @Bean
+    public RetryableMethodAdvisor retryBudgetAdvisor(RetryBudgetRegistry retryBudgetRegistry) {
+        return new RetryableMethodAdvisor(new RetryBudgetInterceptor(retryBudgetRegistry), RetryableMethodAdvisor.RETRY_BUDGET_ORDER);
+    }
+
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(CircuitBreakerProperties properties) {
+        return new CircuitBreakerRegistry(properties);
+    }
+
+    /**
+     * 熔断 在重试拦截器的里面，每次尝试之前检查，打开的时候不再退避、重试 直接走 @Recover
+     * label 级别的熔断 名称为 @Retryable 的 label，没有 label 的时候为 类名.方法名
+     *
+     * @return
+     */
+    @Bean
+    public RetryableMethodAdvisor circuitBreakerAdvisor(CircuitBreakerRegistry circuitBreakerRegistry) {
+        return new RetryableMethodAdvisor(new CircuitBreakerInterceptor(circuitBreakerRegistry), RetryableMethodAdvisor.CIRCUIT_BREAKER_ORDER);
+    }
+
+    /**
+     * {@link RetryConfiguration} 没有设置 order (默认 LOWEST_PRECEDENCE)，和熔断的 advisor 一样的时候先后顺序不确定，
+     * 这里改成 {@link RetryableMethodAdvisor#RETRY_ORDER} 保证重试拦截器在最外层 (返回 Mono/Flux 的方法在 reactive 的 advisor 里面就处理完了)，然后是兜底缓存、重试预算、熔断
+     * 【RetryConfiguration 在注册 BeanPostProcessor 的阶段就创建了 BeanPostProcessor 改不到，改 bean 定义上的 order 属性】
+     *
+     * @return
+     */
+    @Bean
+    public static BeanFactoryPostProcessor retryAdvisorOrderPostProcessor() {
+        return beanFactory -> {
+            for (String beanName : beanFactory.getBeanNamesForType(RetryConfiguration.class, true, false)) {
+                beanFactory.getBeanDefinition(beanName).getPropertyValues()
+                        .add("order", RetryableMethodAdvisor.RETRY_ORDER);
             }
         };
-
     }
 
 }
-
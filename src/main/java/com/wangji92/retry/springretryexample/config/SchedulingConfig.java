@@ -1,5 +1,13 @@
 package com.wangji92.retry.springretryexample.config;
 
+import com.wangji92.retry.springretryexample.support.schedule.RetryTaskEndpoint;
+import com.wangji92.retry.springretryexample.support.schedule.RetryTaskScheduler;
+import com.wangji92.retry.springretryexample.support.schedule.RetryTaskSchedulerProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
@@ -11,5 +19,25 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @Configuration
 @EnableScheduling
 @EnableAsync
+@EnableConfigurationProperties(RetryTaskSchedulerProperties.class)
 public class SchedulingConfig {
+
+    /**
+     * @Scheduled 的任务在 work-stealing 的线程池里面执行，一个任务在重试的退避里面不会拖住其他任务，
+     * 上一次还没执行完的调度按 retry.task-scheduler 的配置丢掉、排队或者合并
+     * 【名称为 taskScheduler 替换 spring boot 默认的单线程调度器】
+     *
+     * @return
+     */
+    @Bean(name = "taskScheduler", destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "retry.task-scheduler", name = "enabled", havingValue = "true")
+    public RetryTaskScheduler taskScheduler(RetryTaskSchedulerProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RetryTaskScheduler(properties, meterRegistry.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "retry.task-scheduler", name = "enabled", havingValue = "true")
+    public RetryTaskEndpoint retryTaskEndpoint(RetryTaskScheduler taskScheduler) {
+        return new RetryTaskEndpoint(taskScheduler);
+    }
 }
@@ -0,0 +1,36 @@
+package com.wangji92.retry.springretryexample.controller;
+
+import com.wangji92.retry.springretryexample.support.http.PooledClientHttpRequestFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * RestTemplate 连接池的状态 pending 一直大于 0 说明 max-per-route 不够用了
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@RestController
+public class HttpClientPoolController {
+
+    @Autowired
+    private PooledClientHttpRequestFactory pooledClientHttpRequestFactory;
+
+    /**
+     * 整个连接池、每个 host:port 的 leased、pending、available、max 以及新建的连接总数
+     *
+     * @return
+     */
+    @GetMapping("/httpClientPool")
+    public Map<String, Object> httpClientPool() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", pooledClientHttpRequestFactory.getTotalStats());
+        result.put("routes", pooledClientHttpRequestFactory.getRouteStats());
+        result.put("openedConnections", pooledClientHttpRequestFactory.getOpenedConnections());
+        return result;
+    }
+}
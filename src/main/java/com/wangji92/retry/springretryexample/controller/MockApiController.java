@@ -1,12 +1,27 @@
 package com.wangji92.retry.springretryexample.controller;
 
+import com.wangji92.retry.springretryexample.dto.TextMessageDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
 import static org.springframework.http.HttpStatus.UNAUTHORIZED;
 
 /**
@@ -19,20 +34,93 @@ import static org.springframework.http.HttpStatus.UNAUTHORIZED;
 public class MockApiController {
 
     /**
-     * 模拟服务不正常
+     * /outageApi 每个阶段的失败比例 按 outageStepMillis 轮流切换
+     */
+    @Value("${mock.outage.trace:0.05,0.05,0.9,0.9,0.2,0.05}")
+    private double[] outageTrace;
+
+    @Value("${mock.outage.step-millis:30000}")
+    private long outageStepMillis;
+
+    /**
+     * 模拟服务不正常 429、503 带上 Retry-After
      *
      * @param status
+     * @param retryAfter Retry-After 的秒数
      * @return
      */
     @GetMapping("/unstableApi/{status}")
-    public ResponseEntity<Integer> unstableApi(@PathVariable int status) {
+    public ResponseEntity<Integer> unstableApi(@PathVariable int status,
+                                               @RequestParam(defaultValue = "1") long retryAfter) {
         if (INTERNAL_SERVER_ERROR.value() == status) {
             throw new ResponseStatusException(INTERNAL_SERVER_ERROR);
         }
         if (UNAUTHORIZED.value() == status) {
             throw new ResponseStatusException(UNAUTHORIZED);
         }
+        if (TOO_MANY_REQUESTS.value() == status || SERVICE_UNAVAILABLE.value() == status) {
+            return ResponseEntity.status(status).header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter)).build();
+        }
         return ResponseEntity.ok(status);
     }
 
+    /**
+     * 模拟耗时长尾：大部分请求耗时在 medianMillis 上下，slowRate 比例的请求耗时 slowMillis
+     * 对比对冲请求前后的 p99 (/actuator/retry/retryTestServiceHedged)
+     *
+     * @param medianMillis 正常请求的耗时 实际在 0.5 ~ 1.5 倍之间
+     * @param slowRate     0 ~ 1 慢请求的比例
+     * @param slowMillis   慢请求的耗时
+     * @return 200
+     * @throws InterruptedException
+     */
+    @GetMapping("/latencyApi")
+    public ResponseEntity<Integer> latencyApi(@RequestParam(defaultValue = "${mock.latency.median-millis:20}") long medianMillis,
+                                              @RequestParam(defaultValue = "${mock.latency.slow-rate:0.05}") double slowRate,
+                                              @RequestParam(defaultValue = "${mock.latency.slow-millis:1000}") long slowMillis) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long latency = random.nextDouble() < slowRate ? slowMillis : (long) (medianMillis * (0.5 + random.nextDouble()));
+        TimeUnit.MILLISECONDS.sleep(latency);
+        return ResponseEntity.ok(OK.value());
+    }
+
+    /**
+     * 模拟批量接口部分失败：整个请求返回 200，每个条目按 failureRate 的比例随机返回 500
+     * 压测批量重试的时候可以调高 failureRate 看每一轮重新发送的条目数
+     *
+     * @param messages
+     * @param failureRate 0 ~ 1 每个条目失败的概率
+     * @return messageId -> 状态码
+     */
+    @PostMapping("/unstableApi/batch")
+    public Map<String, Integer> unstableBatchApi(@RequestBody List<TextMessageDto> messages,
+                                                 @RequestParam(defaultValue = "${mock.batch.failure-rate:0.3}") double failureRate) {
+        Map<String, Integer> statuses = new LinkedHashMap<>();
+        for (TextMessageDto message : messages) {
+            boolean failed = ThreadLocalRandom.current().nextDouble() < failureRate;
+            statuses.put(message.getMessageId(), failed ? INTERNAL_SERVER_ERROR.value() : OK.value());
+        }
+        return statuses;
+    }
+
+    /**
+     * 模拟下游故障、恢复：failureRate 的比例返回 500，没有传 failureRate 的时候按 mock.outage.trace 的阶段，
+     * 每 mock.outage.step-millis 切换到下一个阶段 (正常 -> 故障 -> 恢复)，看自适应重试的次数、退避跟着变化
+     *
+     * @param failureRate   0 ~ 1 失败的比例
+     * @param latencyMillis 每个请求的耗时
+     * @return 200
+     * @throws InterruptedException
+     */
+    @GetMapping("/outageApi")
+    public ResponseEntity<Integer> outageApi(@RequestParam(required = false) Double failureRate,
+                                             @RequestParam(defaultValue = "${mock.outage.latency-millis:20}") long latencyMillis) throws InterruptedException {
+        double rate = failureRate != null ? failureRate
+                : outageTrace[(int) (System.currentTimeMillis() / outageStepMillis % outageTrace.length)];
+        TimeUnit.MILLISECONDS.sleep(latencyMillis);
+        if (ThreadLocalRandom.current().nextDouble() < rate) {
+            throw new ResponseStatusException(INTERNAL_SERVER_ERROR);
+        }
+        return ResponseEntity.ok(OK.value());
+    }
 }
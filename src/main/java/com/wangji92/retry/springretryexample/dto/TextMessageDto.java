@@ -1,12 +1,19 @@
 package com.wangji92.retry.springretryexample.dto;
 
+import com.wangji92.retry.springretryexample.support.key.RetryKey;
+
+import java.io.Serializable;
 import java.util.Objects;
 
 /**
  * @author 汪小哥
  * @date 03-04-2021
  */
-public class TextMessageDto {
+public class TextMessageDto implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @RetryKey
     private String messageId;
     private String messageBody;
 
@@ -41,8 +48,13 @@ public class TextMessageDto {
         return Objects.equals(messageId, that.messageId);
     }
 
+    /**
+     * 只有一个字段 不用 Objects.hash 的可变参数数组
+     *
+     * @return
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(messageId);
+        return Objects.hashCode(messageId);
     }
 }
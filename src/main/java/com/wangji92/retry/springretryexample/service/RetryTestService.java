@@ -1,5 +1,11 @@
 package com.wangji92.retry.springretryexample.service;
 
+import com.wangji92.retry.springretryexample.support.async.AsyncRetryTemplate;
+import com.wangji92.retry.springretryexample.support.deadletter.DeadLetterRecoverer;
+import com.wangji92.retry.springretryexample.support.fallback.FallbackResultCache;
+import com.wangji92.retry.springretryexample.support.recover.CachedRecoverer;
+import com.wangji92.retry.springretryexample.support.timelimit.AttemptTimeoutException;
+import com.wangji92.retry.springretryexample.support.metrics.RecoverStackTraceSampler;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -8,25 +14,45 @@ import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Recover;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
-import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * 实现 CachedRecoverer 注解方式的兜底按异常类型匹配一次之后缓存 {@link CachedRecoverer}
+ *
  * @author 汪小哥
  * @date 02-04-2021
  */
 @Component
 @Slf4j
-public class RetryTestService {
+public class RetryTestService implements CachedRecoverer {
 
     private static final int DELAY_TIME = 5000;
 
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private WebClient webClient;
+
+    @Autowired
+    private RecoverStackTraceSampler recoverStackTraceSampler;
+
+    @Autowired
+    private AsyncRetryTemplate asyncRetryTemplate;
+
+    @Autowired
+    private DeadLetterRecoverer deadLetterRecoverer;
+
+    @Autowired
+    private FallbackResultCache fallbackResultCache;
+
     private AtomicInteger invokeCount = new AtomicInteger(1);
 
 
@@ -54,6 +80,114 @@ public class RetryTestService {
         return 500;
     }
 
+    /**
+     * 每次尝试限时执行的版本 重试策略、超时时间都在拦截器里面 注解上的其他属性不生效
+     * {@link com.wangji92.retry.springretryexample.config.RetryConfig#timeLimitedRetryInterceptor}
+     *
+     * @return
+     */
+    @Retryable(interceptor = "timeLimitedRetryInterceptor")
+    public Integer retryTestServiceLimitTime() {
+        log.info("retryTestServiceLimitTime current thread name={}", Thread.currentThread().getName());
+        return retryTestService();
+    }
+
+    /**
+     * 对冲请求的版本 第一次请求超过最近成功耗时的分位数还没有返回就再发一次，哪个先成功用哪个
+     * 慢但是成功的调用不再拖高 p99；对冲之后仍然失败按 registry 的 retryTestServiceHedged 策略重试、兜底
+     * {@link com.wangji92.retry.springretryexample.support.hedge.HedgingRetryInterceptor}
+     *
+     * @return
+     */
+    @Retryable(interceptor = "hedgingRetryInterceptor", label = "retryTestServiceHedged")
+    public Integer retryTestServiceHedged() {
+        try {
+            ResponseEntity<Integer> responseEntity = restTemplate.getForEntity("http://localhost:8080/latencyApi", Integer.class);
+            return responseEntity.getBody();
+        } catch (Exception e) {
+            log.info("try get latency api failed", e);
+            throw new RemoteAccessException("500", e);
+        }
+    }
+
+    /**
+     * 自适应重试的版本 次数、退避不写死在注解上，按 /outageApi 最近的错误率、耗时在 registry 的 retryTestServiceAdaptive 策略范围内调整，
+     * 下游故障的时候少重试、早兜底，恢复之后回到 max-attempts
+     * {@link com.wangji92.retry.springretryexample.support.adaptive.AdaptiveRetryPolicy}
+     *
+     * @return
+     */
+    @Retryable(interceptor = "adaptiveRetryInterceptor", label = "retryTestServiceAdaptive")
+    public Integer retryTestServiceAdaptive() {
+        try {
+            ResponseEntity<Integer> responseEntity = restTemplate.getForEntity("http://localhost:8080/outageApi", Integer.class);
+            return responseEntity.getBody();
+        } catch (Exception e) {
+            log.info("try get outage api failed {}", e.getMessage());
+            throw new RemoteAccessException("500", e);
+        }
+    }
+
+    /**
+     * 按状态码分类重试的版本 异常不再包成 RemoteAccessException("500")：500、502 重试，401 之类的第一次失败就兜底，
+     * 429、503 按 Retry-After 等待之后重试，按 registry 的 retryTestServiceClassified 策略
+     * {@link com.wangji92.retry.springretryexample.support.classify.HttpRetryClassifier}
+     *
+     * @param status /unstableApi 返回的状态码
+     * @return
+     */
+    @Retryable(interceptor = "classifiedRetryInterceptor", label = "retryTestServiceClassified")
+    public Integer retryTestServiceClassified(int status) {
+        ResponseEntity<Integer> responseEntity = restTemplate.getForEntity("http://localhost:8080/unstableApi/{status}", Integer.class, status);
+        return responseEntity.getBody();
+    }
+
+    /**
+     * 非阻塞的版本 注解的属性和 retryTestService 一样，重试、退避在订阅之后进行 不占用调用线程
+     * {@link com.wangji92.retry.springretryexample.support.reactive.ReactiveRetryInterceptor}
+     *
+     * @return
+     */
+    @Retryable(value = RemoteAccessException.class, backoff = @Backoff(DELAY_TIME), maxAttempts = 2, recover = "recoverReactive")
+    public Mono<Integer> retryTestServiceReactive() {
+        int count = invokeCount.getAndIncrement();
+        String url = "http://localhost:8080/unstableApi/500";
+        if (count % 2 == 0 && count % 5 == 0) {
+            url = "http://localhost:8080/unstableApi/200";
+        }
+        return webClient.get().uri(url).retrieve().toBodilessEntity()
+                .map(responseEntity -> 500)
+                .onErrorMap(e -> !(e instanceof RemoteAccessException), e -> {
+                    log.info("try get unstable api failed {}", e.getMessage());
+                    return new RemoteAccessException("500", e);
+                });
+    }
+
+    /**
+     * 异步重试的版本 退避期间不会 sleep 占用调用线程 (调度线程、tomcat 线程)
+     * 【this 调用不会经过 aop 代理，这里只是复用单次调用的逻辑】
+     *
+     * @return
+     */
+    public CompletableFuture<Integer> retryTestServiceAsync() {
+        return asyncRetryTemplate.execute(this::retryTestService,
+                e -> recover(e instanceof RemoteAccessException ? (RemoteAccessException) e : new RemoteAccessException("500", e)));
+    }
+
+    /**
+     * retry.fallback-cache.labels 里面的方法先用最近一次成功的返回值兜底 {@link FallbackResultCache}；
+     * 没有的时候交给 DeadLetterRecoverer，retry.dead-letter.labels 里面的方法放到死信队列 后台回放 @Recover，其他的同步兜底
+     * {@link com.wangji92.retry.springretryexample.support.deadletter.DeadLetterDrainer}
+     *
+     * @param args
+     * @param cause
+     * @return
+     */
+    @Override
+    public Object recover(Object[] args, Throwable cause) {
+        return fallbackResultCache.recover(args, cause, () -> deadLetterRecoverer.recover(this, args, cause));
+    }
+
     /**
      * 作为恢复处理程序的方法调用的注释。合适的恢复处理程序具有Throwable类型（或Throwable的子类型）的第一个参数和与要从中恢复的@Retryable方法相同类型的返回值。Throwable第一个参数是可选的（但是没有它的方法只有在没有其他参数匹配时才会被调用）。后续参数按顺序从失败方法的参数列表中填充
      *
@@ -61,12 +195,46 @@ public class RetryTestService {
      */
     @Recover
     public Integer recover(RemoteAccessException e) {
-        String stack = Arrays.toString(Thread.currentThread().getStackTrace());
-        stack = stack.replaceAll(",", "\n");
-        log.info("recover is begin : 堆栈 \n {}", stack);
+        // 调用栈只在排查问题的时候采样打印 默认关闭
+        recoverStackTraceSampler.sample(log, "recover is begin : 堆栈");
         ResponseEntity<String> responseEntity = restTemplate.getForEntity("http://localhost:8080/unstableApi/200", String.class);
         log.info("remote response is {}", responseEntity.getBody());
         return Integer.parseInt(Objects.requireNonNull(responseEntity.getBody()));
     }
 
+    /**
+     * 非阻塞版本的兜底 返回值要和重试的方法一样是 Mono
+     *
+     * @param e
+     */
+    @Recover
+    public Mono<Integer> recoverReactive(RemoteAccessException e) {
+        return webClient.get().uri("http://localhost:8080/unstableApi/200").retrieve().bodyToMono(String.class)
+                .doOnNext(body -> log.info("remote response is {}", body))
+                .map(Integer::parseInt);
+    }
+
+    /**
+     * 按状态码分类重试的兜底 RestTemplate 原始的异常 (HttpStatusCodeException、ResourceAccessException)
+     *
+     * @param e
+     * @param status
+     */
+    @Recover
+    public Integer recoverClassified(RestClientException e, int status) {
+        log.info("classified retry recover status={} {}", status, e.getMessage());
+        return recover(new RemoteAccessException(e.getMessage(), e));
+    }
+
+    /**
+     * 单次尝试超时的兜底
+     *
+     * @param e
+     */
+    @Recover
+    public Integer recoverTimeout(AttemptTimeoutException e) {
+        log.info("attempt timeout recover {}", e.getMessage());
+        return recover(new RemoteAccessException("timeout", e));
+    }
+
 }
@@ -1,32 +1,61 @@
 package com.wangji92.retry.springretryexample.service;
 
 import com.wangji92.retry.springretryexample.dto.TextMessageDto;
+import com.wangji92.retry.springretryexample.support.batch.BatchResult;
+import com.wangji92.retry.springretryexample.support.batch.BatchRetryExhaustedException;
+import com.wangji92.retry.springretryexample.support.deadletter.DeadLetterRecoverer;
+import com.wangji92.retry.springretryexample.support.fallback.FallbackResultCache;
+import com.wangji92.retry.springretryexample.support.metrics.RecoverStackTraceSampler;
+import com.wangji92.retry.springretryexample.support.recover.CachedRecoverer;
+import com.wangji92.retry.springretryexample.support.recover.RecoverDispatcher;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.ExhaustedRetryException;
 import org.springframework.retry.annotation.*;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.Arrays;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * 实现 CachedRecoverer 注解方式的兜底按异常类型匹配一次之后缓存 {@link CachedRecoverer}
+ *
  * @author 汪小哥
  * @date 03-04-2021
  */
 @Component
 @Slf4j
-public class StatefulRetryTestService {
+public class StatefulRetryTestService implements CachedRecoverer {
 
     private static final int DELAY_TIME = 5000;
 
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private RecoverStackTraceSampler recoverStackTraceSampler;
+
+    @Autowired
+    private DeadLetterRecoverer deadLetterRecoverer;
+
+    @Autowired
+    private FallbackResultCache fallbackResultCache;
+
+    private static final ParameterizedTypeReference<Map<String, Integer>> BATCH_RESPONSE_TYPE =
+            new ParameterizedTypeReference<Map<String, Integer>>() {
+            };
+
     private AtomicInteger invokeCount = new AtomicInteger(1);
 
     /**
@@ -64,6 +93,72 @@ public class StatefulRetryTestService {
         return 500;
     }
 
+    /**
+     * 批量发送 一次 http 调用发送多条消息，部分失败的时候只重新发送失败的条目 每条消息单独计数
+     * 重试的轮数、退避在 batchRetryInterceptor 使用的策略里面 (stateFullRetryTestSendMessages)
+     * {@link com.wangji92.retry.springretryexample.support.batch.BatchRetryInterceptor}
+     * 【批量重试在一次调用里面完成 不是消息重新投递的有状态重试】
+     *
+     * @param messages
+     * @return 每条消息的结果
+     */
+    @Retryable(interceptor = "batchRetryInterceptor", label = "stateFullRetryTestSendMessages")
+    public BatchResult<TextMessageDto, Integer> stateFullRetryTestSendMessages(List<TextMessageDto> messages) {
+        Map<String, Integer> statuses;
+        try {
+            statuses = restTemplate.exchange("http://localhost:8080/unstableApi/batch", HttpMethod.POST,
+                    new HttpEntity<>(messages), BATCH_RESPONSE_TYPE).getBody();
+        } catch (Exception e) {
+            log.info("try send messages failed size={}", messages.size(), e);
+            throw new RemoteAccessException("500", e);
+        }
+        BatchResult<TextMessageDto, Integer> result = new BatchResult<>();
+        for (TextMessageDto messageDto : messages) {
+            Integer status = statuses == null ? null : statuses.get(messageDto.getMessageId());
+            if (status != null && status == HttpStatus.OK.value()) {
+                result.success(messageDto, status);
+            } else {
+                result.failure(messageDto, new RemoteAccessException(String.valueOf(status)));
+            }
+        }
+        log.info("send messages size={} failed={}", messages.size(), result.getFailures().size());
+        return result;
+    }
+
+    /**
+     * 批量的兜底 messages 只有重试之后仍然失败的消息，所有失败的消息一起兜底 只调用一次
+     *
+     * @param e
+     * @param messages
+     * @return
+     */
+    @Recover
+    public BatchResult<TextMessageDto, Integer> recoverMessages(BatchRetryExhaustedException e, List<TextMessageDto> messages) {
+        for (TextMessageDto messageDto : messages) {
+            log.error("stateFullRetryTestSendMessages error messageId={} attempts={}", messageDto.getMessageId(),
+                    e.getAttempts(messageDto));
+        }
+        ResponseEntity<String> responseEntity = restTemplate.getForEntity("http://localhost:8080/unstableApi/200", String.class);
+        int fallback = Integer.parseInt(Objects.requireNonNull(responseEntity.getBody()));
+        BatchResult<TextMessageDto, Integer> result = new BatchResult<>();
+        messages.forEach(messageDto -> result.success(messageDto, fallback));
+        return result;
+    }
+
+    /**
+     * retry.fallback-cache.labels 里面的方法先用最近一次成功的返回值兜底 {@link FallbackResultCache}；
+     * 没有的时候交给 DeadLetterRecoverer，retry.dead-letter.labels 里面的方法放到死信队列 后台回放 @Recover，其他的同步兜底
+     * {@link com.wangji92.retry.springretryexample.support.deadletter.DeadLetterDrainer}
+     *
+     * @param args
+     * @param cause
+     * @return
+     */
+    @Override
+    public Object recover(Object[] args, Throwable cause) {
+        return fallbackResultCache.recover(args, cause, () -> deadLetterRecoverer.recover(this, args, cause));
+    }
+
     /**
      * 作为恢复处理程序的方法调用的注释。合适的恢复处理程序具有Throwable类型（或Throwable的子类型）的第一个参数和与要从中恢复的@Retryable方法相同类型的返回值。Throwable第一个参数是可选的（但是没有它的方法只有在没有其他参数匹配时才会被调用）。后续参数按顺序从失败方法的参数列表中填充
      *
@@ -74,9 +169,8 @@ public class StatefulRetryTestService {
         if (messageDto != null) {
             log.error("stateFullRetryTestSendMessage error  messageId={}", messageDto.getMessageId());
         }
-        String stack = Arrays.toString(Thread.currentThread().getStackTrace());
-        stack = stack.replaceAll(",", "\n");
-        log.info("recover is begin : 堆栈 \n {}", stack);
+        // 调用栈只在排查问题的时候采样打印 默认关闭
+        recoverStackTraceSampler.sample(log, "recover is begin : 堆栈");
         ResponseEntity<String> responseEntity = restTemplate.getForEntity("http://localhost:8080/unstableApi/200", String.class);
         log.info("remote response is {}", responseEntity.getBody());
         return Integer.parseInt(Objects.requireNonNull(responseEntity.getBody()));
@@ -87,17 +181,24 @@ public class StatefulRetryTestService {
      * recover 的返回值 要和 retry的一致 【int Integer 不一样哦】
      * recover 的第一个参数是异常 其他的和调用方法的参数保持一致...
      * {@link AnnotationAwareRetryOperationsInterceptor#getDelegate(java.lang.Object, java.lang.reflect.Method)}
+     * 实现了 CachedRecoverer 之后用的是 {@link RecoverDispatcher}，匹配规则一样 (RuntimeException 找不到兜底方法)
      *
      * @param args
      */
     public static void main(String[] args) {
         StatefulRetryTestService statefulRetryTestService = new StatefulRetryTestService();
-        RecoverAnnotationRecoveryHandler<?> handler = new RecoverAnnotationRecoveryHandler<>(
-                statefulRetryTestService, ReflectionUtils.findMethod(StatefulRetryTestService.class, "stateFullRetryTestSendMessage", TextMessageDto.class));
+        Method method = ReflectionUtils.findMethod(StatefulRetryTestService.class, "stateFullRetryTestSendMessage", TextMessageDto.class);
+        RecoverAnnotationRecoveryHandler<?> handler = new RecoverAnnotationRecoveryHandler<>(statefulRetryTestService, method);
 
         TextMessageDto messageDto = new TextMessageDto();
         messageDto.setMessageId("001");
 
+        try {
+            RecoverDispatcher.forMethod(StatefulRetryTestService.class, method)
+                    .recover(statefulRetryTestService, new Object[]{messageDto}, new RuntimeException("Planned"));
+        } catch (ExhaustedRetryException e) {
+            log.info("cached dispatcher: {}", e.getMessage());
+        }
         handler.recover(new Object[]{messageDto}, new RuntimeException("Planned"));
     }
 
@@ -0,0 +1,66 @@
+package com.wangji92.retry.springretryexample.support.adaptive;
+
+import com.wangji92.retry.springretryexample.support.backoff.JitterBackOff;
+import com.wangji92.retry.springretryexample.support.backoff.JitterBackOffPolicy;
+import com.wangji92.retry.springretryexample.support.backoff.JitterMode;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.retry.backoff.ThreadWaitSleeper;
+
+/**
+ * 按下游最近的耗时、错误率调整退避时间，抖动、截止时间和 {@link JitterBackOffPolicy} 一样
+ * <p>
+ * 基准时间 = max(base, 耗时 EWMA * latencyMultiplier) * (1 + 错误率 EWMA * errorRateMultiplier)，
+ * 之后按 multiplier 增长、抖动，不超过 cap；下游变慢、错误变多的时候等久一点 给下游恢复的时间。
+ * 下游的名称从 RetryContext 的 {@link AdaptiveRetryPolicy#TARGET} 取，没有或者样本不够的时候按配置的 base 退避
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class AdaptiveBackOffPolicy extends JitterBackOffPolicy {
+
+    private final DownstreamHealthRegistry downstreamHealthRegistry;
+
+    /**
+     * @param jitterBackOff 策略配置的抖动方式、下限 (base)、上限 (cap)、增长倍数
+     * @param deadline      整个调用的截止时间(毫秒) 0 不限制
+     */
+    public AdaptiveBackOffPolicy(JitterBackOff jitterBackOff, long deadline, DownstreamHealthRegistry downstreamHealthRegistry) {
+        this(jitterBackOff, deadline, downstreamHealthRegistry, new ThreadWaitSleeper());
+    }
+
+    public AdaptiveBackOffPolicy(JitterBackOff jitterBackOff, long deadline, DownstreamHealthRegistry downstreamHealthRegistry,
+                                 Sleeper sleeper) {
+        super(jitterBackOff, deadline, sleeper);
+        this.downstreamHealthRegistry = downstreamHealthRegistry;
+    }
+
+    @Override
+    public AdaptiveBackOffPolicy withSleeper(Sleeper sleeper) {
+        return new AdaptiveBackOffPolicy(getJitterBackOff(), getDeadline(), downstreamHealthRegistry, sleeper);
+    }
+
+    @Override
+    protected long nextDelay(RetryContext retryContext, int retry, long previous) {
+        DownstreamHealth health = retryContext == null ? null
+                : downstreamHealthRegistry.find((String) retryContext.getAttribute(AdaptiveRetryPolicy.TARGET));
+        if (health == null || health.samples() < downstreamHealthRegistry.getProperties().getMinSamples()) {
+            return super.nextDelay(retryContext, retry, previous);
+        }
+        return getJitterBackOff().jitter(ceiling(health, retry), previous);
+    }
+
+    /**
+     * @return 没有抖动时第 retry 次重试的退避时间 不超过 cap
+     */
+    long ceiling(DownstreamHealth health, int retry) {
+        AdaptiveRetryProperties properties = downstreamHealthRegistry.getProperties();
+        JitterBackOff jitterBackOff = getJitterBackOff();
+        double base = Math.max(jitterBackOff.getBase(), health.latencyMillis() * properties.getLatencyMultiplier());
+        double ceiling = base * (1 + health.errorRate() * properties.getErrorRateMultiplier());
+        if (jitterBackOff.getMode() != JitterMode.DECORRELATED) {
+            ceiling *= Math.pow(jitterBackOff.getMultiplier(), retry - 1);
+        }
+        return (long) Math.min(jitterBackOff.getCap(), ceiling);
+    }
+}
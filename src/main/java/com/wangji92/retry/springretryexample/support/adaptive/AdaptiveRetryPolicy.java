@@ -0,0 +1,100 @@
+package com.wangji92.retry.springretryexample.support.adaptive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryPolicy;
+
+/**
+ * 按下游最近的错误率调整尝试次数：错误率不超过 healthyErrorRate 的时候为 maxAttempts，
+ * 超过 unhealthyErrorRate 的时候为 minAttempts，中间线性减少
+ * <p>
+ * 下游整体故障的时候重试基本都会失败 只会放大下游的压力，这个时候少重试、早兜底；恢复之后自动回到 maxAttempts。
+ * 下游的名称从 RetryContext 的 {@link #TARGET} 取 ({@link DownstreamHealthClientHttpRequestInterceptor} 放上去的)，
+ * 没有经过 RestTemplate 或者样本不够的时候和委托的策略一样
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class AdaptiveRetryPolicy implements RetryPolicy {
+
+    /**
+     * RetryContext 上最近一次请求的下游名称 host:port/path
+     */
+    public static final String TARGET = AdaptiveRetryPolicy.class.getName() + ".target";
+
+    private final RetryPolicy delegate;
+
+    private final int maxAttempts;
+
+    private final DownstreamHealthRegistry downstreamHealthRegistry;
+
+    /**
+     * @param delegate    异常分类、次数上限 (SimpleRetryPolicy)
+     * @param maxAttempts 次数上限 和委托的策略一样
+     */
+    public AdaptiveRetryPolicy(RetryPolicy delegate, int maxAttempts, DownstreamHealthRegistry downstreamHealthRegistry) {
+        this.delegate = delegate;
+        this.maxAttempts = maxAttempts;
+        this.downstreamHealthRegistry = downstreamHealthRegistry;
+    }
+
+    @Override
+    public boolean canRetry(RetryContext context) {
+        if (!delegate.canRetry(context)) {
+            return false;
+        }
+        int retryCount = context.getRetryCount();
+        if (retryCount == 0) {
+            return true;
+        }
+        DownstreamHealth health = downstreamHealthRegistry.find((String) context.getAttribute(TARGET));
+        int allowed = allowedAttempts(health);
+        if (retryCount >= allowed) {
+            log.debug("adaptive retry stop {} allowedAttempts={}", health, allowed);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param target host:port/path
+     * @return 这个下游现在允许的尝试次数 包含第一次
+     */
+    public int allowedAttempts(String target) {
+        return allowedAttempts(downstreamHealthRegistry.find(target));
+    }
+
+    private int allowedAttempts(DownstreamHealth health) {
+        AdaptiveRetryProperties properties = downstreamHealthRegistry.getProperties();
+        if (health == null || health.samples() < properties.getMinSamples()) {
+            return maxAttempts;
+        }
+        int minAttempts = Math.min(maxAttempts, Math.max(1, properties.getMinAttempts()));
+        double errorRate = health.errorRate();
+        if (errorRate <= properties.getHealthyErrorRate()) {
+            return maxAttempts;
+        }
+        if (errorRate >= properties.getUnhealthyErrorRate()) {
+            return minAttempts;
+        }
+        double healthy = (properties.getUnhealthyErrorRate() - errorRate)
+                / (properties.getUnhealthyErrorRate() - properties.getHealthyErrorRate());
+        return minAttempts + (int) Math.round((maxAttempts - minAttempts) * healthy);
+    }
+
+    @Override
+    public RetryContext open(RetryContext parent) {
+        return delegate.open(parent);
+    }
+
+    @Override
+    public void close(RetryContext context) {
+        delegate.close(context);
+    }
+
+    @Override
+    public void registerThrowable(RetryContext context, Throwable throwable) {
+        delegate.registerThrowable(context, throwable);
+    }
+}
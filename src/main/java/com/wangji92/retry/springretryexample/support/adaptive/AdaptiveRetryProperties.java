@@ -0,0 +1,129 @@
+package com.wangji92.retry.springretryexample.support.adaptive;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 自适应重试的配置 按下游 (配置的 endpoint 模板，没有匹配的按 host:port) 最近的错误率、耗时调整重试次数和退避时间
+ * <pre>
+ * retry.registry.policies.retryTestServiceAdaptive.adaptive=true
+ * retry.adaptive.endpoints[0]=localhost:8080/users/{id}
+ * retry.adaptive.alpha=0.1
+ * retry.adaptive.healthy-error-rate=0.1
+ * retry.adaptive.unhealthy-error-rate=0.5
+ * </pre>
+ * 次数的上限是策略的 max-attempts，退避的下限、上限是策略的 back-off-period、max-back-off-period
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@ConfigurationProperties(prefix = "retry.adaptive")
+public class AdaptiveRetryProperties {
+
+    /**
+     * EWMA 最新样本的权重 越大越快跟上下游的变化，也越容易被偶发的失败影响
+     */
+    private double alpha = 0.1;
+
+    /**
+     * 样本数少于这个数的时候 按策略配置的次数、退避
+     */
+    private int minSamples = 5;
+
+    /**
+     * 最少的尝试次数 包含第一次，1 表示下游不健康的时候不再重试
+     */
+    private int minAttempts = 1;
+
+    /**
+     * 错误率不超过这个值的时候 使用策略的 max-attempts
+     */
+    private double healthyErrorRate = 0.1;
+
+    /**
+     * 错误率超过这个值的时候 使用 minAttempts，中间线性减少
+     */
+    private double unhealthyErrorRate = 0.5;
+
+    /**
+     * 退避时间不少于最近耗时的倍数 下游变慢的时候等久一点
+     */
+    private double latencyMultiplier = 2;
+
+    /**
+     * 退避时间按错误率放大 (1 + 错误率 * errorRateMultiplier) 倍
+     */
+    private double errorRateMultiplier = 4;
+
+    /**
+     * 下游的 URI 模板 host:port/path，path 支持 {id}、*、** (AntPathMatcher)
+     * 匹配上的请求按模板算一个下游，没有匹配的按 host:port 算 避免带 id 的 path 每个都记一份
+     */
+    private List<String> endpoints = new ArrayList<>();
+
+    public double getAlpha() {
+        return alpha;
+    }
+
+    public void setAlpha(double alpha) {
+        this.alpha = alpha;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    public int getMinAttempts() {
+        return minAttempts;
+    }
+
+    public void setMinAttempts(int minAttempts) {
+        this.minAttempts = minAttempts;
+    }
+
+    public double getHealthyErrorRate() {
+        return healthyErrorRate;
+    }
+
+    public void setHealthyErrorRate(double healthyErrorRate) {
+        this.healthyErrorRate = healthyErrorRate;
+    }
+
+    public double getUnhealthyErrorRate() {
+        return unhealthyErrorRate;
+    }
+
+    public void setUnhealthyErrorRate(double unhealthyErrorRate) {
+        this.unhealthyErrorRate = unhealthyErrorRate;
+    }
+
+    public double getLatencyMultiplier() {
+        return latencyMultiplier;
+    }
+
+    public void setLatencyMultiplier(double latencyMultiplier) {
+        this.latencyMultiplier = latencyMultiplier;
+    }
+
+    public double getErrorRateMultiplier() {
+        return errorRateMultiplier;
+    }
+
+    public void setErrorRateMultiplier(double errorRateMultiplier) {
+        this.errorRateMultiplier = errorRateMultiplier;
+    }
+
+    public List<String> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(List<String> endpoints) {
+        this.endpoints = endpoints;
+    }
+}
@@ -0,0 +1,82 @@
+package com.wangji92.retry.springretryexample.support.adaptive;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个下游 (host:port/path) 最近的错误率、耗时 指数加权移动平均 (EWMA)，线程安全
+ * <p>
+ * double 按 bits 存在 AtomicLong 里面 CAS 更新，不加锁；前 1/alpha 个样本按累计平均算，
+ * 不会因为初始值 0 把刚开始的错误率压低
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class DownstreamHealth {
+
+    private final String name;
+
+    private final double alpha;
+
+    private final AtomicLong errorRate = new AtomicLong(Double.doubleToLongBits(0));
+
+    private final AtomicLong latencyMillis = new AtomicLong(Double.doubleToLongBits(0));
+
+    private final AtomicLong samples = new AtomicLong();
+
+    /**
+     * @param name  host:port/path
+     * @param alpha 最新样本的权重 (0, 1]
+     */
+    public DownstreamHealth(String name, double alpha) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("alpha must be in (0, 1]: " + alpha);
+        }
+        this.name = name;
+        this.alpha = alpha;
+    }
+
+    /**
+     * @param error         连接异常、5xx
+     * @param latencyMillis 这一次请求的耗时(毫秒)
+     */
+    public void record(boolean error, long latencyMillis) {
+        long n = samples.incrementAndGet();
+        double weight = Math.max(alpha, 1.0 / n);
+        update(this.errorRate, error ? 1 : 0, weight);
+        update(this.latencyMillis, latencyMillis, weight);
+    }
+
+    private static void update(AtomicLong average, double sample, double weight) {
+        long current;
+        long next;
+        do {
+            current = average.get();
+            double value = Double.longBitsToDouble(current);
+            next = Double.doubleToLongBits(value + weight * (sample - value));
+        } while (!average.compareAndSet(current, next));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 0 ~ 1
+     */
+    public double errorRate() {
+        return Double.longBitsToDouble(errorRate.get());
+    }
+
+    public double latencyMillis() {
+        return Double.longBitsToDouble(latencyMillis.get());
+    }
+
+    public long samples() {
+        return samples.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s errorRate=%.3f latency=%.1fms samples=%d", name, errorRate(), latencyMillis(), samples());
+    }
+}
@@ -0,0 +1,51 @@
+package com.wangji92.retry.springretryexample.support.adaptive;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.support.RetrySynchronizationManager;
+
+import java.io.IOException;
+
+/**
+ * 记录每个下游 (endpoint 模板或者 host:port) 请求的结果、耗时，连接异常、5xx 算作失败
+ * <p>
+ * 在重试里面调用的时候把下游的名称放到 RetryContext 上 {@link AdaptiveRetryPolicy#TARGET}，
+ * 失败之后自适应的策略按这个下游最近的情况决定还要不要重试、等多久
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class DownstreamHealthClientHttpRequestInterceptor implements ClientHttpRequestInterceptor {
+
+    private final DownstreamHealthRegistry downstreamHealthRegistry;
+
+    public DownstreamHealthClientHttpRequestInterceptor(DownstreamHealthRegistry downstreamHealthRegistry) {
+        this.downstreamHealthRegistry = downstreamHealthRegistry;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        DownstreamHealth health = downstreamHealthRegistry.health(downstreamHealthRegistry.name(request.getURI()));
+        RetryContext context = RetrySynchronizationManager.getContext();
+        if (context != null) {
+            context.setAttribute(AdaptiveRetryPolicy.TARGET, health.getName());
+        }
+        long start = System.nanoTime();
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException e) {
+            health.record(true, elapsedMillis(start));
+            throw e;
+        }
+        health.record(response.getStatusCode().is5xxServerError(), elapsedMillis(start));
+        return response;
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
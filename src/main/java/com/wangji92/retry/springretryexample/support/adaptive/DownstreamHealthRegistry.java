@@ -0,0 +1,70 @@
+package com.wangji92.retry.springretryexample.support.adaptive;
+
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按下游 (匹配上的 {@link AdaptiveRetryProperties#getEndpoints()} 模板，没有匹配的按 host:port) 懒加载的 {@link DownstreamHealth}
+ * 下游的个数不超过 配置的模板数 + host 数，带 id 的 path 不会每个都留一份
+ * 由 {@link DownstreamHealthClientHttpRequestInterceptor} 记录，{@link AdaptiveRetryPolicy}、{@link AdaptiveBackOffPolicy} 读取
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class DownstreamHealthRegistry {
+
+    private final AdaptiveRetryProperties properties;
+
+    private final Map<String, DownstreamHealth> healths = new ConcurrentHashMap<>();
+
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+
+    public DownstreamHealthRegistry(AdaptiveRetryProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @return 第一个匹配的 endpoint 模板，都不匹配的时候为 host:port；不含 query，同一个接口不同的参数算一个下游
+     */
+    public String name(URI uri) {
+        String hostAndPort = uri.getHost() + ":" + uri.getPort();
+        String path = uri.getPath() == null || uri.getPath().isEmpty() ? "/" : uri.getPath();
+        String target = hostAndPort + path;
+        for (String endpoint : properties.getEndpoints()) {
+            if (pathMatcher.match(endpoint, target)) {
+                return endpoint;
+            }
+        }
+        return hostAndPort;
+    }
+
+    public DownstreamHealth health(String name) {
+        DownstreamHealth health = healths.get(name);
+        if (health != null) {
+            return health;
+        }
+        return healths.computeIfAbsent(name, key -> new DownstreamHealth(key, properties.getAlpha()));
+    }
+
+    /**
+     * @param name 为 null 的时候返回 null
+     * @return 还没有请求过的下游返回 null
+     */
+    public DownstreamHealth find(String name) {
+        return name == null ? null : healths.get(name);
+    }
+
+    public Collection<DownstreamHealth> healths() {
+        return Collections.unmodifiableCollection(healths.values());
+    }
+
+    public AdaptiveRetryProperties getProperties() {
+        return properties;
+    }
+}
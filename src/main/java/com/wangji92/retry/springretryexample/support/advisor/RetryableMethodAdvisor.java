@@ -0,0 +1,83 @@
+package com.wangji92.retry.springretryexample.support.advisor;
+
+import org.aopalliance.aop.Advice;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.support.AbstractPointcutAdvisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.core.Ordered;
+import org.springframework.retry.annotation.Retryable;
+
+/**
+ * 给 @Retryable 的方法 (类上或者方法上有注解) 加上一个拦截器，熔断、重试预算、兜底缓存、并发调用合并、隔离舱共用
+ * <p>
+ * 拦截器的先后顺序都在这里，从外到里：暴露当前调用、并发调用合并、隔离舱、reactive 重试、@EnableRetry 的重试拦截器、
+ * 兜底缓存、重试预算、熔断
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@SuppressWarnings("serial")
+public class RetryableMethodAdvisor extends AbstractPointcutAdvisor {
+
+    /**
+     * 最外层暴露 @Retryable 方法的调用 key 生成、兜底缓存、死信队列按方法找到 label
+     */
+    public static final int EXPOSE_INVOCATION_ORDER = Ordered.HIGHEST_PRECEDENCE;
+
+    /**
+     * 在重试拦截器的外面：合并的是整个重试过程 包含退避和 @Recover
+     */
+    public static final int SINGLE_FLIGHT_ORDER = Ordered.LOWEST_PRECEDENCE - 6;
+
+    /**
+     * 在重试拦截器的外面、并发调用合并的里面：许可覆盖整个重试过程 包含退避；合并到别的调用上的不占许可
+     */
+    public static final int BULKHEAD_ORDER = Ordered.LOWEST_PRECEDENCE - 5;
+
+    /**
+     * 比重试拦截器高：返回 Mono/Flux 的方法在这里处理完 不会再进入阻塞的重试拦截器
+     */
+    public static final int REACTIVE_RETRY_ORDER = Ordered.LOWEST_PRECEDENCE - 4;
+
+    /**
+     * @EnableRetry 的 RetryConfiguration (默认 LOWEST_PRECEDENCE 和熔断一样的时候先后顺序不确定)
+     */
+    public static final int RETRY_ORDER = Ordered.LOWEST_PRECEDENCE - 3;
+
+    /**
+     * 在重试拦截器的里面：每次尝试成功都记录，@Recover 的返回值不会被当成成功的结果缓存
+     */
+    public static final int FALLBACK_CACHE_ORDER = Ordered.LOWEST_PRECEDENCE - 2;
+
+    /**
+     * 在重试拦截器和熔断之间：熔断打开的时候不会白白取走令牌
+     */
+    public static final int RETRY_BUDGET_ORDER = Ordered.LOWEST_PRECEDENCE - 1;
+
+    /**
+     * 最里面：每次尝试都会经过熔断器
+     */
+    public static final int CIRCUIT_BREAKER_ORDER = Ordered.LOWEST_PRECEDENCE;
+
+    private final MethodInterceptor interceptor;
+
+    private final Pointcut pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(Retryable.class, true))
+            .union(AnnotationMatchingPointcut.forMethodAnnotation(Retryable.class));
+
+    public RetryableMethodAdvisor(MethodInterceptor interceptor, int order) {
+        this.interceptor = interceptor;
+        setOrder(order);
+    }
+
+    @Override
+    public Pointcut getPointcut() {
+        return pointcut;
+    }
+
+    @Override
+    public Advice getAdvice() {
+        return interceptor;
+    }
+}
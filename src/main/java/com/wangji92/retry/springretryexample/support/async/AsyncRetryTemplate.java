@@ -0,0 +1,218 @@
+package com.wangji92.retry.springretryexample.support.async;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryPolicy;
+import org.springframework.retry.backoff.BackOffContext;
+import org.springframework.retry.backoff.BackOffPolicy;
+import org.springframework.retry.backoff.NoBackOffPolicy;
+import org.springframework.retry.backoff.SleepingBackOffPolicy;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 异步重试 返回 {@link CompletableFuture}
+ * <p>
+ * 和 {@link org.springframework.retry.support.RetryTemplate} 使用同样的 {@link RetryPolicy}、{@link BackOffPolicy}，
+ * 区别在于退避时不会 Thread.sleep 占用调用线程，而是把下一次尝试提交到共享的定时器上，
+ * 退避期间不持有任何线程，几个线程就可以同时挂起成千上万个等待中的重试
+ * <p>
+ * 退避策略需要实现 {@link SleepingBackOffPolicy}（Fixed/Exponential/UniformRandom 都是），否则只能按 0 延迟处理
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class AsyncRetryTemplate {
+
+    private final ScheduledExecutorService timer;
+
+    private final Executor workerExecutor;
+
+    private final RetryPolicy retryPolicy;
+
+    private final BackOffPolicy backOffPolicy;
+
+    private final DelayCapturingSleeper sleeper = new DelayCapturingSleeper();
+
+    /**
+     * @param retryPolicy    重试策略 例如 SimpleRetryPolicy
+     * @param backOffPolicy  退避策略 只用来计算等待时间
+     * @param timer          共享的定时器 只做调度 不执行阻塞任务
+     * @param workerExecutor 执行阻塞的尝试(RestTemplate)以及兜底方法的线程池
+     */
+    public AsyncRetryTemplate(RetryPolicy retryPolicy, BackOffPolicy backOffPolicy,
+                              ScheduledExecutorService timer, Executor workerExecutor) {
+        Assert.notNull(retryPolicy, "retryPolicy must not be null");
+        Assert.notNull(timer, "timer must not be null");
+        Assert.notNull(workerExecutor, "workerExecutor must not be null");
+        this.retryPolicy = retryPolicy;
+        this.timer = timer;
+        this.workerExecutor = workerExecutor;
+        if (backOffPolicy instanceof SleepingBackOffPolicy) {
+            this.backOffPolicy = ((SleepingBackOffPolicy<?>) backOffPolicy).withSleeper(sleeper);
+        } else {
+            if (backOffPolicy != null && !(backOffPolicy instanceof NoBackOffPolicy)) {
+                log.warn("backOffPolicy {} is not a SleepingBackOffPolicy, async retry will not back off", backOffPolicy);
+            }
+            this.backOffPolicy = new NoBackOffPolicy();
+        }
+    }
+
+    /**
+     * 阻塞的调用 在 workerExecutor 上执行每一次尝试
+     *
+     * @param callable  每次尝试
+     * @param recoverer 兜底方案 入参为最后一次异常
+     * @param <T>
+     * @return
+     */
+    public <T> CompletableFuture<T> execute(Callable<T> callable, Function<Throwable, ? extends T> recoverer) {
+        return executeAsync(() -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return callable.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, workerExecutor), recoverer);
+    }
+
+    /**
+     * 本身就是异步的调用 每次尝试返回一个 CompletionStage
+     *
+     * @param attempt   每次尝试
+     * @param recoverer 兜底方案 可以为 null，为 null 时返回最后一次的异常
+     * @param <T>
+     * @return
+     */
+    public <T> CompletableFuture<T> executeAsync(Supplier<? extends CompletionStage<T>> attempt,
+                                                 Function<Throwable, ? extends T> recoverer) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        RetryContext context = retryPolicy.open(null);
+        BackOffContext backOffContext = backOffPolicy.start(context);
+        doAttempt(attempt, recoverer, context, backOffContext, result);
+        return result;
+    }
+
+    private <T> void doAttempt(Supplier<? extends CompletionStage<T>> attempt, Function<Throwable, ? extends T> recoverer,
+                               RetryContext context, BackOffContext backOffContext, CompletableFuture<T> result) {
+        if (result.isDone()) {
+            // 调用方已经取消了
+            retryPolicy.close(context);
+            return;
+        }
+        CompletionStage<T> stage;
+        try {
+            stage = attempt.get();
+        } catch (Throwable e) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            stage = failed;
+        }
+        stage.whenComplete((value, ex) -> {
+            try {
+                onAttemptComplete(attempt, recoverer, context, backOffContext, result, value, ex);
+            } catch (Throwable e) {
+                // whenComplete 里抛出的异常会被吞掉 不兜住的话 result 永远不会完成
+                log.warn("async retry callback failed", e);
+                closeQuietly(context);
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    private <T> void onAttemptComplete(Supplier<? extends CompletionStage<T>> attempt, Function<Throwable, ? extends T> recoverer,
+                                       RetryContext context, BackOffContext backOffContext, CompletableFuture<T> result,
+                                       T value, Throwable ex) {
+        if (ex == null) {
+            retryPolicy.close(context);
+            result.complete(value);
+            return;
+        }
+        Throwable cause = unwrap(ex);
+        retryPolicy.registerThrowable(context, cause);
+        if (!context.isExhaustedOnly() && retryPolicy.canRetry(context)) {
+            // nextDelay 可能抛出 BackOffInterruptedException 等 交给外层兜住
+            long delay = nextDelay(backOffContext);
+            if (context.isExhaustedOnly()) {
+                // 退避策略判断已经来不及在截止时间之前再试一次了
+                retryPolicy.close(context);
+                recover(recoverer, cause, result);
+                return;
+            }
+            try {
+                timer.schedule(() -> doAttempt(attempt, recoverer, context, backOffContext, result), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // 定时器已经关闭
+                retryPolicy.close(context);
+                result.completeExceptionally(e);
+            }
+        } else {
+            retryPolicy.close(context);
+            recover(recoverer, cause, result);
+        }
+    }
+
+    private void closeQuietly(RetryContext context) {
+        try {
+            retryPolicy.close(context);
+        } catch (Throwable e) {
+            log.debug("close retry context failed", e);
+        }
+    }
+
+    private long nextDelay(BackOffContext backOffContext) {
+        backOffPolicy.backOff(backOffContext);
+        return sleeper.take();
+    }
+
+    private <T> void recover(Function<Throwable, ? extends T> recoverer, Throwable cause, CompletableFuture<T> result) {
+        if (recoverer == null) {
+            result.completeExceptionally(cause);
+            return;
+        }
+        // 兜底方法一般也是阻塞的调用 不能放在定时器线程上
+        try {
+            workerExecutor.execute(() -> {
+                try {
+                    result.complete(recoverer.apply(cause));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 工作线程池已满或者已经关闭 兜底方法没机会执行了 保留最后一次异常方便排查
+            e.addSuppressed(cause);
+            result.completeExceptionally(e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        while ((ex instanceof CompletionException || ex instanceof ExecutionException) && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return ex;
+    }
+
+    /**
+     * 关闭定时器以及工作线程池 调度中的重试不再执行
+     */
+    public void shutdown() {
+        timer.shutdownNow();
+        if (workerExecutor instanceof ExecutorService) {
+            ((ExecutorService) workerExecutor).shutdown();
+        }
+    }
+}
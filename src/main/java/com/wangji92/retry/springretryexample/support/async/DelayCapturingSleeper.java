@@ -0,0 +1,35 @@
+package com.wangji92.retry.springretryexample.support.async;
+
+import org.springframework.retry.backoff.Sleeper;
+
+/**
+ * 不真正休眠的 Sleeper，只记录退避策略想要休眠的时间
+ * 配合 {@link org.springframework.retry.backoff.SleepingBackOffPolicy#withSleeper(Sleeper)} 使用，
+ * 这样 Fixed/Exponential/UniformRandom 等退避策略计算出来的时间可以交给定时器去调度
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class DelayCapturingSleeper implements Sleeper {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ThreadLocal<long[]> CAPTURED = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public void sleep(long backOffPeriod) {
+        CAPTURED.get()[0] = backOffPeriod;
+    }
+
+    /**
+     * 取出当前线程记录的休眠时间并清零
+     *
+     * @return 毫秒
+     */
+    public long take() {
+        long[] holder = CAPTURED.get();
+        long delay = holder[0];
+        holder[0] = 0L;
+        return delay;
+    }
+}
@@ -0,0 +1,81 @@
+package com.wangji92.retry.springretryexample.support.backoff;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 注解 @Backoff、异步重试、返回 Mono/Flux 的重试 的退避抖动，按 label 单独打开
+ * <pre>
+ * retry.backoff.jitter=none
+ * retry.backoff.labels[RetryTestService.retryTestService]=decorrelated
+ * </pre>
+ * 没有配置的 label 使用 jitter (默认 none)，注解上写的固定退避时间保持不变；命名策略的抖动在 retry.registry.policies 里面单独配置
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@ConfigurationProperties(prefix = "retry.backoff")
+public class BackOffJitterProperties {
+
+    /**
+     * 没有单独配置的 label 的抖动方式
+     */
+    private JitterMode jitter = JitterMode.NONE;
+
+    /**
+     * 抖动之后的退避时间上限(毫秒) 0 不限制，不抖动的 label 不受限制
+     */
+    private long maxDelay = 20_000;
+
+    /**
+     * 截止时间(毫秒) 从第一次退避开始算 退避会超过截止时间的时候不再重试 直接 @Recover，0 不限制
+     */
+    private long deadline;
+
+    /**
+     * @Retryable 的 label (没有 label 的时候为 类名.方法名) -> 抖动方式
+     */
+    private Map<String, JitterMode> labels = new LinkedHashMap<>();
+
+    /**
+     * @param label @Retryable 的 label
+     * @return 这个 label 的抖动方式
+     */
+    public JitterMode jitter(String label) {
+        return labels.getOrDefault(label, jitter);
+    }
+
+    public JitterMode getJitter() {
+        return jitter;
+    }
+
+    public void setJitter(JitterMode jitter) {
+        this.jitter = jitter;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    public Map<String, JitterMode> getLabels() {
+        return labels;
+    }
+
+    public void setLabels(Map<String, JitterMode> labels) {
+        this.labels = labels;
+    }
+}
@@ -0,0 +1,103 @@
+package com.wangji92.retry.springretryexample.support.backoff;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 带抖动的退避时间计算 不持有每次调用的状态，线程安全
+ * <p>
+ * {@link JitterBackOffPolicy} (RetryTemplate)、{@link JitterSleeper} (@Backoff)、
+ * {@link com.wangji92.retry.springretryexample.support.guava.JitterWaitStrategy} (guava) 共用同一套算法
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public final class JitterBackOff {
+
+    private final JitterMode mode;
+
+    private final long base;
+
+    private final long cap;
+
+    private final double multiplier;
+
+    /**
+     * @param mode       抖动方式
+     * @param base       第一次退避的基准时间(毫秒)
+     * @param cap        退避时间上限(毫秒) 小于等于 0 不限制
+     * @param multiplier 每次重试 ceiling 的增长倍数 1 为固定，DECORRELATED 不使用
+     */
+    public JitterBackOff(JitterMode mode, long base, long cap, double multiplier) {
+        Assert.notNull(mode, "mode must not be null");
+        Assert.isTrue(base >= 0, "base must not be negative");
+        Assert.isTrue(multiplier >= 1, "multiplier must be at least 1");
+        this.mode = mode;
+        this.base = base;
+        this.cap = cap > 0 ? cap : Long.MAX_VALUE;
+        this.multiplier = multiplier;
+    }
+
+    /**
+     * @param retry    第几次重试 从 1 开始
+     * @param previous 上一次的退避时间 第一次重试为 0
+     * @return 这一次的退避时间(毫秒)
+     */
+    public long nextDelay(int retry, long previous) {
+        return jitter(ceiling(retry), previous);
+    }
+
+    /**
+     * 没有抖动时第 retry 次重试的退避时间 min(cap, base * multiplier^(retry - 1))
+     */
+    public long ceiling(int retry) {
+        if (mode == JitterMode.DECORRELATED || multiplier == 1) {
+            return Math.min(cap, base);
+        }
+        return (long) Math.min(cap, base * Math.pow(multiplier, retry - 1));
+    }
+
+    /**
+     * @param ceiling  没有抖动时的退避时间 DECORRELATED 的时候为 base
+     * @param previous 上一次的退避时间 没有的时候为 0 (DECORRELATED 按 ceiling 算)
+     * @return 抖动之后的退避时间(毫秒) 不超过 cap
+     */
+    public long jitter(long ceiling, long previous) {
+        ceiling = Math.min(cap, ceiling);
+        switch (mode) {
+            case FULL:
+                return random(0, ceiling);
+            case EQUAL:
+                long half = ceiling / 2;
+                return half + random(0, ceiling - half);
+            case DECORRELATED:
+                // 第一次重试的上一次按 base 算 random(base, base * 3)
+                long last = previous > 0 ? previous : ceiling;
+                long upper = Math.max(ceiling, Math.min(last, Long.MAX_VALUE / 3) * 3);
+                return Math.min(cap, random(ceiling, upper));
+            default:
+                return ceiling;
+        }
+    }
+
+    private static long random(long lower, long upper) {
+        return lower >= upper ? lower : ThreadLocalRandom.current().nextLong(lower, upper == Long.MAX_VALUE ? upper : upper + 1);
+    }
+
+    public JitterMode getMode() {
+        return mode;
+    }
+
+    public long getBase() {
+        return base;
+    }
+
+    public long getCap() {
+        return cap;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+}
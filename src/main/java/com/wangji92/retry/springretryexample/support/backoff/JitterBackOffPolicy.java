@@ -0,0 +1,119 @@
+package com.wangji92.retry.springretryexample.support.backoff;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.BackOffContext;
+import org.springframework.retry.backoff.BackOffInterruptedException;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.retry.backoff.SleepingBackOffPolicy;
+import org.springframework.retry.backoff.ThreadWaitSleeper;
+import org.springframework.util.Assert;
+
+/**
+ * 带抖动、知道整个调用截止时间的退避策略 RetryTemplate.builder().customBackoff(...) 或者 setBackOffPolicy 使用
+ * <p>
+ * 截止时间从 RetryTemplate 开始执行 (start) 算起，这一次的退避时间已经超过剩下的时间的时候不再休眠，
+ * 把 RetryContext 标记为 exhaustedOnly 直接兜底，不会睡过截止时间之后再去做一次注定超时的尝试
+ * {@link org.springframework.retry.support.RetryTemplate#doExecute}
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class JitterBackOffPolicy implements SleepingBackOffPolicy<JitterBackOffPolicy> {
+
+    private final JitterBackOff jitterBackOff;
+
+    private final long deadline;
+
+    private final Sleeper sleeper;
+
+    /**
+     * @param jitterBackOff 退避时间计算
+     * @param deadline      整个调用的截止时间(毫秒) 0 不限制
+     */
+    public JitterBackOffPolicy(JitterBackOff jitterBackOff, long deadline) {
+        this(jitterBackOff, deadline, new ThreadWaitSleeper());
+    }
+
+    public JitterBackOffPolicy(JitterBackOff jitterBackOff, long deadline, Sleeper sleeper) {
+        Assert.notNull(jitterBackOff, "jitterBackOff must not be null");
+        Assert.notNull(sleeper, "sleeper must not be null");
+        this.jitterBackOff = jitterBackOff;
+        this.deadline = deadline;
+        this.sleeper = sleeper;
+    }
+
+    @Override
+    public JitterBackOffPolicy withSleeper(Sleeper sleeper) {
+        return new JitterBackOffPolicy(jitterBackOff, deadline, sleeper);
+    }
+
+    @Override
+    public BackOffContext start(RetryContext context) {
+        return new JitterBackOffContext(context, currentTimeMillis());
+    }
+
+    @Override
+    public void backOff(BackOffContext backOffContext) throws BackOffInterruptedException {
+        JitterBackOffContext context = (JitterBackOffContext) backOffContext;
+        long delay = nextDelay(context.retryContext, ++context.retries, context.previous);
+        if (deadline > 0 && delay >= deadline - (currentTimeMillis() - context.startTime)) {
+            log.debug("back off {}ms passes the deadline {}ms, stop retrying", delay, deadline);
+            if (context.retryContext != null) {
+                context.retryContext.setExhaustedOnly();
+            }
+            return;
+        }
+        context.previous = delay;
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            sleeper.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackOffInterruptedException("Thread interrupted while sleeping", e);
+        }
+    }
+
+    /**
+     * @param retryContext 当前调用的 RetryContext 可能为 null
+     * @param retry        第几次重试 从 1 开始
+     * @param previous     上一次的退避时间 第一次重试为 0
+     * @return 这一次的退避时间(毫秒)
+     */
+    protected long nextDelay(RetryContext retryContext, int retry, long previous) {
+        return jitterBackOff.nextDelay(retry, previous);
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    public JitterBackOff getJitterBackOff() {
+        return jitterBackOff;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    private static final class JitterBackOffContext implements BackOffContext {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient RetryContext retryContext;
+
+        private final long startTime;
+
+        private int retries;
+
+        private long previous;
+
+        private JitterBackOffContext(RetryContext retryContext, long startTime) {
+            this.retryContext = retryContext;
+            this.startTime = startTime;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.wangji92.retry.springretryexample.support.backoff;
+
+/**
+ * 退避时间的抖动方式 同一时刻失败的调用不会在同一时刻一起重试
+ * <p>
+ * ceiling 为没有抖动时的退避时间 (固定 或 指数增长之后的值)，cap 为退避时间上限
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public enum JitterMode {
+
+    /**
+     * 不抖动 直接使用 ceiling
+     */
+    NONE,
+
+    /**
+     * random(0, ceiling)
+     */
+    FULL,
+
+    /**
+     * ceiling / 2 + random(0, ceiling / 2) 至少等一半
+     */
+    EQUAL,
+
+    /**
+     * min(cap, random(base, 上一次退避时间 * 3))，和上一次的退避时间相关 不再按次数指数增长
+     */
+    DECORRELATED
+}
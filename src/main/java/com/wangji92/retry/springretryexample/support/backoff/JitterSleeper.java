@@ -0,0 +1,151 @@
+package com.wangji92.retry.springretryexample.support.backoff;
+
+import com.wangji92.retry.springretryexample.utils.RetryLabelUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.retry.backoff.ThreadWaitSleeper;
+import org.springframework.retry.support.RetrySynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 给注解 @Backoff 加上抖动
+ * <p>
+ * spring retry 1.3.1 的 @Backoff 没办法指定自定义的 BackOffPolicy，注解方式唯一能替换的是 Sleeper：
+ * 只有一个 Sleeper 的 bean 时 @EnableRetry 会把它设置到每个 @Backoff 创建的退避策略上
+ * {@link org.springframework.retry.annotation.RetryConfiguration#afterPropertiesSet()}
+ * <p>
+ * 这里把 @Backoff 算出来的时间 (固定 或 指数增长之后的值) 当作 ceiling 做抖动，
+ * DECORRELATED 需要的上一次退避时间记在当前线程的 RetryContext 上；
+ * 截止时间从第一次退避开始算 (注解方式拿不到调用开始的时间)，超过的时候标记 exhaustedOnly 不再休眠 直接 @Recover
+ * <p>
+ * 抖动按 label 单独打开 {@link BackOffJitterProperties}，label 通过 {@link ExposeInvocationInterceptor#currentInvocation()} 找到
+ * (需要 exposeRetryInvocationAdvisor)；
+ * 不抖动的 label 原样休眠 @Backoff 的时间 不受退避上限影响
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class JitterSleeper implements Sleeper {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String PREVIOUS = JitterSleeper.class.getName() + ".previous";
+
+    private static final String FIRST_BACK_OFF = JitterSleeper.class.getName() + ".firstBackOff";
+
+    private final JitterMode defaultMode;
+
+    private final Map<String, JitterMode> labels;
+
+    private final Map<JitterMode, JitterBackOff> jitterBackOffs = new EnumMap<>(JitterMode.class);
+
+    private final transient Map<Method, JitterMode> methodModes = new ConcurrentHashMap<>();
+
+    private final long deadline;
+
+    private final Sleeper delegate;
+
+    /**
+     * @param mode     所有 label 的抖动方式
+     * @param maxDelay 退避时间上限(毫秒) 0 不限制
+     * @param deadline 截止时间(毫秒) 0 不限制
+     */
+    public JitterSleeper(JitterMode mode, long maxDelay, long deadline) {
+        this(mode, maxDelay, deadline, new ThreadWaitSleeper());
+    }
+
+    public JitterSleeper(JitterMode mode, long maxDelay, long deadline, Sleeper delegate) {
+        this(mode, Collections.emptyMap(), maxDelay, deadline, delegate);
+    }
+
+    /**
+     * @param properties 按 label 配置的抖动方式
+     * @param delegate   真正的休眠
+     */
+    public JitterSleeper(BackOffJitterProperties properties, Sleeper delegate) {
+        this(properties.getJitter(), properties.getLabels(), properties.getMaxDelay(), properties.getDeadline(), delegate);
+    }
+
+    private JitterSleeper(JitterMode defaultMode, Map<String, JitterMode> labels, long maxDelay, long deadline, Sleeper delegate) {
+        this.defaultMode = defaultMode;
+        this.labels = new HashMap<>(labels);
+        for (JitterMode mode : JitterMode.values()) {
+            jitterBackOffs.put(mode, new JitterBackOff(mode, 0, maxDelay, 1));
+        }
+        this.deadline = deadline;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void sleep(long backOffPeriod) throws InterruptedException {
+        RetryContext context = RetrySynchronizationManager.getContext();
+        JitterMode mode = mode(context);
+        if (context == null) {
+            delegate.sleep(mode == JitterMode.NONE ? backOffPeriod : jitterBackOffs.get(mode).jitter(backOffPeriod, 0));
+            return;
+        }
+        long delay = backOffPeriod;
+        if (mode != JitterMode.NONE) {
+            Long previous = (Long) context.getAttribute(PREVIOUS);
+            delay = jitterBackOffs.get(mode).jitter(backOffPeriod, previous == null ? 0 : previous);
+        }
+        if (deadline > 0) {
+            long now = currentTimeMillis();
+            Long firstBackOff = (Long) context.getAttribute(FIRST_BACK_OFF);
+            if (firstBackOff == null) {
+                firstBackOff = now;
+                context.setAttribute(FIRST_BACK_OFF, now);
+            }
+            if (delay >= deadline - (now - firstBackOff)) {
+                log.debug("back off {}ms passes the deadline {}ms, stop retrying", delay, deadline);
+                context.setExhaustedOnly();
+                return;
+            }
+        }
+        if (mode != JitterMode.NONE) {
+            context.setAttribute(PREVIOUS, delay);
+        }
+        if (delay > 0) {
+            delegate.sleep(delay);
+        }
+    }
+
+    /**
+     * 没有按 label 配置的时候不需要找当前的方法
+     */
+    private JitterMode mode(RetryContext context) {
+        if (labels.isEmpty()) {
+            return defaultMode;
+        }
+        MethodInvocation invocation = currentInvocation();
+        if (invocation != null) {
+            return methodModes.computeIfAbsent(invocation.getMethod(),
+                    method -> labels.getOrDefault(RetryLabelUtils.resolveLabel(invocation), defaultMode));
+        }
+        // 编程方式的 RetryTemplate 没有暴露的调用 按 RetryContext.NAME 匹配
+        Object name = context == null ? null : context.getAttribute(RetryContext.NAME);
+        return name == null ? defaultMode : labels.getOrDefault(name.toString(), defaultMode);
+    }
+
+    private static MethodInvocation currentInvocation() {
+        try {
+            return ExposeInvocationInterceptor.currentInvocation();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
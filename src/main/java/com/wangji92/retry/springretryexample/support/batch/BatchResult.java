@@ -0,0 +1,59 @@
+package com.wangji92.retry.springretryexample.support.batch;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 批量调用的结果 每个条目要么成功 要么失败
+ * 【条目按 equals/hashCode 区分，TextMessageDto 按 messageId】
+ *
+ * @param <T> 条目
+ * @param <R> 单个条目的结果
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class BatchResult<T, R> {
+
+    private final Map<T, R> results = new LinkedHashMap<>();
+
+    private final Map<T, Throwable> failures = new LinkedHashMap<>();
+
+    public BatchResult<T, R> success(T item, R result) {
+        failures.remove(item);
+        results.put(item, result);
+        return this;
+    }
+
+    public BatchResult<T, R> failure(T item, Throwable cause) {
+        results.remove(item);
+        failures.put(item, cause);
+        return this;
+    }
+
+    /**
+     * 合并另外一次调用的结果 同一个条目以后面的为准
+     */
+    public BatchResult<T, R> merge(BatchResult<? extends T, ? extends R> other) {
+        other.results.forEach(this::success);
+        other.failures.forEach(this::failure);
+        return this;
+    }
+
+    public Map<T, R> getResults() {
+        return Collections.unmodifiableMap(results);
+    }
+
+    public Map<T, Throwable> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{results=" + results.size() + ", failures=" + failures.size() + '}';
+    }
+}
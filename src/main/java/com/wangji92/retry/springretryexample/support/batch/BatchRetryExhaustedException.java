@@ -0,0 +1,47 @@
+package com.wangji92.retry.springretryexample.support.batch;
+
+import org.springframework.remoting.RemoteAccessException;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 批量重试之后仍然失败的条目 作为批量 @Recover 方法的第一个参数：
+ * <pre>
+ * &#64;Recover
+ * public BatchResult&lt;TextMessageDto, Integer&gt; recoverMessages(BatchRetryExhaustedException e, List&lt;TextMessageDto&gt; messages)
+ * </pre>
+ * messages 只包含失败的条目，每个条目最后一次失败的异常、尝试的次数从这里取
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class BatchRetryExhaustedException extends RemoteAccessException {
+
+    private final Map<?, Throwable> failures;
+
+    private final Map<?, Integer> attempts;
+
+    public BatchRetryExhaustedException(Map<?, Throwable> failures, Map<?, Integer> attempts) {
+        super(failures.size() + " batch items failed after retry", failures.values().stream().findFirst().orElse(null));
+        this.failures = Collections.unmodifiableMap(failures);
+        this.attempts = Collections.unmodifiableMap(attempts);
+    }
+
+    /**
+     * @return 条目 -> 最后一次失败的异常
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<T, Throwable> getFailures() {
+        return (Map<T, Throwable>) failures;
+    }
+
+    /**
+     * @param item 条目
+     * @return 这个条目一共尝试的次数
+     */
+    public int getAttempts(Object item) {
+        Integer count = attempts.get(item);
+        return count == null ? 0 : count;
+    }
+}
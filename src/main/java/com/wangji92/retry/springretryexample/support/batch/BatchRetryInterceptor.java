@@ -0,0 +1,235 @@
+package com.wangji92.retry.springretryexample.support.batch;
+
+import com.wangji92.retry.springretryexample.support.recover.RecoverDispatcher;
+import com.wangji92.retry.springretryexample.support.recover.TargetRecoverer;
+import com.wangji92.retry.springretryexample.utils.RetryLabelUtils;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.classify.Classifier;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryOperations;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.interceptor.MethodInvocationRetryCallback;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 批量调用的重试拦截器 通过 @Retryable(interceptor = "batchRetryInterceptor") 使用
+ * <p>
+ * 方法的第一个 List 参数为批量的条目，返回值为 {@link BatchResult}：
+ * 第一次调用发送全部条目，之后每一轮只重新发送上一轮失败、并且异常可以重试的条目，成功的结果合并到一起返回；
+ * 每个条目单独计数尝试次数，整个调用抛异常的时候这一轮的条目都算失败；
+ * 轮数、退避、预算由 RetryOperations 控制 (和 TimeLimitedRetryInterceptor 一样从 registry 取)，
+ * 重试之后仍然失败的条目一起交给批量的 @Recover 方法 (第一个参数为 {@link BatchRetryExhaustedException})，
+ * 没有批量的 @Recover 方法的时候抛出 BatchRetryExhaustedException
+ * 【指定 interceptor 之后 @Retryable 上除了 label 的其他属性都不生效】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class BatchRetryInterceptor implements MethodInterceptor {
+
+    private final RetryOperations retryOperations;
+
+    private final Classifier<Throwable, Boolean> retryableClassifier;
+
+    private final Map<Method, Integer> batchParameters = new ConcurrentHashMap<>();
+
+    private final Map<Method, String> labels = new ConcurrentHashMap<>();
+
+    /**
+     * 按 方法 + 目标类型 缓存；兜底的时候传入当前的目标对象 不绑定第一次见到的实例
+     */
+    private final Map<MethodClassKey, Optional<RecoverDispatcher>> recoverers = new ConcurrentHashMap<>();
+
+    /**
+     * @param retryOperations     控制重试的轮数、退避
+     * @param retryableClassifier 单个条目失败的异常是否可以重试，不可以重试的条目直接兜底 不会再发送
+     */
+    public BatchRetryInterceptor(RetryOperations retryOperations, Classifier<Throwable, Boolean> retryableClassifier) {
+        this.retryOperations = retryOperations;
+        this.retryableClassifier = retryableClassifier;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (!(invocation instanceof ProxyMethodInvocation)) {
+            throw new IllegalStateException("MethodInvocation of the wrong type detected: " + invocation.getClass());
+        }
+        Method method = invocation.getMethod();
+        int index = batchParameters.computeIfAbsent(method, BatchRetryInterceptor::batchParameterIndex);
+        Object[] arguments = invocation.getArguments();
+        List<?> items = (List<?>) arguments[index];
+        if (items == null || items.isEmpty()) {
+            return invocation.proceed();
+        }
+        String label = labels.computeIfAbsent(method, m -> RetryLabelUtils.resolveLabel(invocation));
+        Batch batch = new Batch(items);
+        // 继承 MethodInvocationRetryCallback 监听器里面可以拿到方法信息
+        MethodInvocationRetryCallback<Object, Throwable> retryCallback = new MethodInvocationRetryCallback<Object, Throwable>(invocation, label) {
+            @Override
+            public Object doWithRetry(RetryContext context) throws Throwable {
+                context.setAttribute(RetryContext.NAME, label);
+                Object[] args = Arrays.copyOf(arguments, arguments.length);
+                args[index] = new ArrayList<>(batch.pending);
+                BatchResult<?, ?> result;
+                try {
+                    result = (BatchResult<?, ?>) ((ProxyMethodInvocation) invocation).invocableClone(args).proceed();
+                } catch (Throwable e) {
+                    result = batch.failAll(e);
+                }
+                if (result == null) {
+                    // 一般是兜底或者异常分支里面 return null，这一轮的条目都算失败 异常里面带上方法方便定位
+                    result = batch.failAll(new IllegalStateException("batch retry method returned null instead of a BatchResult "
+                            + "(return an empty BatchResult or record failures): " + method));
+                }
+                Throwable retryable = batch.complete(result);
+                if (retryable != null) {
+                    throw retryable;
+                }
+                return batch.result;
+            }
+        };
+        retryOperations.execute(retryCallback, context -> {
+            // 轮数用完、不可重试、预算用完 还没有成功的条目都交给兜底
+            batch.exhaustPending();
+            return batch.result;
+        });
+        if (batch.exhausted.isEmpty()) {
+            return batch.result;
+        }
+        BatchRetryExhaustedException exhausted = new BatchRetryExhaustedException(batch.exhausted, batch.attempts);
+        Object target = invocation.getThis();
+        Class<?> targetClass = AopUtils.getTargetClass(target);
+        Optional<RecoverDispatcher> dispatcher = recoverers.computeIfAbsent(new MethodClassKey(method, targetClass),
+                key -> findRecoverer(targetClass, method));
+        if (!dispatcher.isPresent()) {
+            throw exhausted;
+        }
+        Object[] args = Arrays.copyOf(arguments, arguments.length);
+        args[index] = new ArrayList<>(batch.exhausted.keySet());
+        BatchResult<?, ?> recovered = (BatchResult<?, ?>) TargetRecoverer.recover(target, method, args, exhausted, dispatcher.get());
+        if (recovered != null) {
+            batch.result.merge(recovered);
+        }
+        return batch.result;
+    }
+
+    private static int batchParameterIndex(Method method) {
+        if (!BatchResult.class.isAssignableFrom(method.getReturnType())) {
+            throw new IllegalStateException("batch retry method must return BatchResult: " + method);
+        }
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (List.class.isAssignableFrom(parameterTypes[i])) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("batch retry method must have a List parameter: " + method);
+    }
+
+    /**
+     * 只找第一个参数能接收 BatchRetryExhaustedException 的 @Recover 方法，单条的兜底方法 (比如 recover(RemoteAccessException e)) 不算
+     */
+    private static Optional<RecoverDispatcher> findRecoverer(Class<?> targetClass, Method method) {
+        AtomicBoolean hasRecoverMethod = new AtomicBoolean();
+        ReflectionUtils.doWithMethods(targetClass, candidate -> {
+            Class<?>[] parameterTypes = candidate.getParameterTypes();
+            if (AnnotationUtils.findAnnotation(candidate, Recover.class) != null
+                    && candidate.getReturnType().isAssignableFrom(method.getReturnType())
+                    && parameterTypes.length > 0 && parameterTypes[0].isAssignableFrom(BatchRetryExhaustedException.class)) {
+                hasRecoverMethod.set(true);
+            }
+        });
+        return hasRecoverMethod.get() ? Optional.of(RecoverDispatcher.forMethod(targetClass, method)) : Optional.empty();
+    }
+
+    /**
+     * 一次批量调用的状态 只在调用线程上使用
+     */
+    private final class Batch {
+
+        /**
+         * 相同的条目只发送一次
+         */
+        private List<Object> pending;
+
+        private final Map<Object, Integer> attempts = new LinkedHashMap<>();
+
+        private final Map<Object, Throwable> lastFailures = new LinkedHashMap<>();
+
+        private final Map<Object, Throwable> exhausted = new LinkedHashMap<>();
+
+        private final BatchResult<Object, Object> result = new BatchResult<>();
+
+        private Batch(List<?> items) {
+            this.pending = new ArrayList<>(new LinkedHashSet<>(items));
+        }
+
+        /**
+         * 整个调用失败 这一轮的条目都算失败
+         */
+        private BatchResult<?, ?> failAll(Throwable cause) {
+            BatchResult<Object, Object> failed = new BatchResult<>();
+            pending.forEach(item -> failed.failure(item, cause));
+            return failed;
+        }
+
+        /**
+         * @return 下一轮还要发送的条目里面第一个异常，没有需要重试的条目返回 null
+         */
+        @SuppressWarnings("unchecked")
+        private Throwable complete(BatchResult<?, ?> round) {
+            Map<Object, Object> results = (Map<Object, Object>) round.getResults();
+            Map<Object, Throwable> failures = (Map<Object, Throwable>) round.getFailures();
+            List<Object> next = new ArrayList<>();
+            Throwable first = null;
+            for (Object item : pending) {
+                attempts.merge(item, 1, Integer::sum);
+                if (results.containsKey(item)) {
+                    result.success(item, results.get(item));
+                    lastFailures.remove(item);
+                    continue;
+                }
+                Throwable cause = failures.get(item);
+                if (cause == null) {
+                    // 返回的结果里面漏掉了这个条目 当作远程调用失败
+                    cause = new RemoteAccessException("no result for batch item " + item);
+                }
+                lastFailures.put(item, cause);
+                if (Boolean.TRUE.equals(retryableClassifier.classify(cause))) {
+                    next.add(item);
+                    if (first == null) {
+                        first = cause;
+                    }
+                } else {
+                    exhausted.put(item, cause);
+                }
+            }
+            pending = next;
+            return first;
+        }
+
+        private void exhaustPending() {
+            for (Object item : pending) {
+                exhausted.put(item, lastFailures.get(item));
+            }
+            pending = new ArrayList<>();
+        }
+    }
+}
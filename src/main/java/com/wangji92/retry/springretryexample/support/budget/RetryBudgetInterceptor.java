@@ -0,0 +1,62 @@
+package com.wangji92.retry.springretryexample.support.budget;
+
+import com.wangji92.retry.springretryexample.utils.RetryLabelUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.support.RetrySynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 注解方式的 @Retryable 使用的重试预算 和熔断一样在重试拦截器的里面，每次尝试都会经过
+ * <p>
+ * 注解方式的 RetryTemplate、RetryPolicy 是 spring retry 内部创建的 没办法换成 {@link RetryBudgetPolicy}，这里按尝试计算：
+ * <ul>
+ *     <li>第一次尝试 存入令牌</li>
+ *     <li>尝试失败 预算里面已经没有令牌的时候把 RetryContext 标记为 exhaustedOnly，不再退避 直接 @Recover</li>
+ *     <li>重试之前 取一个令牌，取不到 (并发下被别的调用取走了) 标记 exhaustedOnly 抛出上一次的异常</li>
+ * </ul>
+ * 重试策略已经是 {@link RetryBudgetPolicy} 的调用 (比如 timeLimitedRetryInterceptor) 不再重复计算
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class RetryBudgetInterceptor implements MethodInterceptor {
+
+    private final RetryBudgetRegistry retryBudgetRegistry;
+
+    private final Map<Method, String> labels = new ConcurrentHashMap<>();
+
+    public RetryBudgetInterceptor(RetryBudgetRegistry retryBudgetRegistry) {
+        this.retryBudgetRegistry = retryBudgetRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        RetryContext context = RetrySynchronizationManager.getContext();
+        if (context == null || context.hasAttribute(RetryBudgetPolicy.BUDGET_LABEL)) {
+            return invocation.proceed();
+        }
+        String label = labels.computeIfAbsent(invocation.getMethod(), method -> RetryLabelUtils.resolveLabel(invocation));
+        if (context.getRetryCount() == 0) {
+            retryBudgetRegistry.onFirstAttempt(label);
+        } else if (!retryBudgetRegistry.tryAcquireRetry(label) && context.getLastThrowable() != null) {
+            log.debug("retry budget exhausted label={} retryCount={}", label, context.getRetryCount());
+            context.setExhaustedOnly();
+            throw context.getLastThrowable();
+        }
+        try {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            if (!retryBudgetRegistry.hasRetryToken(label)) {
+                context.setExhaustedOnly();
+            }
+            throw e;
+        }
+    }
+}
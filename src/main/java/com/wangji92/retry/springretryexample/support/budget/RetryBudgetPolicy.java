@@ -0,0 +1,80 @@
+package com.wangji92.retry.springretryexample.support.budget;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryPolicy;
+
+/**
+ * 给任意 RetryPolicy 加上重试预算：委托的策略允许重试之后 还要从 {@link RetryBudgetRegistry} 取到令牌才会重试，
+ * 取不到令牌 canRetry 返回 false，不再退避 直接兜底
+ * <p>
+ * RetryTemplate 一次失败之后会调用两次 canRetry (判断要不要退避、循环条件)，同一个 retryCount 只取一次令牌
+ * {@link org.springframework.retry.support.RetryTemplate#doExecute}
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class RetryBudgetPolicy implements RetryPolicy {
+
+    /**
+     * context 上的标记 有这个标记的时候 {@link RetryBudgetInterceptor} 不再重复计算
+     */
+    public static final String BUDGET_LABEL = RetryBudgetPolicy.class.getName() + ".label";
+
+    /**
+     * 最近一次决定对应的 retryCount，取到令牌为正数 没取到为负数
+     */
+    private static final String DECISION = RetryBudgetPolicy.class.getName() + ".decision";
+
+    private final RetryPolicy delegate;
+
+    private final RetryBudgetRegistry retryBudgetRegistry;
+
+    private final String label;
+
+    public RetryBudgetPolicy(RetryPolicy delegate, RetryBudgetRegistry retryBudgetRegistry, String label) {
+        this.delegate = delegate;
+        this.retryBudgetRegistry = retryBudgetRegistry;
+        this.label = label;
+    }
+
+    @Override
+    public RetryContext open(RetryContext parent) {
+        RetryContext context = delegate.open(parent);
+        context.setAttribute(BUDGET_LABEL, label);
+        retryBudgetRegistry.onFirstAttempt(label);
+        return context;
+    }
+
+    @Override
+    public boolean canRetry(RetryContext context) {
+        if (!delegate.canRetry(context)) {
+            return false;
+        }
+        int retryCount = context.getRetryCount();
+        if (retryCount == 0) {
+            return true;
+        }
+        Object decision = context.getAttribute(DECISION);
+        if (decision instanceof Integer && Math.abs((Integer) decision) == retryCount) {
+            return (Integer) decision > 0;
+        }
+        boolean granted = retryBudgetRegistry.tryAcquireRetry(label);
+        context.setAttribute(DECISION, granted ? retryCount : -retryCount);
+        if (!granted) {
+            log.debug("retry budget exhausted label={} retryCount={}", label, retryCount);
+        }
+        return granted;
+    }
+
+    @Override
+    public void close(RetryContext context) {
+        delegate.close(context);
+    }
+
+    @Override
+    public void registerThrowable(RetryContext context, Throwable throwable) {
+        delegate.registerThrowable(context, throwable);
+    }
+}
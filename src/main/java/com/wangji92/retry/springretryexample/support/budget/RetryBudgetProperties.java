@@ -0,0 +1,110 @@
+package com.wangji92.retry.springretryexample.support.budget;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 重试预算配置 全局一个令牌桶，每个 label (@Retryable 的 label，没有 label 为 类名.方法名；编程方式为策略名称) 一个令牌桶
+ * <pre>
+ * retry.budget.global.ratio=0.1
+ * retry.budget.defaults.ratio=0.1
+ * retry.budget.labels[RetryTestService.retryTestService].ratio=0.2
+ * </pre>
+ * 重试需要 label 和全局的令牌桶里面都有令牌；labels 里面的配置是完整的一份 不会和 defaults 合并
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@ConfigurationProperties(prefix = "retry.budget")
+public class RetryBudgetProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 所有重试共用的预算
+     */
+    private Config global = new Config();
+
+    /**
+     * 没有单独配置的 label 使用这份配置
+     */
+    private Config defaults = new Config();
+
+    private Map<String, Config> labels = new LinkedHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Config getGlobal() {
+        return global;
+    }
+
+    public void setGlobal(Config global) {
+        this.global = global;
+    }
+
+    public Config getDefaults() {
+        return defaults;
+    }
+
+    public void setDefaults(Config defaults) {
+        this.defaults = defaults;
+    }
+
+    public Map<String, Config> getLabels() {
+        return labels;
+    }
+
+    public void setLabels(Map<String, Config> labels) {
+        this.labels = labels;
+    }
+
+    public static class Config {
+
+        /**
+         * 每次第一次尝试存入的令牌数，也就是重试最多占第一次尝试的比例 0.1 表示 10%
+         */
+        private double ratio = 0.1;
+
+        /**
+         * 令牌桶容量 空闲一段时间之后最多攒这么多次重试
+         */
+        private int maxTokens = 100;
+
+        /**
+         * 启动时的令牌数 流量很小的时候也能重试几次
+         */
+        private int initialTokens = 10;
+
+        public double getRatio() {
+            return ratio;
+        }
+
+        public void setRatio(double ratio) {
+            this.ratio = ratio;
+        }
+
+        public int getMaxTokens() {
+            return maxTokens;
+        }
+
+        public void setMaxTokens(int maxTokens) {
+            this.maxTokens = maxTokens;
+        }
+
+        public int getInitialTokens() {
+            return initialTokens;
+        }
+
+        public void setInitialTokens(int initialTokens) {
+            this.initialTokens = initialTokens;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.wangji92.retry.springretryexample.support.budget;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 全局和按 label 懒加载的重试预算，重试需要两边都取到令牌
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class RetryBudgetRegistry {
+
+    private final RetryBudgetProperties properties;
+
+    private final TokenBucketRetryBudget global;
+
+    private final Map<String, TokenBucketRetryBudget> budgets = new ConcurrentHashMap<>();
+
+    public RetryBudgetRegistry(RetryBudgetProperties properties) {
+        this.properties = properties;
+        this.global = new TokenBucketRetryBudget("global", properties.getGlobal());
+    }
+
+    /**
+     * 第一次尝试 label 和全局的预算都存入令牌
+     *
+     * @param label 名称
+     */
+    public void onFirstAttempt(String label) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        budget(label).onFirstAttempt();
+        global.onFirstAttempt();
+    }
+
+    /**
+     * @param label 名称
+     * @return 可以重试的时候返回 true；关闭预算的时候总是返回 true
+     */
+    public boolean tryAcquireRetry(String label) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        TokenBucketRetryBudget budget = budget(label);
+        if (!budget.tryAcquire()) {
+            return false;
+        }
+        if (!global.tryAcquire()) {
+            budget.rollback();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param label 名称
+     * @return label 和全局的预算里面是否都还有令牌 (不取走)
+     */
+    public boolean hasRetryToken(String label) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        return budget(label).hasToken() && global.hasToken();
+    }
+
+    public TokenBucketRetryBudget budget(String label) {
+        TokenBucketRetryBudget budget = budgets.get(label);
+        if (budget != null) {
+            return budget;
+        }
+        return budgets.computeIfAbsent(label, key ->
+                new TokenBucketRetryBudget(key, properties.getLabels().getOrDefault(key, properties.getDefaults())));
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public TokenBucketRetryBudget global() {
+        return global;
+    }
+
+    public Collection<TokenBucketRetryBudget> budgets() {
+        return Collections.unmodifiableCollection(budgets.values());
+    }
+}
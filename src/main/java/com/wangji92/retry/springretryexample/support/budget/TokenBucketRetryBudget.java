@@ -0,0 +1,158 @@
+package com.wangji92.retry.springretryexample.support.budget;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的重试预算令牌桶 每次第一次尝试存入 ratio 个令牌，每次重试取走一个令牌，桶里面不够一个令牌的时候不再重试
+ * <p>
+ * 不按时间补充令牌，重试次数只和第一次尝试的次数挂钩：任意时刻 重试次数 &lt;= initialTokens + ratio * 第一次尝试次数，
+ * 下游大面积故障的时候 出去的流量最多是正常的 (1 + ratio) 倍，而不是 maxAttempts 倍
+ * 【令牌用千分之一为单位的 long 保存 CAS 更新；桶满了以后存入直接返回 不产生写竞争】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class TokenBucketRetryBudget {
+
+    private static final long SCALE = 1000;
+
+    private final String name;
+
+    private final long deposit;
+
+    private final long capacity;
+
+    private final AtomicLong balance;
+
+    private final LongAdder firstAttempts = new LongAdder();
+
+    private final LongAdder retries = new LongAdder();
+
+    private final LongAdder rejectedRetries = new LongAdder();
+
+    /**
+     * 集群模式 上一次同步之后本节点余额的变化 (千分之一为单位)
+     */
+    private final LongAdder unsynced = new LongAdder();
+
+    public TokenBucketRetryBudget(String name, RetryBudgetProperties.Config config) {
+        Assert.isTrue(config.getRatio() >= 0, "ratio must not be negative");
+        Assert.isTrue(config.getMaxTokens() > 0, "maxTokens must be positive");
+        this.name = name;
+        this.deposit = Math.round(config.getRatio() * SCALE);
+        this.capacity = config.getMaxTokens() * SCALE;
+        this.balance = new AtomicLong(Math.min(capacity, Math.max(0, config.getInitialTokens()) * SCALE));
+        this.unsynced.add(balance.get());
+    }
+
+    /**
+     * 第一次尝试 存入 ratio 个令牌
+     */
+    public void onFirstAttempt() {
+        firstAttempts.increment();
+        deposit(deposit);
+    }
+
+    /**
+     * @return 取到一个令牌返回 true，可以重试
+     */
+    public boolean tryAcquire() {
+        for (; ; ) {
+            long current = balance.get();
+            if (current < SCALE) {
+                rejectedRetries.increment();
+                return false;
+            }
+            if (balance.compareAndSet(current, current - SCALE)) {
+                unsynced.add(-SCALE);
+                retries.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 只看不取 调用失败的时候判断还有没有机会重试
+     */
+    public boolean hasToken() {
+        return balance.get() >= SCALE;
+    }
+
+    /**
+     * 取到的令牌没有用上 (全局预算不够) 还回去，记一次拒绝
+     */
+    public void rollback() {
+        retries.decrement();
+        rejectedRetries.increment();
+        deposit(SCALE);
+    }
+
+    private void deposit(long amount) {
+        for (; ; ) {
+            long current = balance.get();
+            if (current >= capacity) {
+                return;
+            }
+            long next = Math.min(capacity, current + amount);
+            if (balance.compareAndSet(current, next)) {
+                unsynced.add(next - current);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 集群模式 取走上一次同步之后本节点余额的变化 提交到共享的计数器
+     *
+     * @return 千分之一个令牌为单位
+     */
+    public long drainUnsynced() {
+        return unsynced.sumThenReset();
+    }
+
+    /**
+     * 集群模式 同步失败 取走的变化还回去下一次再提交
+     */
+    public void restoreUnsynced(long delta) {
+        unsynced.add(delta);
+    }
+
+    /**
+     * 集群模式 用这个节点分到的共享余额覆盖本地余额，同步期间本地的变化 (还没有提交) 保留
+     *
+     * @param share 千分之一个令牌为单位
+     */
+    public void resetBalance(long share) {
+        balance.set(Math.max(0, Math.min(capacity, share + unsynced.sum())));
+    }
+
+    /**
+     * @return 桶的容量 千分之一个令牌为单位
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getAvailableTokens() {
+        return (double) balance.get() / SCALE;
+    }
+
+    public long getFirstAttempts() {
+        return firstAttempts.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getRejectedRetries() {
+        return rejectedRetries.sum();
+    }
+}
@@ -0,0 +1,106 @@
+package com.wangji92.retry.springretryexample.support.bulkhead;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个 label 的隔离舱：最多 maxConcurrentCalls 个调用同时执行，满了之后最多 queueCapacity 个调用排队等 maxWait，其他的马上拒绝
+ * <p>
+ * 许可是非公平的 Semaphore，有许可的时候 tryAcquire 只是一次 CAS 不加锁；排队的个数用 CAS 限制，
+ * 队列也满了的时候不会进入 AQS 的等待队列 直接拒绝
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class Bulkhead {
+
+    private final String name;
+
+    private final int maxConcurrentCalls;
+
+    private final int queueCapacity;
+
+    private final long maxWaitNanos;
+
+    private final Semaphore permits;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final LongAdder rejected = new LongAdder();
+
+    public Bulkhead(String name, BulkheadProperties.Config config) {
+        Assert.isTrue(config.getMaxConcurrentCalls() > 0, "maxConcurrentCalls must be greater than 0");
+        this.name = name;
+        this.maxConcurrentCalls = config.getMaxConcurrentCalls();
+        this.queueCapacity = config.getQueueCapacity();
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxWait());
+        this.permits = new Semaphore(maxConcurrentCalls, false);
+    }
+
+    /**
+     * @return 拿到许可 执行完之后要 {@link #release()}；false 表示拒绝 (排队的时候被中断也是拒绝 保留中断标记)
+     */
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (queueCapacity > 0 && maxWaitNanos > 0) {
+            int current;
+            do {
+                current = waiting.get();
+                if (current >= queueCapacity) {
+                    rejected.increment();
+                    return false;
+                }
+            } while (!waiting.compareAndSet(current, current + 1));
+            try {
+                if (permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    /**
+     * @return 正在执行的调用个数
+     */
+    public int activeCalls() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+
+    /**
+     * @return 正在排队的调用个数
+     */
+    public int waitingCalls() {
+        return waiting.get();
+    }
+
+    /**
+     * @return 拒绝 (直接兜底) 的次数
+     */
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,25 @@
+package com.wangji92.retry.springretryexample.support.bulkhead;
+
+import org.springframework.remoting.RemoteAccessException;
+
+/**
+ * 隔离舱满了 调用没有执行
+ * 继承 RemoteAccessException，现有的 recover(RemoteAccessException e) 兜底方法可以直接处理
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class BulkheadFullException extends RemoteAccessException {
+
+    public BulkheadFullException(String bulkheadName) {
+        super("bulkhead " + bulkheadName + " is full");
+    }
+
+    /**
+     * 下游慢的时候每次拒绝都会创建 不需要堆栈
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,73 @@
+package com.wangji92.retry.springretryexample.support.bulkhead;
+
+import com.wangji92.retry.springretryexample.support.recover.RecoverDispatcher;
+import com.wangji92.retry.springretryexample.support.recover.TargetRecoverer;
+import com.wangji92.retry.springretryexample.utils.RetryLabelUtils;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.reactivestreams.Publisher;
+import org.springframework.aop.support.AopUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 在重试拦截器的外面 一个调用从第一次尝试到最后一次退避结束一直占着许可，下游慢的时候一个 label 最多占用 maxConcurrentCalls 个线程，
+ * 不会把 tomcat、调度线程都拖进重试、退避的 sleep 里面
+ * <p>
+ * 满了 (排队也满了或者等待超时) 的时候不执行、不重试，用 {@link BulkheadFullException} 直接走兜底 {@link TargetRecoverer}，
+ * 和重试用完之后的兜底一样
+ * 【返回 Mono/Flux 的方法不限制 调用线程不会等待】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class BulkheadInterceptor implements MethodInterceptor {
+
+    /**
+     * 不限制的方法
+     */
+    private static final String NONE = "";
+
+    private final BulkheadRegistry bulkheadRegistry;
+
+    private final Map<Method, String> names = new ConcurrentHashMap<>();
+
+    public BulkheadInterceptor(BulkheadRegistry bulkheadRegistry) {
+        this.bulkheadRegistry = bulkheadRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String name = names.get(invocation.getMethod());
+        if (name == null) {
+            name = names.computeIfAbsent(invocation.getMethod(), method -> resolveName(invocation));
+        }
+        Bulkhead bulkhead = name.isEmpty() ? null : bulkheadRegistry.bulkhead(name);
+        if (bulkhead == null) {
+            return invocation.proceed();
+        }
+        if (!bulkhead.tryAcquire()) {
+            return recover(invocation, new BulkheadFullException(name));
+        }
+        try {
+            return invocation.proceed();
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private Object recover(MethodInvocation invocation, BulkheadFullException cause) {
+        Object target = invocation.getThis();
+        return TargetRecoverer.recover(target, invocation.getMethod(), invocation.getArguments(), cause,
+                RecoverDispatcher.forMethod(AopUtils.getTargetClass(target), invocation.getMethod()));
+    }
+
+    private String resolveName(MethodInvocation invocation) {
+        if (Publisher.class.isAssignableFrom(invocation.getMethod().getReturnType())) {
+            return NONE;
+        }
+        return RetryLabelUtils.resolveLabel(invocation);
+    }
+}
@@ -0,0 +1,84 @@
+package com.wangji92.retry.springretryexample.support.bulkhead;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按 @Retryable 的 label (没有 label 的时候为 类名.方法名) 限制同时在重试里面的调用个数，只有配置了的 label 才限制
+ * <pre>
+ * retry.bulkhead.enabled=true
+ * retry.bulkhead.instances[RetryTestService.retryTestService].max-concurrent-calls=10
+ * retry.bulkhead.instances[RetryTestService.retryTestService].queue-capacity=20
+ * retry.bulkhead.instances[RetryTestService.retryTestService].max-wait=100
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@ConfigurationProperties(prefix = "retry.bulkhead")
+public class BulkheadProperties {
+
+    private boolean enabled;
+
+    private Map<String, Config> instances = new LinkedHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Map<String, Config> getInstances() {
+        return instances;
+    }
+
+    public void setInstances(Map<String, Config> instances) {
+        this.instances = instances;
+    }
+
+    public static class Config {
+
+        /**
+         * 最多同时有多少个调用在重试里面 (包含退避的等待)
+         */
+        private int maxConcurrentCalls = 10;
+
+        /**
+         * 满了之后最多多少个调用排队等待，0 表示不排队 直接兜底
+         */
+        private int queueCapacity;
+
+        /**
+         * 排队最多等多久(毫秒) 超时之后兜底
+         */
+        private long maxWait;
+
+        public int getMaxConcurrentCalls() {
+            return maxConcurrentCalls;
+        }
+
+        public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public long getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(long maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.wangji92.retry.springretryexample.support.bulkhead;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按 label 懒加载的隔离舱 只有 instances 里面配置了的 label 才有
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class BulkheadRegistry {
+
+    private final BulkheadProperties properties;
+
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    public BulkheadRegistry(BulkheadProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @param name label
+     * @return 没有配置或者关闭的时候返回 null
+     */
+    public Bulkhead bulkhead(String name) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        Bulkhead bulkhead = bulkheads.get(name);
+        if (bulkhead != null) {
+            return bulkhead;
+        }
+        BulkheadProperties.Config config = properties.getInstances().get(name);
+        return config == null ? null : bulkheads.computeIfAbsent(name, key -> new Bulkhead(key, config));
+    }
+
+    public Collection<Bulkhead> bulkheads() {
+        return Collections.unmodifiableCollection(bulkheads.values());
+    }
+}
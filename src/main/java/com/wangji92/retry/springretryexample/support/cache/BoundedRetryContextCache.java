@@ -0,0 +1,329 @@
+package com.wangji92.retry.springretryexample.support.cache;
+
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.policy.RetryContextCache;
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界的 RetryContextCache
+ * <p>
+ * {@link org.springframework.retry.policy.MapRetryContextCache}、{@link org.springframework.retry.policy.SoftReferenceMapRetryContextCache}
+ * 所有失败消息的上下文都放在一个 map 里面，满了之后直接抛出 RetryCacheCapacityExceededException；
+ * 这里按 key 分段加锁，每一段是一个 LinkedHashMap，超过容量淘汰最久没有写入的，超过 ttl 的惰性过期
+ * <p>
+ * offHeap=true 时 上下文序列化之后放在堆外 (DirectByteBuffer)，堆上只剩下 key 和一个很小的 entry；
+ * 堆外内存按 2 的幂分级，条目被删除、淘汰、覆盖的时候归还到所在分段的池子里，下次 put 直接复用，
+ * 不会每次 put 都 allocateDirect (分配慢、要等 GC 之后 Cleaner 才会释放)
+ * 注意：有状态重试依赖缓存里面的次数，被淘汰的 key 下次会当作新的消息从 0 开始计数
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class BoundedRetryContextCache implements RetryContextCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 100_000;
+
+    public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(10);
+
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private final Segment[] segments;
+
+    private final int segmentShift;
+
+    private final long timeToLiveMillis;
+
+    private final RetryKeyEncoder keyEncoder;
+
+    private final boolean offHeap;
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder directAllocations = new LongAdder();
+
+    public BoundedRetryContextCache() {
+        this(DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE);
+    }
+
+    public BoundedRetryContextCache(int maximumSize, long timeToLiveMillis) {
+        this(maximumSize, timeToLiveMillis, DEFAULT_CONCURRENCY_LEVEL, new CompactRetryKeyEncoder(), false);
+    }
+
+    /**
+     * @param maximumSize      最大的条目数 (按分段平均分配)
+     * @param timeToLiveMillis 最后一次写入之后多久过期 小于等于 0 表示不过期
+     * @param concurrencyLevel 分段数 会向上取 2 的幂
+     * @param keyEncoder       key 的编码
+     * @param offHeap          上下文是否序列化到堆外
+     */
+    public BoundedRetryContextCache(int maximumSize, long timeToLiveMillis, int concurrencyLevel,
+                                    RetryKeyEncoder keyEncoder, boolean offHeap) {
+        Assert.isTrue(maximumSize > 0, "maximumSize must be greater than 0");
+        Assert.isTrue(concurrencyLevel > 0, "concurrencyLevel must be greater than 0");
+        Assert.notNull(keyEncoder, "keyEncoder must not be null");
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel && segmentCount < maximumSize) {
+            segmentCount <<= 1;
+        }
+        int segmentCapacity = (maximumSize + segmentCount - 1) / segmentCount;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            this.segments[i] = new Segment(segmentCapacity, evictions,
+                    offHeap ? new DirectBufferPool(segmentCapacity, directAllocations) : null);
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.keyEncoder = keyEncoder;
+        this.offHeap = offHeap;
+    }
+
+    @Override
+    public RetryContext get(Object key) {
+        Object encoded = keyEncoder.encode(key);
+        Segment segment = segmentFor(encoded);
+        byte[] bytes;
+        synchronized (segment) {
+            Entry entry = segment.getLive(encoded, currentTimeMillis());
+            if (entry == null) {
+                return null;
+            }
+            if (entry instanceof HeapEntry) {
+                return ((HeapEntry) entry).context;
+            }
+            // 堆外的 buffer 释放之后会被别的 put 复用，必须在锁里面拷贝出来
+            bytes = ((OffHeapEntry) entry).copy();
+        }
+        return RetryContextSerializer.deserialize(bytes);
+    }
+
+    @Override
+    public void put(Object key, RetryContext context) {
+        Object encoded = keyEncoder.encode(key);
+        byte[] bytes = offHeap ? RetryContextSerializer.serialize(context) : null;
+        long expireAt = expireAt();
+        Segment segment = segmentFor(encoded);
+        synchronized (segment) {
+            // 失败之后都会重新 put，按写入顺序淘汰就是最近最少使用，读的时候不需要调整链表
+            segment.discard(encoded);
+            Entry entry = offHeap ? new OffHeapEntry(segment.pool.acquire(bytes), expireAt)
+                    : new HeapEntry(context, expireAt);
+            segment.put(encoded, entry);
+        }
+    }
+
+    @Override
+    public void remove(Object key) {
+        Object encoded = keyEncoder.encode(key);
+        Segment segment = segmentFor(encoded);
+        synchronized (segment) {
+            segment.discard(encoded);
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Object encoded = keyEncoder.encode(key);
+        Segment segment = segmentFor(encoded);
+        synchronized (segment) {
+            return segment.getLive(encoded, currentTimeMillis()) != null;
+        }
+    }
+
+    /**
+     * @return 当前条目数 (包含已经过期但还没有清理的)
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return 因为容量或者过期被淘汰的条目数
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return 堆外模式下实际调用 allocateDirect 的次数 (复用池子里的 buffer 不算)
+     */
+    public long directAllocationCount() {
+        return directAllocations.sum();
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private long expireAt() {
+        return timeToLiveMillis > 0 ? currentTimeMillis() + timeToLiveMillis : Long.MAX_VALUE;
+    }
+
+    private Segment segmentFor(Object encodedKey) {
+        if (segments.length == 1) {
+            return segments[0];
+        }
+        // 用高位选段 低位留给段内的 HashMap，否则段内只有 1/段数 的桶会被用到
+        int h = encodedKey.hashCode() * 0x9E3779B9;
+        return segments[h >>> segmentShift];
+    }
+
+    private static final class Segment extends LinkedHashMap<Object, Entry> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        private final transient LongAdder evictions;
+
+        private final transient DirectBufferPool pool;
+
+        private Segment(int capacity, LongAdder evictions, DirectBufferPool pool) {
+            super(16, 0.75f, false);
+            this.capacity = capacity;
+            this.evictions = evictions;
+            this.pool = pool;
+        }
+
+        private Entry getLive(Object key, long now) {
+            Entry entry = get(key);
+            if (entry != null && entry.expireAt <= now) {
+                discard(key);
+                evictions.increment();
+                return null;
+            }
+            return entry;
+        }
+
+        /**
+         * 删除并且把堆外的 buffer 还回池子
+         */
+        private void discard(Object key) {
+            release(remove(key));
+        }
+
+        private void release(Entry entry) {
+            if (entry instanceof OffHeapEntry) {
+                pool.release(((OffHeapEntry) entry).buffer);
+            }
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                release(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 按 2 的幂分级的 DirectByteBuffer 池子，只在所属分段的锁里面使用，不需要额外同步
+     * <p>
+     * 每一级最多缓存 capacity 个 (分段的条目数上限)，超过 {@link #MAX_POOLED_SIZE} 的直接分配、用完交给 GC
+     */
+    private static final class DirectBufferPool {
+
+        private static final int MIN_SHIFT = 7;
+
+        private static final int MAX_SHIFT = 16;
+
+        private static final int MAX_POOLED_SIZE = 1 << MAX_SHIFT;
+
+        private final ArrayDeque<ByteBuffer>[] free;
+
+        private final int maxPerClass;
+
+        private final LongAdder allocations;
+
+        @SuppressWarnings("unchecked")
+        private DirectBufferPool(int maxPerClass, LongAdder allocations) {
+            this.free = new ArrayDeque[MAX_SHIFT - MIN_SHIFT + 1];
+            for (int i = 0; i < free.length; i++) {
+                free[i] = new ArrayDeque<>();
+            }
+            this.maxPerClass = maxPerClass;
+            this.allocations = allocations;
+        }
+
+        private ByteBuffer acquire(byte[] bytes) {
+            ByteBuffer buffer = null;
+            int sizeClass = sizeClass(bytes.length);
+            if (sizeClass >= 0) {
+                buffer = free[sizeClass].pollLast();
+            }
+            if (buffer == null) {
+                allocations.increment();
+                buffer = ByteBuffer.allocateDirect(sizeClass >= 0 ? 1 << (sizeClass + MIN_SHIFT) : bytes.length);
+            }
+            buffer.clear();
+            buffer.put(bytes);
+            buffer.flip();
+            return buffer;
+        }
+
+        private void release(ByteBuffer buffer) {
+            int sizeClass = sizeClass(buffer.capacity());
+            if (sizeClass >= 0 && free[sizeClass].size() < maxPerClass) {
+                free[sizeClass].addLast(buffer);
+            }
+        }
+
+        private static int sizeClass(int size) {
+            if (size > MAX_POOLED_SIZE) {
+                return -1;
+            }
+            int shift = size <= 1 << MIN_SHIFT ? MIN_SHIFT : 32 - Integer.numberOfLeadingZeros(size - 1);
+            return shift - MIN_SHIFT;
+        }
+    }
+
+    private abstract static class Entry {
+
+        final long expireAt;
+
+        Entry(long expireAt) {
+            this.expireAt = expireAt;
+        }
+    }
+
+    private static final class HeapEntry extends Entry {
+
+        private final RetryContext context;
+
+        HeapEntry(RetryContext context, long expireAt) {
+            super(expireAt);
+            this.context = context;
+        }
+    }
+
+    private static final class OffHeapEntry extends Entry {
+
+        private final ByteBuffer buffer;
+
+        OffHeapEntry(ByteBuffer buffer, long expireAt) {
+            super(expireAt);
+            this.buffer = buffer;
+        }
+
+        byte[] copy() {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.wangji92.retry.springretryexample.support.cache;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 把 [label, 参数] 这样的组合 key 编码成一个只包含 String/Number/Class 的 {@link CompactKey}
+ * <p>
+ * 业务对象需要注册提取器 例如 TextMessageDto -> messageId，编码后只保留类型和 id，不再持有参数对象；
+ * 没有注册的类型不做编码 返回原始的 key
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class CompactRetryKeyEncoder implements RetryKeyEncoder {
+
+    private final Map<Class<?>, Function<Object, ?>> extractors = new ConcurrentHashMap<>();
+
+    /**
+     * 注册业务对象的 key 提取器 (按具体类型匹配，不处理子类)
+     *
+     * @param type      参数类型
+     * @param extractor 提取唯一标识 需要和 equals 的语义保持一致
+     * @param <T>
+     * @return this
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompactRetryKeyEncoder register(Class<T> type, Function<? super T, ?> extractor) {
+        extractors.put(type, (Function<Object, ?>) extractor);
+        return this;
+    }
+
+    @Override
+    public Object encode(Object key) {
+        if (key == null || key instanceof String || key instanceof CompactKey) {
+            return key;
+        }
+        if (key instanceof List && key instanceof RandomAccess) {
+            List<?> elements = (List<?>) key;
+            Object[] parts = new Object[elements.size() * 2];
+            for (int i = 0; i < elements.size(); i++) {
+                if (!fill(parts, i * 2, elements.get(i))) {
+                    return key;
+                }
+            }
+            return new CompactKey(parts);
+        }
+        if (key instanceof Object[]) {
+            Object[] elements = (Object[]) key;
+            Object[] parts = new Object[elements.length * 2];
+            for (int i = 0; i < elements.length; i++) {
+                if (!fill(parts, i * 2, elements[i])) {
+                    return key;
+                }
+            }
+            return new CompactKey(parts);
+        }
+        Object[] parts = new Object[2];
+        return fill(parts, 0, key) ? new CompactKey(parts) : key;
+    }
+
+    /**
+     * 每个元素占两个位置：业务对象的类型 (简单类型为 null) + 值
+     */
+    private boolean fill(Object[] parts, int offset, Object element) {
+        if (element == null || element instanceof String || element instanceof Number || element instanceof Boolean
+                || element instanceof Character || element instanceof Enum || element instanceof UUID) {
+            parts[offset + 1] = element;
+            return true;
+        }
+        Function<Object, ?> extractor = extractors.get(element.getClass());
+        Object value = extractor == null ? null : extractor.apply(element);
+        if (value == null) {
+            return false;
+        }
+        // 不同类型的业务对象 id 相同也不能冲突
+        parts[offset] = element.getClass();
+        parts[offset + 1] = value;
+        return true;
+    }
+
+    /**
+     * 编码之后的 key hash 提前算好，连续的 messageId 算出来的 hash 也是挨着的，这里再打散一次
+     */
+    public static final class CompactKey {
+
+        private final Object[] parts;
+
+        private final int hash;
+
+        CompactKey(Object[] parts) {
+            this.parts = parts;
+            int h = Arrays.hashCode(parts);
+            // murmur3 fmix32
+            h ^= h >>> 16;
+            h *= 0x85EBCA6B;
+            h ^= h >>> 13;
+            h *= 0xC2B2AE35;
+            h ^= h >>> 16;
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CompactKey)) {
+                return false;
+            }
+            CompactKey that = (CompactKey) o;
+            return hash == that.hash && Arrays.equals(parts, that.parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(parts);
+        }
+    }
+}
@@ -0,0 +1,538 @@
+package com.wangji92.retry.springretryexample.support.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.policy.RetryCacheCapacityExceededException;
+import org.springframework.retry.policy.RetryContextCache;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * 持久化的 RetryContextCache 重启之后有状态重试的次数不会丢
+ * <p>
+ * 所有的写入 (put/remove) 按顺序追加到内存映射的 journal 文件里面，文件写满了换下一个；
+ * 堆上只有 key -> 记录位置 的索引，get 的时候才从映射的文件里面读出来反序列化 (和 offHeap 一样每次拿到的是副本)
+ * <p>
+ * 启动的时候按文件顺序扫一遍 只解析 key 不反序列化上下文，末尾写了一半的记录 (kill -9) 通过长度、crc 识别出来丢掉；
+ * 覆盖、删除之后旧的记录成为垃圾，垃圾超过一半的时候定时压缩：存活的记录拷贝到新的文件 再按顺序删除旧文件，
+ * 压缩过程中挂掉 重启之后旧文件、新文件一起重放 结果也是一样的
+ * <p>
+ * 记录格式：[长度 int][crc int][类型 byte][过期时间 long][key 长度 short][key utf8][上下文序列化]
+ * 【写入映射的内存在进程被 kill -9 之后依然会由操作系统刷到磁盘，机器掉电可能丢失最近的写入】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class JournalRetryContextCache implements RetryContextCache, Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "retry-journal-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String LOCK_FILE = "retry-journal.lock";
+
+    private static final byte PUT = 1;
+
+    private static final byte REMOVE = 2;
+
+    /**
+     * 长度、crc、类型、过期时间、key 长度
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 1 + 8 + 2;
+
+    private final Path directory;
+
+    private final int maximumSize;
+
+    private final long timeToLiveMillis;
+
+    private final RetryKeyEncoder keyEncoder;
+
+    private final int segmentSize;
+
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+
+    /**
+     * 按序号从小到大 只在持有 this 锁的时候修改
+     */
+    private final List<Segment> segments = new ArrayList<>();
+
+    private final AtomicLong liveBytes = new AtomicLong();
+
+    private final CRC32 crc32 = new CRC32();
+
+    private final FileChannel lockChannel;
+
+    private final FileLock lock;
+
+    private final ScheduledExecutorService compactionExecutor;
+
+    private byte[] writeBuffer = new byte[1024];
+
+    private Segment active;
+
+    private long journalBytes;
+
+    private long replayMillis;
+
+    /**
+     * @param directory                journal 所在目录 同一时间只能有一个实例使用
+     * @param maximumSize              最大条目数 超过之后和 MapRetryContextCache 一样抛出 RetryCacheCapacityExceededException
+     * @param timeToLiveMillis         最后一次写入之后多久过期 小于等于 0 表示不过期
+     * @param keyEncoder               key 的编码 编码之后的 toString 作为持久化的 key (TextMessageDto -> messageId)，
+     *                                 没有注册提取器、编码不了的 key 直接拒绝 (toString 不稳定 重启之后对不上)
+     * @param segmentSize              每个 journal 文件的大小
+     * @param compactionIntervalMillis 检查是否需要压缩的间隔 小于等于 0 不定时压缩
+     */
+    public JournalRetryContextCache(Path directory, int maximumSize, long timeToLiveMillis, RetryKeyEncoder keyEncoder,
+                                    int segmentSize, long compactionIntervalMillis) {
+        Assert.notNull(directory, "directory must not be null");
+        Assert.isTrue(maximumSize > 0, "maximumSize must be greater than 0");
+        Assert.notNull(keyEncoder, "keyEncoder must not be null");
+        Assert.isTrue(segmentSize > HEADER_SIZE, "segmentSize is too small");
+        this.directory = directory;
+        this.maximumSize = maximumSize;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.keyEncoder = keyEncoder;
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(directory);
+            this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock fileLock;
+            try {
+                fileLock = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                fileLock = null;
+            }
+            if (fileLock == null) {
+                lockChannel.close();
+                throw new IllegalStateException("retry journal " + directory + " is used by another cache");
+            }
+            this.lock = fileLock;
+            replay();
+        } catch (IOException e) {
+            throw new UncheckedIOException("open retry journal " + directory + " failed", e);
+        }
+        if (compactionIntervalMillis > 0) {
+            this.compactionExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("retry-journal-compaction-"));
+            this.compactionExecutor.scheduleWithFixedDelay(this::compactQuietly, compactionIntervalMillis,
+                    compactionIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.compactionExecutor = null;
+        }
+    }
+
+    @Override
+    public RetryContext get(Object key) {
+        String journalKey = journalKey(key);
+        Entry entry = liveEntry(journalKey);
+        if (entry == null) {
+            return null;
+        }
+        int valueOffset = entry.offset + HEADER_SIZE + entry.keyLength;
+        int valueLength = entry.length - HEADER_SIZE - entry.keyLength;
+        byte[] bytes = new byte[valueLength];
+        ByteBuffer buffer = entry.segment.buffer.duplicate();
+        buffer.position(valueOffset);
+        buffer.get(bytes);
+        return RetryContextSerializer.deserialize(bytes);
+    }
+
+    @Override
+    public void put(Object key, RetryContext context) {
+        String journalKey = journalKey(key);
+        byte[] keyBytes = journalKey.getBytes(StandardCharsets.UTF_8);
+        byte[] value = RetryContextSerializer.serialize(context);
+        synchronized (this) {
+            if (!index.containsKey(journalKey) && index.size() >= maximumSize) {
+                throw new RetryCacheCapacityExceededException("Retry cache capacity limit breached. "
+                        + "Do you need to re-consider the implementation of the key generator, "
+                        + "or the equals and hashCode of the items that failed?");
+            }
+            Entry entry = append(PUT, keyBytes, value, expireAt());
+            Entry previous = index.put(journalKey, entry);
+            liveBytes.addAndGet(entry.length - (previous == null ? 0 : previous.length));
+        }
+    }
+
+    @Override
+    public void remove(Object key) {
+        String journalKey = journalKey(key);
+        byte[] keyBytes = journalKey.getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            Entry previous = index.remove(journalKey);
+            if (previous != null) {
+                liveBytes.addAndGet(-previous.length);
+                append(REMOVE, keyBytes, null, 0L);
+            }
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return liveEntry(journalKey(key)) != null;
+    }
+
+    private String journalKey(Object key) {
+        Object encoded = keyEncoder.encode(key);
+        if (encoded instanceof String) {
+            return (String) encoded;
+        }
+        if (encoded instanceof CompactRetryKeyEncoder.CompactKey) {
+            return encoded.toString();
+        }
+        // 编码不了的时候返回的是原始的 key，业务对象默认的 toString 带着 hashCode，写进 journal 重启之后就匹配不上了
+        throw new IllegalArgumentException("retry key " + key + " cannot be encoded for the journal, "
+                + "register a key extractor on CompactRetryKeyEncoder for the argument types");
+    }
+
+    private Entry liveEntry(String journalKey) {
+        Entry entry = index.get(journalKey);
+        if (entry != null && entry.expireAt <= currentTimeMillis()) {
+            // 过期的不追加删除记录 重放、压缩的时候按过期时间丢掉
+            if (index.remove(journalKey, entry)) {
+                liveBytes.addAndGet(-entry.length);
+            }
+            return null;
+        }
+        return entry;
+    }
+
+    private long expireAt() {
+        return timeToLiveMillis > 0 ? currentTimeMillis() + timeToLiveMillis : Long.MAX_VALUE;
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * 持有 this 锁调用
+     */
+    private Entry append(byte type, byte[] keyBytes, byte[] value, long expireAt) {
+        Assert.isTrue(keyBytes.length <= Short.MAX_VALUE, "retry key is too long");
+        int length = HEADER_SIZE + keyBytes.length + (value == null ? 0 : value.length);
+        Assert.isTrue(length <= segmentSize, "retry context is larger than the journal segment");
+        if (writeBuffer.length < length) {
+            writeBuffer = new byte[Math.max(length, writeBuffer.length * 2)];
+        }
+        ByteBuffer record = ByteBuffer.wrap(writeBuffer, 0, length);
+        record.putInt(length).putInt(0).put(type).putLong(expireAt).putShort((short) keyBytes.length).put(keyBytes);
+        if (value != null) {
+            record.put(value);
+        }
+        crc32.reset();
+        crc32.update(writeBuffer, 8, length - 8);
+        record.putInt(4, (int) crc32.getValue());
+        return write(writeBuffer, length, keyBytes.length, expireAt);
+    }
+
+    /**
+     * 先写长度之外的部分 最后写长度，写了一半的记录重放的时候读到的长度为 0 或者 crc 不对
+     */
+    private Entry write(byte[] record, int length, int keyLength, long expireAt) {
+        if (active.position + length > active.capacity) {
+            active = newSegment(active.sequence + 1);
+        }
+        int offset = active.position;
+        ByteBuffer buffer = active.buffer.duplicate();
+        buffer.position(offset + 4);
+        buffer.put(record, 4, length - 4);
+        active.buffer.putInt(offset, length);
+        active.position += length;
+        journalBytes += length;
+        return new Entry(active, offset, length, keyLength, expireAt);
+    }
+
+    private Segment newSegment(long sequence) {
+        try {
+            Segment segment = Segment.open(directory.resolve(segmentName(sequence)), sequence, segmentSize);
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("create retry journal segment failed", e);
+        }
+    }
+
+    private static String segmentName(long sequence) {
+        return String.format("%s%016d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX);
+    }
+
+    private void replay() throws IOException {
+        long start = System.nanoTime();
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        long records = 0;
+        long now = currentTimeMillis();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long sequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            Segment segment = Segment.open(file, sequence, (int) Math.max(Files.size(file), segmentSize));
+            segments.add(segment);
+            records += replay(segment, now);
+        }
+        active = segments.isEmpty() ? newSegment(1) : segments.get(segments.size() - 1);
+        replayMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("retry journal {} replayed records={} entries={} segments={} in {}ms", directory, records, index.size(),
+                segments.size(), replayMillis);
+    }
+
+    private long replay(Segment segment, long now) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        CRC32 crc = new CRC32();
+        byte[] bytes = new byte[256];
+        long records = 0;
+        int position = 0;
+        while (position + HEADER_SIZE <= segment.capacity) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length < HEADER_SIZE || position + length > segment.capacity) {
+                truncate(segment, position);
+                break;
+            }
+            // crc 直接在映射的内存上算 只把 key 拷出来
+            buffer.limit(position + length).position(position + 8);
+            crc.reset();
+            crc.update(buffer);
+            buffer.limit(buffer.capacity());
+            if (buffer.getInt(position + 4) != (int) crc.getValue()) {
+                truncate(segment, position);
+                break;
+            }
+            byte type = buffer.get(position + 8);
+            long expireAt = buffer.getLong(position + 9);
+            int keyLength = buffer.getShort(position + 17);
+            if (bytes.length < keyLength) {
+                bytes = new byte[keyLength];
+            }
+            buffer.position(position + HEADER_SIZE);
+            buffer.get(bytes, 0, keyLength);
+            String key = new String(bytes, 0, keyLength, StandardCharsets.UTF_8);
+            Entry previous;
+            if (type == PUT && expireAt > now) {
+                previous = index.put(key, new Entry(segment, position, length, keyLength, expireAt));
+                liveBytes.addAndGet(length);
+            } else {
+                previous = index.remove(key);
+            }
+            if (previous != null) {
+                liveBytes.addAndGet(-previous.length);
+            }
+            position += length;
+            journalBytes += length;
+            records++;
+        }
+        segment.position = position;
+        return records;
+    }
+
+    /**
+     * 写了一半的记录 (kill -9) 以及之后的内容都丢掉，清成 0 之后追加的短记录后面不会再读到残留的数据
+     */
+    private static void truncate(Segment segment, int position) {
+        log.warn("retry journal {} torn record at {}, the rest is ignored", segment.path, position);
+        for (int i = position; i < segment.capacity; i++) {
+            segment.buffer.put(i, (byte) 0);
+        }
+    }
+
+    /**
+     * 垃圾超过一半 并且已经写了不止一个文件的时候压缩
+     *
+     * @return 是否压缩了
+     */
+    public boolean compactIfNecessary() {
+        synchronized (this) {
+            if (segments.size() < 2 || garbageBytes() * 2 < journalBytes) {
+                return false;
+            }
+            compact();
+            return true;
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compactIfNecessary();
+        } catch (RuntimeException e) {
+            log.warn("retry journal compaction failed", e);
+        }
+    }
+
+    /**
+     * 存活的记录原样拷贝到新的文件 (序号比所有旧文件大)，然后从小到大删除旧文件
+     */
+    public synchronized void compact() {
+        long start = System.nanoTime();
+        List<Segment> oldSegments = new ArrayList<>(segments);
+        long oldBytes = journalBytes;
+        active = newSegment(active.sequence + 1);
+        journalBytes = 0;
+        long now = currentTimeMillis();
+        byte[] record = new byte[1024];
+        long live = 0;
+        for (Map.Entry<String, Entry> mapEntry : index.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            if (entry.expireAt <= now) {
+                index.remove(mapEntry.getKey(), entry);
+                continue;
+            }
+            if (record.length < entry.length) {
+                record = new byte[Math.max(entry.length, record.length * 2)];
+            }
+            ByteBuffer buffer = entry.segment.buffer.duplicate();
+            buffer.position(entry.offset);
+            buffer.get(record, 0, entry.length);
+            index.put(mapEntry.getKey(), write(record, entry.length, entry.keyLength, entry.expireAt));
+            live += entry.length;
+        }
+        liveBytes.set(live);
+        for (Segment segment : oldSegments) {
+            segments.remove(segment);
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                log.warn("delete retry journal segment {} failed", segment.path, e);
+            }
+        }
+        log.info("retry journal {} compacted {} -> {} bytes in {}ms", directory, oldBytes, journalBytes,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * @return 当前条目数 (包含已经过期但还没有清理的)
+     */
+    public int size() {
+        return index.size();
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * @return 所有 journal 文件里面已经写入的字节数
+     */
+    public synchronized long journalBytes() {
+        return journalBytes;
+    }
+
+    public synchronized long garbageBytes() {
+        return journalBytes - liveBytes.get();
+    }
+
+    /**
+     * @return 启动的时候重放 journal 花的时间
+     */
+    public long replayMillis() {
+        return replayMillis;
+    }
+
+    @Override
+    public void close() {
+        if (compactionExecutor != null) {
+            compactionExecutor.shutdownNow();
+        }
+        synchronized (this) {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+            }
+            try {
+                lock.release();
+                lockChannel.close();
+            } catch (IOException e) {
+                log.warn("release retry journal lock failed", e);
+            }
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+
+        private final long sequence;
+
+        private final MappedByteBuffer buffer;
+
+        private final int capacity;
+
+        /**
+         * 写入的位置 只在持有 cache 的锁的时候修改
+         */
+        private int position;
+
+        private Segment(Path path, long sequence, MappedByteBuffer buffer, int capacity) {
+            this.path = path;
+            this.sequence = sequence;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+
+        /**
+         * 映射之后文件可以关掉 映射在 buffer 被回收之前一直有效 (删除文件之后也是)
+         */
+        private static Segment open(Path path, long sequence, int capacity) throws IOException {
+            try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+                if (file.length() < capacity) {
+                    file.setLength(capacity);
+                }
+                MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+                return new Segment(path, sequence, buffer, capacity);
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final Segment segment;
+
+        private final int offset;
+
+        private final int length;
+
+        private final int keyLength;
+
+        private final long expireAt;
+
+        private Entry(Segment segment, int offset, int length, int keyLength, long expireAt) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.keyLength = keyLength;
+            this.expireAt = expireAt;
+        }
+    }
+}
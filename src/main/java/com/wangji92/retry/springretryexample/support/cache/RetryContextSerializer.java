@@ -0,0 +1,79 @@
+package com.wangji92.retry.springretryexample.support.cache;
+
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.core.serializer.support.SerializationFailedException;
+import org.springframework.retry.RetryContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+/**
+ * RetryContext 的序列化
+ * RetryContextSupport 本身是 Serializable 的，但是属性里面会放 {@link RetryContext#STATE_KEY} 等不一定能序列化的对象，
+ * 这里把不能序列化的对象替换成 null，异常的堆栈也不要，只保留重试次数、最后一次异常类型和 message 等信息
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public final class RetryContextSerializer {
+
+    private RetryContextSerializer() {
+    }
+
+    public static byte[] serialize(RetryContext context) {
+        return serializeObject(context);
+    }
+
+    public static RetryContext deserialize(byte[] bytes) {
+        return deserialize(bytes, 0, bytes.length);
+    }
+
+    public static RetryContext deserialize(byte[] bytes, int offset, int length) {
+        return (RetryContext) deserializeObject(bytes, offset, length);
+    }
+
+    /**
+     * 和上下文一样宽松的序列化 死信里面的参数、异常也用这个 {@link com.wangji92.retry.springretryexample.support.deadletter.DeadLetter}
+     */
+    public static byte[] serializeObject(Object object) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new LenientObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        } catch (IOException e) {
+            throw new SerializationFailedException("serialize " + object.getClass().getName() + " failed", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Object deserializeObject(byte[] bytes, int offset, int length) {
+        try (ObjectInputStream in = new ConfigurableObjectInputStream(new ByteArrayInputStream(bytes, offset, length),
+                RetryContextSerializer.class.getClassLoader())) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new SerializationFailedException("deserialize failed", e);
+        }
+    }
+
+    private static final class LenientObjectOutputStream extends ObjectOutputStream {
+
+        private static final StackTraceElement[] EMPTY_STACK_TRACE = new StackTraceElement[0];
+
+        private LenientObjectOutputStream(OutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) {
+            if (obj instanceof StackTraceElement[]) {
+                return EMPTY_STACK_TRACE;
+            }
+            return obj instanceof Serializable ? obj : null;
+        }
+    }
+}
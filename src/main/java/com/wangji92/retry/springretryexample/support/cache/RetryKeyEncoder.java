@@ -0,0 +1,20 @@
+package com.wangji92.retry.springretryexample.support.cache;
+
+/**
+ * 有状态重试 缓存 key 的编码
+ * {@link org.springframework.retry.interceptor.StatefulRetryOperationsInterceptor} 默认的 key 为 [label, 方法参数]，
+ * 直接作为 map 的 key 会一直持有参数对象 (例如 TextMessageDto)，编码成紧凑的 key 之后参数对象就可以被回收
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public interface RetryKeyEncoder {
+
+    /**
+     * 编码 key，要求 equals 相同的 key 编码之后也 equals
+     *
+     * @param key 原始的 key
+     * @return 编码后的 key 无法编码时返回原始的 key
+     */
+    Object encode(Object key);
+}
@@ -0,0 +1,25 @@
+package com.wangji92.retry.springretryexample.support.circuit;
+
+import org.springframework.remoting.RemoteAccessException;
+
+/**
+ * 熔断打开 调用没有发出去
+ * 继承 RemoteAccessException，现有的 recover(RemoteAccessException e) 兜底方法可以直接处理
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class CallNotPermittedException extends RemoteAccessException {
+
+    public CallNotPermittedException(String circuitBreakerName) {
+        super("circuit breaker " + circuitBreakerName + " is open");
+    }
+
+    /**
+     * 熔断期间每次调用都会创建 不需要堆栈
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
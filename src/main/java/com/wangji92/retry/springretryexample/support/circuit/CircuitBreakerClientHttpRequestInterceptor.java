@@ -0,0 +1,60 @@
+package com.wangji92.retry.springretryexample.support.circuit;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.support.RetrySynchronizationManager;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * endpoint 级别的熔断 名称为 host:port/path，只有在 retry.circuit-breaker.instances 里面配置过的 endpoint 才会熔断
+ * <p>
+ * 连接异常、5xx 算作失败；熔断打开的时候直接抛出 {@link CallNotPermittedException} 请求不会发出去，
+ * 在重试里面调用的时候同样把 RetryContext 标记为 exhaustedOnly
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class CircuitBreakerClientHttpRequestInterceptor implements ClientHttpRequestInterceptor {
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+
+    public CircuitBreakerClientHttpRequestInterceptor(CircuitBreakerRegistry circuitBreakerRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        URI uri = request.getURI();
+        String name = uri.getHost() + ":" + uri.getPort() + uri.getPath();
+        SlidingWindowCircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(name);
+        if (circuitBreaker == null) {
+            return execution.execute(request, body);
+        }
+        SlidingWindowCircuitBreaker.Permit permit = circuitBreaker.tryAcquirePermission();
+        if (permit == null) {
+            RetryContext context = RetrySynchronizationManager.getContext();
+            if (context != null) {
+                context.setExhaustedOnly();
+            }
+            throw new CallNotPermittedException(name);
+        }
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException e) {
+            permit.onError();
+            throw e;
+        }
+        if (response.getStatusCode().is5xxServerError()) {
+            permit.onError();
+        } else {
+            permit.onSuccess();
+        }
+        return response;
+    }
+}
@@ -0,0 +1,61 @@
+package com.wangji92.retry.springretryexample.support.circuit;
+
+import com.wangji92.retry.springretryexample.utils.RetryLabelUtils;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.support.RetrySynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 每次尝试之前检查熔断器 需要在重试拦截器的里面 (每次重试都会重新走一遍后面的拦截器)
+ * <p>
+ * 熔断打开的时候抛出 {@link CallNotPermittedException}，同时把当前的 RetryContext 标记为 exhaustedOnly，
+ * RetryTemplate 不会再退避、重试，直接进入 @Recover 兜底
+ * {@link org.springframework.retry.support.RetryTemplate#doExecute}
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class CircuitBreakerInterceptor implements MethodInterceptor {
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private final Map<Method, String> names = new ConcurrentHashMap<>();
+
+    public CircuitBreakerInterceptor(CircuitBreakerRegistry circuitBreakerRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String name = names.computeIfAbsent(invocation.getMethod(), method -> RetryLabelUtils.resolveLabel(invocation));
+        SlidingWindowCircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(name);
+        if (circuitBreaker == null) {
+            return invocation.proceed();
+        }
+        SlidingWindowCircuitBreaker.Permit permit = circuitBreaker.tryAcquirePermission();
+        if (permit == null) {
+            RetryContext context = RetrySynchronizationManager.getContext();
+            if (context != null) {
+                context.setExhaustedOnly();
+            }
+            throw new CallNotPermittedException(name);
+        }
+        try {
+            Object result = invocation.proceed();
+            permit.onSuccess();
+            return result;
+        } catch (Throwable e) {
+            if (circuitBreaker.isRecordable(e)) {
+                permit.onError();
+            } else {
+                permit.onSuccess();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.wangji92.retry.springretryexample.support.circuit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.remoting.RemoteAccessException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 熔断器配置 名称为 @Retryable 的 label (没有 label 的时候为 类名.方法名) 或者 endpoint (host:port/path)
+ * <pre>
+ * retry.circuit-breaker.instances[RetryTestService.retryTestService].failure-rate-threshold=50
+ * retry.circuit-breaker.instances[localhost:8080/unstableApi/500].window-size=20
+ * </pre>
+ * 只有 instances 里面配置过的名称才有熔断器，其他的 @Retryable 方法、endpoint 不熔断；没有配置的属性使用类里面的默认值
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@ConfigurationProperties(prefix = "retry.circuit-breaker")
+public class CircuitBreakerProperties {
+
+    private boolean enabled = true;
+
+    private Map<String, Config> instances = new LinkedHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Map<String, Config> getInstances() {
+        return instances;
+    }
+
+    public void setInstances(Map<String, Config> instances) {
+        this.instances = instances;
+    }
+
+    public static class Config {
+
+        /**
+         * 滑动窗口 最近多少次调用
+         */
+        private int windowSize = 20;
+
+        /**
+         * 窗口里面至少有多少次调用才计算失败率
+         */
+        private int minimumCalls = 10;
+
+        /**
+         * 失败率达到多少 (百分比) 打开熔断
+         */
+        private int failureRateThreshold = 50;
+
+        /**
+         * 打开之后多久 (毫秒) 进入半开 放探测请求过去；半开之后这么久探测还没有全部返回 重新放一批
+         */
+        private long waitDurationInOpenState = 10_000;
+
+        /**
+         * 半开状态允许的探测请求数 全部成功才关闭熔断
+         */
+        private int permittedCallsInHalfOpenState = 2;
+
+        /**
+         * 算作失败的异常 其他异常算成功 (比如参数错误 不是下游的问题)
+         */
+        private List<Class<? extends Throwable>> recordExceptions = new ArrayList<>(Collections.singletonList(RemoteAccessException.class));
+
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        public void setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public int getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(int failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public long getWaitDurationInOpenState() {
+            return waitDurationInOpenState;
+        }
+
+        public void setWaitDurationInOpenState(long waitDurationInOpenState) {
+            this.waitDurationInOpenState = waitDurationInOpenState;
+        }
+
+        public int getPermittedCallsInHalfOpenState() {
+            return permittedCallsInHalfOpenState;
+        }
+
+        public void setPermittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) {
+            this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+        }
+
+        public List<Class<? extends Throwable>> getRecordExceptions() {
+            return recordExceptions;
+        }
+
+        public void setRecordExceptions(List<Class<? extends Throwable>> recordExceptions) {
+            this.recordExceptions = recordExceptions;
+        }
+    }
+}
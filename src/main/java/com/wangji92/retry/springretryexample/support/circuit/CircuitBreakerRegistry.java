@@ -0,0 +1,46 @@
+package com.wangji92.retry.springretryexample.support.circuit;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按名称 (label / endpoint) 懒加载的熔断器 只有 retry.circuit-breaker.instances 里面配置过的名称才会创建
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class CircuitBreakerRegistry {
+
+    private final CircuitBreakerProperties properties;
+
+    private final Map<String, SlidingWindowCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakerRegistry(CircuitBreakerProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @param name 名称
+     * @return 没有配置过这个名称 或者关闭熔断的时候返回 null
+     */
+    public SlidingWindowCircuitBreaker circuitBreaker(String name) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        SlidingWindowCircuitBreaker circuitBreaker = circuitBreakers.get(name);
+        if (circuitBreaker != null) {
+            return circuitBreaker;
+        }
+        CircuitBreakerProperties.Config config = properties.getInstances().get(name);
+        if (config == null) {
+            return null;
+        }
+        return circuitBreakers.computeIfAbsent(name, key -> new SlidingWindowCircuitBreaker(key, config));
+    }
+
+    public Collection<SlidingWindowCircuitBreaker> circuitBreakers() {
+        return Collections.unmodifiableCollection(circuitBreakers.values());
+    }
+}
@@ -0,0 +1,222 @@
+package com.wangji92.retry.springretryexample.support.circuit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于最近 N 次调用失败率的熔断器 无锁实现
+ * <p>
+ * 每次状态切换生成一个新的 {@link Generation}，计数都放在 generation 里面，切换只需要一次 CAS；
+ * 切换之前发出去的调用结果记到旧的 generation 上，不会影响新状态的统计
+ * <pre>
+ * CLOSED --失败率 >= 阈值--> OPEN --等待 waitDurationInOpenState--> HALF_OPEN --探测全部成功--> CLOSED
+ *                                                                  HALF_OPEN --任意一次失败--> OPEN
+ *                                                                  HALF_OPEN --waitDurationInOpenState 之后探测还没有全部返回--> HALF_OPEN (重新放一批探测)
+ * </pre>
+ * 探测请求卡住 (没有超时、调用方没有回调 onSuccess / onError) 的时候 半开状态不会一直拒绝所有的调用
+ * 并发下失败率是近似值 (窗口里面的计数和下标不是一起更新的)，对熔断这种场景足够了
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class SlidingWindowCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * 窗口里面每个位置的结果 0 表示还没有调用
+     */
+    private static final int SUCCESS = 1;
+    private static final int FAILURE = 2;
+
+    private final String name;
+
+    private final int windowSize;
+
+    private final int minimumCalls;
+
+    private final int failureRateThreshold;
+
+    private final long waitDurationInOpenState;
+
+    private final int permittedCallsInHalfOpenState;
+
+    private final List<Class<? extends Throwable>> recordExceptions;
+
+    private final AtomicReference<Generation> generation;
+
+    private final LongAdder notPermittedCalls = new LongAdder();
+
+    public SlidingWindowCircuitBreaker(String name, CircuitBreakerProperties.Config config) {
+        Assert.isTrue(config.getWindowSize() > 0, "windowSize must be positive");
+        Assert.isTrue(config.getPermittedCallsInHalfOpenState() > 0, "permittedCallsInHalfOpenState must be positive");
+        this.name = name;
+        this.windowSize = config.getWindowSize();
+        this.minimumCalls = Math.max(1, Math.min(config.getMinimumCalls(), config.getWindowSize()));
+        this.failureRateThreshold = config.getFailureRateThreshold();
+        this.waitDurationInOpenState = config.getWaitDurationInOpenState();
+        this.permittedCallsInHalfOpenState = config.getPermittedCallsInHalfOpenState();
+        this.recordExceptions = config.getRecordExceptions();
+        this.generation = new AtomicReference<>(new Generation(State.CLOSED, 0));
+    }
+
+    /**
+     * @return 允许调用的时候返回 permit，调用结束之后必须调用 onSuccess / onError；熔断的时候返回 null
+     */
+    public Permit tryAcquirePermission() {
+        while (true) {
+            Generation current = generation.get();
+            switch (current.state) {
+                case CLOSED:
+                    return current;
+                case OPEN:
+                    if (currentTimeMillis() - current.enteredAt < waitDurationInOpenState) {
+                        notPermittedCalls.increment();
+                        return null;
+                    }
+                    // 只有一个线程能切换成功 其他线程重新读取状态
+                    transition(current, State.HALF_OPEN);
+                    break;
+                default:
+                    if (current.halfOpenPermits.decrementAndGet() >= 0) {
+                        return current;
+                    }
+                    if (currentTimeMillis() - current.enteredAt >= waitDurationInOpenState) {
+                        // 上一批探测一直没有结果 换一个新的半开状态，旧的探测结果记在旧的 generation 上 不再生效
+                        transition(current, State.HALF_OPEN);
+                        break;
+                    }
+                    notPermittedCalls.increment();
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * 异常是否算作失败
+     */
+    public boolean isRecordable(Throwable throwable) {
+        for (Class<? extends Throwable> type : recordExceptions) {
+            if (type.isInstance(throwable)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void transition(Generation from, State to) {
+        if (generation.compareAndSet(from, new Generation(to, to == State.CLOSED ? 0 : currentTimeMillis()))) {
+            log.info("circuit breaker {} {} -> {}", name, from.state, to);
+        }
+    }
+
+    /**
+     * 测试的时候可以覆盖
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return generation.get().state;
+    }
+
+    /**
+     * @return 关闭状态下窗口里面的失败率 (百分比)，调用数不够或者不是关闭状态的时候为 -1
+     */
+    public float getFailureRate() {
+        Generation current = generation.get();
+        if (current.state != State.CLOSED) {
+            return -1;
+        }
+        long calls = Math.min(current.index.get(), windowSize);
+        return calls < minimumCalls ? -1 : current.failures.get() * 100f / calls;
+    }
+
+    public long getNotPermittedCalls() {
+        return notPermittedCalls.sum();
+    }
+
+    public interface Permit {
+
+        void onSuccess();
+
+        void onError();
+    }
+
+    /**
+     * 一个状态的生命周期 自己就是 permit，调用结果直接记到放行时的那个状态上 不需要额外分配对象
+     */
+    private final class Generation implements Permit {
+
+        private final State state;
+
+        /**
+         * 进入 OPEN / HALF_OPEN 的时间
+         */
+        private final long enteredAt;
+
+        private final AtomicIntegerArray outcomes;
+
+        private final AtomicLong index;
+
+        private final AtomicInteger failures;
+
+        private final AtomicInteger halfOpenPermits;
+
+        private final AtomicInteger halfOpenSuccesses;
+
+        private Generation(State state, long enteredAt) {
+            this.state = state;
+            this.enteredAt = enteredAt;
+            this.outcomes = state == State.CLOSED ? new AtomicIntegerArray(windowSize) : null;
+            this.index = state == State.CLOSED ? new AtomicLong() : null;
+            this.failures = state == State.CLOSED ? new AtomicInteger() : null;
+            this.halfOpenPermits = state == State.HALF_OPEN ? new AtomicInteger(permittedCallsInHalfOpenState) : null;
+            this.halfOpenSuccesses = state == State.HALF_OPEN ? new AtomicInteger() : null;
+        }
+
+        @Override
+        public void onSuccess() {
+            if (state == State.CLOSED) {
+                record(SUCCESS);
+            } else if (state == State.HALF_OPEN && halfOpenSuccesses.incrementAndGet() >= permittedCallsInHalfOpenState) {
+                transition(this, State.CLOSED);
+            }
+        }
+
+        @Override
+        public void onError() {
+            if (state == State.CLOSED) {
+                record(FAILURE);
+            } else if (state == State.HALF_OPEN) {
+                transition(this, State.OPEN);
+            }
+        }
+
+        private void record(int outcome) {
+            long i = index.getAndIncrement();
+            int previous = outcomes.getAndSet((int) (i % windowSize), outcome);
+            int delta = (outcome == FAILURE ? 1 : 0) - (previous == FAILURE ? 1 : 0);
+            int currentFailures = delta == 0 ? failures.get() : failures.addAndGet(delta);
+            long calls = Math.min(i + 1, windowSize);
+            if (calls >= minimumCalls && currentFailures * 100L >= (long) failureRateThreshold * calls) {
+                transition(this, State.OPEN);
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.wangji92.retry.springretryexample.support.classify;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 按状态码、异常类型判断一次失败是否重试 {@link RetryDecision}，RetryTemplate ({@link HttpRetryPolicy}) 和 guava Retryer
+ * (retryIfException / retryIfResult) 共用
+ * <p>
+ * 原来 RetryTestService 把所有的异常都包成 RemoteAccessException("500") 按异常类型重试，401 也会和 500 一样重试到次数用完；
+ * 这里状态码启动的时候就按配置算好放在一个数组里面 (下标为状态码)，异常类型按类第一次用到的时候沿着继承关系匹配一次
+ * 之后缓存在 ClassValue 里面；判断的时候沿着 cause 找状态码 / 类型，不创建新的异常、不遍历配置 不分配对象。
+ * Retry-After 只有 {@link RetryDecision#RETRY_AFTER} 的状态码才去解析响应头 (秒数 或者 HTTP 日期)
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class HttpRetryClassifier {
+
+    private static final int MAX_STATUS = 600;
+
+    /**
+     * cause 最多往下找几层 防止循环引用
+     */
+    private static final int MAX_CAUSE_DEPTH = 16;
+
+    private final RetryDecision[] statuses = new RetryDecision[MAX_STATUS];
+
+    private final List<Class<? extends Throwable>> retryableExceptions;
+
+    private final List<Class<? extends Throwable>> nonRetryableExceptions;
+
+    private final RetryDecision defaultDecision;
+
+    private final long maxRetryAfter;
+
+    /**
+     * 没有状态码的异常类型 -> 分类，不在配置里面的为 empty (继续看 cause)
+     */
+    private final ClassValue<Optional<RetryDecision>> exceptions = new ClassValue<Optional<RetryDecision>>() {
+        @Override
+        protected Optional<RetryDecision> computeValue(Class<?> type) {
+            return Optional.ofNullable(match(type));
+        }
+    };
+
+    public HttpRetryClassifier(HttpRetryClassifierProperties properties) {
+        for (int status = 0; status < MAX_STATUS; status++) {
+            statuses[status] = defaultDecision(status);
+        }
+        properties.getRetryableStatuses().forEach(status -> put(status, RetryDecision.RETRY));
+        properties.getRetryAfterStatuses().forEach(status -> put(status, RetryDecision.RETRY_AFTER));
+        properties.getNonRetryableStatuses().forEach(status -> put(status, RetryDecision.NO_RETRY));
+        this.retryableExceptions = properties.getRetryableExceptions();
+        this.nonRetryableExceptions = properties.getNonRetryableExceptions();
+        this.defaultDecision = properties.isDefaultRetryable() ? RetryDecision.RETRY : RetryDecision.NO_RETRY;
+        this.maxRetryAfter = properties.getMaxRetryAfter();
+    }
+
+    private static RetryDecision defaultDecision(int status) {
+        switch (status) {
+            case 408:
+            case 425:
+                return RetryDecision.RETRY;
+            case 429:
+            case 503:
+                return RetryDecision.RETRY_AFTER;
+            case 501:
+            case 505:
+                return RetryDecision.NO_RETRY;
+            default:
+                return status >= 500 ? RetryDecision.RETRY : RetryDecision.NO_RETRY;
+        }
+    }
+
+    private void put(int status, RetryDecision decision) {
+        if (status < 0 || status >= MAX_STATUS) {
+            throw new IllegalArgumentException("invalid http status " + status);
+        }
+        statuses[status] = decision;
+    }
+
+    /**
+     * 不重试的优先，同一个列表里面继承距离最近的
+     */
+    private RetryDecision match(Class<?> type) {
+        int noRetry = distance(type, nonRetryableExceptions);
+        int retry = distance(type, retryableExceptions);
+        if (noRetry == Integer.MAX_VALUE && retry == Integer.MAX_VALUE) {
+            return null;
+        }
+        return noRetry <= retry ? RetryDecision.NO_RETRY : RetryDecision.RETRY;
+    }
+
+    private static int distance(Class<?> type, List<Class<? extends Throwable>> candidates) {
+        int depth = 0;
+        for (Class<?> current = type; current != null; current = current.getSuperclass(), depth++) {
+            if (candidates.contains(current)) {
+                return depth;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * @param status http 状态码
+     */
+    public RetryDecision classify(int status) {
+        return status >= 0 && status < MAX_STATUS ? statuses[status] : RetryDecision.NO_RETRY;
+    }
+
+    /**
+     * 沿着 cause 找：带状态码的异常 (RestTemplate、WebClient 的响应异常) 按状态码分类，其他的按类型，
+     * 都没有匹配的时候按 defaultRetryable
+     *
+     * @param throwable 例如 RemoteAccessException("500", HttpClientErrorException.Unauthorized)
+     */
+    public RetryDecision classify(Throwable throwable) {
+        Throwable current = throwable;
+        for (int depth = 0; current != null && depth < MAX_CAUSE_DEPTH; depth++) {
+            int status = statusOf(current);
+            if (status >= 0) {
+                return classify(status);
+            }
+            RetryDecision decision = exceptions.get(current.getClass()).orElse(null);
+            if (decision != null) {
+                return decision;
+            }
+            Throwable cause = current.getCause();
+            current = cause == current ? null : cause;
+        }
+        return defaultDecision;
+    }
+
+    /**
+     * 返回值的分类 guava retryIfResult 使用，不是 ResponseEntity 的返回值不重试
+     */
+    public RetryDecision classifyResult(Object result) {
+        if (result instanceof ResponseEntity) {
+            return classify(((ResponseEntity<?>) result).getStatusCodeValue());
+        }
+        return RetryDecision.NO_RETRY;
+    }
+
+    public boolean isRetryable(Throwable throwable) {
+        return classify(throwable).isRetryable();
+    }
+
+    public boolean isRetryableResult(Object result) {
+        return classifyResult(result).isRetryable();
+    }
+
+    private static int statusOf(Throwable throwable) {
+        if (throwable instanceof RetryableStatusException) {
+            return ((RetryableStatusException) throwable).getRawStatusCode();
+        }
+        if (throwable instanceof RestClientResponseException) {
+            return ((RestClientResponseException) throwable).getRawStatusCode();
+        }
+        if (throwable instanceof WebClientResponseException) {
+            return ((WebClientResponseException) throwable).getRawStatusCode();
+        }
+        if (throwable instanceof ResponseStatusException) {
+            return ((ResponseStatusException) throwable).getRawStatusCode();
+        }
+        return -1;
+    }
+
+    private static HttpHeaders headersOf(Throwable throwable) {
+        if (throwable instanceof RetryableStatusException) {
+            return ((RetryableStatusException) throwable).getHeaders();
+        }
+        if (throwable instanceof RestClientResponseException) {
+            return ((RestClientResponseException) throwable).getResponseHeaders();
+        }
+        if (throwable instanceof WebClientResponseException) {
+            return ((WebClientResponseException) throwable).getHeaders();
+        }
+        if (throwable instanceof ResponseStatusException) {
+            return ((ResponseStatusException) throwable).getResponseHeaders();
+        }
+        return null;
+    }
+
+    /**
+     * @return 状态码为 RETRY_AFTER 的时候 Retry-After 要求等待的时间(毫秒) 不超过 maxRetryAfter，其他情况为 0
+     */
+    public long retryAfterMillis(Throwable throwable) {
+        Throwable current = throwable;
+        for (int depth = 0; current != null && depth < MAX_CAUSE_DEPTH; depth++) {
+            int status = statusOf(current);
+            if (status >= 0) {
+                return classify(status) == RetryDecision.RETRY_AFTER ? retryAfterMillis(headersOf(current)) : 0;
+            }
+            Throwable cause = current.getCause();
+            current = cause == current ? null : cause;
+        }
+        return 0;
+    }
+
+    /**
+     * @return 返回的状态码为 RETRY_AFTER 的时候 Retry-After 要求等待的时间(毫秒)，其他情况为 0
+     */
+    public long resultRetryAfterMillis(Object result) {
+        if (result instanceof ResponseEntity && classifyResult(result) == RetryDecision.RETRY_AFTER) {
+            return retryAfterMillis(((ResponseEntity<?>) result).getHeaders());
+        }
+        return 0;
+    }
+
+    /**
+     * Retry-After: 120 或者 Retry-After: Fri, 31 Dec 1999 23:59:59 GMT，格式不对的忽略
+     */
+    long retryAfterMillis(HttpHeaders headers) {
+        if (headers == null) {
+            return 0;
+        }
+        String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        long millis = parseSeconds(value);
+        if (millis < 0) {
+            try {
+                millis = headers.getFirstDate(HttpHeaders.RETRY_AFTER) - System.currentTimeMillis();
+            } catch (IllegalArgumentException e) {
+                return 0;
+            }
+        }
+        return Math.max(0, Math.min(millis, maxRetryAfter));
+    }
+
+    /**
+     * @return 秒数转成毫秒，不是秒数的时候为 -1
+     */
+    private static long parseSeconds(String value) {
+        long seconds = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            seconds = seconds * 10 + (c - '0');
+            if (seconds > Integer.MAX_VALUE) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return seconds * 1000;
+    }
+
+    /**
+     * RetryTemplate 按返回值重试：返回的状态码需要重试的时候抛出 {@link RetryableStatusException} (不填充调用栈)，
+     * 其他的原样返回
+     * <pre>
+     * retryTemplate.execute(context -> classifier.rejectRetryable(restTemplate.exchange(...)));
+     * </pre>
+     */
+    public <T> ResponseEntity<T> rejectRetryable(ResponseEntity<T> responseEntity) {
+        int status = responseEntity.getStatusCodeValue();
+        if (classify(status).isRetryable()) {
+            throw new RetryableStatusException(status, responseEntity.getHeaders());
+        }
+        return responseEntity;
+    }
+}
@@ -0,0 +1,118 @@
+package com.wangji92.retry.springretryexample.support.classify;
+
+import com.wangji92.retry.springretryexample.support.timelimit.AttemptTimeoutException;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按状态码、异常类型判断是否重试的分类表，registry 里面 http-classified=true 的策略使用
+ * <p>
+ * 没有配置的状态码：408、425 重试，429、503 按 Retry-After 重试，其他 5xx (501、505 除外) 重试，剩下的不重试
+ * <pre>
+ * retry.http-classifier.non-retryable-statuses=409
+ * retry.http-classifier.retryable-exceptions=org.springframework.web.client.ResourceAccessException
+ * retry.http-classifier.max-retry-after=30000
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@ConfigurationProperties(prefix = "retry.http-classifier")
+public class HttpRetryClassifierProperties {
+
+    /**
+     * 覆盖默认分类 重试的状态码
+     */
+    private List<Integer> retryableStatuses = new ArrayList<>();
+
+    /**
+     * 覆盖默认分类 按 Retry-After 重试的状态码
+     */
+    private List<Integer> retryAfterStatuses = new ArrayList<>();
+
+    /**
+     * 覆盖默认分类 不重试的状态码
+     */
+    private List<Integer> nonRetryableStatuses = new ArrayList<>();
+
+    /**
+     * 没有状态码的异常 这些类型 (包含子类) 重试，连接失败、读超时都是 ResourceAccessException
+     */
+    private List<Class<? extends Throwable>> retryableExceptions = new ArrayList<>(
+            Arrays.asList(ResourceAccessException.class, AttemptTimeoutException.class));
+
+    /**
+     * 没有状态码的异常 这些类型 (包含子类) 不重试
+     */
+    private List<Class<? extends Throwable>> nonRetryableExceptions = new ArrayList<>();
+
+    /**
+     * 异常链上既没有状态码 也不在上面两个列表里面的时候是否重试
+     */
+    private boolean defaultRetryable = true;
+
+    /**
+     * Retry-After 最多等多久(毫秒) 超过的按这个时间等，截止时间 (deadline) 之前等不到的直接兜底
+     */
+    private long maxRetryAfter = 30000;
+
+    public List<Integer> getRetryableStatuses() {
+        return retryableStatuses;
+    }
+
+    public void setRetryableStatuses(List<Integer> retryableStatuses) {
+        this.retryableStatuses = retryableStatuses;
+    }
+
+    public List<Integer> getRetryAfterStatuses() {
+        return retryAfterStatuses;
+    }
+
+    public void setRetryAfterStatuses(List<Integer> retryAfterStatuses) {
+        this.retryAfterStatuses = retryAfterStatuses;
+    }
+
+    public List<Integer> getNonRetryableStatuses() {
+        return nonRetryableStatuses;
+    }
+
+    public void setNonRetryableStatuses(List<Integer> nonRetryableStatuses) {
+        this.nonRetryableStatuses = nonRetryableStatuses;
+    }
+
+    public List<Class<? extends Throwable>> getRetryableExceptions() {
+        return retryableExceptions;
+    }
+
+    public void setRetryableExceptions(List<Class<? extends Throwable>> retryableExceptions) {
+        this.retryableExceptions = retryableExceptions;
+    }
+
+    public List<Class<? extends Throwable>> getNonRetryableExceptions() {
+        return nonRetryableExceptions;
+    }
+
+    public void setNonRetryableExceptions(List<Class<? extends Throwable>> nonRetryableExceptions) {
+        this.nonRetryableExceptions = nonRetryableExceptions;
+    }
+
+    public boolean isDefaultRetryable() {
+        return defaultRetryable;
+    }
+
+    public void setDefaultRetryable(boolean defaultRetryable) {
+        this.defaultRetryable = defaultRetryable;
+    }
+
+    public long getMaxRetryAfter() {
+        return maxRetryAfter;
+    }
+
+    public void setMaxRetryAfter(long maxRetryAfter) {
+        this.maxRetryAfter = maxRetryAfter;
+    }
+}
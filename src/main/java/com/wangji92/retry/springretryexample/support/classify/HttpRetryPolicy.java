@@ -0,0 +1,64 @@
+package com.wangji92.retry.springretryexample.support.classify;
+
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryPolicy;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+
+/**
+ * 按 {@link HttpRetryClassifier} 判断最后一次的异常是否重试，次数由委托的策略控制
+ * <pre>
+ * RetryTemplate.builder()
+ *         .customPolicy(new HttpRetryPolicy(3, classifier))
+ *         .customBackoff(new RetryAfterBackOffPolicy(jitterBackOff, deadline, classifier))
+ *         .build();
+ * </pre>
+ * Retry-After 的等待在 {@link RetryAfterBackOffPolicy} 里面 按 RetryContext 最后一次的异常算
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class HttpRetryPolicy implements RetryPolicy {
+
+    private final RetryPolicy delegate;
+
+    private final HttpRetryClassifier classifier;
+
+    /**
+     * @param maxAttempts 最多尝试几次 包含第一次
+     */
+    public HttpRetryPolicy(int maxAttempts, HttpRetryClassifier classifier) {
+        this(new SimpleRetryPolicy(maxAttempts), classifier);
+    }
+
+    /**
+     * @param delegate 次数上限，异常分类应该是全部重试 (分类以 classifier 为准)
+     */
+    public HttpRetryPolicy(RetryPolicy delegate, HttpRetryClassifier classifier) {
+        this.delegate = delegate;
+        this.classifier = classifier;
+    }
+
+    @Override
+    public boolean canRetry(RetryContext context) {
+        Throwable lastThrowable = context.getLastThrowable();
+        if (lastThrowable != null && !classifier.isRetryable(lastThrowable)) {
+            return false;
+        }
+        return delegate.canRetry(context);
+    }
+
+    @Override
+    public RetryContext open(RetryContext parent) {
+        return delegate.open(parent);
+    }
+
+    @Override
+    public void close(RetryContext context) {
+        delegate.close(context);
+    }
+
+    @Override
+    public void registerThrowable(RetryContext context, Throwable throwable) {
+        delegate.registerThrowable(context, throwable);
+    }
+}
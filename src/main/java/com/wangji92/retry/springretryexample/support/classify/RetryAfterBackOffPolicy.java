@@ -0,0 +1,47 @@
+package com.wangji92.retry.springretryexample.support.classify;
+
+import com.wangji92.retry.springretryexample.support.backoff.JitterBackOff;
+import com.wangji92.retry.springretryexample.support.backoff.JitterBackOffPolicy;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.retry.backoff.ThreadWaitSleeper;
+
+/**
+ * 最后一次失败带了 Retry-After 的时候 ({@link HttpRetryClassifier#retryAfterMillis}) 至少等这么久，其他情况和 {@link JitterBackOffPolicy} 一样；
+ * 等到截止时间之后的不再等 直接兜底
+ * <p>
+ * 从 RetryContext 的 lastThrowable 算，不依赖重试策略往 RetryContext 上放东西：
+ * RetryTemplate.builder() 会把 customPolicy 包在 CompositeRetryPolicy 里面，策略拿到的是子 context 退避策略看不到
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class RetryAfterBackOffPolicy extends JitterBackOffPolicy {
+
+    private final HttpRetryClassifier classifier;
+
+    /**
+     * @param jitterBackOff 没有 Retry-After 的时候的退避
+     * @param deadline      整个调用的截止时间(毫秒) 0 不限制
+     */
+    public RetryAfterBackOffPolicy(JitterBackOff jitterBackOff, long deadline, HttpRetryClassifier classifier) {
+        this(jitterBackOff, deadline, classifier, new ThreadWaitSleeper());
+    }
+
+    public RetryAfterBackOffPolicy(JitterBackOff jitterBackOff, long deadline, HttpRetryClassifier classifier, Sleeper sleeper) {
+        super(jitterBackOff, deadline, sleeper);
+        this.classifier = classifier;
+    }
+
+    @Override
+    public RetryAfterBackOffPolicy withSleeper(Sleeper sleeper) {
+        return new RetryAfterBackOffPolicy(getJitterBackOff(), getDeadline(), classifier, sleeper);
+    }
+
+    @Override
+    protected long nextDelay(RetryContext retryContext, int retry, long previous) {
+        long delay = super.nextDelay(retryContext, retry, previous);
+        Throwable lastThrowable = retryContext == null ? null : retryContext.getLastThrowable();
+        return lastThrowable == null ? delay : Math.max(delay, classifier.retryAfterMillis(lastThrowable));
+    }
+}
@@ -0,0 +1,29 @@
+package com.wangji92.retry.springretryexample.support.classify;
+
+/**
+ * 一次失败 (异常或者返回的状态码) 是否重试
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public enum RetryDecision {
+
+    /**
+     * 重试 按策略的退避等待
+     */
+    RETRY,
+
+    /**
+     * 重试 有 Retry-After 响应头的时候至少等到下游要求的时间 (429、503)
+     */
+    RETRY_AFTER,
+
+    /**
+     * 不重试 再试也不会成功 (401、403、404 ...) 直接兜底
+     */
+    NO_RETRY;
+
+    public boolean isRetryable() {
+        return this != NO_RETRY;
+    }
+}
@@ -0,0 +1,38 @@
+package com.wangji92.retry.springretryexample.support.classify;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * 返回值的状态码需要重试 {@link HttpRetryClassifier#rejectRetryable}，只是用来让 RetryTemplate 进入下一次尝试，
+ * 不填充调用栈、没有 cause
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class RetryableStatusException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int rawStatusCode;
+
+    private final transient HttpHeaders headers;
+
+    public RetryableStatusException(int rawStatusCode, HttpHeaders headers) {
+        super(null, null, false, false);
+        this.rawStatusCode = rawStatusCode;
+        this.headers = headers;
+    }
+
+    @Override
+    public String getMessage() {
+        return "retryable status " + rawStatusCode;
+    }
+
+    public int getRawStatusCode() {
+        return rawStatusCode;
+    }
+
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+}
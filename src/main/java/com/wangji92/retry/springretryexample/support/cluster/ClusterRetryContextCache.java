@@ -0,0 +1,191 @@
+package com.wangji92.retry.springretryexample.support.cluster;
+
+import com.wangji92.retry.springretryexample.support.cache.BoundedRetryContextCache;
+import com.wangji92.retry.springretryexample.support.cache.RetryContextSerializer;
+import com.wangji92.retry.springretryexample.support.cache.RetryKeyEncoder;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.policy.RetryContextCache;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 多个节点共享的 RetryContextCache 同一个 messageId 在不同节点上的重试次数合在一起算
+ * <p>
+ * 读写都在本地的 {@link BoundedRetryContextCache} 上 不访问存储；写入、删除先记下来，
+ * 由 {@link ClusterRetryCoordinator} 每隔 sync-interval (或者攒够 batch-size 条) 一次性提交到 {@link RetryStateStore}，
+ * 同时把其他节点的变化合并到本地。上下文在提交的时候才序列化，同一个 key 两次同步之间写多次只提交最后一次；
+ * 【其他节点的写入最多晚 sync-interval 可见，这段时间里面两个节点同时重试同一个 key 的时候存储保留 retryCount 大的】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class ClusterRetryContextCache implements RetryContextCache {
+
+    private final BoundedRetryContextCache local;
+
+    private final RetryKeyEncoder keyEncoder;
+
+    private final long timeToLiveMillis;
+
+    private final int batchSize;
+
+    private final Runnable batchFull;
+
+    private final Map<String, RetryContext> pendingPuts = new ConcurrentHashMap<>();
+
+    private final Set<String> pendingRemoves = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param keyEncoder 编码之后的 toString 作为存储里面的 key (和 journal 一样 TextMessageDto -> messageId)
+     * @param batchFull  没有提交的写入达到 batchSize 的时候调用 提前同步
+     */
+    ClusterRetryContextCache(int maximumSize, long timeToLiveMillis, RetryKeyEncoder keyEncoder, int batchSize, Runnable batchFull) {
+        // 本地按编码之后的字符串存 其他节点同步过来的 key 也是字符串
+        this.local = new BoundedRetryContextCache(maximumSize, timeToLiveMillis, BoundedRetryContextCache.DEFAULT_CONCURRENCY_LEVEL,
+                key -> key, false);
+        this.keyEncoder = keyEncoder;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.batchSize = batchSize;
+        this.batchFull = batchFull;
+    }
+
+    @Override
+    public RetryContext get(Object key) {
+        return local.get(storeKey(key));
+    }
+
+    @Override
+    public void put(Object key, RetryContext context) {
+        String storeKey = storeKey(key);
+        local.put(storeKey, context);
+        pendingRemoves.remove(storeKey);
+        pendingPuts.put(storeKey, context);
+        checkBatchSize();
+    }
+
+    @Override
+    public void remove(Object key) {
+        String storeKey = storeKey(key);
+        local.remove(storeKey);
+        pendingPuts.remove(storeKey);
+        pendingRemoves.add(storeKey);
+        checkBatchSize();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return local.containsKey(storeKey(key));
+    }
+
+    private String storeKey(Object key) {
+        return String.valueOf(keyEncoder.encode(key));
+    }
+
+    private void checkBatchSize() {
+        if (pendingPuts.size() + pendingRemoves.size() >= batchSize) {
+            batchFull.run();
+        }
+    }
+
+    /**
+     * @return 还没有提交到存储的写入、删除数
+     */
+    public int pendingCount() {
+        return pendingPuts.size() + pendingRemoves.size();
+    }
+
+    public int size() {
+        return local.size();
+    }
+
+    long getTimeToLiveMillis() {
+        return timeToLiveMillis;
+    }
+
+    /**
+     * 取走没有提交的写入 序列化成这次提交的内容
+     * 先序列化再按 key、context 删除，这期间又写进来的 context 留到下一次提交；同一个 context 序列化之后又重试过的 也留到下一次
+     */
+    Map<String, RetryStateBatch.Context> drainPuts() {
+        Map<String, RetryStateBatch.Context> puts = new HashMap<>();
+        for (Map.Entry<String, RetryContext> entry : pendingPuts.entrySet()) {
+            String key = entry.getKey();
+            RetryContext context = entry.getValue();
+            int retryCount = context.getRetryCount();
+            RetryStateBatch.Context snapshot = new RetryStateBatch.Context(RetryContextSerializer.serialize(context), retryCount);
+            if (!removePending(key, context)) {
+                continue;
+            }
+            puts.put(key, snapshot);
+            if (context.getRetryCount() != retryCount) {
+                pendingPuts.putIfAbsent(key, context);
+            }
+        }
+        return puts;
+    }
+
+    /**
+     * 和 remove(key, value) 一样 只是按引用比较，RetryContextSupport 的 equals 只比较 attributes，不同的 context 也可能相等
+     */
+    private boolean removePending(String key, RetryContext context) {
+        AtomicBoolean removed = new AtomicBoolean();
+        pendingPuts.computeIfPresent(key, (k, current) -> {
+            if (current != context) {
+                return current;
+            }
+            removed.set(true);
+            return null;
+        });
+        return removed.get();
+    }
+
+    Set<String> drainRemoves() {
+        Set<String> removes = new HashSet<>();
+        for (Iterator<String> iterator = pendingRemoves.iterator(); iterator.hasNext(); ) {
+            removes.add(iterator.next());
+            iterator.remove();
+        }
+        return removes;
+    }
+
+    /**
+     * 同步失败 取走的写入还回去 这期间本地又写过的以新的为准
+     */
+    void restore(Map<String, RetryStateBatch.Context> puts, Set<String> removes) {
+        puts.forEach((key, context) -> {
+            if (!pendingRemoves.contains(key)) {
+                RetryContext current = local.get(key);
+                if (current != null) {
+                    pendingPuts.putIfAbsent(key, current);
+                }
+            }
+        });
+        removes.forEach(key -> {
+            if (!pendingPuts.containsKey(key)) {
+                pendingRemoves.add(key);
+            }
+        });
+    }
+
+    /**
+     * 合并其他节点的变化 本地还有没提交的写入的 key 以本地为准，下一次提交的时候由存储按 retryCount 合并
+     */
+    void apply(RetryStateChanges changes) {
+        changes.getContexts().forEach((key, bytes) -> {
+            if (!pendingPuts.containsKey(key) && !pendingRemoves.contains(key)) {
+                local.put(key, RetryContextSerializer.deserialize(bytes));
+            }
+        });
+        changes.getRemoves().forEach(key -> {
+            if (!pendingPuts.containsKey(key)) {
+                local.remove(key);
+            }
+        });
+    }
+}
@@ -0,0 +1,214 @@
+package com.wangji92.retry.springretryexample.support.cluster;
+
+import com.wangji92.retry.springretryexample.support.budget.RetryBudgetRegistry;
+import com.wangji92.retry.springretryexample.support.budget.TokenBucketRetryBudget;
+import com.wangji92.retry.springretryexample.support.cache.RetryKeyEncoder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个节点和 {@link RetryStateStore} 之间的同步 每次同步一个往返：
+ * <ul>
+ *     <li>{@link ClusterRetryContextCache} 两次同步之间的写入、删除 一次提交，拿回其他节点的变化合并到本地</li>
+ *     <li>重试预算每个令牌桶两次同步之间的余额变化作为增量提交到共享的计数器，
+ *     拿回来的共享余额按存活的节点数平分 作为本地的余额，重试的时候只在本地的令牌桶上 CAS</li>
+ * </ul>
+ * 同步失败的时候这次的写入、增量留到下一次提交，本地的重试不受影响 (退化成单机)
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class ClusterRetryCoordinator implements Closeable {
+
+    private static final String GLOBAL_BUDGET = "budget.global";
+
+    private static final String LABEL_BUDGET_PREFIX = "budget.label.";
+
+    private final RetryStateStore store;
+
+    private final ClusterRetryProperties properties;
+
+    private final RetryBudgetRegistry retryBudgetRegistry;
+
+    private final String nodeId;
+
+    private final List<ClusterRetryContextCache> caches = new ArrayList<>();
+
+    private final ScheduledExecutorService executor;
+
+    private final AtomicBoolean syncRequested = new AtomicBoolean();
+
+    private final LongAdder syncs = new LongAdder();
+
+    private final LongAdder failedSyncs = new LongAdder();
+
+    private long version;
+
+    private volatile int activeNodes = 1;
+
+    /**
+     * @param retryBudgetRegistry 为 null 的时候只同步有状态重试的上下文
+     */
+    public ClusterRetryCoordinator(RetryStateStore store, ClusterRetryProperties properties, RetryBudgetRegistry retryBudgetRegistry) {
+        Assert.notNull(store, "store must not be null");
+        Assert.isTrue(properties.getBatchSize() > 0, "batchSize must be greater than 0");
+        this.store = store;
+        this.properties = properties;
+        this.retryBudgetRegistry = retryBudgetRegistry;
+        this.nodeId = StringUtils.hasText(properties.getNodeId()) ? properties.getNodeId()
+                : ManagementFactory.getRuntimeMXBean().getName();
+        this.executor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("retry-cluster-sync-"));
+    }
+
+    /**
+     * 创建一个由这个节点同步的 RetryContextCache
+     *
+     * @param maximumSize      本地最大的条目数
+     * @param timeToLiveMillis 本地、存储里面最后一次写入之后多久过期
+     * @param keyEncoder       key 的编码 编码之后的 toString 作为存储里面的 key
+     */
+    public synchronized ClusterRetryContextCache contextCache(int maximumSize, long timeToLiveMillis, RetryKeyEncoder keyEncoder) {
+        ClusterRetryContextCache cache = new ClusterRetryContextCache(maximumSize, timeToLiveMillis, keyEncoder,
+                properties.getBatchSize(), this::requestSync);
+        caches.add(cache);
+        return cache;
+    }
+
+    /**
+     * 按 sync-interval 定时同步
+     */
+    public void start() {
+        executor.scheduleWithFixedDelay(this::syncQuietly, properties.getSyncInterval(), properties.getSyncInterval(),
+                TimeUnit.MILLISECONDS);
+        log.info("retry cluster sync started nodeId={} syncInterval={}ms batchSize={}", nodeId, properties.getSyncInterval(),
+                properties.getBatchSize());
+    }
+
+    /**
+     * 攒够 batch-size 条写入 不等间隔马上同步一次 (在同步线程上执行 不阻塞重试)
+     */
+    void requestSync() {
+        if (syncRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    syncRequested.set(false);
+                    syncQuietly();
+                });
+            } catch (RuntimeException e) {
+                // 已经关闭
+                syncRequested.set(false);
+            }
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            log.warn("retry cluster sync failed nodeId={} {}", nodeId, e.toString());
+        }
+    }
+
+    /**
+     * 同步一次
+     *
+     * @throws RuntimeException 存储访问失败 这次的写入、增量留到下一次
+     */
+    public synchronized void sync() {
+        Map<ClusterRetryContextCache, Map<String, RetryStateBatch.Context>> puts = new HashMap<>();
+        Map<ClusterRetryContextCache, Set<String>> removes = new HashMap<>();
+        Map<String, RetryStateBatch.Context> allPuts = new HashMap<>();
+        Set<String> allRemoves = new HashSet<>();
+        long timeToLiveMillis = 0;
+        for (ClusterRetryContextCache cache : caches) {
+            puts.put(cache, cache.drainPuts());
+            removes.put(cache, cache.drainRemoves());
+            allPuts.putAll(puts.get(cache));
+            allRemoves.addAll(removes.get(cache));
+            timeToLiveMillis = Math.max(timeToLiveMillis, cache.getTimeToLiveMillis());
+        }
+        Map<String, TokenBucketRetryBudget> budgets = budgets();
+        Map<String, RetryStateBatch.Counter> counters = new HashMap<>();
+        budgets.forEach((name, budget) -> counters.put(name, new RetryStateBatch.Counter(budget.drainUnsynced(), budget.capacity())));
+
+        RetryStateChanges changes;
+        try {
+            changes = store.sync(new RetryStateBatch(nodeId, version, timeToLiveMillis, allPuts, allRemoves, counters));
+        } catch (RuntimeException e) {
+            failedSyncs.increment();
+            caches.forEach(cache -> cache.restore(puts.get(cache), removes.get(cache)));
+            counters.forEach((name, counter) -> budgets.get(name).restoreUnsynced(counter.getDelta()));
+            throw e;
+        }
+        syncs.increment();
+        version = changes.getVersion();
+        activeNodes = Math.max(1, changes.getActiveNodes());
+        caches.forEach(cache -> cache.apply(changes));
+        changes.getCounters().forEach((name, value) -> {
+            TokenBucketRetryBudget budget = budgets.get(name);
+            if (budget != null) {
+                budget.resetBalance(value / activeNodes);
+            }
+        });
+        if (log.isDebugEnabled()) {
+            log.debug("retry cluster synced nodeId={} puts={} removes={} remoteChanges={} activeNodes={}", nodeId,
+                    allPuts.size(), allRemoves.size(), changes.getContexts().size() + changes.getRemoves().size(), activeNodes);
+        }
+    }
+
+    private Map<String, TokenBucketRetryBudget> budgets() {
+        if (retryBudgetRegistry == null || !retryBudgetRegistry.isEnabled()) {
+            return Collections.emptyMap();
+        }
+        Map<String, TokenBucketRetryBudget> budgets = new HashMap<>();
+        budgets.put(GLOBAL_BUDGET, retryBudgetRegistry.global());
+        retryBudgetRegistry.budgets().forEach(budget -> budgets.put(LABEL_BUDGET_PREFIX + budget.getName(), budget));
+        return budgets;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return 最近一次同步拿到的存活节点数
+     */
+    public int activeNodes() {
+        return activeNodes;
+    }
+
+    public long syncCount() {
+        return syncs.sum();
+    }
+
+    public long failedSyncCount() {
+        return failedSyncs.sum();
+    }
+
+    /**
+     * 停止定时同步 最后同步一次
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        syncQuietly();
+    }
+}
@@ -0,0 +1,83 @@
+package com.wangji92.retry.springretryexample.support.cluster;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 多个节点共享有状态重试的次数、重试预算
+ * <pre>
+ * retry.cluster.enabled=true
+ * retry.context-cache.type=cluster
+ * retry.cluster.sync-interval=1000
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@ConfigurationProperties(prefix = "retry.cluster")
+public class ClusterRetryProperties {
+
+    /**
+     * 打开之后重试预算按节点数分配共享的余额；有状态重试的上下文还需要 retry.context-cache.type=cluster
+     */
+    private boolean enabled;
+
+    /**
+     * 节点 id 为空的时候为 jvm 的名称 (pid@hostname)
+     */
+    private String nodeId;
+
+    /**
+     * 同步的间隔(毫秒) 其他节点的变化最多晚这么久可见
+     */
+    private long syncInterval = 1000;
+
+    /**
+     * 没有提交的写入达到这个数的时候不等间隔 提前同步
+     */
+    private int batchSize = 500;
+
+    /**
+     * 节点多久没有同步之后 不再参与预算的分配(毫秒)
+     */
+    private long nodeTimeout = 10000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public long getSyncInterval() {
+        return syncInterval;
+    }
+
+    public void setSyncInterval(long syncInterval) {
+        this.syncInterval = syncInterval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getNodeTimeout() {
+        return nodeTimeout;
+    }
+
+    public void setNodeTimeout(long nodeTimeout) {
+        this.nodeTimeout = nodeTimeout;
+    }
+}
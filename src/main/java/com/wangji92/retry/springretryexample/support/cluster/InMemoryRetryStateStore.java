@@ -0,0 +1,131 @@
+package com.wangji92.retry.springretryexample.support.cluster;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内存里面的 {@link RetryStateStore} 同一个 jvm 里面的多个节点 (测试) 共用一个实例
+ * <p>
+ * 每次写入、删除都记一个递增的版本，其他节点按版本拿变化；删除留一个墓碑 到过期时间之后清理，
+ * 【拿变化的时候扫一遍所有的条目，只适合测试和单机，真正的存储可以用 redis 的 stream / 按版本的有序集合】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class InMemoryRetryStateStore implements RetryStateStore {
+
+    private final long nodeTimeoutMillis;
+
+    private final Map<String, Record> records = new HashMap<>();
+
+    private final Map<String, Long> counters = new HashMap<>();
+
+    private final Map<String, Long> nodes = new HashMap<>();
+
+    private final LongAdder syncs = new LongAdder();
+
+    private long version;
+
+    /**
+     * @param nodeTimeoutMillis 节点多久没有同步之后不再算作存活的节点
+     */
+    public InMemoryRetryStateStore(long nodeTimeoutMillis) {
+        this.nodeTimeoutMillis = nodeTimeoutMillis;
+    }
+
+    @Override
+    public synchronized RetryStateChanges sync(RetryStateBatch batch) {
+        syncs.increment();
+        long now = currentTimeMillis();
+        nodes.put(batch.getNodeId(), now);
+        long expireAt = batch.getTimeToLiveMillis() > 0 ? now + batch.getTimeToLiveMillis() : Long.MAX_VALUE;
+
+        Map<String, byte[]> contexts = new HashMap<>();
+        for (String key : batch.getRemoves()) {
+            records.put(key, new Record(null, 0, ++version, batch.getNodeId(), expireAt));
+        }
+        batch.getPuts().forEach((key, context) -> {
+            Record existing = records.get(key);
+            if (existing != null && existing.bytes != null && existing.expireAt > now
+                    && existing.retryCount > context.getRetryCount()) {
+                // 其他节点已经重试了更多次 以存储里面的为准
+                contexts.put(key, existing.bytes);
+                return;
+            }
+            records.put(key, new Record(context.getBytes(), context.getRetryCount(), ++version, batch.getNodeId(), expireAt));
+        });
+
+        Set<String> removes = new HashSet<>();
+        for (Iterator<Map.Entry<String, Record>> iterator = records.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<String, Record> entry = iterator.next();
+            Record record = entry.getValue();
+            if (record.expireAt <= now) {
+                iterator.remove();
+            } else if (record.version > batch.getSinceVersion() && !record.nodeId.equals(batch.getNodeId())) {
+                if (record.bytes == null) {
+                    removes.add(entry.getKey());
+                } else {
+                    contexts.put(entry.getKey(), record.bytes);
+                }
+            }
+        }
+
+        Map<String, Long> values = new HashMap<>();
+        batch.getCounters().forEach((name, counter) -> {
+            long value = Math.max(0, Math.min(counter.getMax(), counters.getOrDefault(name, 0L) + counter.getDelta()));
+            counters.put(name, value);
+            values.put(name, value);
+        });
+
+        nodes.values().removeIf(lastSync -> now - lastSync > nodeTimeoutMillis);
+        return new RetryStateChanges(version, contexts, removes, values, nodes.size());
+    }
+
+    /**
+     * @return 同步的次数 (往返次数)
+     */
+    public long syncCount() {
+        return syncs.sum();
+    }
+
+    /**
+     * @return 没有过期的上下文数
+     */
+    public synchronized int size() {
+        long now = currentTimeMillis();
+        return (int) records.values().stream().filter(record -> record.bytes != null && record.expireAt > now).count();
+    }
+
+    public synchronized long counter(String name) {
+        return counters.getOrDefault(name, 0L);
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private static final class Record {
+
+        private final byte[] bytes;
+
+        private final int retryCount;
+
+        private final long version;
+
+        private final String nodeId;
+
+        private final long expireAt;
+
+        private Record(byte[] bytes, int retryCount, long version, String nodeId, long expireAt) {
+            this.bytes = bytes;
+            this.retryCount = retryCount;
+            this.version = version;
+            this.nodeId = nodeId;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.wangji92.retry.springretryexample.support.cluster;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一个节点一次同步提交的内容 {@link RetryStateStore#sync}
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public final class RetryStateBatch {
+
+    private final String nodeId;
+
+    private final long sinceVersion;
+
+    private final long timeToLiveMillis;
+
+    private final Map<String, Context> puts;
+
+    private final Set<String> removes;
+
+    private final Map<String, Counter> counters;
+
+    /**
+     * @param nodeId           节点 id 自己提交的变化不会再返回给自己
+     * @param sinceVersion     上一次同步拿到的版本 第一次为 0
+     * @param timeToLiveMillis 上下文在存储里面的过期时间 小于等于 0 不过期
+     * @param puts             key -> 序列化的上下文
+     * @param removes          删除的 key
+     * @param counters         计数器名称 -> 增量
+     */
+    public RetryStateBatch(String nodeId, long sinceVersion, long timeToLiveMillis, Map<String, Context> puts,
+                           Set<String> removes, Map<String, Counter> counters) {
+        this.nodeId = nodeId;
+        this.sinceVersion = sinceVersion;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.puts = Collections.unmodifiableMap(puts);
+        this.removes = Collections.unmodifiableSet(removes);
+        this.counters = Collections.unmodifiableMap(counters);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getSinceVersion() {
+        return sinceVersion;
+    }
+
+    public long getTimeToLiveMillis() {
+        return timeToLiveMillis;
+    }
+
+    public Map<String, Context> getPuts() {
+        return puts;
+    }
+
+    public Set<String> getRemoves() {
+        return removes;
+    }
+
+    public Map<String, Counter> getCounters() {
+        return counters;
+    }
+
+    public boolean hasWrites() {
+        return !puts.isEmpty() || !removes.isEmpty();
+    }
+
+    /**
+     * 序列化的上下文 retryCount 单独带上 存储不用反序列化就能合并
+     */
+    public static final class Context {
+
+        private final byte[] bytes;
+
+        private final int retryCount;
+
+        public Context(byte[] bytes, int retryCount) {
+            this.bytes = bytes;
+            this.retryCount = retryCount;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public int getRetryCount() {
+            return retryCount;
+        }
+    }
+
+    /**
+     * 计数器的增量 累加之后限制在 [0, max]
+     */
+    public static final class Counter {
+
+        private final long delta;
+
+        private final long max;
+
+        public Counter(long delta, long max) {
+            this.delta = delta;
+            this.max = max;
+        }
+
+        public long getDelta() {
+            return delta;
+        }
+
+        public long getMax() {
+            return max;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.wangji92.retry.springretryexample.support.cluster;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一次同步拿回来的内容 {@link RetryStateStore#sync}
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public final class RetryStateChanges {
+
+    private final long version;
+
+    private final Map<String, byte[]> contexts;
+
+    private final Set<String> removes;
+
+    private final Map<String, Long> counters;
+
+    private final int activeNodes;
+
+    /**
+     * @param version     下一次同步带上的版本
+     * @param contexts    其他节点写入的上下文 以及这次提交里面 retryCount 比存储小、没有写进去的 key 在存储里面的上下文
+     * @param removes     其他节点删除的 key
+     * @param counters    这次提交的计数器合并之后的值
+     * @param activeNodes 最近同步过的节点数 (包含自己)
+     */
+    public RetryStateChanges(long version, Map<String, byte[]> contexts, Set<String> removes, Map<String, Long> counters,
+                             int activeNodes) {
+        this.version = version;
+        this.contexts = Collections.unmodifiableMap(contexts);
+        this.removes = Collections.unmodifiableSet(removes);
+        this.counters = Collections.unmodifiableMap(counters);
+        this.activeNodes = activeNodes;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Map<String, byte[]> getContexts() {
+        return contexts;
+    }
+
+    public Set<String> getRemoves() {
+        return removes;
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    public int getActiveNodes() {
+        return activeNodes;
+    }
+}
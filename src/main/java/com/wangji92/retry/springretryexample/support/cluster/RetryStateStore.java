@@ -0,0 +1,25 @@
+package com.wangji92.retry.springretryexample.support.cluster;
+
+/**
+ * 多个节点共享有状态重试上下文、重试预算的存储 (redis、数据库 ...)
+ * <p>
+ * 每个节点按 sync-interval 调用一次 {@link #sync}：一次往返里面提交本节点攒下来的写入、预算增量，
+ * 同时拿回其他节点上一次之后的变化，重试的时候不访问存储。实现需要保证：
+ * <ul>
+ *     <li>同一个 key 并发写入的时候保留 retryCount 大的 (删除之后的写入为新的一轮)</li>
+ *     <li>计数器按增量累加 并限制在 [0, max] 之间</li>
+ *     <li>sync 本身是原子的 (redis 可以用 lua 脚本)</li>
+ * </ul>
+ * 内存的实现 {@link InMemoryRetryStateStore} 用于测试和单机
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public interface RetryStateStore {
+
+    /**
+     * @param batch 本节点上一次同步之后的写入、删除、计数器增量
+     * @return 其他节点的变化、计数器当前的值、存活的节点数
+     */
+    RetryStateChanges sync(RetryStateBatch batch);
+}
@@ -0,0 +1,95 @@
+package com.wangji92.retry.springretryexample.support.deadletter;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+
+/**
+ * 重试用完之后交给死信队列的一次调用：@Retryable 方法 (类名、方法名、参数类型)、参数、最后一次的异常
+ * 【参数、异常和有状态重试的上下文一样宽松的序列化，不能序列化的对象变成 null，异常不保留堆栈】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class DeadLetter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long id;
+
+    private final String label;
+
+    private final String targetClass;
+
+    private final String methodName;
+
+    private final String[] parameterTypes;
+
+    private final Object[] args;
+
+    private final Throwable cause;
+
+    private final long createdAt;
+
+    /**
+     * 回放失败的次数 不持久化 重启之后从 0 开始
+     */
+    private transient int failures;
+
+    public DeadLetter(String label, Class<?> targetClass, Method method, Object[] args, Throwable cause) {
+        this.label = label;
+        this.targetClass = targetClass.getName();
+        this.methodName = method.getName();
+        Class<?>[] types = method.getParameterTypes();
+        this.parameterTypes = new String[types.length];
+        for (int i = 0; i < types.length; i++) {
+            this.parameterTypes[i] = types[i].getName();
+        }
+        this.args = args;
+        this.cause = cause;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    void setId(long id) {
+        this.id = id;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getTargetClass() {
+        return targetClass;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public String[] getParameterTypes() {
+        return parameterTypes;
+    }
+
+    public Object[] getArgs() {
+        return args;
+    }
+
+    public Throwable getCause() {
+        return cause;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    void incrementFailures() {
+        failures++;
+    }
+}
@@ -0,0 +1,191 @@
+package com.wangji92.retry.springretryexample.support.deadletter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 后台按 drain-rate 匀速回放死信 不会在下游恢复的时候一下子把积压的死信全部打过去
+ * <p>
+ * 回放成功 ACK；失败的等 retry-delay * 2^(失败次数-1) (最多 max-retry-delay) 之后放回队尾，
+ * 失败 max-failures 次的不再回放 {@link DeadLetterQueue#park(DeadLetter)} 放到 parked 文件等人工处理 (失败次数不持久化 重启之后重新算)
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class DeadLetterDrainer implements Closeable {
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final DeadLetterQueue queue;
+
+    private final DeadLetterHandler handler;
+
+    /**
+     * 两次回放之间最少间隔 0 不限速
+     */
+    private final long intervalNanos;
+
+    private final long retryDelayMillis;
+
+    private final long maxRetryDelayMillis;
+
+    private final int maxFailures;
+
+    private final ExecutorService drainExecutor;
+
+    private final ScheduledExecutorService retryExecutor;
+
+    private final LongAdder replayed = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder parked = new LongAdder();
+
+    private volatile boolean running;
+
+    private long nextReplayNanos;
+
+    /**
+     * @param ratePerSecond       每秒最多回放多少条 小于等于 0 不限速
+     * @param retryDelayMillis    第一次回放失败之后多久再回放
+     * @param maxRetryDelayMillis 回放失败之后最多等多久
+     * @param maxFailures         回放失败这么多次之后不再回放 放到 parked 文件，小于等于 0 一直回放
+     */
+    public DeadLetterDrainer(DeadLetterQueue queue, DeadLetterHandler handler, double ratePerSecond, long retryDelayMillis,
+                             long maxRetryDelayMillis, int maxFailures) {
+        Assert.notNull(queue, "queue must not be null");
+        Assert.notNull(handler, "handler must not be null");
+        this.queue = queue;
+        this.handler = handler;
+        this.intervalNanos = ratePerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond) : 0;
+        this.retryDelayMillis = retryDelayMillis;
+        this.maxRetryDelayMillis = Math.max(retryDelayMillis, maxRetryDelayMillis);
+        this.maxFailures = maxFailures;
+        this.drainExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("dead-letter-drain-"));
+        this.retryExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("dead-letter-retry-"));
+    }
+
+    public void start() {
+        running = true;
+        drainExecutor.execute(this::drain);
+    }
+
+    private void drain() {
+        while (running) {
+            DeadLetter letter;
+            try {
+                letter = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (letter == null) {
+                continue;
+            }
+            pace();
+            replay(letter);
+        }
+    }
+
+    /**
+     * 单线程回放 不需要令牌桶，记下一次可以回放的时间 没到就等
+     */
+    private void pace() {
+        if (intervalNanos <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (nextReplayNanos - now > 0) {
+            LockSupport.parkNanos(nextReplayNanos - now);
+            now = System.nanoTime();
+        }
+        nextReplayNanos = Math.max(now, nextReplayNanos) + intervalNanos;
+    }
+
+    private void replay(DeadLetter letter) {
+        try {
+            handler.handle(letter);
+        } catch (Exception e) {
+            letter.incrementFailures();
+            failed.increment();
+            if (maxFailures > 0 && letter.getFailures() >= maxFailures && park(letter, e)) {
+                return;
+            }
+            long delay = retryDelay(letter.getFailures());
+            log.warn("replay dead letter failed id={} label={} failures={} retry in {}ms {}", letter.getId(), letter.getLabel(),
+                    letter.getFailures(), delay, e.toString());
+            try {
+                retryExecutor.schedule(() -> queue.requeue(letter), delay, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException rejected) {
+                // 已经关闭 文件里面的 PUT 还在 下一次启动的时候回放
+            }
+            return;
+        }
+        queue.ack(letter);
+        replayed.increment();
+    }
+
+    /**
+     * @return 写 parked 文件失败的时候返回 false 按回放失败放回去
+     */
+    private boolean park(DeadLetter letter, Exception cause) {
+        try {
+            queue.park(letter);
+        } catch (RuntimeException e) {
+            log.warn("park dead letter failed id={} label={}", letter.getId(), letter.getLabel(), e);
+            return false;
+        }
+        parked.increment();
+        log.error("dead letter parked after {} failed replays id={} label={} {}", letter.getFailures(), letter.getId(),
+                letter.getLabel(), cause.toString());
+        return true;
+    }
+
+    private long retryDelay(int failures) {
+        if (retryDelayMillis <= 0) {
+            return 0;
+        }
+        long delay = retryDelayMillis << Math.min(failures - 1, 30);
+        return delay <= 0 ? maxRetryDelayMillis : Math.min(delay, maxRetryDelayMillis);
+    }
+
+    public long replayedCount() {
+        return replayed.sum();
+    }
+
+    public long failedCount() {
+        return failed.sum();
+    }
+
+    public long parkedCount() {
+        return parked.sum();
+    }
+
+    /**
+     * 停止回放 正在等 retry-delay 的死信没有 ACK，下一次启动的时候回放
+     */
+    @Override
+    public void close() {
+        running = false;
+        retryExecutor.shutdownNow();
+        drainExecutor.shutdown();
+        try {
+            if (!drainExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                drainExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            drainExecutor.shutdownNow();
+        }
+    }
+}
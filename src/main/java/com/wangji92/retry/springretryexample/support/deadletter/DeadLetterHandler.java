@@ -0,0 +1,13 @@
+package com.wangji92.retry.springretryexample.support.deadletter;
+
+/**
+ * 回放一条死信 正常返回就 ACK，抛出异常等 retry-delay 之后再回放
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@FunctionalInterface
+public interface DeadLetterHandler {
+
+    void handle(DeadLetter letter) throws Exception;
+}
@@ -0,0 +1,155 @@
+package com.wangji92.retry.springretryexample.support.deadletter;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 重试用完之后交给死信队列 后台回放兜底
+ * <pre>
+ * retry.dead-letter.enabled=true
+ * retry.dead-letter.labels=stateFullRetryTestSendMessage
+ * retry.dead-letter.drain-rate=10
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@ConfigurationProperties(prefix = "retry.dead-letter")
+public class DeadLetterProperties {
+
+    private boolean enabled;
+
+    /**
+     * 交给死信队列的 @Retryable 方法的 label (没有 label 的时候为 类名.方法名)
+     */
+    private Set<String> labels = new LinkedHashSet<>();
+
+    /**
+     * 死信文件所在目录
+     */
+    private String directory = System.getProperty("java.io.tmpdir") + "/spring-retry-example/dead-letter";
+
+    /**
+     * 最多多少条没有回放成功的死信 满了之后同步兜底
+     */
+    private int capacity = 100000;
+
+    private int segmentSize = DeadLetterQueue.DEFAULT_SEGMENT_SIZE;
+
+    /**
+     * 攒够多少条记录不等间隔马上刷盘
+     */
+    private int flushBatchSize = 256;
+
+    /**
+     * 刷盘的间隔(毫秒) 进程挂掉最多丢这么久之内放入的死信
+     */
+    private long flushInterval = 100;
+
+    /**
+     * 每秒最多回放多少条
+     */
+    private double drainRate = 10;
+
+    /**
+     * 回放失败之后多久再回放(毫秒) 每失败一次翻倍
+     */
+    private long retryDelay = 5000;
+
+    private long maxRetryDelay = 300000;
+
+    /**
+     * 回放失败多少次之后不再回放 放到目录下的 dead-letter.parked 文件人工处理，0 一直回放
+     */
+    private int maxFailures = 10;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Set<String> getLabels() {
+        return labels;
+    }
+
+    public void setLabels(Set<String> labels) {
+        this.labels = labels;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public int getFlushBatchSize() {
+        return flushBatchSize;
+    }
+
+    public void setFlushBatchSize(int flushBatchSize) {
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public double getDrainRate() {
+        return drainRate;
+    }
+
+    public void setDrainRate(double drainRate) {
+        this.drainRate = drainRate;
+    }
+
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+
+    public void setRetryDelay(long retryDelay) {
+        this.retryDelay = retryDelay;
+    }
+
+    public long getMaxRetryDelay() {
+        return maxRetryDelay;
+    }
+
+    public void setMaxRetryDelay(long maxRetryDelay) {
+        this.maxRetryDelay = maxRetryDelay;
+    }
+
+    public int getMaxFailures() {
+        return maxFailures;
+    }
+
+    public void setMaxFailures(int maxFailures) {
+        this.maxFailures = maxFailures;
+    }
+}
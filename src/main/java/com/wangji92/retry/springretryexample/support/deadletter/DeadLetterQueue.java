@@ -0,0 +1,768 @@
+package com.wangji92.retry.springretryexample.support.deadletter;
+
+import com.wangji92.retry.springretryexample.support.cache.RetryContextSerializer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.serializer.support.SerializationFailedException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * 有界的本地死信队列 重试用完的调用放进来由 {@link DeadLetterDrainer} 在后台回放兜底，调用线程不再同步等兜底
+ * <p>
+ * 放入 (PUT)、回放成功 (ACK) 都是按顺序追加到 journal 文件的记录，调用线程只把记录放到内存里面的批次，
+ * 由刷盘线程每隔 flush-interval (或者攒够 flush-batch-size 条) 一次 write + force 写到文件 (组提交)；
+ * 刷盘之后的死信才交给回放，ACK 一定在对应的 PUT 后面。一个文件里面的死信都 ACK 之后删除这个文件
+ * <p>
+ * 启动的时候按文件顺序重放 PUT 减去 ACK 就是没有回放成功的死信，末尾写了一半的记录 (kill -9) 通过长度、crc 识别出来丢掉；
+ * 记录格式：[长度 int][crc int][类型 byte][id long][死信序列化]；读不出来的死信 (类删掉了、改了不兼容) 跳过，原样放到 parked 文件
+ * <p>
+ * 回放一直失败的死信由 {@link #park(DeadLetter)} 放到 parked 文件 (同样的记录格式，只追加 不回放) 之后 ACK，等人工处理
+ * 【放入之后还没有刷盘的死信 进程挂掉会丢，最多丢 flush-interval 内的；队列满了 offer 返回 false 调用方同步兜底】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class DeadLetterQueue implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "dead-letter-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String LOCK_FILE = "dead-letter.lock";
+
+    private static final String PARKED_FILE = "dead-letter.parked";
+
+    private static final byte PUT = 1;
+
+    private static final byte ACK = 2;
+
+    /**
+     * 长度、crc、类型、id
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 1 + 8;
+
+    private final Path directory;
+
+    private final int capacity;
+
+    private final int segmentSize;
+
+    private final int flushBatchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * 还没有刷盘的记录 持有 lock 的时候修改
+     */
+    private List<Record> pending = new ArrayList<>();
+
+    /**
+     * 已经刷盘 等待回放的死信 持有 lock 的时候修改
+     */
+    private final ArrayDeque<DeadLetter> ready = new ArrayDeque<>();
+
+    private long lastId;
+
+    private boolean closed;
+
+    /**
+     * 没有 ACK 的死信数 (没有刷盘、等待回放、回放中、回放失败等待下一次的)
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * 下面的只在刷盘的时候 持有 flushLock 访问
+     */
+    private final Object flushLock = new Object();
+
+    private final List<Segment> segments = new ArrayList<>();
+
+    private final Map<Long, Segment> segmentOfId = new HashMap<>();
+
+    private final CRC32 crc32 = new CRC32();
+
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(64 * 1024);
+
+    private Segment active;
+
+    /**
+     * 用到的时候再打开 持有 parkedLock 访问
+     */
+    private FileChannel parkedChannel;
+
+    private final Object parkedLock = new Object();
+
+    private final FileChannel lockChannel;
+
+    private final FileLock fileLock;
+
+    private final ScheduledExecutorService flushExecutor;
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final LongAdder offered = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder acked = new LongAdder();
+
+    private final LongAdder flushes = new LongAdder();
+
+    private final LongAdder parked = new LongAdder();
+
+    private long replayMillis;
+
+    /**
+     * @param directory           所在目录 同一时间只能有一个实例使用
+     * @param capacity            最多多少条没有 ACK 的死信
+     * @param segmentSize         单个文件写满这么多字节之后换下一个
+     * @param flushBatchSize      没有刷盘的记录达到这个数的时候不等间隔 马上刷盘
+     * @param flushIntervalMillis 刷盘的间隔 小于等于 0 不定时刷盘 (测试里面手动 flush)
+     */
+    public DeadLetterQueue(Path directory, int capacity, int segmentSize, int flushBatchSize, long flushIntervalMillis) {
+        Assert.notNull(directory, "directory must not be null");
+        Assert.isTrue(capacity > 0, "capacity must be greater than 0");
+        Assert.isTrue(segmentSize > HEADER_SIZE, "segmentSize is too small");
+        Assert.isTrue(flushBatchSize > 0, "flushBatchSize must be greater than 0");
+        this.directory = directory;
+        this.capacity = capacity;
+        this.segmentSize = segmentSize;
+        this.flushBatchSize = flushBatchSize;
+        try {
+            Files.createDirectories(directory);
+            this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock directoryLock;
+            try {
+                directoryLock = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                directoryLock = null;
+            }
+            if (directoryLock == null) {
+                lockChannel.close();
+                throw new IllegalStateException("dead letter queue " + directory + " is used by another queue");
+            }
+            this.fileLock = directoryLock;
+            replay();
+        } catch (IOException e) {
+            throw new UncheckedIOException("open dead letter queue " + directory + " failed", e);
+        }
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("dead-letter-flush-"));
+        if (flushIntervalMillis > 0) {
+            this.flushExecutor.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 放入一条死信 序列化在调用线程上，写文件在刷盘线程上
+     *
+     * @return 队列满了、已经关闭的时候返回 false
+     */
+    public boolean offer(DeadLetter letter) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        // id 在记录的头部 不在序列化的内容里面
+        byte[] payload = RetryContextSerializer.serializeObject(letter);
+        int batch;
+        lock.lock();
+        try {
+            if (closed) {
+                size.decrementAndGet();
+                rejected.increment();
+                return false;
+            }
+            letter.setId(++lastId);
+            pending.add(new Record(PUT, letter.getId(), payload, letter));
+            batch = pending.size();
+        } finally {
+            lock.unlock();
+        }
+        offered.increment();
+        if (batch >= flushBatchSize) {
+            requestFlush();
+        }
+        return true;
+    }
+
+    /**
+     * 取一条等待回放的死信
+     *
+     * @return 等了 timeout 还没有的时候返回 null
+     */
+    public DeadLetter poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (ready.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return ready.pollFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 回放成功 下一次刷盘的时候记一条 ACK
+     */
+    public void ack(DeadLetter letter) {
+        int batch;
+        lock.lock();
+        try {
+            pending.add(new Record(ACK, letter.getId(), null, null));
+            batch = pending.size();
+        } finally {
+            lock.unlock();
+        }
+        size.decrementAndGet();
+        acked.increment();
+        if (batch >= flushBatchSize) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * 回放失败 放回队尾 等下一次回放 (文件里面的 PUT 还在 不用重新写)
+     */
+    public void requeue(DeadLetter letter) {
+        lock.lock();
+        try {
+            ready.addLast(letter);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 回放一直失败的死信 追加到 parked 文件不再回放，然后 ACK
+     *
+     * @throws UncheckedIOException 写 parked 文件失败 没有 ACK，还在队列里面
+     */
+    public void park(DeadLetter letter) {
+        appendParked(letter.getId(), RetryContextSerializer.serializeObject(letter));
+        ack(letter);
+    }
+
+    private void appendParked(long id, byte[] payload) {
+        int length = HEADER_SIZE + payload.length;
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(length).putInt(0).put(PUT).putLong(id).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 8, length - 8);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.flip();
+        synchronized (parkedLock) {
+            try {
+                if (parkedChannel == null) {
+                    parkedChannel = FileChannel.open(directory.resolve(PARKED_FILE), StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                }
+                while (buffer.hasRemaining()) {
+                    parkedChannel.write(buffer);
+                }
+                parkedChannel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("park dead letter " + id + " to " + directory.resolve(PARKED_FILE) + " failed", e);
+            }
+        }
+        parked.increment();
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                flushExecutor.execute(() -> {
+                    flushRequested.set(false);
+                    flushQuietly();
+                });
+            } catch (RuntimeException e) {
+                // 已经关闭
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("dead letter queue {} flush failed", directory, e);
+        }
+    }
+
+    /**
+     * 没有刷盘的记录一次写到文件 force 之后交给回放；写失败的时候 已经写完的交给回放，没有写的放回去下一次再写
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<Record> batch;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>(Math.max(16, batch.size()));
+            } finally {
+                lock.unlock();
+            }
+            try {
+                write(batch);
+            } catch (WriteFailedException e) {
+                List<Record> unwritten = new ArrayList<>(batch.subList(e.written, batch.size()));
+                lock.lock();
+                try {
+                    unwritten.addAll(pending);
+                    pending = unwritten;
+                } finally {
+                    lock.unlock();
+                }
+                handOver(batch.subList(0, e.written));
+                throw new UncheckedIOException("write dead letter queue " + directory + " failed", e);
+            }
+            flushes.increment();
+            handOver(batch);
+        }
+    }
+
+    /**
+     * 已经刷盘的死信交给回放
+     */
+    private void handOver(List<Record> written) {
+        lock.lock();
+        try {
+            for (Record record : written) {
+                if (record.type == PUT) {
+                    ready.addLast(record.letter);
+                }
+            }
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 持有 flushLock 调用，一个文件放不下的时候先把前面的写完再换文件；
+     * 每一段 force 之后才更新 live、segmentOfId，重新写的时候不会重复计数
+     *
+     * @throws WriteFailedException 前面 written 条已经写完，后面的没有写
+     */
+    private void write(List<Record> batch) throws WriteFailedException {
+        int written = 0;
+        try {
+            if (active.torn) {
+                active = newSegment(active.sequence + 1);
+            }
+            writeBuffer.clear();
+            for (int i = 0; i < batch.size(); i++) {
+                Record record = batch.get(i);
+                int length = HEADER_SIZE + (record.payload == null ? 0 : record.payload.length);
+                if (active.position + writeBuffer.position() + length > segmentSize && active.position + writeBuffer.position() > 0) {
+                    writeBuffer();
+                    written = commit(batch, written, i);
+                    active = newSegment(active.sequence + 1);
+                }
+                append(record, length);
+            }
+            writeBuffer();
+            written = commit(batch, written, batch.size());
+        } catch (IOException | UncheckedIOException e) {
+            throw new WriteFailedException(written, e);
+        } finally {
+            deleteAckedSegments();
+        }
+    }
+
+    private void append(Record record, int length) {
+        if (writeBuffer.remaining() < length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(writeBuffer.capacity() * 2, writeBuffer.position() + length));
+            writeBuffer.flip();
+            larger.put(writeBuffer);
+            writeBuffer = larger;
+        }
+        int offset = writeBuffer.position();
+        writeBuffer.putInt(length).putInt(0).put(record.type).putLong(record.id);
+        if (record.payload != null) {
+            writeBuffer.put(record.payload);
+        }
+        crc32.reset();
+        crc32.update(writeBuffer.array(), offset + 8, length - 8);
+        writeBuffer.putInt(offset + 4, (int) crc32.getValue());
+    }
+
+    /**
+     * [from, to) 已经写到 active 并且 force 了
+     *
+     * @return to
+     */
+    private int commit(List<Record> batch, int from, int to) {
+        for (Record record : batch.subList(from, to)) {
+            if (record.type == PUT) {
+                segmentOfId.put(record.id, active);
+                active.live++;
+            } else {
+                Segment segment = segmentOfId.remove(record.id);
+                if (segment != null) {
+                    segment.live--;
+                }
+            }
+        }
+        return to;
+    }
+
+    /**
+     * 写完 force 之后才移动 position；失败的时候截回写之前的位置，
+     * 并且下一次换文件写 (截不掉的时候 后面的记录接在半条记录后面 重放的时候会一起丢掉)
+     */
+    private void writeBuffer() throws IOException {
+        writeBuffer.flip();
+        long position = active.position;
+        try {
+            while (writeBuffer.hasRemaining()) {
+                position += active.channel.write(writeBuffer, position);
+            }
+            active.channel.force(false);
+        } catch (IOException e) {
+            active.torn = true;
+            try {
+                active.channel.truncate(active.position);
+            } catch (IOException truncateFailed) {
+                e.addSuppressed(truncateFailed);
+            }
+            throw e;
+        } finally {
+            writeBuffer.clear();
+        }
+        active.position = position;
+    }
+
+    /**
+     * 除了正在写的文件 里面的死信都 ACK 了的文件删掉
+     */
+    private void deleteAckedSegments() {
+        for (Iterator<Segment> iterator = segments.iterator(); iterator.hasNext(); ) {
+            Segment segment = iterator.next();
+            if (segment != active && segment.live <= 0) {
+                iterator.remove();
+                segment.delete();
+            }
+        }
+    }
+
+    private Segment newSegment(long sequence) {
+        try {
+            Segment segment = Segment.open(directory.resolve(segmentName(sequence)), sequence);
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("create dead letter segment failed", e);
+        }
+    }
+
+    private static String segmentName(long sequence) {
+        return String.format("%s%016d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX);
+    }
+
+    private void replay() throws IOException {
+        long start = System.nanoTime();
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        Map<Long, DeadLetter> outstanding = new LinkedHashMap<>();
+        long records = 0;
+        long lastSequence = 0;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long sequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            Segment segment = Segment.open(file, sequence);
+            segments.add(segment);
+            records += replay(segment, outstanding);
+            lastSequence = sequence;
+        }
+        outstanding.values().forEach(ready::addLast);
+        size.set(outstanding.size());
+        active = newSegment(lastSequence + 1);
+        deleteAckedSegments();
+        replayMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("dead letter queue {} replayed records={} outstanding={} segments={} in {}ms", directory, records,
+                outstanding.size(), segments.size(), replayMillis);
+    }
+
+    private long replay(Segment segment, Map<Long, DeadLetter> outstanding) throws IOException {
+        int fileSize = (int) segment.channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(fileSize);
+        while (buffer.hasRemaining()) {
+            if (segment.channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        byte[] bytes = buffer.array();
+        CRC32 crc = new CRC32();
+        long records = 0;
+        int position = 0;
+        while (position + HEADER_SIZE <= fileSize) {
+            int length = buffer.getInt(position);
+            if (length < HEADER_SIZE || position + length > fileSize) {
+                break;
+            }
+            crc.reset();
+            crc.update(bytes, position + 8, length - 8);
+            if (buffer.getInt(position + 4) != (int) crc.getValue()) {
+                break;
+            }
+            byte type = buffer.get(position + 8);
+            long id = buffer.getLong(position + 9);
+            if (type == PUT) {
+                DeadLetter letter = readLetter(segment, bytes, position, length, id);
+                if (letter != null) {
+                    letter.setId(id);
+                    outstanding.put(id, letter);
+                    segmentOfId.put(id, segment);
+                    segment.live++;
+                }
+            } else if (outstanding.remove(id) != null) {
+                segmentOfId.remove(id).live--;
+            }
+            lastId = Math.max(lastId, id);
+            position += length;
+            records++;
+        }
+        if (position < fileSize) {
+            // 写了一半的记录 (kill -9) 以及之后的内容都丢掉
+            log.warn("dead letter queue {} torn record at {}, the rest is ignored", segment.path, position);
+            segment.channel.truncate(position);
+        }
+        segment.position = position;
+        return records;
+    }
+
+    /**
+     * 读不出来的死信不能让启动失败 原样放到 parked 文件之后跳过
+     *
+     * @return 读不出来的时候返回 null
+     */
+    private DeadLetter readLetter(Segment segment, byte[] bytes, int position, int length, long id) {
+        try {
+            return (DeadLetter) RetryContextSerializer.deserializeObject(bytes, position + HEADER_SIZE, length - HEADER_SIZE);
+        } catch (SerializationFailedException | ClassCastException e) {
+            log.warn("dead letter queue {} skipped unreadable dead letter id={} at {}", segment.path, id, position, e);
+            try {
+                appendParked(id, Arrays.copyOfRange(bytes, position + HEADER_SIZE, position + length));
+            } catch (UncheckedIOException parkFailed) {
+                log.error("dead letter queue {} dropped unreadable dead letter id={}", segment.path, id, parkFailed);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @return 没有 ACK 的死信数
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long offeredCount() {
+        return offered.sum();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    public long ackedCount() {
+        return acked.sum();
+    }
+
+    public long flushCount() {
+        return flushes.sum();
+    }
+
+    /**
+     * @return 放到 parked 文件的死信数 (回放一直失败的、启动的时候读不出来的)
+     */
+    public long parkedCount() {
+        return parked.sum();
+    }
+
+    public int segmentCount() {
+        synchronized (flushLock) {
+            return segments.size();
+        }
+    }
+
+    /**
+     * @return 启动的时候重放文件花的时间
+     */
+    public long replayMillis() {
+        return replayMillis;
+    }
+
+    /**
+     * 不再接收新的死信 没有刷盘的刷盘，没有 ACK 的留在文件里面 下一次启动的时候回放
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        flushExecutor.shutdownNow();
+        flushQuietly();
+        synchronized (flushLock) {
+            for (Segment segment : segments) {
+                segment.close();
+            }
+            synchronized (parkedLock) {
+                if (parkedChannel != null) {
+                    try {
+                        parkedChannel.close();
+                    } catch (IOException e) {
+                        log.warn("close parked dead letter file failed", e);
+                    }
+                }
+            }
+            try {
+                fileLock.release();
+                lockChannel.close();
+            } catch (IOException e) {
+                log.warn("release dead letter queue lock failed", e);
+            }
+        }
+    }
+
+    private static final class Record {
+
+        private final byte type;
+
+        private final long id;
+
+        private final byte[] payload;
+
+        private final DeadLetter letter;
+
+        private Record(byte type, long id, byte[] payload, DeadLetter letter) {
+            this.type = type;
+            this.id = id;
+            this.payload = payload;
+            this.letter = letter;
+        }
+    }
+
+    private static final class WriteFailedException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * 已经写完的记录数
+         */
+        private final int written;
+
+        private WriteFailedException(int written, Exception cause) {
+            super(cause);
+            this.written = written;
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+
+        private final long sequence;
+
+        private final FileChannel channel;
+
+        /**
+         * 写入的位置
+         */
+        private long position;
+
+        /**
+         * 没有 ACK 的死信数
+         */
+        private int live;
+
+        /**
+         * 写失败过 后面的记录换文件写
+         */
+        private boolean torn;
+
+        private Segment(Path path, long sequence, FileChannel channel) {
+            this.path = path;
+            this.sequence = sequence;
+            this.channel = channel;
+        }
+
+        private static Segment open(Path path, long sequence) throws IOException {
+            return new Segment(path, sequence, FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE));
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("close dead letter segment {} failed", path, e);
+            }
+        }
+
+        private void delete() {
+            close();
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("delete dead letter segment {} failed", path, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.wangji92.retry.springretryexample.support.deadletter;
+
+import com.wangji92.retry.springretryexample.support.recover.RecoverDispatcher;
+import com.wangji92.retry.springretryexample.utils.RetryLabelUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.aop.support.AopUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 兜底的时候 retry.dead-letter.labels 里面的 @Retryable 方法不同步调用 @Recover，把这次调用放到 {@link DeadLetterQueue}
+ * 马上返回 null，由 {@link DeadLetterDrainer} 在后台调用同一个 @Recover 方法；
+ * 其他的方法、没有打开死信队列、队列满了的时候和 CachedRecoverer 一样同步兜底
+ * <p>
+ * 实现了 CachedRecoverer 的服务覆盖 recover(Object[], Throwable) 交给这里 (需要 exposeRetryInvocationAdvisor)
+ * 【交给死信队列之后 @Retryable 方法返回 null，调用方不能拆箱成基本类型】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class DeadLetterRecoverer {
+
+    private final DeadLetterQueue queue;
+
+    private final Set<String> labels;
+
+    private final Map<Method, Boolean> deadLetterMethods = new ConcurrentHashMap<>();
+
+    /**
+     * @param queue  为 null 的时候总是同步兜底
+     * @param labels 交给死信队列的 @Retryable 方法的 label
+     */
+    public DeadLetterRecoverer(DeadLetterQueue queue, Set<String> labels) {
+        this.queue = queue;
+        this.labels = labels;
+    }
+
+    /**
+     * @param target 目标对象 (不是代理)
+     */
+    public Object recover(Object target, Object[] args, Throwable cause) {
+        MethodInvocation invocation = ExposeInvocationInterceptor.currentInvocation();
+        Method method = invocation.getMethod();
+        Class<?> targetClass = AopUtils.getTargetClass(target);
+        if (queue != null && deadLetterMethods.computeIfAbsent(method,
+                key -> labels.contains(RetryLabelUtils.resolveLabel(invocation)))) {
+            DeadLetter letter = new DeadLetter(RetryLabelUtils.resolveLabel(invocation), targetClass, method, args, cause);
+            if (queue.offer(letter)) {
+                log.info("recover later by dead letter queue id={} label={} cause={}", letter.getId(), letter.getLabel(),
+                        cause.toString());
+                return null;
+            }
+            log.warn("dead letter queue is full size={}, recover synchronously label={}", queue.size(), letter.getLabel());
+        }
+        return RecoverDispatcher.forMethod(targetClass, method).recover(target, args, cause);
+    }
+}
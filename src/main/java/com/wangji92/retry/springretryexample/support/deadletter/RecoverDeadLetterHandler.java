@@ -0,0 +1,55 @@
+package com.wangji92.retry.springretryexample.support.deadletter;
+
+import com.wangji92.retry.springretryexample.support.recover.RecoverDispatcher;
+import com.wangji92.retry.springretryexample.utils.AopTargetUtils;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 回放死信：按死信里面记录的类型从容器里面拿 bean，调用 @Retryable 方法对应的 @Recover 方法 {@link RecoverDispatcher}
+ * 重启之后回放上一次进程留下来的死信也是一样的
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class RecoverDeadLetterHandler implements DeadLetterHandler {
+
+    private final BeanFactory beanFactory;
+
+    private final Map<String, Method> methods = new ConcurrentHashMap<>();
+
+    public RecoverDeadLetterHandler(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public void handle(DeadLetter letter) throws ClassNotFoundException {
+        Class<?> targetClass = ClassUtils.forName(letter.getTargetClass(), getClass().getClassLoader());
+        Method method = method(targetClass, letter);
+        Object target = AopTargetUtils.getTarget(beanFactory.getBean(targetClass));
+        RecoverDispatcher.forMethod(targetClass, method).recover(target, letter.getArgs(), letter.getCause());
+    }
+
+    private Method method(Class<?> targetClass, DeadLetter letter) throws ClassNotFoundException {
+        String key = letter.getTargetClass() + "#" + letter.getMethodName() + String.join(",", letter.getParameterTypes());
+        Method method = methods.get(key);
+        if (method != null) {
+            return method;
+        }
+        Class<?>[] parameterTypes = new Class<?>[letter.getParameterTypes().length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parameterTypes[i] = ClassUtils.forName(letter.getParameterTypes()[i], getClass().getClassLoader());
+        }
+        method = ReflectionUtils.findMethod(targetClass, letter.getMethodName(), parameterTypes);
+        if (method == null) {
+            throw new IllegalStateException("dead letter method not found " + key);
+        }
+        methods.putIfAbsent(key, method);
+        return method;
+    }
+}
@@ -0,0 +1,33 @@
+package com.wangji92.retry.springretryexample.support.fallback;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * 在重试拦截器的里面 每次尝试成功之后把返回值写到 {@link FallbackResultCache}，重试用完的时候用来兜底
+ * 没有配置的方法只有一次 map 查找
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class FallbackCacheInterceptor implements MethodInterceptor {
+
+    private final FallbackResultCache cache;
+
+    public FallbackCacheInterceptor(FallbackResultCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String label = cache.label(invocation);
+        if (label.isEmpty()) {
+            return invocation.proceed();
+        }
+        Object result = invocation.proceed();
+        if (result != null) {
+            cache.put(label, invocation.getArguments(), result);
+        }
+        return result;
+    }
+}
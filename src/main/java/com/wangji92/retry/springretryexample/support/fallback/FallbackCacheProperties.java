@@ -0,0 +1,84 @@
+package com.wangji92.retry.springretryexample.support.fallback;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 记住 @Retryable 方法最近一次成功的返回值 重试用完之后直接用它兜底
+ * <pre>
+ * retry.fallback-cache.enabled=true
+ * retry.fallback-cache.labels=RetryTestService.retryTestService
+ * retry.fallback-cache.time-to-live=60000
+ * retry.fallback-cache.stale-while-revalidate=300000
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@ConfigurationProperties(prefix = "retry.fallback-cache")
+public class FallbackCacheProperties {
+
+    private boolean enabled;
+
+    /**
+     * 缓存返回值的 @Retryable 方法的 label (没有 label 的时候为 类名.方法名)，key 的生成方式和有状态重试一样按 retry.key-generator
+     */
+    private Set<String> labels = new LinkedHashSet<>();
+
+    /**
+     * 所有方法加起来最多缓存多少个 key
+     */
+    private int maximumSize = 10000;
+
+    /**
+     * 成功之后多久(毫秒)之内的返回值直接用来兜底
+     */
+    private long timeToLive = 60000;
+
+    /**
+     * 过了 time-to-live 之后还能再用多久(毫秒)，用的时候在后台调用一次 @Retryable 方法刷新；0 表示过期之后不再使用
+     */
+    private long staleWhileRevalidate;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Set<String> getLabels() {
+        return labels;
+    }
+
+    public void setLabels(Set<String> labels) {
+        this.labels = labels;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public long getStaleWhileRevalidate() {
+        return staleWhileRevalidate;
+    }
+
+    public void setStaleWhileRevalidate(long staleWhileRevalidate) {
+        this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+}
@@ -0,0 +1,352 @@
+package com.wangji92.retry.springretryexample.support.fallback;
+
+import com.wangji92.retry.springretryexample.support.key.LabelRoutingKeyGenerator;
+import com.wangji92.retry.springretryexample.utils.RetryLabelUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInvocation;
+import org.reactivestreams.Publisher;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.retry.interceptor.MethodArgumentsKeyGenerator;
+import org.springframework.util.Assert;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 兜底之前的一层缓存：按 label + 参数的 key 记住 @Retryable 方法最近一次成功的返回值 ({@link FallbackCacheInterceptor} 写入)，
+ * 重试用完之后 time-to-live 之内有值的时候直接返回，不再调用 @Recover (兜底里面的 http 调用、死信队列都不会发生)
+ * <p>
+ * 打开 stale-while-revalidate 之后 过了 time-to-live 的值在 stale-while-revalidate 之内还可以用，
+ * 用的时候在后台线程直接调用一次目标对象的 @Retryable 方法 (不经过重试、熔断 只尝试一次)，成功就刷新；同一个 key 同时只有一个在刷新
+ * <p>
+ * 存储和 {@link com.wangji92.retry.springretryexample.support.cache.BoundedRetryContextCache} 一样按 key 分段加锁，
+ * 超过容量淘汰最久没有写入的，过期的惰性清理；key 的生成方式和有状态重试一样 {@link LabelRoutingKeyGenerator}
+ * 【缓存的是返回值对象本身 兜底的调用方拿到的是同一个对象 不能修改】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class FallbackResultCache {
+
+    /**
+     * 不缓存的方法
+     */
+    static final String NONE = "";
+
+    private static final int CONCURRENCY_LEVEL = 16;
+
+    private final MethodArgumentsKeyGenerator keyGenerator;
+
+    private final Set<String> labels;
+
+    private final long timeToLiveMillis;
+
+    private final long maxAgeMillis;
+
+    private final Executor revalidateExecutor;
+
+    private final Segment[] segments;
+
+    private final int segmentShift;
+
+    private final Map<Method, String> methodLabels = new ConcurrentHashMap<>();
+
+    private final Set<CacheKey> revalidating = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder staleHits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder revalidations = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param keyGenerator               参数的 key，为 {@link LabelRoutingKeyGenerator} 的时候按 label 选择生成方式
+     * @param labels                     缓存返回值的 @Retryable 方法的 label
+     * @param maximumSize                最大的条目数 (按分段平均分配)
+     * @param timeToLiveMillis           成功之后多久之内直接用来兜底
+     * @param staleWhileRevalidateMillis 过期之后还能用多久
+     * @param revalidateExecutor         后台刷新的线程池 为 null 的时候不刷新 过期之后不再使用；close 的时候关闭
+     */
+    public FallbackResultCache(MethodArgumentsKeyGenerator keyGenerator, Set<String> labels, int maximumSize,
+                               long timeToLiveMillis, long staleWhileRevalidateMillis, Executor revalidateExecutor) {
+        Assert.isTrue(maximumSize > 0, "maximumSize must be greater than 0");
+        Assert.isTrue(timeToLiveMillis >= 0 && staleWhileRevalidateMillis >= 0, "timeToLive must not be negative");
+        this.keyGenerator = keyGenerator;
+        this.labels = labels;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.maxAgeMillis = timeToLiveMillis + (revalidateExecutor != null ? staleWhileRevalidateMillis : 0);
+        this.revalidateExecutor = revalidateExecutor;
+        int segmentCount = 1;
+        while (segmentCount < CONCURRENCY_LEVEL && segmentCount < maximumSize) {
+            segmentCount <<= 1;
+        }
+        int segmentCapacity = (maximumSize + segmentCount - 1) / segmentCount;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            this.segments[i] = new Segment(segmentCapacity, evictions);
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    /**
+     * @return 方法的 label，不缓存的方法 (没有配置、返回 Mono/Flux、void) 为 {@link #NONE}
+     */
+    String label(MethodInvocation invocation) {
+        String label = methodLabels.get(invocation.getMethod());
+        if (label == null) {
+            label = methodLabels.computeIfAbsent(invocation.getMethod(), method -> resolveLabel(invocation));
+        }
+        return label;
+    }
+
+    /**
+     * 记录一次成功的返回值
+     */
+    void put(String label, Object[] args, Object result) {
+        put(new CacheKey(label, argumentsKey(label, args)), result);
+    }
+
+    private void put(CacheKey key, Object result) {
+        Entry entry = new Entry(result, currentTimeMillis());
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            // 按写入顺序淘汰 读的时候不需要调整链表
+            segment.remove(key);
+            segment.put(key, entry);
+        }
+    }
+
+    /**
+     * 实现了 CachedRecoverer 的服务在 recover(Object[], Throwable) 里面调用 (需要 exposeRetryInvocationAdvisor)
+     *
+     * @param args      @Retryable 方法的参数
+     * @param cause     最后一次的异常
+     * @param recoverer 缓存里面没有的时候原来的兜底
+     * @return 缓存的返回值 或者原来兜底的返回值
+     */
+    public Object recover(Object[] args, Throwable cause, Supplier<Object> recoverer) {
+        MethodInvocation invocation = ExposeInvocationInterceptor.currentInvocation();
+        String label = label(invocation);
+        if (label.isEmpty()) {
+            return recoverer.get();
+        }
+        CacheKey key = new CacheKey(label, argumentsKey(label, args));
+        long now = currentTimeMillis();
+        Segment segment = segmentFor(key);
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.getLive(key, now, maxAgeMillis);
+        }
+        if (entry == null) {
+            misses.increment();
+            return recoverer.get();
+        }
+        long age = now - entry.writtenAt;
+        if (age < timeToLiveMillis) {
+            hits.increment();
+        } else {
+            staleHits.increment();
+            revalidate(key, invocation.getThis(), invocation.getMethod(), args);
+        }
+        log.debug("recover from fallback cache label={} age={}ms cause={}", label, age, cause.toString());
+        return entry.value;
+    }
+
+    private void revalidate(CacheKey key, Object target, Method method, Object[] args) {
+        if (!revalidating.add(key)) {
+            return;
+        }
+        try {
+            revalidateExecutor.execute(() -> {
+                try {
+                    Object result = AopUtils.invokeJoinpointUsingReflection(target, method, args);
+                    if (result != null) {
+                        put(key, result);
+                        revalidations.increment();
+                    }
+                } catch (Throwable e) {
+                    log.info("revalidate fallback cache failed label={} {}", key.label, e.toString());
+                } finally {
+                    revalidating.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            revalidating.remove(key);
+        }
+    }
+
+    private String resolveLabel(MethodInvocation invocation) {
+        Class<?> returnType = invocation.getMethod().getReturnType();
+        if (returnType == void.class || Publisher.class.isAssignableFrom(returnType)) {
+            return NONE;
+        }
+        String label = RetryLabelUtils.resolveLabel(invocation);
+        return labels.contains(label) ? label : NONE;
+    }
+
+    private Object argumentsKey(String label, Object[] args) {
+        if (keyGenerator instanceof LabelRoutingKeyGenerator) {
+            return ((LabelRoutingKeyGenerator) keyGenerator).getKey(label, args);
+        }
+        return keyGenerator.getKey(args);
+    }
+
+    private Segment segmentFor(CacheKey key) {
+        if (segments.length == 1) {
+            return segments[0];
+        }
+        // 用高位选段 低位留给段内的 HashMap
+        return segments[(key.hash * 0x9E3779B9) >>> segmentShift];
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * @return 当前条目数 (包含已经过期但还没有清理的)
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return time-to-live 之内 直接用缓存兜底的次数
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return 过了 time-to-live 还在 stale-while-revalidate 之内 用缓存兜底的次数
+     */
+    public long staleHitCount() {
+        return staleHits.sum();
+    }
+
+    /**
+     * @return 缓存里面没有 走原来兜底的次数
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return 后台刷新成功的次数
+     */
+    public long revalidationCount() {
+        return revalidations.sum();
+    }
+
+    /**
+     * @return 因为容量或者过期被淘汰的条目数
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public void close() {
+        if (revalidateExecutor instanceof ExecutorService) {
+            ((ExecutorService) revalidateExecutor).shutdownNow();
+        }
+    }
+
+    private static final class Segment extends LinkedHashMap<CacheKey, Entry> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        private final transient LongAdder evictions;
+
+        private Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, false);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        private Entry getLive(CacheKey key, long now, long maxAgeMillis) {
+            Entry entry = get(key);
+            if (entry != null && now - entry.writtenAt >= maxAgeMillis) {
+                remove(key);
+                evictions.increment();
+                return null;
+            }
+            return entry;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+
+        private final long writtenAt;
+
+        private Entry(Object value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    private static final class CacheKey {
+
+        private final String label;
+
+        private final Object key;
+
+        private final int hash;
+
+        private CacheKey(String label, Object key) {
+            this.label = label;
+            this.key = key;
+            this.hash = 31 * label.hashCode() + Objects.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return label.equals(other.label) && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.wangji92.retry.springretryexample.support.guava;
+
+import com.github.rholder.retry.AttemptTimeLimiter;
+import com.google.common.base.Preconditions;
+import com.wangji92.retry.springretryexample.support.timelimit.AttemptTimeLimitExecutor;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 替代 {@link FixedAttemptTimeLimit}：每次尝试交给 {@link AttemptTimeLimitExecutor} (虚拟线程 或 有界线程池)，
+ * MDC 等上下文会带过去，超时中断尝试并抛出 AttemptTimeoutException
+ *
+ * @param <V>
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public final class ExecutorAttemptTimeLimit<V> implements AttemptTimeLimiter<V> {
+
+    private final AttemptTimeLimitExecutor executor;
+    private final long duration;
+    private final TimeUnit timeUnit;
+
+    public ExecutorAttemptTimeLimit(@Nonnull AttemptTimeLimitExecutor executor, long duration, @Nonnull TimeUnit timeUnit) {
+        Preconditions.checkNotNull(executor);
+        Preconditions.checkNotNull(timeUnit);
+        this.executor = executor;
+        this.duration = duration;
+        this.timeUnit = timeUnit;
+    }
+
+    @Override
+    public V call(Callable<V> callable) throws Exception {
+        return executor.call(callable, duration, timeUnit);
+    }
+}
@@ -0,0 +1,56 @@
+package com.wangji92.retry.springretryexample.support.guava;
+
+import com.github.rholder.retry.AttemptTimeLimiter;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.SimpleTimeLimiter;
+import com.google.common.util.concurrent.TimeLimiter;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@literal https://github.com/rholder/guava-retrying/issues/66 这个框架没有人支持升级}
+ * guava retry 这里过期了..
+ * 【线程池需要调用方传进来并负责关闭，不要每次 new 一个，否则线程会一直泄漏】
+ *
+ * @param <V>
+ * @author 汪小哥
+ * @date 02-04-2021
+ */
+public final class FixedAttemptTimeLimit<V> implements AttemptTimeLimiter<V> {
+
+    private final TimeLimiter timeLimiter;
+    private final long duration;
+    private final TimeUnit timeUnit;
+
+    public FixedAttemptTimeLimit(long duration, @Nonnull TimeUnit timeUnit, @Nonnull ExecutorService executorService) {
+        this(SimpleTimeLimiter.create(executorService), duration, timeUnit);
+    }
+
+    private FixedAttemptTimeLimit(@Nonnull TimeLimiter timeLimiter, long duration, @Nonnull TimeUnit timeUnit) {
+        Preconditions.checkNotNull(timeLimiter);
+        Preconditions.checkNotNull(timeUnit);
+        this.timeLimiter = timeLimiter;
+        this.duration = duration;
+        this.timeUnit = timeUnit;
+    }
+
+    /**
+     * SimpleTimeLimiter 会把 RuntimeException 包装成 UncheckedExecutionException，
+     * 不拆开的话 retryIfExceptionOfType(RemoteAccessException.class) 匹配不上 也就不会重试
+     */
+    @Override
+    public V call(Callable<V> callable) throws Exception {
+        try {
+            return timeLimiter.callWithTimeout(callable, duration, timeUnit);
+        } catch (UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.wangji92.retry.springretryexample.support.guava;
+
+import com.github.rholder.retry.Attempt;
+import com.github.rholder.retry.StopStrategy;
+import com.github.rholder.retry.WaitStrategy;
+import com.wangji92.retry.springretryexample.support.backoff.JitterBackOff;
+
+/**
+ * guava Retryer 使用的带抖动的等待策略 和 RetryTemplate 的 JitterBackOffPolicy 同一套算法
+ * <p>
+ * WaitStrategy 没办法停止重试，所以同时作为 StopStrategy：委托的策略不停止的时候先算出这一次的等待时间，
+ * 从第一次尝试开始算 超过截止时间的话直接停止，不会睡过截止时间；没停止的时候 computeSleepTime 返回刚算出来的时间
+ * {@link com.github.rholder.retry.Retryer#call}
+ * 【同一个实例需要同时设置 withWaitStrategy、withStopStrategy】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public final class JitterWaitStrategy implements WaitStrategy, StopStrategy {
+
+    /**
+     * Retryer 是共用的，每次调用都在调用线程上同步执行 上一次、这一次的等待时间放在 ThreadLocal 里面
+     */
+    private final ThreadLocal<long[]> delays = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final StopStrategy delegate;
+
+    private final JitterBackOff jitterBackOff;
+
+    private final long deadline;
+
+    /**
+     * @param delegate      原来的停止策略 例如 stopAfterAttempt
+     * @param jitterBackOff 等待时间计算
+     * @param deadline      整个调用的截止时间(毫秒) 0 不限制
+     */
+    public JitterWaitStrategy(StopStrategy delegate, JitterBackOff jitterBackOff, long deadline) {
+        this.delegate = delegate;
+        this.jitterBackOff = jitterBackOff;
+        this.deadline = deadline;
+    }
+
+    @Override
+    public boolean shouldStop(Attempt failedAttempt) {
+        if (delegate.shouldStop(failedAttempt)) {
+            return true;
+        }
+        long[] holder = delays.get();
+        if (failedAttempt.getAttemptNumber() == 1) {
+            holder[0] = 0L;
+        }
+        long delay = jitterBackOff.nextDelay((int) failedAttempt.getAttemptNumber(), holder[0]);
+        if (deadline > 0 && delay >= deadline - failedAttempt.getDelaySinceFirstAttempt()) {
+            return true;
+        }
+        holder[0] = delay;
+        holder[1] = delay;
+        return false;
+    }
+
+    @Override
+    public long computeSleepTime(Attempt failedAttempt) {
+        return delays.get()[1];
+    }
+}
@@ -0,0 +1,32 @@
+package com.wangji92.retry.springretryexample.support.guava;
+
+import com.github.rholder.retry.Attempt;
+import com.github.rholder.retry.WaitStrategy;
+import com.wangji92.retry.springretryexample.support.classify.HttpRetryClassifier;
+
+/**
+ * guava Retryer 的 Retry-After：失败的异常 或者 retryIfResult 重试的返回值 (ResponseEntity) 带了 Retry-After 的时候至少等这么久，
+ * 其他情况按委托的等待策略
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public final class RetryAfterWaitStrategy implements WaitStrategy {
+
+    private final WaitStrategy delegate;
+
+    private final HttpRetryClassifier classifier;
+
+    public RetryAfterWaitStrategy(WaitStrategy delegate, HttpRetryClassifier classifier) {
+        this.delegate = delegate;
+        this.classifier = classifier;
+    }
+
+    @Override
+    public long computeSleepTime(Attempt failedAttempt) {
+        long delay = delegate.computeSleepTime(failedAttempt);
+        long retryAfter = failedAttempt.hasException() ? classifier.retryAfterMillis(failedAttempt.getExceptionCause())
+                : classifier.resultRetryAfterMillis(failedAttempt.getResult());
+        return Math.max(delay, retryAfter);
+    }
+}
@@ -0,0 +1,44 @@
+package com.wangji92.retry.springretryexample.support.guava;
+
+import com.github.rholder.retry.Attempt;
+import com.github.rholder.retry.RetryListener;
+import com.github.rholder.retry.StopStrategy;
+import com.wangji92.retry.springretryexample.support.budget.RetryBudgetRegistry;
+
+/**
+ * guava Retryer 使用的重试预算 和 RetryBudgetPolicy 共用同一份令牌桶
+ * <p>
+ * 作为 RetryListener 每次尝试之后都会回调 第一次尝试的时候存入令牌；
+ * 作为 StopStrategy 只在需要重试的失败之后调用，委托的策略不停止的时候再取令牌，取不到就停止
+ * {@link com.github.rholder.retry.Retryer#call}
+ * 【同一个实例需要同时设置 withRetryListener、withStopStrategy】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public final class RetryBudgetStopStrategy implements StopStrategy, RetryListener {
+
+    private final StopStrategy delegate;
+
+    private final RetryBudgetRegistry retryBudgetRegistry;
+
+    private final String label;
+
+    public RetryBudgetStopStrategy(StopStrategy delegate, RetryBudgetRegistry retryBudgetRegistry, String label) {
+        this.delegate = delegate;
+        this.retryBudgetRegistry = retryBudgetRegistry;
+        this.label = label;
+    }
+
+    @Override
+    public <V> void onRetry(Attempt<V> attempt) {
+        if (attempt.getAttemptNumber() == 1) {
+            retryBudgetRegistry.onFirstAttempt(label);
+        }
+    }
+
+    @Override
+    public boolean shouldStop(Attempt failedAttempt) {
+        return delegate.shouldStop(failedAttempt) || !retryBudgetRegistry.tryAcquireRetry(label);
+    }
+}
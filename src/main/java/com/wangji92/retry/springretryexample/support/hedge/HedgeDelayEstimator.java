@@ -0,0 +1,71 @@
+package com.wangji92.retry.springretryexample.support.hedge;
+
+import com.wangji92.retry.springretryexample.support.metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 根据最近成功尝试的耗时分位数算对冲延迟
+ * <p>
+ * 两个窗口：样本记到当前窗口，满了之后当前窗口变成上一个窗口 再新开一个；
+ * 分位数用上一个完整的窗口算，还没有完整窗口的时候样本够 minSamples 用当前窗口，不够用初始延迟
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class HedgeDelayEstimator {
+
+    private final double percentile;
+
+    private final long initialDelayMicros;
+
+    private final long minDelayMicros;
+
+    private final int minSamples;
+
+    private final int window;
+
+    private volatile LatencyHistogram current = new LatencyHistogram();
+
+    private volatile LatencyHistogram previous;
+
+    public HedgeDelayEstimator(HedgeProperties properties) {
+        this.percentile = properties.getPercentile();
+        this.initialDelayMicros = TimeUnit.MILLISECONDS.toMicros(properties.getInitialDelay());
+        this.minDelayMicros = TimeUnit.MILLISECONDS.toMicros(properties.getMinDelay());
+        this.minSamples = properties.getMinSamples();
+        this.window = Math.max(properties.getWindow(), properties.getMinSamples());
+    }
+
+    /**
+     * @param micros 一次成功尝试的耗时
+     */
+    public void record(long micros) {
+        LatencyHistogram histogram = current;
+        histogram.record(micros);
+        if (histogram.getCount() >= window) {
+            rotate(histogram);
+        }
+    }
+
+    private synchronized void rotate(LatencyHistogram full) {
+        if (current == full) {
+            previous = full;
+            current = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @return 第一次尝试等待多久还没有返回就对冲 (微秒)
+     */
+    public long delayMicros() {
+        LatencyHistogram histogram = previous;
+        if (histogram == null) {
+            histogram = current;
+            if (histogram.getCount() < minSamples) {
+                return Math.max(minDelayMicros, initialDelayMicros);
+            }
+        }
+        return Math.max(minDelayMicros, histogram.percentile(percentile));
+    }
+}
@@ -0,0 +1,93 @@
+package com.wangji92.retry.springretryexample.support.hedge;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 对冲请求配置 @Retryable(interceptor = "hedgingRetryInterceptor")
+ * <pre>
+ * retry.hedge.policy=retryTestServiceHedged
+ * retry.hedge.percentile=0.95
+ * </pre>
+ * 第一次尝试超过最近成功耗时的 percentile 还没有返回，再并行发一次，哪个先成功用哪个 另一个取消
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@ConfigurationProperties(prefix = "retry.hedge")
+public class HedgeProperties {
+
+    /**
+     * registry 里面的策略 对冲之后整体仍然失败的时候按这个策略重试，对冲请求也从这个策略名称的重试预算里面取令牌
+     */
+    private String policy = "retryTestServiceHedged";
+
+    /**
+     * 超过最近成功耗时的这个分位还没有返回的时候对冲
+     */
+    private double percentile = 0.95;
+
+    /**
+     * 样本不够 minSamples 的时候使用的对冲延迟(毫秒)
+     */
+    private long initialDelay = 100;
+
+    /**
+     * 对冲延迟的下限(毫秒) 避免耗时分布很集中的时候几乎每次都对冲
+     */
+    private long minDelay = 10;
+
+    private int minSamples = 100;
+
+    /**
+     * 每个窗口的样本数 满了之后新开一个窗口，分位数用上一个完整的窗口计算 跟得上耗时的变化
+     */
+    private int window = 1000;
+
+    public String getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(String policy) {
+        this.policy = policy;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    public void setInitialDelay(long initialDelay) {
+        this.initialDelay = initialDelay;
+    }
+
+    public long getMinDelay() {
+        return minDelay;
+    }
+
+    public void setMinDelay(long minDelay) {
+        this.minDelay = minDelay;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public void setWindow(int window) {
+        this.window = window;
+    }
+}
@@ -0,0 +1,281 @@
+package com.wangji92.retry.springretryexample.support.hedge;
+
+import com.wangji92.retry.springretryexample.support.budget.RetryBudgetRegistry;
+import com.wangji92.retry.springretryexample.support.recover.RecoverDispatcher;
+import com.wangji92.retry.springretryexample.support.recover.TargetRecoverer;
+import com.wangji92.retry.springretryexample.support.timelimit.AttemptTimeLimitExecutor;
+import com.wangji92.retry.springretryexample.utils.RetryLabelUtils;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.MethodClassKey;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryOperations;
+import org.springframework.retry.interceptor.MethodInvocationRetryCallback;
+import org.springframework.retry.support.RetrySynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对冲请求的重试拦截器 通过 @Retryable(interceptor = "hedgingRetryInterceptor") 使用
+ * <p>
+ * 原来的重试只在异常之后发生，慢但是成功的调用会把整个耗时算进 p99；这里每次尝试：
+ * <ul>
+ *     <li>先发第一个请求，超过最近成功耗时的分位数 ({@link HedgeDelayEstimator}) 还没有返回，再并行发一个</li>
+ *     <li>哪个先成功用哪个，另外一个取消 (中断执行线程)；一个失败了继续等另外一个，都失败了这次尝试失败</li>
+ *     <li>第一个请求在对冲之前就失败了 直接按失败处理，不会对冲</li>
+ * </ul>
+ * 尝试失败之后按 registry 的策略重试、兜底，和 TimeLimitedRetryInterceptor 一样找当前类里面的 @Recover；
+ * 对冲请求从策略名称的重试预算里面取令牌，下游整体变慢的时候预算用完就不再对冲 不会把压力翻倍
+ * 【只适合幂等的调用，两个请求都可能到达下游】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class HedgingRetryInterceptor implements MethodInterceptor {
+
+    private final RetryOperations retryOperations;
+
+    private final AttemptTimeLimitExecutor executor;
+
+    private final HedgeProperties properties;
+
+    private final RetryBudgetRegistry retryBudgetRegistry;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Method, HedgeStats> stats = new ConcurrentHashMap<>();
+
+    private final Map<String, HedgeStats> labelStats = new ConcurrentHashMap<>();
+
+    /**
+     * 按 方法 + 目标类型 缓存；兜底的时候传入当前的目标对象 不绑定第一次见到的实例
+     */
+    private final Map<MethodClassKey, Optional<RecoverDispatcher>> recoverers = new ConcurrentHashMap<>();
+
+    /**
+     * @param retryOperations     对冲之后仍然失败的时候的重试策略
+     * @param executor            执行请求的线程 (jdk21+ 虚拟线程)
+     * @param properties          对冲配置
+     * @param retryBudgetRegistry 为 null 的时候对冲不受预算限制
+     * @param meterRegistry       为 null 的时候只在 {@link #stats()} 里面统计
+     */
+    public HedgingRetryInterceptor(RetryOperations retryOperations, AttemptTimeLimitExecutor executor, HedgeProperties properties,
+                                   RetryBudgetRegistry retryBudgetRegistry, MeterRegistry meterRegistry) {
+        this.retryOperations = retryOperations;
+        this.executor = executor;
+        this.properties = properties;
+        this.retryBudgetRegistry = retryBudgetRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (!(invocation instanceof ProxyMethodInvocation)) {
+            throw new IllegalStateException("MethodInvocation of the wrong type detected: " + invocation.getClass());
+        }
+        HedgeStats hedgeStats = stats.computeIfAbsent(invocation.getMethod(), method -> create(RetryLabelUtils.resolveLabel(invocation)));
+        String label = hedgeStats.label;
+        // 继承 MethodInvocationRetryCallback 监听器里面可以拿到方法信息
+        MethodInvocationRetryCallback<Object, Throwable> retryCallback = new MethodInvocationRetryCallback<Object, Throwable>(invocation, label) {
+            @Override
+            public Object doWithRetry(RetryContext context) throws Throwable {
+                context.setAttribute(RetryContext.NAME, label);
+                return hedgedAttempt((ProxyMethodInvocation) invocation, context, hedgeStats);
+            }
+        };
+        Object target = invocation.getThis();
+        Class<?> targetClass = AopUtils.getTargetClass(target);
+        Optional<RecoverDispatcher> dispatcher = recoverers.computeIfAbsent(new MethodClassKey(invocation.getMethod(), targetClass),
+                key -> findRecoverer(targetClass, invocation.getMethod()));
+        if (!dispatcher.isPresent()) {
+            return retryOperations.execute(retryCallback);
+        }
+        Object[] args = Arrays.copyOf(invocation.getArguments(), invocation.getArguments().length);
+        return retryOperations.execute(retryCallback, context -> TargetRecoverer.recover(target, invocation.getMethod(), args,
+                context.getLastThrowable(), dispatcher.get()));
+    }
+
+    private Object hedgedAttempt(ProxyMethodInvocation invocation, RetryContext context, HedgeStats hedgeStats) throws Throwable {
+        hedgeStats.attempts.increment();
+        CompletionService<Object> completionService = new ExecutorCompletionService<>(executor.executor());
+        Future<Object> primary = completionService.submit(attempt(invocation, context, hedgeStats));
+        Future<Object> hedge = null;
+        try {
+            Future<Object> completed = completionService.poll(hedgeStats.estimator.delayMicros(), TimeUnit.MICROSECONDS);
+            if (completed == null) {
+                if (retryBudgetRegistry == null || retryBudgetRegistry.tryAcquireRetry(properties.getPolicy())) {
+                    try {
+                        hedge = completionService.submit(attempt(invocation, context, hedgeStats));
+                        hedgeStats.hedges.increment();
+                    } catch (RejectedExecutionException e) {
+                        // 线程池满了 不对冲 接着等第一个请求，不能让异常跑到 finally 里面把正常的请求取消掉
+                        hedgeStats.executorRejected.increment();
+                        log.debug("hedge request rejected by executor label={}", hedgeStats.label);
+                    }
+                } else {
+                    hedgeStats.budgetRejected.increment();
+                }
+                completed = completionService.take();
+            }
+            int outstanding = hedge == null ? 1 : 2;
+            while (true) {
+                outstanding--;
+                try {
+                    Object result = completed.get();
+                    if (completed == hedge) {
+                        hedgeStats.hedgeWins.increment();
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    if (outstanding == 0) {
+                        throw e.getCause();
+                    }
+                    log.debug("hedged attempt failed label={}, waiting for the other one", hedgeStats.label, e.getCause());
+                }
+                completed = completionService.take();
+            }
+        } finally {
+            // 输了的那个取消 已经结束的 cancel 什么都不做
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 每个请求都要 clone，执行线程上用的是自己的拦截器链下标
+     */
+    private Callable<Object> attempt(ProxyMethodInvocation invocation, RetryContext context, HedgeStats hedgeStats) {
+        ProxyMethodInvocation attempt = (ProxyMethodInvocation) invocation.invocableClone();
+        return () -> {
+            // 重试上下文是 ThreadLocal 的，执行线程上也注册一份 里面的拦截器 (比如熔断) 可以拿到
+            RetryContext previous = RetrySynchronizationManager.register(context);
+            long start = System.nanoTime();
+            try {
+                Object result = attempt.proceed();
+                hedgeStats.estimator.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                return result;
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            } finally {
+                RetrySynchronizationManager.register(previous);
+            }
+        };
+    }
+
+    private HedgeStats create(String label) {
+        HedgeStats hedgeStats = labelStats.computeIfAbsent(label, key -> new HedgeStats(key, new HedgeDelayEstimator(properties)));
+        if (meterRegistry != null) {
+            FunctionCounter.builder("retry.hedge.attempts", hedgeStats.attempts, LongAdder::sum)
+                    .tag("label", label).register(meterRegistry);
+            FunctionCounter.builder("retry.hedge.requests", hedgeStats.hedges, LongAdder::sum)
+                    .tag("label", label).register(meterRegistry);
+            FunctionCounter.builder("retry.hedge.wins", hedgeStats.hedgeWins, LongAdder::sum)
+                    .tag("label", label).register(meterRegistry);
+            FunctionCounter.builder("retry.hedge.budget.rejected", hedgeStats.budgetRejected, LongAdder::sum)
+                    .tag("label", label).register(meterRegistry);
+            FunctionCounter.builder("retry.hedge.executor.rejected", hedgeStats.executorRejected, LongAdder::sum)
+                    .tag("label", label).register(meterRegistry);
+            TimeGauge.builder("retry.hedge.delay", hedgeStats.estimator, TimeUnit.MICROSECONDS, HedgeDelayEstimator::delayMicros)
+                    .tag("label", label).register(meterRegistry);
+        }
+        return hedgeStats;
+    }
+
+    /**
+     * @return label -> 对冲统计
+     */
+    public Map<String, HedgeStats> stats() {
+        return Collections.unmodifiableMap(labelStats);
+    }
+
+    /**
+     * 没有返回值兼容的 @Recover 方法的时候不设置兜底 原来的异常直接抛给调用方 (不变成 Cannot locate recovery method)
+     */
+    private static Optional<RecoverDispatcher> findRecoverer(Class<?> targetClass, Method method) {
+        RecoverDispatcher dispatcher = RecoverDispatcher.forMethod(targetClass, method);
+        return dispatcher.hasCandidates() ? Optional.of(dispatcher) : Optional.empty();
+    }
+
+    public static final class HedgeStats {
+
+        private final String label;
+
+        private final HedgeDelayEstimator estimator;
+
+        private final LongAdder attempts = new LongAdder();
+
+        private final LongAdder hedges = new LongAdder();
+
+        private final LongAdder hedgeWins = new LongAdder();
+
+        private final LongAdder budgetRejected = new LongAdder();
+
+        private final LongAdder executorRejected = new LongAdder();
+
+        private HedgeStats(String label, HedgeDelayEstimator estimator) {
+            this.label = label;
+            this.estimator = estimator;
+        }
+
+        public long getAttempts() {
+            return attempts.sum();
+        }
+
+        /**
+         * @return 发出的对冲请求数
+         */
+        public long getHedges() {
+            return hedges.sum();
+        }
+
+        /**
+         * @return 对冲请求先成功的次数
+         */
+        public long getHedgeWins() {
+            return hedgeWins.sum();
+        }
+
+        /**
+         * @return 该对冲的时候预算里面没有令牌的次数
+         */
+        public long getBudgetRejected() {
+            return budgetRejected.sum();
+        }
+
+        /**
+         * @return 该对冲的时候线程池满了的次数
+         */
+        public long getExecutorRejected() {
+            return executorRejected.sum();
+        }
+
+        public long getDelayMicros() {
+            return estimator.delayMicros();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.wangji92.retry.springretryexample.support.http;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHost;
+import org.apache.http.client.HttpClient;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带连接池的 RestTemplate 请求工厂 替换默认的 SimpleClientHttpRequestFactory (每次请求一个 HttpURLConnection)
+ * <p>
+ * 连接 keep-alive 复用，每个 host:port 有最大连接数，超过的请求在 connection-request-timeout 内排队；
+ * 读超时受单次尝试的时间预算约束，见 {@link PooledHttpClientProperties#getAttemptTimeout()}
+ * 【DisposableBean 关闭的时候连接池、空闲连接清理线程一起关掉】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class PooledClientHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final LongAdder openedConnections;
+
+    public PooledClientHttpRequestFactory(PooledHttpClientProperties properties) {
+        this(properties, new LongAdder());
+    }
+
+    private PooledClientHttpRequestFactory(PooledHttpClientProperties properties, LongAdder openedConnections) {
+        this(properties, openedConnections, connectionManager(properties, openedConnections));
+    }
+
+    private PooledClientHttpRequestFactory(PooledHttpClientProperties properties, LongAdder openedConnections,
+                                           PoolingHttpClientConnectionManager connectionManager) {
+        super(httpClient(properties, connectionManager));
+        this.connectionManager = connectionManager;
+        this.openedConnections = openedConnections;
+        int readTimeout = readTimeout(properties);
+        setConnectTimeout(properties.getConnectTimeout());
+        setConnectionRequestTimeout(properties.getConnectionRequestTimeout());
+        setReadTimeout(readTimeout);
+        log.info("pooled http client maxTotal={} maxPerRoute={} routes={} connectTimeout={} readTimeout={}",
+                properties.getMaxTotal(), properties.getMaxPerRoute(), properties.getRoutes(),
+                properties.getConnectTimeout(), readTimeout);
+    }
+
+    private static PoolingHttpClientConnectionManager connectionManager(PooledHttpClientProperties properties,
+                                                                        LongAdder openedConnections) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .register("https", SSLConnectionSocketFactory.getSocketFactory())
+                        .build(),
+                // 只统计新建的连接数 复用的连接不会走到这里
+                (route, config) -> {
+                    openedConnections.increment();
+                    return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+                });
+        connectionManager.setMaxTotal(properties.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(properties.getMaxPerRoute());
+        properties.getRoutes().forEach((route, max) -> connectionManager.setMaxPerRoute(route(route), max));
+        connectionManager.setValidateAfterInactivity(properties.getValidateAfterInactivity());
+        return connectionManager;
+    }
+
+    private static HttpClient httpClient(PooledHttpClientProperties properties,
+                                         PoolingHttpClientConnectionManager connectionManager) {
+        long keepAlive = properties.getKeepAlive();
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duration > 0 ? duration : keepAlive;
+        };
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictExpiredConnections()
+                .evictIdleConnections(properties.getMaxIdleTime(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * host:port 转换成和 HttpClient 路由规划一致的 HttpRoute，没有端口的时候按 scheme 补上默认端口
+     */
+    static HttpRoute route(String route) {
+        HttpHost host = HttpHost.create(route);
+        boolean secure = "https".equalsIgnoreCase(host.getSchemeName());
+        int port = host.getPort() > 0 ? host.getPort() : (secure ? 443 : 80);
+        return new HttpRoute(new HttpHost(host.getHostName(), port, host.getSchemeName()), null, secure);
+    }
+
+    /**
+     * 读超时不超过单次尝试剩下的时间预算，连接、排队的时间先扣掉
+     */
+    static int readTimeout(PooledHttpClientProperties properties) {
+        if (properties.getAttemptTimeout() <= 0) {
+            return properties.getReadTimeout();
+        }
+        long budget = properties.getAttemptTimeout() - properties.getConnectTimeout() - properties.getConnectionRequestTimeout();
+        long readTimeout = properties.getReadTimeout() > 0 ? Math.min(properties.getReadTimeout(), budget) : budget;
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, readTimeout));
+    }
+
+    /**
+     * 整个连接池 租出去的、排队等待的、空闲的连接数
+     */
+    public PoolStats getTotalStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * 每个 host:port 的连接池状态
+     */
+    public Map<String, PoolStats> getRouteStats() {
+        Map<String, PoolStats> stats = new TreeMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            stats.put(route.getTargetHost().toHostString(), connectionManager.getStats(route));
+        }
+        return stats;
+    }
+
+    /**
+     * 新建的连接总数 和请求数对比可以看出 keep-alive 的复用情况
+     */
+    public long getOpenedConnections() {
+        return openedConnections.sum();
+    }
+}
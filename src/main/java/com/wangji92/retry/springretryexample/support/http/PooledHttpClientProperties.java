@@ -0,0 +1,153 @@
+package com.wangji92.retry.springretryexample.support.http;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * RestTemplate 使用的连接池配置
+ * <pre>
+ * retry.http-client.max-total=200
+ * retry.http-client.max-per-route=20
+ * retry.http-client.routes[localhost\:8080]=50
+ * retry.http-client.attempt-timeout=${retry.time-limited-interceptor.attempt-timeout}
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@ConfigurationProperties(prefix = "retry.http-client")
+public class PooledHttpClientProperties {
+
+    /**
+     * 连接池最大连接数
+     */
+    private int maxTotal = 200;
+
+    /**
+     * 每个 host:port 默认的最大连接数
+     */
+    private int maxPerRoute = 20;
+
+    /**
+     * 单独配置的 host:port 最大连接数，key 为 host:port 或者 https://host:port (properties 文件里面冒号要转义)
+     */
+    private Map<String, Integer> routes = new LinkedHashMap<>();
+
+    /**
+     * 建立连接超时时间(毫秒)
+     */
+    private int connectTimeout = 1000;
+
+    /**
+     * 从连接池获取连接的超时时间(毫秒) 超过 max-per-route 的请求最多排队这么久
+     */
+    private int connectionRequestTimeout = 1000;
+
+    /**
+     * 读超时时间(毫秒)
+     */
+    private int readTimeout = 5000;
+
+    /**
+     * 单次尝试的时间预算(毫秒) 大于 0 时读超时不会超过 attempt-timeout - connect-timeout - connection-request-timeout，
+     * 限时的尝试放弃之后 线程上阻塞的读也会很快结束 连接还回连接池
+     */
+    private long attemptTimeout;
+
+    /**
+     * 服务端没有返回 Keep-Alive 头的时候 空闲连接保留的时间(毫秒)
+     */
+    private long keepAlive = 30000;
+
+    /**
+     * 空闲超过这个时间(毫秒)的连接由后台线程关闭
+     */
+    private long maxIdleTime = 60000;
+
+    /**
+     * 空闲超过这个时间(毫秒)的连接复用之前先检查是否可用
+     */
+    private int validateAfterInactivity = 2000;
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    public void setMaxPerRoute(int maxPerRoute) {
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    public Map<String, Integer> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(Map<String, Integer> routes) {
+        this.routes = routes;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public long getAttemptTimeout() {
+        return attemptTimeout;
+    }
+
+    public void setAttemptTimeout(long attemptTimeout) {
+        this.attemptTimeout = attemptTimeout;
+    }
+
+    public long getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(long keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public void setMaxIdleTime(long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    public void setValidateAfterInactivity(int validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+}
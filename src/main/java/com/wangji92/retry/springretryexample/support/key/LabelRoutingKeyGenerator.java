@@ -0,0 +1,113 @@
+package com.wangji92.retry.springretryexample.support.key;
+
+import com.wangji92.retry.springretryexample.utils.RetryLabelUtils;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.retry.interceptor.MethodArgumentsKeyGenerator;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 有状态重试的 key 按 @Retryable 的 label (没有 label 为 类名.方法名) 选择生成方式
+ * <p>
+ * spring retry 默认的 key 为 [label, 参数本身]，每次缓存查找都要调用参数对象的 hashCode/equals；
+ * {@link RetryKeyStrategy#RETRY_KEY} 换成参数上 @RetryKey 字段的值 (String 的 hash 算过一次就缓存在对象里面)，
+ * 不再依赖业务对象的 hashCode 实现，也不再持有参数对象
+ * <p>
+ * {@link MethodArgumentsKeyGenerator#getKey(Object[])} 只有参数，当前的方法从
+ * {@link ExposeInvocationInterceptor#currentInvocation()} 取，需要 exposeRetryInvocationAdvisor 在最外层暴露调用；
+ * 方法到生成方式的映射第一次调用的时候算好缓存起来。取不到调用 (编程方式) 的时候使用默认的生成方式
+ * 【只有一个 MethodArgumentsKeyGenerator 的 bean 时 @EnableRetry 注解的方式才会使用它】
+ * {@link org.springframework.retry.annotation.RetryConfiguration#afterPropertiesSet()}
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class LabelRoutingKeyGenerator implements MethodArgumentsKeyGenerator {
+
+    /**
+     * 和 StatefulRetryOperationsInterceptor 默认的 key 一样
+     */
+    public static final MethodArgumentsKeyGenerator ARGUMENTS = args -> args.length == 1 ? args[0] : Arrays.asList(args);
+
+    /**
+     * 参数上 @RetryKey 字段的值 一个参数的时候为字段值本身，多个参数为字段值的列表
+     */
+    public static final MethodArgumentsKeyGenerator RETRY_KEY = args -> {
+        if (args.length == 1) {
+            return RetryKeyAccessors.extract(args[0]);
+        }
+        Object[] keys = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            keys[i] = RetryKeyAccessors.extract(args[i]);
+        }
+        return Arrays.asList(keys);
+    };
+
+    private final Map<String, MethodArgumentsKeyGenerator> labelGenerators = new ConcurrentHashMap<>();
+
+    private final Map<Method, MethodArgumentsKeyGenerator> methodGenerators = new ConcurrentHashMap<>();
+
+    private final MethodArgumentsKeyGenerator defaultGenerator;
+
+    public LabelRoutingKeyGenerator(MethodArgumentsKeyGenerator defaultGenerator) {
+        this.defaultGenerator = defaultGenerator;
+    }
+
+    public LabelRoutingKeyGenerator(RetryKeyProperties properties) {
+        this(generator(properties.getDefaultStrategy()));
+        properties.getLabels().forEach((label, strategy) -> register(label, generator(strategy)));
+    }
+
+    /**
+     * 指定 label 的生成方式 需要在第一次调用之前注册
+     *
+     * @param label     @Retryable 的 label，没有 label 为 类名.方法名
+     * @param generator 返回 null 的时候不使用有状态重试的缓存
+     * @return this
+     */
+    public LabelRoutingKeyGenerator register(String label, MethodArgumentsKeyGenerator generator) {
+        labelGenerators.put(label, generator);
+        return this;
+    }
+
+    @Override
+    public Object getKey(Object[] args) {
+        MethodInvocation invocation = currentInvocation();
+        if (invocation == null) {
+            return defaultGenerator.getKey(args);
+        }
+        MethodArgumentsKeyGenerator generator = methodGenerators.get(invocation.getMethod());
+        if (generator == null) {
+            generator = methodGenerators.computeIfAbsent(invocation.getMethod(),
+                    method -> labelGenerators.getOrDefault(RetryLabelUtils.resolveLabel(invocation), defaultGenerator));
+        }
+        return generator.getKey(args);
+    }
+
+    /**
+     * 按 label 生成 key (label 已知的时候 不需要暴露调用)
+     *
+     * @param label @Retryable 的 label，没有 label 为 类名.方法名
+     * @param args  方法参数
+     * @return
+     */
+    public Object getKey(String label, Object[] args) {
+        return labelGenerators.getOrDefault(label, defaultGenerator).getKey(args);
+    }
+
+    private static MethodInvocation currentInvocation() {
+        try {
+            return ExposeInvocationInterceptor.currentInvocation();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    public static MethodArgumentsKeyGenerator generator(RetryKeyStrategy strategy) {
+        return strategy == RetryKeyStrategy.RETRY_KEY ? RETRY_KEY : ARGUMENTS;
+    }
+}
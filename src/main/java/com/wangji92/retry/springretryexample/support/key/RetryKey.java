@@ -0,0 +1,22 @@
+package com.wangji92.retry.springretryexample.support.key;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记参数对象里面唯一标识的字段 (String 或者基本类型)，有状态重试用它作为 key，不再依赖参数对象的 equals/hashCode
+ * <p>
+ * 有 getter 的时候通过 getter 读取，需要和 equals 的语义保持一致
+ * {@link RetryKeyAccessors}
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryKey {
+}
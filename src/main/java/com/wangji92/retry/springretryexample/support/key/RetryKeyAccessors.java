@@ -0,0 +1,121 @@
+package com.wangji92.retry.springretryexample.support.key;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 读取 @RetryKey 字段的访问器 每个类型第一次使用的时候生成一次，之后的读取不走反射
+ * <p>
+ * 有 public 的 getter 时用 LambdaMetafactory 生成一个直接调用 getter 的 Function (和 TextMessageDto::getMessageId 一样)，
+ * JIT 可以内联；没有 getter 或者生成失败 (getter 所在的类加载器看不到) 退化成 MethodHandle 读取字段
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public final class RetryKeyAccessors {
+
+    /**
+     * 没有 @RetryKey 字段的类型 返回参数本身
+     */
+    private static final Function<Object, Object> IDENTITY = Function.identity();
+
+    private static final Map<Class<?>, Function<Object, Object>> ACCESSORS = new ConcurrentHashMap<>();
+
+    private RetryKeyAccessors() {
+    }
+
+    /**
+     * @param argument 方法参数
+     * @return @RetryKey 字段的值；参数为 null、没有标记字段、字段值为 null 的时候为参数本身
+     */
+    public static Object extract(Object argument) {
+        if (argument == null) {
+            return null;
+        }
+        Object key = accessor(argument.getClass()).apply(argument);
+        return key != null ? key : argument;
+    }
+
+    /**
+     * @param type 参数类型
+     * @return 读取 @RetryKey 字段的访问器，没有标记字段的时候为 {@link Function#identity()}
+     */
+    public static Function<Object, Object> accessor(Class<?> type) {
+        Function<Object, Object> accessor = ACCESSORS.get(type);
+        if (accessor == null) {
+            accessor = ACCESSORS.computeIfAbsent(type, RetryKeyAccessors::create);
+        }
+        return accessor;
+    }
+
+    private static Function<Object, Object> create(Class<?> type) {
+        Field field = findRetryKeyField(type);
+        if (field == null) {
+            return IDENTITY;
+        }
+        PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(type, field.getName());
+        Method getter = descriptor != null ? descriptor.getReadMethod() : null;
+        try {
+            if (getter != null && Modifier.isPublic(getter.getModifiers()) && Modifier.isPublic(getter.getDeclaringClass().getModifiers())) {
+                return generate(getter);
+            }
+        } catch (Throwable e) {
+            // 退化成 MethodHandle
+        }
+        return fieldHandle(field);
+    }
+
+    private static Field findRetryKeyField(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.isAnnotationPresent(RetryKey.class) && !Modifier.isStatic(field.getModifiers())) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> generate(Method getter) throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle handle = lookup.unreflect(getter);
+        Class<?> keyType = ClassUtils.resolvePrimitiveIfNecessary(getter.getReturnType());
+        CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+                MethodType.methodType(Object.class, Object.class), handle,
+                MethodType.methodType(keyType, getter.getDeclaringClass()));
+        return (Function<Object, Object>) callSite.getTarget().invokeExact();
+    }
+
+    private static Function<Object, Object> fieldHandle(Field field) {
+        ReflectionUtils.makeAccessible(field);
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflectGetter(field)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("@RetryKey field is not accessible: " + field, e);
+        }
+        return argument -> {
+            try {
+                return handle.invokeExact(argument);
+            } catch (Throwable e) {
+                throw new IllegalStateException("failed to read @RetryKey field: " + field, e);
+            }
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.wangji92.retry.springretryexample.support.key;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 注解方式有状态重试的 key 生成方式 按 @Retryable 的 label 配置
+ * <pre>
+ * retry.key-generator.default-strategy=arguments
+ * retry.key-generator.labels.stateFullRetryTestSendMessage=retry-key
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@ConfigurationProperties(prefix = "retry.key-generator")
+public class RetryKeyProperties {
+
+    /**
+     * 没有配置的 label 使用的生成方式
+     */
+    private RetryKeyStrategy defaultStrategy = RetryKeyStrategy.ARGUMENTS;
+
+    /**
+     * label -> 生成方式，没有 label 的方法为 类名.方法名
+     */
+    private Map<String, RetryKeyStrategy> labels = new LinkedHashMap<>();
+
+    public RetryKeyStrategy getDefaultStrategy() {
+        return defaultStrategy;
+    }
+
+    public void setDefaultStrategy(RetryKeyStrategy defaultStrategy) {
+        this.defaultStrategy = defaultStrategy;
+    }
+
+    public Map<String, RetryKeyStrategy> getLabels() {
+        return labels;
+    }
+
+    public void setLabels(Map<String, RetryKeyStrategy> labels) {
+        this.labels = labels;
+    }
+}
@@ -0,0 +1,20 @@
+package com.wangji92.retry.springretryexample.support.key;
+
+/**
+ * 有状态重试 key 的生成方式
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public enum RetryKeyStrategy {
+
+    /**
+     * 和 spring retry 默认的一样 一个参数的时候为参数本身，多个参数为参数列表，依赖参数的 equals/hashCode
+     */
+    ARGUMENTS,
+
+    /**
+     * 参数对象上 @RetryKey 标记的字段，没有标记的参数仍然使用参数本身
+     */
+    RETRY_KEY
+}
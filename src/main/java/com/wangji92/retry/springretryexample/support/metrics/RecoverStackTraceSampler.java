@@ -0,0 +1,44 @@
+package com.wangji92.retry.springretryexample.support.metrics;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 兜底方法里面打印调用栈 看 @Recover 是怎么被调用的，只用来排查问题：
+ * 默认关闭，打开之后也只有 DEBUG 级别 按比例采样的时候才会去取线程栈
+ * <pre>
+ * retry.recover.stack-trace-sample-rate=0.01
+ * logging.level.com.wangji92.retry.springretryexample.service=debug
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class RecoverStackTraceSampler {
+
+    private final double sampleRate;
+
+    /**
+     * @param sampleRate 0 ~ 1，0 关闭
+     */
+    public RecoverStackTraceSampler(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public void sample(Logger log, String message) {
+        if (sampleRate <= 0 || !log.isDebugEnabled()) {
+            return;
+        }
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
+        StringBuilder builder = new StringBuilder(message.length() + stackTrace.length * 80).append(message);
+        // 跳过 getStackTrace、sample 自己
+        for (int i = 2; i < stackTrace.length; i++) {
+            builder.append("\n\tat ").append(stackTrace[i]);
+        }
+        log.debug(builder.toString());
+    }
+}
@@ -0,0 +1,89 @@
+package com.wangji92.retry.springretryexample.support.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个 label 的重试指标 计数都是 LongAdder，高并发下按线程分散到不同的 cell 不会争抢同一个变量
+ * 【时间的单位：退避为毫秒，整个调用的耗时为微秒】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public final class RetryLabelMetrics {
+
+    private final String label;
+
+    final LongAdder calls = new LongAdder();
+
+    final LongAdder attempts = new LongAdder();
+
+    final LongAdder failedAttempts = new LongAdder();
+
+    final LongAdder successes = new LongAdder();
+
+    final LongAdder recoveries = new LongAdder();
+
+    final LongAdder exhausted = new LongAdder();
+
+    final LongAdder backOffs = new LongAdder();
+
+    final LongAdder backOffMillis = new LongAdder();
+
+    final LatencyHistogram latency = new LatencyHistogram();
+
+    RetryLabelMetrics(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * RetryTemplate 执行的次数 有状态重试每次调用都算一次
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    public long getFailedAttempts() {
+        return failedAttempts.sum();
+    }
+
+    public long getSuccesses() {
+        return successes.sum();
+    }
+
+    /**
+     * 重试用完之后走了兜底 (@Recover、RecoveryCallback)
+     */
+    public long getRecoveries() {
+        return recoveries.sum();
+    }
+
+    /**
+     * 重试用完之后没有兜底 异常抛给了调用方
+     */
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    public long getBackOffs() {
+        return backOffs.sum();
+    }
+
+    public long getBackOffMillis() {
+        return backOffMillis.sum();
+    }
+
+    /**
+     * 从第一次尝试开始到返回(包括兜底)的耗时 微秒
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
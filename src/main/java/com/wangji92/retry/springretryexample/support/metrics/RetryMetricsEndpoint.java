@@ -0,0 +1,61 @@
+package com.wangji92.retry.springretryexample.support.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * GET /actuator/retry 所有 label 的重试指标，GET /actuator/retry/{label} 单个 label
+ * 【micrometer 的指标在 /actuator/metrics/retry.* 下面，按 label 的 tag 区分】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Endpoint(id = "retry")
+public class RetryMetricsEndpoint {
+
+    private final RetryMetricsListener retryMetricsListener;
+
+    public RetryMetricsEndpoint(RetryMetricsListener retryMetricsListener) {
+        this.retryMetricsListener = retryMetricsListener;
+    }
+
+    @ReadOperation
+    public Map<String, Object> retry() {
+        Map<String, Object> result = new TreeMap<>();
+        retryMetricsListener.labels().forEach((label, metrics) -> result.put(label, snapshot(metrics)));
+        return result;
+    }
+
+    @ReadOperation
+    public Map<String, Object> label(@Selector String label) {
+        RetryLabelMetrics metrics = retryMetricsListener.labels().get(label);
+        return metrics == null ? null : snapshot(metrics);
+    }
+
+    private static Map<String, Object> snapshot(RetryLabelMetrics metrics) {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("calls", metrics.getCalls());
+        snapshot.put("attempts", metrics.getAttempts());
+        snapshot.put("failedAttempts", metrics.getFailedAttempts());
+        snapshot.put("successes", metrics.getSuccesses());
+        snapshot.put("recoveries", metrics.getRecoveries());
+        snapshot.put("exhausted", metrics.getExhausted());
+        snapshot.put("backOffs", metrics.getBackOffs());
+        snapshot.put("backOffMillis", metrics.getBackOffMillis());
+        LatencyHistogram latency = metrics.getLatency();
+        Map<String, Object> latencyMillis = new LinkedHashMap<>();
+        latencyMillis.put("count", latency.getCount());
+        latencyMillis.put("mean", latency.getMean() / 1000);
+        latencyMillis.put("p50", latency.percentile(0.5) / 1000.0);
+        latencyMillis.put("p90", latency.percentile(0.9) / 1000.0);
+        latencyMillis.put("p99", latency.percentile(0.99) / 1000.0);
+        latencyMillis.put("max", latency.getMax() / 1000.0);
+        snapshot.put("latencyMillis", latencyMillis);
+        return snapshot;
+    }
+}
@@ -0,0 +1,271 @@
+package com.wangji92.retry.springretryexample.support.metrics;
+
+import com.wangji92.retry.springretryexample.support.budget.RetryBudgetPolicy;
+import com.wangji92.retry.springretryexample.utils.RetryLabelUtils;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.retry.interceptor.MethodInvocationRetryCallback;
+import org.springframework.retry.listener.RetryListenerSupport;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * 替换原来每次 open/close/onError 都打 INFO 日志的监听器，按 label 记录尝试、成功、兜底、退避的次数和整个调用的耗时
+ * <p>
+ * 新的 label 第一次出现的时候创建指标并注册到 micrometer，之后的记录只有 map 查找、LongAdder 累加、直方图的原子操作 不分配对象；
+ * 调用开始的时间放在线程自己的栈里面 (open/close 在同一个线程上成对调用，RetryTemplate 嵌套的时候也一样)
+ * {@link org.springframework.retry.support.RetryTemplate#doExecute}
+ * <p>
+ * label：注解方式为 @Retryable 的 label 或者 类名.方法名，RetryRegistry 的 RetryTemplate 为策略名称
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class RetryMetricsListener extends RetryListenerSupport {
+
+    private static final String DEFAULT_LABEL = "RetryTemplate";
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+
+    private final Map<Method, RetryLabelMetrics> methodMetrics = new ConcurrentHashMap<>();
+
+    private final Map<String, RetryLabelMetrics> labelMetrics = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Frames> frames = ThreadLocal.withInitial(Frames::new);
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param meterRegistry 可以为 null，为 null 的时候只在 {@link #labels()} 里面统计
+     */
+    public RetryMetricsListener(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public <T, E extends Throwable> boolean open(RetryContext context, RetryCallback<T, E> callback) {
+        RetryLabelMetrics metrics = resolve(context, callback);
+        metrics.calls.increment();
+        frames.get().push(metrics, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+        RetryLabelMetrics metrics = frames.get().peek();
+        if (metrics != null) {
+            metrics.attempts.increment();
+            metrics.failedAttempts.increment();
+        }
+    }
+
+    @Override
+    public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+        Frames current = frames.get();
+        RetryLabelMetrics metrics = current.peek();
+        long start = current.peekStart();
+        current.pop();
+        if (metrics == null) {
+            return;
+        }
+        metrics.latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        if (context.hasAttribute(RetryContext.RECOVERED)) {
+            metrics.recoveries.increment();
+        } else if (throwable == null) {
+            metrics.attempts.increment();
+            metrics.successes.increment();
+        } else if (context.hasAttribute(RetryContext.EXHAUSTED)) {
+            metrics.exhausted.increment();
+        }
+    }
+
+    /**
+     * 记录退避时间的 Sleeper 退避发生在 RetryTemplate 执行的线程上，记到当前线程最近一次 open 的 label 上
+     *
+     * @param delegate 真正休眠的 Sleeper
+     * @return
+     */
+    public Sleeper recordingSleeper(Sleeper delegate) {
+        return backOffPeriod -> {
+            RetryLabelMetrics metrics = frames.get().peek();
+            if (metrics != null) {
+                metrics.backOffs.increment();
+                metrics.backOffMillis.add(backOffPeriod);
+            }
+            delegate.sleep(backOffPeriod);
+        };
+    }
+
+    /**
+     * 不在 RetryTemplate 里面执行的调用 (reactive) 用的记录，开始、结束、退避可能在不同的线程上 不能放在线程的栈里面
+     *
+     * @param label 和注解方式的 label 一样
+     * @return 这一次调用的记录 只能结束一次
+     */
+    public AsyncRecording startAsync(String label) {
+        RetryLabelMetrics metrics = metrics(label);
+        metrics.calls.increment();
+        return new AsyncRecording(metrics, System.nanoTime());
+    }
+
+    private RetryLabelMetrics resolve(RetryContext context, RetryCallback<?, ?> callback) {
+        if (callback instanceof MethodInvocationRetryCallback) {
+            MethodInvocation invocation = ((MethodInvocationRetryCallback<?, ?>) callback).getInvocation();
+            RetryLabelMetrics metrics = methodMetrics.get(invocation.getMethod());
+            if (metrics == null) {
+                metrics = methodMetrics.computeIfAbsent(invocation.getMethod(),
+                        method -> metrics(RetryLabelUtils.resolveLabel(invocation)));
+            }
+            return metrics;
+        }
+        Object label = context.getAttribute(RetryBudgetPolicy.BUDGET_LABEL);
+        if (label == null) {
+            label = context.getAttribute(RetryContext.NAME);
+        }
+        return metrics(label instanceof String ? (String) label : DEFAULT_LABEL);
+    }
+
+    private RetryLabelMetrics metrics(String label) {
+        RetryLabelMetrics metrics = labelMetrics.get(label);
+        if (metrics == null) {
+            metrics = labelMetrics.computeIfAbsent(label, this::create);
+        }
+        return metrics;
+    }
+
+    private RetryLabelMetrics create(String label) {
+        RetryLabelMetrics metrics = new RetryLabelMetrics(label);
+        if (meterRegistry == null) {
+            return metrics;
+        }
+        counter("retry.calls", metrics, RetryLabelMetrics::getCalls);
+        counter("retry.attempts", metrics, RetryLabelMetrics::getAttempts);
+        counter("retry.attempts.failed", metrics, RetryLabelMetrics::getFailedAttempts);
+        counter("retry.successes", metrics, RetryLabelMetrics::getSuccesses);
+        counter("retry.recoveries", metrics, RetryLabelMetrics::getRecoveries);
+        counter("retry.exhausted", metrics, RetryLabelMetrics::getExhausted);
+        FunctionTimer.builder("retry.backoff", metrics, RetryLabelMetrics::getBackOffs, RetryLabelMetrics::getBackOffMillis,
+                TimeUnit.MILLISECONDS).tag("label", label).register(meterRegistry);
+        LatencyHistogram latency = metrics.getLatency();
+        FunctionTimer.builder("retry.latency", latency, LatencyHistogram::getCount, LatencyHistogram::getSum,
+                TimeUnit.MICROSECONDS).tag("label", label).register(meterRegistry);
+        TimeGauge.builder("retry.latency.max", latency, TimeUnit.MICROSECONDS, LatencyHistogram::getMax)
+                .tag("label", label).register(meterRegistry);
+        for (double percentile : PERCENTILES) {
+            TimeGauge.builder("retry.latency.percentile", latency, TimeUnit.MICROSECONDS, h -> h.percentile(percentile))
+                    .tags("label", label, "quantile", String.valueOf(percentile)).register(meterRegistry);
+        }
+        return metrics;
+    }
+
+    private void counter(String name, RetryLabelMetrics metrics, ToLongFunction<RetryLabelMetrics> count) {
+        FunctionCounter.builder(name, metrics, m -> count.applyAsLong(m)).tag("label", metrics.getLabel()).register(meterRegistry);
+    }
+
+    /**
+     * @return label -> 指标
+     */
+    public Map<String, RetryLabelMetrics> labels() {
+        return Collections.unmodifiableMap(labelMetrics);
+    }
+
+    /**
+     * 一次异步调用的记录 和 close 的计数方式一致：兜底了只算兜底，没有兜底的失败只有用完了重试次数才算 exhausted
+     */
+    public static final class AsyncRecording {
+
+        private final RetryLabelMetrics metrics;
+
+        private final long start;
+
+        private AsyncRecording(RetryLabelMetrics metrics, long start) {
+            this.metrics = metrics;
+            this.start = start;
+        }
+
+        public void attemptFailed() {
+            metrics.attempts.increment();
+            metrics.failedAttempts.increment();
+        }
+
+        public void backOff(long backOffPeriod) {
+            metrics.backOffs.increment();
+            metrics.backOffMillis.add(backOffPeriod);
+        }
+
+        public void succeeded() {
+            metrics.attempts.increment();
+            metrics.successes.increment();
+            recordLatency();
+        }
+
+        public void recovered() {
+            metrics.recoveries.increment();
+            recordLatency();
+        }
+
+        /**
+         * @param exhausted 重试次数用完了 (有状态重试失败之后抛给调用方的时候为 false)
+         */
+        public void failed(boolean exhausted) {
+            if (exhausted) {
+                metrics.exhausted.increment();
+            }
+            recordLatency();
+        }
+
+        private void recordLatency() {
+            metrics.latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * 当前线程上正在执行的 RetryTemplate 超过 MAX_DEPTH 层嵌套的只计数 不记录
+     */
+    private static final class Frames {
+
+        private static final int MAX_DEPTH = 16;
+
+        private final RetryLabelMetrics[] metrics = new RetryLabelMetrics[MAX_DEPTH];
+
+        private final long[] starts = new long[MAX_DEPTH];
+
+        private int depth;
+
+        void push(RetryLabelMetrics labelMetrics, long start) {
+            if (depth < MAX_DEPTH) {
+                metrics[depth] = labelMetrics;
+                starts[depth] = start;
+            }
+            depth++;
+        }
+
+        RetryLabelMetrics peek() {
+            return depth > 0 && depth <= MAX_DEPTH ? metrics[depth - 1] : null;
+        }
+
+        long peekStart() {
+            return depth > 0 && depth <= MAX_DEPTH ? starts[depth - 1] : 0L;
+        }
+
+        void pop() {
+            if (depth > 0) {
+                depth--;
+                if (depth < MAX_DEPTH) {
+                    metrics[depth] = null;
+                }
+            }
+        }
+    }
+}
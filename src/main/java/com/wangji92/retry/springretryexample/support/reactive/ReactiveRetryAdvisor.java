@@ -0,0 +1,65 @@
+package com.wangji92.retry.springretryexample.support.reactive;
+
+import org.aopalliance.aop.Advice;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.support.AbstractPointcutAdvisor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.StaticMethodMatcher;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+
+/**
+ * 返回 Mono/Flux 的 @Retryable 方法交给 {@link ReactiveRetryInterceptor}
+ * 【order 要比 @EnableRetry 的 RetryConfiguration 高，在最外层处理 不会再进入阻塞的重试拦截器；指定了 interceptor 的方法不处理】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@SuppressWarnings("serial")
+public class ReactiveRetryAdvisor extends AbstractPointcutAdvisor {
+
+    private final ReactiveRetryInterceptor interceptor;
+
+    private final Pointcut pointcut;
+
+    public ReactiveRetryAdvisor(ReactiveRetryInterceptor interceptor) {
+        this.interceptor = interceptor;
+        this.pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(Retryable.class, true))
+                .union(AnnotationMatchingPointcut.forMethodAnnotation(Retryable.class))
+                .intersection(new StaticMethodMatcher() {
+                    @Override
+                    public boolean matches(Method method, Class<?> targetClass) {
+                        return isReactive(method.getReturnType()) && !hasInterceptor(AopUtils.getMostSpecificMethod(method, targetClass), targetClass);
+                    }
+                });
+    }
+
+    static boolean isReactive(Class<?> returnType) {
+        return Mono.class.isAssignableFrom(returnType) || Flux.class.isAssignableFrom(returnType);
+    }
+
+    private static boolean hasInterceptor(Method method, Class<?> targetClass) {
+        Retryable retryable = AnnotatedElementUtils.findMergedAnnotation(method, Retryable.class);
+        if (retryable == null) {
+            retryable = AnnotatedElementUtils.findMergedAnnotation(targetClass, Retryable.class);
+        }
+        return retryable != null && StringUtils.hasText(retryable.interceptor());
+    }
+
+    @Override
+    public Pointcut getPointcut() {
+        return pointcut;
+    }
+
+    @Override
+    public Advice getAdvice() {
+        return interceptor;
+    }
+}
@@ -0,0 +1,354 @@
+package com.wangji92.retry.springretryexample.support.reactive;
+
+import com.wangji92.retry.springretryexample.support.backoff.BackOffJitterProperties;
+import com.wangji92.retry.springretryexample.support.backoff.JitterBackOff;
+import com.wangji92.retry.springretryexample.support.backoff.JitterMode;
+import com.wangji92.retry.springretryexample.support.budget.RetryBudgetRegistry;
+import com.wangji92.retry.springretryexample.support.key.LabelRoutingKeyGenerator;
+import com.wangji92.retry.springretryexample.support.metrics.RetryMetricsListener;
+import com.wangji92.retry.springretryexample.support.recover.RecoverDispatcher;
+import com.wangji92.retry.springretryexample.support.recover.TargetRecoverer;
+import com.wangji92.retry.springretryexample.utils.RetryLabelUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.reactivestreams.Publisher;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.retry.ExhaustedRetryException;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryPolicy;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.backoff.ExponentialBackOffPolicy;
+import org.springframework.retry.policy.RetryContextCache;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 返回 Mono/Flux 的 @Retryable 方法的重试 (由 {@link ReactiveRetryAdvisor} 织入)
+ * <p>
+ * spring retry 1.3.1 的拦截器只会重试"创建 Mono"这一步，订阅之后的异常完全不管；这里按注解的语义在订阅的时候重试：
+ * <ul>
+ *     <li>value/include/exclude、maxAttempts 和注解方式一样构建 SimpleRetryPolicy (包括异常的 cause 判断)</li>
+ *     <li>每次尝试重新调用一次目标方法拿新的 Mono/Flux，退避按 @Backoff 算 再加上全局的抖动，用 Mono.delay 等待 不占用 event loop</li>
+ *     <li>recover：和注解方式一样找 @Recover 方法，兜底方法要返回 Mono/Flux</li>
+ *     <li>stateful：每次订阅只尝试一次，失败的次数按 label + 参数放在 RetryContextCache 里面 (和注解方式共用缓存)，
+ *     次数用完之后的那一次订阅直接兜底</li>
+ *     <li>重试之前从重试预算里面取令牌，取不到直接兜底；指标记到 RetryMetricsListener 同一个 label 上</li>
+ * </ul>
+ * 【目标方法直接反射调用 后面的拦截器 (熔断、预算的 advisor) 不会经过；Flux 重试的时候已经发出去的元素会再发一次；
+ * maxAttemptsExpression 等表达式属性不支持】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class ReactiveRetryInterceptor implements MethodInterceptor {
+
+    private final RetryContextCache retryContextCache;
+
+    private final RetryBudgetRegistry retryBudgetRegistry;
+
+    private final RetryMetricsListener retryMetricsListener;
+
+    private final BackOffJitterProperties backOffJitterProperties;
+
+    private final LabelRoutingKeyGenerator keyGenerator;
+
+    private final Scheduler scheduler;
+
+    /**
+     * 注解、label、兜底方法都和目标类型有关 按 方法 + 目标类型 缓存
+     */
+    private final Map<MethodClassKey, Operation> operations = new ConcurrentHashMap<>();
+
+    /**
+     * @param retryContextCache    有状态重试的上下文
+     * @param retryBudgetRegistry  为 null 的时候不受预算限制
+     * @param retryMetricsListener 重试指标
+     * @param backOffJitterProperties 按 label 配置的抖动方式 和注解的 @Backoff 一样
+     * @param keyGenerator         有状态重试 key 里面参数部分的生成方式 和注解方式共用，为 null 的时候和 spring 默认的一样使用参数本身
+     * @param scheduler            退避之后在这里重新订阅
+     */
+    public ReactiveRetryInterceptor(RetryContextCache retryContextCache, RetryBudgetRegistry retryBudgetRegistry,
+                                    RetryMetricsListener retryMetricsListener, BackOffJitterProperties backOffJitterProperties,
+                                    LabelRoutingKeyGenerator keyGenerator, Scheduler scheduler) {
+        this.retryContextCache = retryContextCache;
+        this.retryBudgetRegistry = retryBudgetRegistry;
+        this.retryMetricsListener = retryMetricsListener;
+        this.backOffJitterProperties = backOffJitterProperties;
+        this.keyGenerator = keyGenerator;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object target = invocation.getThis();
+        MethodClassKey operationKey = new MethodClassKey(invocation.getMethod(), AopUtils.getTargetClass(target));
+        Operation operation = operations.get(operationKey);
+        if (operation == null) {
+            operation = operations.computeIfAbsent(operationKey, key -> new Operation(invocation, backOffJitterProperties));
+        }
+        Operation current = operation;
+        Object[] args = Arrays.copyOf(invocation.getArguments(), invocation.getArguments().length);
+        Flux<Object> flux = Flux.defer(() -> current.stateful ? stateful(current, target, args) : stateless(current, target, args));
+        return current.mono ? flux.singleOrEmpty() : flux;
+    }
+
+    private Flux<Object> stateless(Operation operation, Object target, Object[] args) {
+        RetryContext context = operation.retryPolicy.open(null);
+        RetryMetricsListener.AsyncRecording recording = retryMetricsListener.startAsync(operation.label);
+        if (retryBudgetRegistry != null) {
+            retryBudgetRegistry.onFirstAttempt(operation.label);
+        }
+        return attempt(operation, target, args, context, recording, new long[1])
+                .doOnComplete(recording::succeeded)
+                .onErrorResume(e -> recover(operation, target, args, e, recording));
+    }
+
+    /**
+     * 失败之后在定时器上等待退避时间 再调用一次目标方法订阅新的 Mono/Flux
+     * 【没有用 retryWhen：退避的 Mono.delay 和重新订阅之间有 request 的竞争，高并发下会 OverflowException】
+     *
+     * @param previous 上一次的退避时间 DECORRELATED 使用
+     */
+    private Flux<Object> attempt(Operation operation, Object target, Object[] args, RetryContext context,
+                                 RetryMetricsListener.AsyncRecording recording, long[] previous) {
+        return call(operation.method, target, args).onErrorResume(e -> {
+            operation.retryPolicy.registerThrowable(context, e);
+            recording.attemptFailed();
+            if (!operation.retryPolicy.canRetry(context) || !tryAcquireRetry(operation)) {
+                return Flux.error(e);
+            }
+            long delay = backOff(operation, context.getRetryCount(), previous);
+            recording.backOff(delay);
+            return Mono.delay(Duration.ofMillis(delay), scheduler)
+                    .flatMapMany(tick -> attempt(operation, target, args, context, recording, previous));
+        });
+    }
+
+    private Flux<Object> stateful(Operation operation, Object target, Object[] args) {
+        Object key = key(operation, args);
+        if (key == null) {
+            // key 生成方式返回 null 不使用有状态重试的缓存
+            return stateless(operation, target, args);
+        }
+        RetryContext cached = retryContextCache.containsKey(key) ? retryContextCache.get(key) : null;
+        RetryContext context = cached != null ? cached : operation.retryPolicy.open(null);
+        RetryMetricsListener.AsyncRecording recording = retryMetricsListener.startAsync(operation.label);
+        if (!operation.retryPolicy.canRetry(context) || (context.getRetryCount() > 0 && !tryAcquireRetry(operation))) {
+            // 上一次订阅已经用完了重试次数 这一次不再调用 直接兜底
+            retryContextCache.remove(key);
+            if (!operation.recoverer.isPresent()) {
+                recording.failed(true);
+                return Flux.error(new ExhaustedRetryException("Retry exhausted after last attempt with no recovery path",
+                        context.getLastThrowable()));
+            }
+            return recover(operation, target, args, context.getLastThrowable(), recording);
+        }
+        if (context.getRetryCount() == 0 && retryBudgetRegistry != null) {
+            retryBudgetRegistry.onFirstAttempt(operation.label);
+        }
+        return call(operation.method, target, args)
+                .doOnComplete(() -> {
+                    retryContextCache.remove(key);
+                    recording.succeeded();
+                })
+                .onErrorResume(e -> {
+                    operation.retryPolicy.registerThrowable(context, e);
+                    retryContextCache.put(key, context);
+                    recording.attemptFailed();
+                    recording.failed(false);
+                    if (!operation.retryPolicy.canRetry(context)) {
+                        return Flux.error(e);
+                    }
+                    // 和 RetryTemplate 一样 有状态的也先退避再把异常抛给调用方
+                    long delay = backOff(operation, context.getRetryCount(), new long[1]);
+                    recording.backOff(delay);
+                    return Mono.delay(Duration.ofMillis(delay), scheduler).thenMany(Flux.error(e));
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Flux<Object> call(Method method, Object target, Object[] args) {
+        return Flux.defer(() -> {
+            Object publisher;
+            try {
+                publisher = AopUtils.invokeJoinpointUsingReflection(target, method, args);
+            } catch (Throwable e) {
+                return Flux.error(e);
+            }
+            return publisher == null ? Flux.empty() : Flux.from((Publisher<Object>) publisher);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Flux<Object> recover(Operation operation, Object target, Object[] args, Throwable cause,
+                                 RetryMetricsListener.AsyncRecording recording) {
+        if (!operation.recoverer.isPresent()) {
+            recording.failed(true);
+            return Flux.error(cause);
+        }
+        Object recovered;
+        try {
+            recovered = TargetRecoverer.recover(target, operation.method, args, cause, operation.recoverer.get());
+        } catch (Throwable e) {
+            recording.failed(true);
+            return Flux.error(e);
+        }
+        recording.recovered();
+        return recovered == null ? Flux.empty() : Flux.from((Publisher<Object>) recovered);
+    }
+
+    private boolean tryAcquireRetry(Operation operation) {
+        if (retryBudgetRegistry == null || retryBudgetRegistry.tryAcquireRetry(operation.label)) {
+            return true;
+        }
+        log.debug("retry budget exhausted label={}", operation.label);
+        return false;
+    }
+
+    /**
+     * 和 StatefulRetryOperationsInterceptor 一样 [label 或者方法签名, 参数部分]，参数部分按 label 走 {@link LabelRoutingKeyGenerator}
+     *
+     * @return 参数部分生成 null 的时候返回 null
+     */
+    private Object key(Operation operation, Object[] args) {
+        Object argumentsKey = keyGenerator != null ? keyGenerator.getKey(operation.label, args)
+                : LabelRoutingKeyGenerator.ARGUMENTS.getKey(args);
+        return argumentsKey == null ? null : Arrays.asList(operation.keyName, argumentsKey);
+    }
+
+    /**
+     * @param retryCount 已经失败的次数 从 1 开始
+     * @param previous   上一次的退避时间 DECORRELATED 使用
+     */
+    private long backOff(Operation operation, int retryCount, long[] previous) {
+        long ceiling = operation.ceiling(retryCount);
+        long delay = operation.jitterBackOff == null ? ceiling : operation.jitterBackOff.jitter(ceiling, previous[0]);
+        previous[0] = delay;
+        return delay;
+    }
+
+    /**
+     * 一个 @Retryable 方法解析好的注解属性 每次调用共用
+     */
+    private static final class Operation {
+
+        private final Method method;
+
+        private final String label;
+
+        /**
+         * 有状态重试 key 里面的名称 和 StatefulRetryOperationsInterceptor 一样：label 或者方法签名
+         */
+        private final String keyName;
+
+        private final boolean mono;
+
+        private final boolean stateful;
+
+        private final RetryPolicy retryPolicy;
+
+        private final long delay;
+
+        private final long maxDelay;
+
+        private final double multiplier;
+
+        private final boolean random;
+
+        /**
+         * 不抖动的时候为 null 直接使用注解上的退避时间
+         */
+        private final JitterBackOff jitterBackOff;
+
+        /**
+         * 只缓存兜底方法的查找结果 兜底时传入这一次调用的目标对象
+         */
+        private final Optional<RecoverDispatcher> recoverer;
+
+        private Operation(MethodInvocation invocation, BackOffJitterProperties backOffJitterProperties) {
+            Object target = invocation.getThis();
+            this.method = invocation.getMethod();
+            Retryable retryable = AnnotatedElementUtils.findMergedAnnotation(method, Retryable.class);
+            if (retryable == null) {
+                retryable = AnnotatedElementUtils.findMergedAnnotation(AopUtils.getTargetClass(target), Retryable.class);
+            }
+            this.label = RetryLabelUtils.resolveLabel(invocation);
+            this.keyName = StringUtils.hasText(retryable.label()) ? retryable.label() : method.toGenericString();
+            this.mono = Mono.class.isAssignableFrom(method.getReturnType());
+            this.stateful = retryable.stateful();
+            this.retryPolicy = retryPolicy(retryable);
+            Backoff backoff = retryable.backoff();
+            this.delay = backoff.delay() == 0 ? backoff.value() : backoff.delay();
+            this.maxDelay = backoff.maxDelay();
+            this.multiplier = backoff.multiplier();
+            this.random = backoff.random();
+            JitterMode jitter = backOffJitterProperties.jitter(label);
+            this.jitterBackOff = jitter == JitterMode.NONE ? null : new JitterBackOff(jitter, 0, backOffJitterProperties.getMaxDelay(), 1);
+            this.recoverer = findRecoverer(AopUtils.getTargetClass(target), method);
+        }
+
+        /**
+         * 和 AnnotationAwareRetryOperationsInterceptor#getRetryPolicy 一样 只是不支持表达式
+         */
+        private static RetryPolicy retryPolicy(Retryable retryable) {
+            Class<? extends Throwable>[] includes = retryable.value().length > 0 ? retryable.value() : retryable.include();
+            Class<? extends Throwable>[] excludes = retryable.exclude();
+            if (includes.length == 0 && excludes.length == 0) {
+                SimpleRetryPolicy simple = new SimpleRetryPolicy();
+                simple.setMaxAttempts(retryable.maxAttempts());
+                return simple;
+            }
+            Map<Class<? extends Throwable>, Boolean> policyMap = new HashMap<>();
+            for (Class<? extends Throwable> type : includes) {
+                policyMap.put(type, true);
+            }
+            for (Class<? extends Throwable> type : excludes) {
+                policyMap.put(type, false);
+            }
+            return new SimpleRetryPolicy(retryable.maxAttempts(), policyMap, true, includes.length == 0);
+        }
+
+        /**
+         * 没有抖动时第 retryCount 次重试的退避时间 和 @Backoff 创建的几种退避策略一致
+         */
+        private long ceiling(int retryCount) {
+            if (multiplier > 0) {
+                long max = maxDelay > delay ? maxDelay : ExponentialBackOffPolicy.DEFAULT_MAX_INTERVAL;
+                double interval = Math.min(max, delay * Math.pow(multiplier, retryCount - 1));
+                if (random) {
+                    interval = interval * (1 + ThreadLocalRandom.current().nextDouble() * (multiplier - 1));
+                }
+                return (long) Math.min(max, interval);
+            }
+            if (maxDelay > delay) {
+                return ThreadLocalRandom.current().nextLong(delay, maxDelay + 1);
+            }
+            return delay;
+        }
+
+        /**
+         * 没有返回值兼容的 @Recover 方法的时候不设置兜底 异常直接给订阅方
+         */
+        private static Optional<RecoverDispatcher> findRecoverer(Class<?> targetClass, Method method) {
+            RecoverDispatcher dispatcher = RecoverDispatcher.forMethod(targetClass, method);
+            return dispatcher.hasCandidates() ? Optional.of(dispatcher) : Optional.empty();
+        }
+    }
+}
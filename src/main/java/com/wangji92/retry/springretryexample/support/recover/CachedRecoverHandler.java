@@ -0,0 +1,35 @@
+package com.wangji92.retry.springretryexample.support.recover;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.retry.interceptor.MethodInvocationRecoverer;
+
+import java.lang.reflect.Method;
+
+/**
+ * 替换 {@link org.springframework.retry.annotation.RecoverAnnotationRecoveryHandler}，兜底方法按异常类型匹配一次之后缓存，
+ * 调用不走 Method.invoke {@link RecoverDispatcher}
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class CachedRecoverHandler<T> implements MethodInvocationRecoverer<T> {
+
+    private final Object target;
+
+    private final RecoverDispatcher dispatcher;
+
+    /**
+     * @param target 目标对象 (不是代理)
+     * @param method @Retryable 方法
+     */
+    public CachedRecoverHandler(Object target, Method method) {
+        this.target = target;
+        this.dispatcher = RecoverDispatcher.forMethod(AopUtils.getTargetClass(target), method);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T recover(Object[] args, Throwable cause) {
+        return (T) dispatcher.recover(target, args, cause);
+    }
+}
@@ -0,0 +1,23 @@
+package com.wangji92.retry.springretryexample.support.recover;
+
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.retry.interceptor.MethodInvocationRecoverer;
+
+/**
+ * @EnableRetry 注解的方式 目标对象实现了 MethodInvocationRecoverer 的时候直接用目标对象兜底，不再创建 RecoverAnnotationRecoveryHandler
+ * {@link org.springframework.retry.annotation.AnnotationAwareRetryOperationsInterceptor#getDelegate}
+ * <p>
+ * 有 @Recover 方法的服务实现这个接口，兜底的时候从 {@link ExposeInvocationInterceptor#currentInvocation()} 取当前的 @Retryable 方法
+ * (需要 exposeRetryInvocationAdvisor)，交给这个方法的 {@link RecoverDispatcher}；@Recover 方法的写法不变
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public interface CachedRecoverer extends MethodInvocationRecoverer<Object> {
+
+    @Override
+    default Object recover(Object[] args, Throwable cause) {
+        return RecoverDispatcher.forMethod(getClass(), ExposeInvocationInterceptor.currentInvocation().getMethod())
+                .recover(this, args, cause);
+    }
+}
@@ -0,0 +1,26 @@
+package com.wangji92.retry.springretryexample.support.recover;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.retry.interceptor.MethodInvocationRecoverer;
+
+/**
+ * 给 RetryInterceptorBuilder 构建的拦截器用 (@Retryable(interceptor = "...") 的时候注解上的 recover 不生效)，
+ * 从 {@link ExposeInvocationInterceptor#currentInvocation()} 取当前调用的目标对象和 @Retryable 方法，
+ * 和注解方式一样交给 {@link TargetRecoverer}：目标对象实现了 CachedRecoverer 的时候交给它，
+ * 其他的交给这个方法的 {@link RecoverDispatcher} 找当前类里面的 @Recover (需要 exposeRetryInvocationAdvisor)
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class ExposedInvocationRecoverer implements MethodInvocationRecoverer<Object> {
+
+    @Override
+    public Object recover(Object[] args, Throwable cause) {
+        MethodInvocation invocation = ExposeInvocationInterceptor.currentInvocation();
+        Object target = invocation.getThis();
+        return TargetRecoverer.recover(target, invocation.getMethod(), args, cause,
+                RecoverDispatcher.forMethod(AopUtils.getTargetClass(target), invocation.getMethod()));
+    }
+}
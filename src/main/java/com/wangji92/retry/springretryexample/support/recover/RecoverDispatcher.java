@@ -0,0 +1,326 @@
+package com.wangji92.retry.springretryexample.support.recover;
+
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.retry.ExhaustedRetryException;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一个 @Retryable 方法的兜底分发，匹配规则和 {@link org.springframework.retry.annotation.RecoverAnnotationRecoveryHandler} 一样：
+ * <ul>
+ *     <li>返回值能接收 @Retryable 方法的返回值，有返回值完全一样的 @Recover 方法时只用这些</li>
+ *     <li>指定了 recover 的时候按名称找 第一个参数能接收异常、参数个数和类型都匹配的方法</li>
+ *     <li>没有指定的时候找异常类型距离最近的，距离一样的优先参数匹配的</li>
+ * </ul>
+ * 区别在于 spring 每次兜底都要遍历所有的 @Recover 方法、算继承距离、比较参数、分配参数数组、Method.invoke，
+ * 这里按异常的类型只匹配一次 缓存起来；参数按 @Retryable 方法声明的类型比较 (不看运行时参数的实际类型)。
+ * <p>
+ * 调用：public 的方法用 LambdaMetafactory 生成直接调用的类 (异常 + 最多 3 个参数)，参数直接传 不分配数组；
+ * 其他的 (非 public、参数更多、void) 退化成 MethodHandle。兜底方法抛出的受检异常和 spring 一样包装成 UndeclaredThrowableException
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public final class RecoverDispatcher {
+
+    private static final Map<MethodClassKey, RecoverDispatcher> DISPATCHERS = new ConcurrentHashMap<>();
+
+    /**
+     * 没有匹配的 @Recover 方法
+     */
+    private static final Invoker NO_MATCH = (target, cause, args) -> {
+        throw new ExhaustedRetryException("Cannot locate recovery method", cause);
+    };
+
+    private final List<Candidate> candidates;
+
+    private final String recoverMethodName;
+
+    private final Map<Class<?>, Invoker> resolved = new ConcurrentHashMap<>();
+
+    private RecoverDispatcher(Class<?> targetClass, Method failingMethod) {
+        Retryable retryable = AnnotatedElementUtils.findMergedAnnotation(failingMethod, Retryable.class);
+        this.recoverMethodName = retryable != null ? retryable.recover() : null;
+        List<Candidate> assignable = new ArrayList<>();
+        List<Candidate> exact = new ArrayList<>();
+        ReflectionUtils.doWithMethods(targetClass, method -> {
+            if (AnnotationUtils.findAnnotation(method, Recover.class) == null
+                    || !method.getReturnType().isAssignableFrom(failingMethod.getReturnType())) {
+                return;
+            }
+            Candidate candidate = new Candidate(method, failingMethod.getParameterTypes());
+            assignable.add(candidate);
+            if (method.getReturnType() == failingMethod.getReturnType()) {
+                exact.add(candidate);
+            }
+        });
+        this.candidates = exact.isEmpty() ? assignable : exact;
+    }
+
+    /**
+     * @param targetClass   目标对象的类型 (不是代理)
+     * @param failingMethod @Retryable 方法
+     * @return 第一次调用的时候扫描 @Recover 方法，之后复用
+     */
+    public static RecoverDispatcher forMethod(Class<?> targetClass, Method failingMethod) {
+        MethodClassKey key = new MethodClassKey(failingMethod, targetClass);
+        RecoverDispatcher dispatcher = DISPATCHERS.get(key);
+        if (dispatcher == null) {
+            dispatcher = DISPATCHERS.computeIfAbsent(key, k -> new RecoverDispatcher(targetClass, failingMethod));
+        }
+        return dispatcher;
+    }
+
+    /**
+     * @return 有可以用来兜底的 @Recover 方法
+     */
+    public boolean hasCandidates() {
+        return !candidates.isEmpty();
+    }
+
+    /**
+     * @param target 目标对象
+     * @param args   @Retryable 方法的参数
+     * @param cause  最后一次的异常
+     * @return 兜底方法的返回值
+     */
+    public Object recover(Object target, Object[] args, Throwable cause) {
+        Invoker invoker = resolved.get(cause.getClass());
+        if (invoker == null) {
+            invoker = resolved.computeIfAbsent(cause.getClass(), this::resolve);
+        }
+        try {
+            return invoker.invoke(target, cause, args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    private Invoker resolve(Class<?> causeType) {
+        boolean named = StringUtils.hasText(recoverMethodName);
+        Candidate best = null;
+        int min = Integer.MAX_VALUE;
+        for (Candidate candidate : candidates) {
+            if (!candidate.exceptionType.isAssignableFrom(causeType)) {
+                continue;
+            }
+            if (named) {
+                if (candidate.method.getName().equals(recoverMethodName) && candidate.parametersMatch) {
+                    best = candidate;
+                    break;
+                }
+                continue;
+            }
+            int distance = distance(causeType, candidate.exceptionType);
+            if (distance < min || (distance == min && candidate.parametersMatch)) {
+                min = distance;
+                best = candidate;
+            }
+        }
+        return best == null ? NO_MATCH : best.invoker();
+    }
+
+    private static int distance(Class<?> cause, Class<?> type) {
+        int result = 0;
+        Class<?> current = cause;
+        while (current != type && current != Throwable.class) {
+            result++;
+            current = current.getSuperclass();
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    interface Invoker {
+
+        Object invoke(Object target, Throwable cause, Object[] args) throws Throwable;
+    }
+
+    @FunctionalInterface
+    interface Arity0 {
+
+        Object invoke(Object target);
+    }
+
+    @FunctionalInterface
+    interface Arity1 {
+
+        Object invoke(Object target, Object p0);
+    }
+
+    @FunctionalInterface
+    interface Arity2 {
+
+        Object invoke(Object target, Object p0, Object p1);
+    }
+
+    @FunctionalInterface
+    interface Arity3 {
+
+        Object invoke(Object target, Object p0, Object p1, Object p2);
+    }
+
+    @FunctionalInterface
+    interface Arity4 {
+
+        Object invoke(Object target, Object p0, Object p1, Object p2, Object p3);
+    }
+
+    private static final class Candidate {
+
+        private final Method method;
+
+        /**
+         * 第一个参数不是异常的时候为 Throwable，只有 exceptionParameter 为 true 的时候才把异常传进去
+         */
+        private final Class<?> exceptionType;
+
+        private final boolean exceptionParameter;
+
+        /**
+         * 和 spring 的 compareParameters 一样 参数个数为 @Retryable 方法的参数个数 + 1，后面的参数能接收对应的参数
+         */
+        private final boolean parametersMatch;
+
+        private volatile Invoker invoker;
+
+        Candidate(Method method, Class<?>[] failingParameterTypes) {
+            this.method = method;
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            this.exceptionParameter = parameterTypes.length > 0 && Throwable.class.isAssignableFrom(parameterTypes[0]);
+            this.exceptionType = exceptionParameter ? parameterTypes[0] : Throwable.class;
+            boolean match = parameterTypes.length == failingParameterTypes.length + 1;
+            for (int i = exceptionParameter ? 1 : 0; match && i < parameterTypes.length; i++) {
+                int index = exceptionParameter ? i - 1 : i;
+                match = index >= failingParameterTypes.length
+                        || ClassUtils.isAssignable(parameterTypes[i], failingParameterTypes[index]);
+            }
+            this.parametersMatch = match;
+        }
+
+        Invoker invoker() {
+            if (invoker == null) {
+                invoker = create();
+            }
+            return invoker;
+        }
+
+        /**
+         * 和 spring 的 getArgs 一样：有异常参数的时候第一个为异常，后面按顺序从 @Retryable 方法的参数里面取，不够的为 null
+         */
+        private Invoker create() {
+            int count = method.getParameterCount();
+            int offset = exceptionParameter ? 1 : 0;
+            try {
+                if (Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(method.getDeclaringClass().getModifiers())
+                        && method.getReturnType() != void.class && count <= 4) {
+                    Object function = generate(method, count);
+                    switch (count) {
+                        case 0: {
+                            Arity0 arity0 = (Arity0) function;
+                            return (target, cause, args) -> arity0.invoke(target);
+                        }
+                        case 1: {
+                            Arity1 arity1 = (Arity1) function;
+                            return exceptionParameter ? (target, cause, args) -> arity1.invoke(target, cause)
+                                    : (target, cause, args) -> arity1.invoke(target, arg(args, 0));
+                        }
+                        case 2: {
+                            Arity2 arity2 = (Arity2) function;
+                            return (target, cause, args) -> arity2.invoke(target,
+                                    exceptionParameter ? cause : arg(args, 0), arg(args, 1 - offset));
+                        }
+                        case 3: {
+                            Arity3 arity3 = (Arity3) function;
+                            return (target, cause, args) -> arity3.invoke(target,
+                                    exceptionParameter ? cause : arg(args, 0), arg(args, 1 - offset), arg(args, 2 - offset));
+                        }
+                        default: {
+                            Arity4 arity4 = (Arity4) function;
+                            return (target, cause, args) -> arity4.invoke(target,
+                                    exceptionParameter ? cause : arg(args, 0), arg(args, 1 - offset), arg(args, 2 - offset),
+                                    arg(args, 3 - offset));
+                        }
+                    }
+                }
+            } catch (Throwable e) {
+                // 生成失败 (目标类的类加载器看不到之类的) 退化成 MethodHandle
+            }
+            ReflectionUtils.makeAccessible(method);
+            MethodHandle handle;
+            try {
+                handle = MethodHandles.lookup().unreflect(method)
+                        .asType(MethodType.genericMethodType(count + 1))
+                        .asSpreader(Object[].class, count + 1);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("@Recover method is not accessible: " + method, e);
+            }
+            return (target, cause, args) -> {
+                Object[] arguments = new Object[count + 1];
+                arguments[0] = target;
+                if (exceptionParameter) {
+                    arguments[1] = cause;
+                }
+                for (int i = offset; i < count; i++) {
+                    arguments[i + 1] = arg(args, i - offset);
+                }
+                return handle.invoke(arguments);
+            };
+        }
+
+        private static Object arg(Object[] args, int index) {
+            return index < args.length ? args[index] : null;
+        }
+
+        private static Object generate(Method method, int count) throws Throwable {
+            Class<?> functionType;
+            switch (count) {
+                case 0:
+                    functionType = Arity0.class;
+                    break;
+                case 1:
+                    functionType = Arity1.class;
+                    break;
+                case 2:
+                    functionType = Arity2.class;
+                    break;
+                case 3:
+                    functionType = Arity3.class;
+                    break;
+                default:
+                    functionType = Arity4.class;
+            }
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            Class<?>[] instantiated = new Class<?>[count + 1];
+            instantiated[0] = method.getDeclaringClass();
+            for (int i = 0; i < count; i++) {
+                instantiated[i + 1] = ClassUtils.resolvePrimitiveIfNecessary(parameterTypes[i]);
+            }
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            CallSite callSite = LambdaMetafactory.metafactory(lookup, "invoke", MethodType.methodType(functionType),
+                    MethodType.genericMethodType(count + 1), lookup.unreflect(method),
+                    MethodType.methodType(ClassUtils.resolvePrimitiveIfNecessary(method.getReturnType()), instantiated));
+            return callSite.getTarget().invoke();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.wangji92.retry.springretryexample.support.recover;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.retry.interceptor.MethodInvocationRecoverer;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * 自定义拦截器 (限时、对冲、批量、响应式、舱壁、RetryInterceptorBuilder 构建的) 统一的兜底入口，和注解方式一样：
+ * 目标对象实现了 MethodInvocationRecoverer (CachedRecoverer) 的时候交给它 (兜底缓存、死信队列照常生效)，
+ * 其他的交给 {@link RecoverDispatcher} 找 @Recover 方法
+ * <p>
+ * 兜底缓存、死信队列从 {@link ExposeInvocationInterceptor#currentInvocation()} 取当前调用，
+ * 交给目标对象之前把这一次的调用暴露出来 (响应式的兜底在调度线程上 没有 exposeRetryInvocationAdvisor 暴露的调用)
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public final class TargetRecoverer {
+
+    private TargetRecoverer() {
+    }
+
+    /**
+     * @param target     目标对象 (不是代理)
+     * @param method     @Retryable 方法
+     * @param args       @Retryable 方法的参数
+     * @param cause      最后一次的异常
+     * @param dispatcher 目标对象没有实现 MethodInvocationRecoverer 的时候使用
+     * @return 兜底的返回值
+     */
+    @SuppressWarnings("unchecked")
+    public static Object recover(Object target, Method method, Object[] args, Throwable cause, RecoverDispatcher dispatcher) {
+        if (!(target instanceof MethodInvocationRecoverer)) {
+            return dispatcher.recover(target, args, cause);
+        }
+        MethodInvocationRecoverer<Object> recoverer = (MethodInvocationRecoverer<Object>) target;
+        try {
+            return ExposeInvocationInterceptor.INSTANCE.invoke(new RecoverInvocation(target, method, args) {
+                @Override
+                public Object proceed() {
+                    return recoverer.recover(args, cause);
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    /**
+     * 只用来暴露 目标对象、方法、参数，proceed 执行兜底
+     */
+    private abstract static class RecoverInvocation implements MethodInvocation {
+
+        private final Object target;
+
+        private final Method method;
+
+        private final Object[] args;
+
+        private RecoverInvocation(Object target, Method method, Object[] args) {
+            this.target = target;
+            this.method = method;
+            this.args = args;
+        }
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        @Override
+        public Object[] getArguments() {
+            return args;
+        }
+
+        @Override
+        public Object getThis() {
+            return target;
+        }
+
+        @Override
+        public AccessibleObject getStaticPart() {
+            return method;
+        }
+    }
+}
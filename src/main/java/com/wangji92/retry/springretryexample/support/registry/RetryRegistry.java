@@ -0,0 +1,353 @@
+package com.wangji92.retry.springretryexample.support.registry;
+
+import com.github.rholder.retry.Retryer;
+import com.github.rholder.retry.RetryerBuilder;
+import com.github.rholder.retry.StopStrategies;
+import com.github.rholder.retry.StopStrategy;
+import com.github.rholder.retry.WaitStrategies;
+import com.wangji92.retry.springretryexample.support.adaptive.AdaptiveBackOffPolicy;
+import com.wangji92.retry.springretryexample.support.adaptive.AdaptiveRetryPolicy;
+import com.wangji92.retry.springretryexample.support.adaptive.DownstreamHealthRegistry;
+import com.wangji92.retry.springretryexample.support.backoff.JitterBackOff;
+import com.wangji92.retry.springretryexample.support.backoff.JitterBackOffPolicy;
+import com.wangji92.retry.springretryexample.support.budget.RetryBudgetPolicy;
+import com.wangji92.retry.springretryexample.support.budget.RetryBudgetRegistry;
+import com.wangji92.retry.springretryexample.support.classify.HttpRetryClassifier;
+import com.wangji92.retry.springretryexample.support.classify.HttpRetryPolicy;
+import com.wangji92.retry.springretryexample.support.classify.RetryAfterBackOffPolicy;
+import com.wangji92.retry.springretryexample.support.guava.ExecutorAttemptTimeLimit;
+import com.wangji92.retry.springretryexample.support.guava.JitterWaitStrategy;
+import com.wangji92.retry.springretryexample.support.guava.RetryAfterWaitStrategy;
+import com.wangji92.retry.springretryexample.support.guava.RetryBudgetStopStrategy;
+import com.wangji92.retry.springretryexample.support.timelimit.AttemptTimeLimitExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.classify.Classifier;
+import org.springframework.retry.RetryListener;
+import org.springframework.retry.RetryPolicy;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.retry.backoff.ThreadWaitSleeper;
+import org.springframework.retry.policy.RetryContextCache;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.retry.support.RetryTemplateBuilder;
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 命名的重试策略 启动的时候按配置构建好 RetryTemplate 和 guava Retryer，之后每次调用直接复用
+ * <p>
+ * RetryTemplate、Retryer 本身是线程安全的 每次调用的状态都在 RetryContext / 方法栈里面，不需要每次 new；
+ * guava 单次尝试限时共用一个 {@link AttemptTimeLimitExecutor} (虚拟线程 或 有界的线程池)，跟着 registry 一起关闭，
+ * 不会再出现每次 new 一个线程池泄漏线程的问题；有重试预算的时候 两种方式都按策略名称共用同一份预算，
+ * 退避的抖动、截止时间两种方式也是同一套算法 {@link JitterBackOff}
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class RetryRegistry {
+
+    private final Map<String, RetryTemplate> retryTemplates;
+
+    private final Map<String, Retryer<?>> guavaRetryers;
+
+    private final Map<String, Classifier<Throwable, Boolean>> retryableClassifiers;
+
+    private final AttemptTimeLimitExecutor timeLimiterExecutor;
+
+    /**
+     * @param properties 命名的策略以及限时线程池的配置
+     * @return 按需设置可选组件 最后 build
+     */
+    public static Builder builder(RetryRegistryProperties properties) {
+        return new Builder(properties);
+    }
+
+    private RetryRegistry(Builder builder) {
+        RetryRegistryProperties properties = builder.properties;
+        List<RetryListener> listeners = builder.listeners;
+        RetryContextCache retryContextCache = builder.retryContextCache;
+        RetryBudgetRegistry retryBudgetRegistry = builder.retryBudgetRegistry;
+        Sleeper sleeper = builder.sleeper;
+        DownstreamHealthRegistry downstreamHealthRegistry = builder.downstreamHealthRegistry;
+        HttpRetryClassifier httpRetryClassifier = builder.httpRetryClassifier;
+        RetryRegistryProperties.TimeLimiter timeLimiter = properties.getTimeLimiter();
+        this.timeLimiterExecutor = new AttemptTimeLimitExecutor(timeLimiter.isVirtualThreads(),
+                timeLimiter.getThreads(), timeLimiter.getQueueCapacity());
+
+        Map<String, RetryTemplate> templates = new LinkedHashMap<>();
+        Map<String, Retryer<?>> retryers = new LinkedHashMap<>();
+        Map<String, Classifier<Throwable, Boolean>> classifiers = new LinkedHashMap<>();
+        properties.getPolicies().forEach((name, policy) -> {
+            HttpRetryClassifier classifier = policy.isHttpClassified() ? httpRetryClassifier : null;
+            templates.put(name, buildRetryTemplate(name, policy, listeners, retryContextCache, retryBudgetRegistry,
+                    sleeper != null ? sleeper : new ThreadWaitSleeper(), policy.isAdaptive() ? downstreamHealthRegistry : null, classifier));
+            retryers.put(name, buildGuavaRetryer(name, policy, retryBudgetRegistry, classifier));
+            if (classifier != null) {
+                classifiers.put(name, classifier::isRetryable);
+            } else {
+                classifiers.put(name, policy.getRetryOn().isEmpty() ? throwable -> true : throwable -> shouldRetry(policy, throwable));
+            }
+            log.info("retry policy registered name={} maxAttempts={} backOffPeriod={} jitter={} deadline={} attemptTimeout={} retryOn={} adaptive={} httpClassified={}",
+                    name, policy.getMaxAttempts(), policy.getBackOffPeriod(), policy.getJitter(), policy.getDeadline(),
+                    policy.getAttemptTimeout(), policy.getRetryOn(), policy.isAdaptive() && downstreamHealthRegistry != null, classifier != null);
+        });
+        this.retryTemplates = Collections.unmodifiableMap(templates);
+        this.guavaRetryers = Collections.unmodifiableMap(retryers);
+        this.retryableClassifiers = Collections.unmodifiableMap(classifiers);
+    }
+
+    private static RetryTemplate buildRetryTemplate(String name, RetryRegistryProperties.Policy policy, List<RetryListener> listeners,
+                                                    RetryContextCache retryContextCache, RetryBudgetRegistry retryBudgetRegistry,
+                                                    Sleeper sleeper, DownstreamHealthRegistry downstreamHealthRegistry,
+                                                    HttpRetryClassifier httpRetryClassifier) {
+        RetryPolicy retryPolicy = httpRetryClassifier != null ? new HttpRetryPolicy(policy.getMaxAttempts(), httpRetryClassifier)
+                : buildRetryPolicy(policy);
+        if (downstreamHealthRegistry != null) {
+            retryPolicy = new AdaptiveRetryPolicy(retryPolicy, policy.getMaxAttempts(), downstreamHealthRegistry);
+        }
+        if (retryBudgetRegistry != null) {
+            retryPolicy = new RetryBudgetPolicy(retryPolicy, retryBudgetRegistry, name);
+        }
+        RetryTemplateBuilder builder = RetryTemplate.builder();
+        if (downstreamHealthRegistry != null) {
+            // 配置的 back-off-period 为 0 的时候 也会按下游的耗时、错误率退避
+            builder.customBackoff(new AdaptiveBackOffPolicy(jitterBackOff(policy), policy.getDeadline(), downstreamHealthRegistry, sleeper));
+        } else if (httpRetryClassifier != null) {
+            // 配置的 back-off-period 为 0 的时候 也要按 Retry-After 等待
+            builder.customBackoff(new RetryAfterBackOffPolicy(jitterBackOff(policy), policy.getDeadline(), httpRetryClassifier, sleeper));
+        } else if (hasBackOff(policy)) {
+            builder.customBackoff(new JitterBackOffPolicy(jitterBackOff(policy), policy.getDeadline(), sleeper));
+        } else {
+            builder.noBackoff();
+        }
+        if (!listeners.isEmpty()) {
+            builder.withListeners(listeners);
+        }
+        RetryTemplate retryTemplate = builder.build();
+        // builder 的 customPolicy 会再套一层默认的异常分类 这里直接替换
+        retryTemplate.setRetryPolicy(retryPolicy);
+        // 只有传了 RetryState 的有状态调用才会用到
+        if (retryContextCache != null) {
+            retryTemplate.setRetryContextCache(retryContextCache);
+        }
+        return retryTemplate;
+    }
+
+    private static boolean hasBackOff(RetryRegistryProperties.Policy policy) {
+        return policy.getBackOffPeriod() > 0 || policy.getDeadline() > 0;
+    }
+
+    private static JitterBackOff jitterBackOff(RetryRegistryProperties.Policy policy) {
+        return new JitterBackOff(policy.getJitter(), policy.getBackOffPeriod(), policy.getMaxBackOffPeriod(), policy.getMultiplier());
+    }
+
+    /**
+     * 和 RetryTemplateBuilder 的 maxAttempts + retryOn (+ traversingCauses) 一样，自己创建是为了能在外面包一层预算
+     */
+    private static RetryPolicy buildRetryPolicy(RetryRegistryProperties.Policy policy) {
+        if (policy.getRetryOn().isEmpty()) {
+            return new SimpleRetryPolicy(policy.getMaxAttempts());
+        }
+        Map<Class<? extends Throwable>, Boolean> retryableExceptions = new HashMap<>();
+        policy.getRetryOn().forEach(type -> retryableExceptions.put(type, true));
+        return new SimpleRetryPolicy(policy.getMaxAttempts(), retryableExceptions, policy.isTraversingCauses());
+    }
+
+    private Retryer<?> buildGuavaRetryer(String name, RetryRegistryProperties.Policy policy, RetryBudgetRegistry retryBudgetRegistry,
+                                         HttpRetryClassifier httpRetryClassifier) {
+        RetryerBuilder<Object> builder = RetryerBuilder.newBuilder();
+        if (httpRetryClassifier != null) {
+            builder.retryIfException(httpRetryClassifier::isRetryable);
+            // 返回的 ResponseEntity 的状态码需要重试的时候也重试 (RestTemplate 不抛异常的 ResponseErrorHandler、exchange 之类)
+            builder.retryIfResult(httpRetryClassifier::isRetryableResult);
+        } else if (policy.getRetryOn().isEmpty()) {
+            builder.retryIfException();
+        } else {
+            builder.retryIfException(e -> shouldRetry(policy, e));
+        }
+        if (policy.getAttemptTimeout() > 0) {
+            // 【限时执行会切换到 other 线程执行 MDC 等上下文会带过去，事务不会】
+            builder.withAttemptTimeLimiter(new ExecutorAttemptTimeLimit<>(timeLimiterExecutor, policy.getAttemptTimeout(), TimeUnit.MILLISECONDS));
+        }
+        StopStrategy stopStrategy = StopStrategies.stopAfterAttempt(policy.getMaxAttempts());
+        if (hasBackOff(policy)) {
+            JitterWaitStrategy waitStrategy = new JitterWaitStrategy(stopStrategy, jitterBackOff(policy), policy.getDeadline());
+            builder.withWaitStrategy(httpRetryClassifier != null ? new RetryAfterWaitStrategy(waitStrategy, httpRetryClassifier) : waitStrategy);
+            stopStrategy = waitStrategy;
+        } else {
+            builder.withWaitStrategy(httpRetryClassifier != null ? new RetryAfterWaitStrategy(WaitStrategies.noWait(), httpRetryClassifier)
+                    : WaitStrategies.noWait());
+        }
+        // 预算在最外层 前面的策略都不停止的时候才取令牌
+        if (retryBudgetRegistry != null) {
+            RetryBudgetStopStrategy budgetStopStrategy = new RetryBudgetStopStrategy(stopStrategy, retryBudgetRegistry, name);
+            builder.withRetryListener(budgetStopStrategy);
+            stopStrategy = budgetStopStrategy;
+        }
+        return builder
+                .withStopStrategy(stopStrategy)
+                .build();
+    }
+
+    private static boolean shouldRetry(RetryRegistryProperties.Policy policy, Throwable throwable) {
+        for (Throwable current = throwable; current != null; current = current.getCause()) {
+            for (Class<? extends Throwable> type : policy.getRetryOn()) {
+                if (type.isInstance(current)) {
+                    return true;
+                }
+            }
+            if (!policy.isTraversingCauses() || current.getCause() == current) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param name 策略名称
+     * @return 启动时构建好的 RetryTemplate
+     */
+    public RetryTemplate retryTemplate(String name) {
+        RetryTemplate retryTemplate = retryTemplates.get(name);
+        if (retryTemplate == null) {
+            throw new IllegalArgumentException("no retry policy named " + name + ", registered: " + names());
+        }
+        return retryTemplate;
+    }
+
+    /**
+     * 同一个策略的 Retryer 只根据异常 (httpClassified 的策略还有返回的 ResponseEntity 的状态码) 判断是否重试，
+     * 和返回值类型无关 可以给不同返回值的调用共用
+     *
+     * @param name 策略名称
+     * @param <V>  返回值类型
+     * @return 启动时构建好的 guava Retryer
+     */
+    @SuppressWarnings("unchecked")
+    public <V> Retryer<V> guavaRetryer(String name) {
+        Retryer<?> retryer = guavaRetryers.get(name);
+        if (retryer == null) {
+            throw new IllegalArgumentException("no retry policy named " + name + ", registered: " + names());
+        }
+        return (Retryer<V>) retryer;
+    }
+
+    /**
+     * 和策略的 retryOn (+ traversingCauses) 或者 http 分类一样判断异常是否可以重试，批量重试里面按条目判断用
+     *
+     * @param name 策略名称
+     * @return
+     */
+    public Classifier<Throwable, Boolean> retryableClassifier(String name) {
+        Classifier<Throwable, Boolean> classifier = retryableClassifiers.get(name);
+        if (classifier == null) {
+            throw new IllegalArgumentException("no retry policy named " + name + ", registered: " + names());
+        }
+        return classifier;
+    }
+
+    public Set<String> names() {
+        return retryTemplates.keySet();
+    }
+
+    /**
+     * 单次尝试限时共用的执行器 RetryTemplate、拦截器的方式也可以用
+     */
+    public AttemptTimeLimitExecutor timeLimiterExecutor() {
+        return timeLimiterExecutor;
+    }
+
+    /**
+     * 当前限时线程池里面的线程数 虚拟线程的时候为 0
+     */
+    public int timeLimiterPoolSize() {
+        return timeLimiterExecutor.poolSize();
+    }
+
+    public void shutdown() {
+        timeLimiterExecutor.shutdown();
+    }
+
+    /**
+     * 除了 properties 都是可选的，不设置就不启用对应的能力
+     */
+    public static final class Builder {
+
+        private final RetryRegistryProperties properties;
+
+        private List<RetryListener> listeners = Collections.emptyList();
+
+        private RetryContextCache retryContextCache;
+
+        private RetryBudgetRegistry retryBudgetRegistry;
+
+        private Sleeper sleeper;
+
+        private DownstreamHealthRegistry downstreamHealthRegistry;
+
+        private HttpRetryClassifier httpRetryClassifier;
+
+        private Builder(RetryRegistryProperties properties) {
+            Assert.notNull(properties, "properties must not be null");
+            this.properties = properties;
+        }
+
+        public Builder listeners(List<RetryListener> listeners) {
+            Assert.notNull(listeners, "listeners must not be null");
+            this.listeners = listeners;
+            return this;
+        }
+
+        /**
+         * @param retryContextCache 只有传了 RetryState 的有状态调用才会用到
+         */
+        public Builder retryContextCache(RetryContextCache retryContextCache) {
+            this.retryContextCache = retryContextCache;
+            return this;
+        }
+
+        /**
+         * @param retryBudgetRegistry RetryTemplate、guava Retryer 都加上重试预算，label 为策略名称
+         */
+        public Builder retryBudgetRegistry(RetryBudgetRegistry retryBudgetRegistry) {
+            this.retryBudgetRegistry = retryBudgetRegistry;
+            return this;
+        }
+
+        /**
+         * @param sleeper RetryTemplate 退避使用的 Sleeper 例如记录退避时间，不设置的时候 Thread.sleep
+         */
+        public Builder sleeper(Sleeper sleeper) {
+            this.sleeper = sleeper;
+            return this;
+        }
+
+        /**
+         * @param downstreamHealthRegistry adaptive=true 的策略按下游最近的错误率、耗时调整次数和退避
+         */
+        public Builder downstreamHealthRegistry(DownstreamHealthRegistry downstreamHealthRegistry) {
+            this.downstreamHealthRegistry = downstreamHealthRegistry;
+            return this;
+        }
+
+        /**
+         * @param httpRetryClassifier httpClassified=true 的策略按状态码、异常类型分类重试，Retry-After 的时候至少等这么久
+         */
+        public Builder httpRetryClassifier(HttpRetryClassifier httpRetryClassifier) {
+            this.httpRetryClassifier = httpRetryClassifier;
+            return this;
+        }
+
+        public RetryRegistry build() {
+            return new RetryRegistry(this);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.wangji92.retry.springretryexample.support.registry;
+
+import com.wangji92.retry.springretryexample.support.backoff.JitterMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 命名的重试策略配置 启动的时候由 {@link RetryRegistry} 一次性构建好
+ * <pre>
+ * retry.registry.policies.retryTestService.max-attempts=2
+ * retry.registry.policies.retryTestService.back-off-period=5000
+ * retry.registry.policies.retryTestService.jitter=decorrelated
+ * retry.registry.policies.retryTestService.max-back-off-period=20000
+ * retry.registry.policies.retryTestService.deadline=30000
+ * retry.registry.policies.retryTestService.retry-on=org.springframework.remoting.RemoteAccessException
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@ConfigurationProperties(prefix = "retry.registry")
+public class RetryRegistryProperties {
+
+    /**
+     * key 为策略名称
+     */
+    private Map<String, Policy> policies = new LinkedHashMap<>();
+
+    /**
+     * 单次尝试超时使用的共享执行器
+     */
+    private TimeLimiter timeLimiter = new TimeLimiter();
+
+    public Map<String, Policy> getPolicies() {
+        return policies;
+    }
+
+    public void setPolicies(Map<String, Policy> policies) {
+        this.policies = policies;
+    }
+
+    public TimeLimiter getTimeLimiter() {
+        return timeLimiter;
+    }
+
+    public void setTimeLimiter(TimeLimiter timeLimiter) {
+        this.timeLimiter = timeLimiter;
+    }
+
+    public static class Policy {
+
+        /**
+         * 最大尝试次数 包含第一次
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * 退避的基准时间(毫秒) 0 表示不等待
+         */
+        private long backOffPeriod;
+
+        /**
+         * 退避时间的抖动方式 NONE 为固定 (multiplier 大于 1 时为指数) 退避
+         */
+        private JitterMode jitter = JitterMode.NONE;
+
+        /**
+         * 退避时间上限(毫秒) 0 不限制
+         */
+        private long maxBackOffPeriod;
+
+        /**
+         * 每次重试退避时间的增长倍数 1 为固定，DECORRELATED 不使用
+         */
+        private double multiplier = 1;
+
+        /**
+         * 整个调用(所有尝试+退避)的截止时间(毫秒) 退避会超过截止时间的时候不再重试 直接兜底，0 不限制
+         */
+        private long deadline;
+
+        /**
+         * 单次尝试的超时时间(毫秒) 只对 guava Retryer 生效，0 表示在调用线程执行不限时
+         */
+        private long attemptTimeout;
+
+        /**
+         * 需要重试的异常 为空时所有异常都重试
+         */
+        private List<Class<? extends Throwable>> retryOn = new ArrayList<>();
+
+        /**
+         * 是否沿着 cause 匹配 retryOn
+         */
+        private boolean traversingCauses = true;
+
+        /**
+         * 按下游最近的错误率、耗时调整次数和退避 (retry.adaptive)，maxAttempts 为上限 backOffPeriod、maxBackOffPeriod 为退避的下限、上限，
+         * 只对 RetryTemplate 生效
+         */
+        private boolean adaptive;
+
+        /**
+         * 按 retry.http-classifier 的状态码、异常类型分类判断是否重试 (401 之类的不再重试)，429、503 按 Retry-After 等待，
+         * 设置之后 retryOn 不再生效；guava Retryer 同时按返回的 ResponseEntity 的状态码重试 (retryIfResult)
+         */
+        private boolean httpClassified;
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getBackOffPeriod() {
+            return backOffPeriod;
+        }
+
+        public void setBackOffPeriod(long backOffPeriod) {
+            this.backOffPeriod = backOffPeriod;
+        }
+
+        public JitterMode getJitter() {
+            return jitter;
+        }
+
+        public void setJitter(JitterMode jitter) {
+            this.jitter = jitter;
+        }
+
+        public long getMaxBackOffPeriod() {
+            return maxBackOffPeriod;
+        }
+
+        public void setMaxBackOffPeriod(long maxBackOffPeriod) {
+            this.maxBackOffPeriod = maxBackOffPeriod;
+        }
+
+        public double getMultiplier() {
+            return multiplier;
+        }
+
+        public void setMultiplier(double multiplier) {
+            this.multiplier = multiplier;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public void setDeadline(long deadline) {
+            this.deadline = deadline;
+        }
+
+        public long getAttemptTimeout() {
+            return attemptTimeout;
+        }
+
+        public void setAttemptTimeout(long attemptTimeout) {
+            this.attemptTimeout = attemptTimeout;
+        }
+
+        public List<Class<? extends Throwable>> getRetryOn() {
+            return retryOn;
+        }
+
+        public void setRetryOn(List<Class<? extends Throwable>> retryOn) {
+            this.retryOn = retryOn;
+        }
+
+        public boolean isTraversingCauses() {
+            return traversingCauses;
+        }
+
+        public void setTraversingCauses(boolean traversingCauses) {
+            this.traversingCauses = traversingCauses;
+        }
+
+        public boolean isAdaptive() {
+            return adaptive;
+        }
+
+        public void setAdaptive(boolean adaptive) {
+            this.adaptive = adaptive;
+        }
+
+        public boolean isHttpClassified() {
+            return httpClassified;
+        }
+
+        public void setHttpClassified(boolean httpClassified) {
+            this.httpClassified = httpClassified;
+        }
+    }
+
+    public static class TimeLimiter {
+
+        /**
+         * jdk21+ 每次尝试使用一个虚拟线程，低版本自动退化成下面配置的线程池
+         */
+        private boolean virtualThreads = true;
+
+        /**
+         * 线程数 同时处于限时执行中的尝试不会超过这个数
+         */
+        private int threads = 10;
+
+        /**
+         * 排队的上限 满了直接拒绝 这次尝试按失败处理
+         */
+        private int queueCapacity = 100;
+
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public void setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.wangji92.retry.springretryexample.support.schedule;
+
+/**
+ * 定时任务上一次还在执行 (例如还在重试的退避里面) 的时候 新的一次调度怎么处理
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public enum OverlapPolicy {
+
+    /**
+     * 丢掉这一次调度
+     */
+    SKIP,
+
+    /**
+     * 排队 上一次执行完之后依次执行，队列满了丢掉
+     */
+    QUEUE,
+
+    /**
+     * 最多留一次 执行完之后再执行一次，中间的调度合并成这一次
+     */
+    COALESCE
+}
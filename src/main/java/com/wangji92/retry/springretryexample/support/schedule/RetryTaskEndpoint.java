@@ -0,0 +1,75 @@
+package com.wangji92.retry.springretryexample.support.schedule;
+
+import com.wangji92.retry.springretryexample.support.metrics.LatencyHistogram;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * GET /actuator/retrytasks 所有定时任务的调度次数、丢掉/合并的次数、触发到开始执行的延迟，GET /actuator/retrytasks/{task} 单个任务
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Endpoint(id = "retrytasks")
+public class RetryTaskEndpoint {
+
+    private final RetryTaskScheduler retryTaskScheduler;
+
+    public RetryTaskEndpoint(RetryTaskScheduler retryTaskScheduler) {
+        this.retryTaskScheduler = retryTaskScheduler;
+    }
+
+    @ReadOperation
+    public Map<String, Object> tasks() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        ForkJoinPool workers = retryTaskScheduler.getWorkers();
+        Map<String, Object> pool = new LinkedHashMap<>();
+        pool.put("parallelism", workers.getParallelism());
+        pool.put("poolSize", workers.getPoolSize());
+        pool.put("activeThreads", workers.getActiveThreadCount());
+        pool.put("steals", workers.getStealCount());
+        pool.put("queuedSubmissions", workers.getQueuedSubmissionCount());
+        result.put("workers", pool);
+        Map<String, Object> tasks = new TreeMap<>();
+        retryTaskScheduler.runners().forEach((name, runner) -> tasks.put(name, snapshot(runner)));
+        result.put("tasks", tasks);
+        return result;
+    }
+
+    @ReadOperation
+    public Map<String, Object> task(@Selector String task) {
+        RetryTaskRunner runner = retryTaskScheduler.runners().get(task);
+        return runner == null ? null : snapshot(runner);
+    }
+
+    private static Map<String, Object> snapshot(RetryTaskRunner runner) {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("overlap", runner.getOverlap());
+        snapshot.put("ticks", runner.getTicks());
+        snapshot.put("executions", runner.getExecutions());
+        snapshot.put("failures", runner.getFailures());
+        snapshot.put("skipped", runner.getSkipped());
+        snapshot.put("coalesced", runner.getCoalesced());
+        snapshot.put("running", runner.getRunning());
+        snapshot.put("pending", runner.getPending());
+        snapshot.put("lagMillis", millis(runner.getLag()));
+        snapshot.put("durationMillis", millis(runner.getDuration()));
+        return snapshot;
+    }
+
+    private static Map<String, Object> millis(LatencyHistogram histogram) {
+        Map<String, Object> millis = new LinkedHashMap<>();
+        millis.put("count", histogram.getCount());
+        millis.put("mean", histogram.getMean() / 1000);
+        millis.put("p50", histogram.percentile(0.5) / 1000.0);
+        millis.put("p99", histogram.percentile(0.99) / 1000.0);
+        millis.put("max", histogram.getMax() / 1000.0);
+        return millis;
+    }
+}
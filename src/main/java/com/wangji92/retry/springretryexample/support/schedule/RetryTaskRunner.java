@@ -0,0 +1,210 @@
+package com.wangji92.retry.springretryexample.support.schedule;
+
+import com.wangji92.retry.springretryexample.support.metrics.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个定时任务：调度线程每次触发只调用 {@link #tick()} 交给线程池，不在调度线程上执行任务；
+ * 同时执行的个数不超过 maxConcurrency，超过的按 {@link OverlapPolicy} 丢掉、排队或者合并；
+ * fixedDelay、cron 的任务调用 {@link #execute(Runnable)}，执行完之后才会再调度 不会重叠
+ * <p>
+ * 延迟 (lag) = 开始执行的时间 - 触发的时间，排队、合并的调度等上一次执行完，线程池忙的时候等空闲的线程，都会算进去
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class RetryTaskRunner {
+
+    private final String name;
+
+    private final Runnable task;
+
+    private final Executor executor;
+
+    private final OverlapPolicy overlap;
+
+    private final int maxConcurrency;
+
+    private final int queueCapacity;
+
+    /**
+     * 排队、合并的调度 触发的时间 (nanoTime)
+     */
+    private final ArrayDeque<Long> pending = new ArrayDeque<>();
+
+    private int running;
+
+    private final LongAdder ticks = new LongAdder();
+
+    private final LongAdder executions = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder skipped = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * 微秒
+     */
+    private final LatencyHistogram lag = new LatencyHistogram();
+
+    private final LatencyHistogram duration = new LatencyHistogram();
+
+    public RetryTaskRunner(String name, Runnable task, Executor executor, RetryTaskSchedulerProperties.Task config) {
+        this.name = name;
+        this.task = task;
+        this.executor = executor;
+        this.overlap = config.getOverlap();
+        this.maxConcurrency = Math.max(1, config.getMaxConcurrency());
+        this.queueCapacity = Math.max(0, config.getQueueCapacity());
+    }
+
+    /**
+     * 调度线程上调用 只做判断、提交 马上返回
+     */
+    public void tick() {
+        long tickTime = System.nanoTime();
+        ticks.increment();
+        synchronized (this) {
+            if (running < maxConcurrency) {
+                running++;
+            } else {
+                overlap(tickTime);
+                return;
+            }
+        }
+        submit(tickTime, null);
+    }
+
+    /**
+     * fixedDelay、cron 的任务在调度线程上调用 马上返回，执行完 (包括失败) 之后调用 whenDone 调度下一次
+     */
+    public void execute(Runnable whenDone) {
+        long tickTime = System.nanoTime();
+        ticks.increment();
+        synchronized (this) {
+            running++;
+        }
+        submit(tickTime, whenDone);
+    }
+
+    private void overlap(long tickTime) {
+        switch (overlap) {
+            case QUEUE:
+                if (pending.size() < queueCapacity) {
+                    pending.addLast(tickTime);
+                } else {
+                    skipped.increment();
+                }
+                break;
+            case COALESCE:
+                // 保留最早的触发时间 lag 按等得最久的算
+                if (pending.isEmpty()) {
+                    pending.addLast(tickTime);
+                } else {
+                    coalesced.increment();
+                }
+                break;
+            default:
+                skipped.increment();
+        }
+        log.debug("task {} is still running, {} tick", name, overlap);
+    }
+
+    private void submit(long tickTime, Runnable whenDone) {
+        try {
+            executor.execute(() -> run(tickTime, whenDone));
+        } catch (RejectedExecutionException e) {
+            // 关闭之后的调度
+            synchronized (this) {
+                running--;
+            }
+            skipped.increment();
+        }
+    }
+
+    private void run(long tickTime, Runnable whenDone) {
+        long start = System.nanoTime();
+        lag.record(TimeUnit.NANOSECONDS.toMicros(start - tickTime));
+        executions.increment();
+        try {
+            task.run();
+        } catch (Throwable e) {
+            failures.increment();
+            log.error("scheduled task {} failed", name, e);
+        } finally {
+            duration.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            Long next;
+            synchronized (this) {
+                next = pending.pollFirst();
+                if (next == null) {
+                    running--;
+                }
+            }
+            if (next != null) {
+                submit(next, null);
+            }
+            if (whenDone != null) {
+                whenDone.run();
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public OverlapPolicy getOverlap() {
+        return overlap;
+    }
+
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    public synchronized int getPending() {
+        return pending.size();
+    }
+
+    public long getTicks() {
+        return ticks.sum();
+    }
+
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return 触发到开始执行的延迟 微秒
+     */
+    public LatencyHistogram getLag() {
+        return lag;
+    }
+
+    /**
+     * @return 每次执行的耗时 微秒
+     */
+    public LatencyHistogram getDuration() {
+        return duration;
+    }
+}
@@ -0,0 +1,171 @@
+package com.wangji92.retry.springretryexample.support.schedule;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.PeriodicTrigger;
+import org.springframework.scheduling.support.ScheduledMethodRunnable;
+import org.springframework.util.ClassUtils;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * @Scheduled 使用的调度器 (bean 名称 taskScheduler)
+ * <p>
+ * 默认的调度器只有一个线程，SchedulingTestRetryTask 里面一个任务在 5 秒的退避里面 sleep 其他的任务都要等着；
+ * 这里调度线程只负责按时间触发 {@link RetryTaskRunner#tick()}，任务在 work-stealing 的 ForkJoinPool 里面执行，
+ * fixedRate 的任务按配置限制同时执行的个数，上一次还没执行完的时候按 {@link OverlapPolicy} 丢掉、排队或者合并，不会越积越多。
+ * fixedDelay、cron 的任务和默认的调度器一样 上一次执行完之后才算下一次的时间 ({@link SequentialScheduledTask})，不会重叠
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class RetryTaskScheduler extends ThreadPoolTaskScheduler {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient RetryTaskSchedulerProperties properties;
+
+    private final transient ForkJoinPool workers;
+
+    private final transient MeterRegistry meterRegistry;
+
+    private final transient Map<String, RetryTaskRunner> runners = new ConcurrentHashMap<>();
+
+    /**
+     * @param meterRegistry 可以为 null，为 null 的时候只在 {@link #runners()} 里面统计
+     */
+    public RetryTaskScheduler(RetryTaskSchedulerProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.workers = new ForkJoinPool(Math.max(1, properties.getParallelism()), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("retry-task-" + thread.getPoolIndex());
+            return thread;
+        }, null, true);
+        setPoolSize(1);
+        setThreadNamePrefix("retry-task-tick-");
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long period) {
+        return super.scheduleAtFixedRate(runner(task)::tick, period);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Date startTime, long period) {
+        return super.scheduleAtFixedRate(runner(task)::tick, startTime, period);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long delay) {
+        return schedule(task, new PeriodicTrigger(delay));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Date startTime, long delay) {
+        PeriodicTrigger trigger = new PeriodicTrigger(delay);
+        trigger.setInitialDelay(Math.max(0, startTime.getTime() - System.currentTimeMillis()));
+        return schedule(task, trigger);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Trigger trigger) {
+        ScheduledExecutorService executor = getScheduledExecutor();
+        try {
+            return new SequentialScheduledTask(runner(task), trigger, executor).schedule();
+        } catch (RejectedExecutionException e) {
+            throw new TaskRejectedException("Executor [" + executor + "] did not accept task: " + task, e);
+        }
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Date startTime) {
+        return super.schedule(() -> workers.execute(task), startTime);
+    }
+
+    private RetryTaskRunner runner(Runnable task) {
+        String name = taskName(task);
+        String unique = name;
+        for (int i = 2; runners.containsKey(unique); i++) {
+            unique = name + "#" + i;
+        }
+        RetryTaskRunner runner = new RetryTaskRunner(unique, task, workers, properties.task(name));
+        runners.put(unique, runner);
+        if (meterRegistry != null) {
+            register(runner);
+        }
+        return runner;
+    }
+
+    /**
+     * @return @Scheduled 方法为 类名.方法名 例如 AopSpringRetry.retryTestService
+     */
+    static String taskName(Runnable task) {
+        if (task instanceof ScheduledMethodRunnable) {
+            ScheduledMethodRunnable runnable = (ScheduledMethodRunnable) task;
+            return ClassUtils.getUserClass(runnable.getTarget()).getSimpleName() + "." + runnable.getMethod().getName();
+        }
+        return ClassUtils.getUserClass(task).getSimpleName();
+    }
+
+    private void register(RetryTaskRunner runner) {
+        counter("retry.task.ticks", runner, RetryTaskRunner::getTicks);
+        counter("retry.task.executions", runner, RetryTaskRunner::getExecutions);
+        counter("retry.task.failures", runner, RetryTaskRunner::getFailures);
+        counter("retry.task.skipped", runner, RetryTaskRunner::getSkipped);
+        counter("retry.task.coalesced", runner, RetryTaskRunner::getCoalesced);
+        gauge("retry.task.running", runner, RetryTaskRunner::getRunning);
+        gauge("retry.task.pending", runner, RetryTaskRunner::getPending);
+        TimeGauge.builder("retry.task.lag.max", runner.getLag(), TimeUnit.MICROSECONDS, h -> h.getMax())
+                .tag("task", runner.getName()).register(meterRegistry);
+        TimeGauge.builder("retry.task.lag.percentile", runner.getLag(), TimeUnit.MICROSECONDS, h -> h.percentile(0.99))
+                .tags("task", runner.getName(), "quantile", "0.99").register(meterRegistry);
+    }
+
+    private void counter(String name, RetryTaskRunner runner, ToLongFunction<RetryTaskRunner> count) {
+        FunctionCounter.builder(name, runner, r -> count.applyAsLong(r)).tag("task", runner.getName()).register(meterRegistry);
+    }
+
+    private void gauge(String name, RetryTaskRunner runner, ToDoubleFunction<RetryTaskRunner> value) {
+        Gauge.builder(name, runner, value).tag("task", runner.getName()).register(meterRegistry);
+    }
+
+    /**
+     * @return 任务名称 -> 任务
+     */
+    public Map<String, RetryTaskRunner> runners() {
+        return Collections.unmodifiableMap(runners);
+    }
+
+    /**
+     * 执行任务的线程池 偷取的次数、活跃的线程数等
+     */
+    public ForkJoinPool getWorkers() {
+        return workers;
+    }
+
+    /**
+     * 调度线程先停 再中断还在执行 (退避) 的任务
+     */
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        workers.shutdownNow();
+    }
+}
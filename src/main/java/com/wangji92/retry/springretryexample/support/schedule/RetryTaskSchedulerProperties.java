@@ -0,0 +1,121 @@
+package com.wangji92.retry.springretryexample.support.schedule;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 定时任务的调度 只负责按时间触发，任务在 work-stealing 的线程池里面执行，一个任务在重试、退避不会拖慢其他任务
+ * <pre>
+ * retry.task-scheduler.enabled=true
+ * retry.task-scheduler.parallelism=4
+ * retry.task-scheduler.defaults.overlap=skip
+ * retry.task-scheduler.tasks[AopStateFullRetry.retryTestService].overlap=coalesce
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@ConfigurationProperties(prefix = "retry.task-scheduler")
+public class RetryTaskSchedulerProperties {
+
+    private boolean enabled;
+
+    /**
+     * 执行任务的 ForkJoinPool 的并行度
+     */
+    private int parallelism = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * 没有单独配置的任务
+     */
+    private Task defaults = new Task();
+
+    /**
+     * 按任务名称 (类名.方法名 例如 AopSpringRetry.retryTestService) 单独配置
+     */
+    private Map<String, Task> tasks = new LinkedHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public Task getDefaults() {
+        return defaults;
+    }
+
+    public void setDefaults(Task defaults) {
+        this.defaults = defaults;
+    }
+
+    public Map<String, Task> getTasks() {
+        return tasks;
+    }
+
+    public void setTasks(Map<String, Task> tasks) {
+        this.tasks = tasks;
+    }
+
+    /**
+     * @param name 任务名称
+     * @return 单独配置的 没有的时候为 defaults
+     */
+    public Task task(String name) {
+        return tasks.getOrDefault(name, defaults);
+    }
+
+    public static class Task {
+
+        /**
+         * 上一次还在执行的时候新的调度怎么处理
+         */
+        private OverlapPolicy overlap = OverlapPolicy.SKIP;
+
+        /**
+         * 同一个任务最多同时执行几个
+         */
+        private int maxConcurrency = 1;
+
+        /**
+         * overlap=queue 的时候最多排队几次
+         */
+        private int queueCapacity = 10;
+
+        public OverlapPolicy getOverlap() {
+            return overlap;
+        }
+
+        public void setOverlap(OverlapPolicy overlap) {
+            this.overlap = overlap;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.wangji92.retry.springretryexample.support.schedule;
+
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+
+import java.util.Date;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * fixedDelay、cron 的任务：调度线程到时间只把任务交给线程池，执行完之后再按 {@link Trigger} 算下一次的时间
+ * (fixedDelay 从执行完开始算间隔)，和默认的调度器一样 同一个任务不会重叠，也不会占着调度线程
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class SequentialScheduledTask implements ScheduledFuture<Object> {
+
+    private final RetryTaskRunner runner;
+
+    private final Trigger trigger;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final SimpleTriggerContext triggerContext = new SimpleTriggerContext();
+
+    /**
+     * 下面的持有 this 访问
+     */
+    private ScheduledFuture<?> current;
+
+    private Date scheduledExecutionTime;
+
+    private boolean cancelled;
+
+    private boolean done;
+
+    SequentialScheduledTask(RetryTaskRunner runner, Trigger trigger, ScheduledExecutorService scheduler) {
+        this.runner = runner;
+        this.trigger = trigger;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @throws RejectedExecutionException 调度器已经关闭
+     */
+    synchronized SequentialScheduledTask schedule() {
+        if (cancelled) {
+            return this;
+        }
+        scheduledExecutionTime = trigger.nextExecutionTime(triggerContext);
+        if (scheduledExecutionTime == null) {
+            done = true;
+            return this;
+        }
+        long delay = scheduledExecutionTime.getTime() - System.currentTimeMillis();
+        current = scheduler.schedule(this::fire, delay, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * 调度线程上调用 交给线程池之后马上返回
+     */
+    private void fire() {
+        Date actualExecutionTime = new Date();
+        runner.execute(() -> {
+            synchronized (this) {
+                triggerContext.update(scheduledExecutionTime, actualExecutionTime, new Date());
+            }
+            try {
+                schedule();
+            } catch (RejectedExecutionException e) {
+                // 已经关闭
+                synchronized (this) {
+                    done = true;
+                }
+            }
+        });
+    }
+
+    @Override
+    public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+        cancelled = true;
+        return current == null || current.cancel(mayInterruptIfRunning);
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return cancelled || done;
+    }
+
+    @Override
+    public Object get() throws InterruptedException, ExecutionException {
+        ScheduledFuture<?> future = current();
+        return future == null ? null : future.get();
+    }
+
+    @Override
+    public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        ScheduledFuture<?> future = current();
+        return future == null ? null : future.get(timeout, unit);
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        ScheduledFuture<?> future = current();
+        return future == null ? 0 : future.getDelay(unit);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        if (this == other) {
+            return 0;
+        }
+        long diff = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+        return diff == 0 ? 0 : (diff < 0 ? -1 : 1);
+    }
+
+    /**
+     * @return 还没有调度过 (trigger 一次都没有) 的时候为 null
+     */
+    private synchronized ScheduledFuture<?> current() {
+        return current;
+    }
+}
@@ -0,0 +1,197 @@
+package com.wangji92.retry.springretryexample.support.singleflight;
+
+import com.wangji92.retry.springretryexample.support.key.LabelRoutingKeyGenerator;
+import com.wangji92.retry.springretryexample.utils.RetryLabelUtils;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.reactivestreams.Publisher;
+import org.springframework.retry.interceptor.MethodArgumentsKeyGenerator;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 同一个 key 的并发调用合并成一次重试 (single-flight)：第一个调用 (leader) 走原来的重试、退避、@Recover，
+ * 同时进来的相同 key 的调用不再各自重试 等 leader 的返回值或者异常。下游故障的时候 N 个调用方对同一个地址只有一组重试
+ * <p>
+ * key = label + 参数的 key，参数的 key 和有状态重试一样 ({@link org.springframework.retry.interceptor.StatefulRetryOperationsInterceptor}
+ * 的 createKey) 按 label 的配置取参数本身或者 @RetryKey 的字段 {@link LabelRoutingKeyGenerator}。
+ * 快速路径只有 ConcurrentHashMap 的 get + putIfAbsent (空桶的时候是 CAS)，没有锁；leader 结束的时候先移除再通知，
+ * 之后进来的调用重新发起 不会拿到旧的结果。
+ * 【合并的调用拿到的是同一个返回值对象 不能修改；返回 Mono/Flux 的方法不合并】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class SingleFlightInterceptor implements MethodInterceptor {
+
+    /**
+     * 不合并的方法
+     */
+    private static final String NONE = "";
+
+    private final MethodArgumentsKeyGenerator keyGenerator;
+
+    private final Set<String> labels;
+
+    private final Map<Method, String> methodLabels = new ConcurrentHashMap<>();
+
+    private final Map<FlightKey, Flight> flights = new ConcurrentHashMap<>();
+
+    private final LongAdder leaders = new LongAdder();
+
+    private final LongAdder followers = new LongAdder();
+
+    /**
+     * @param keyGenerator 参数的 key，为 {@link LabelRoutingKeyGenerator} 的时候按 label 选择生成方式
+     * @param labels       合并的 @Retryable 方法的 label
+     */
+    public SingleFlightInterceptor(MethodArgumentsKeyGenerator keyGenerator, Set<String> labels) {
+        this.keyGenerator = keyGenerator;
+        this.labels = labels;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String label = methodLabels.get(invocation.getMethod());
+        if (label == null) {
+            label = methodLabels.computeIfAbsent(invocation.getMethod(), method -> resolveLabel(invocation));
+        }
+        if (label.isEmpty()) {
+            return invocation.proceed();
+        }
+        FlightKey key = new FlightKey(label, argumentsKey(label, invocation.getArguments()));
+        Flight flight = flights.get(key);
+        if (flight == null) {
+            Flight created = new Flight();
+            flight = flights.putIfAbsent(key, created);
+            if (flight == null) {
+                return lead(invocation, key, created);
+            }
+        }
+        // leader 自己重入 (例如 @Recover 里面又调用了同一个方法) 不能等自己
+        if (flight.leader == Thread.currentThread()) {
+            return invocation.proceed();
+        }
+        followers.increment();
+        return flight.await();
+    }
+
+    private Object lead(MethodInvocation invocation, FlightKey key, Flight flight) throws Throwable {
+        leaders.increment();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            flights.remove(key, flight);
+            flight.future.complete(new Failure(e));
+            throw e;
+        }
+        flights.remove(key, flight);
+        flight.future.complete(result);
+        return result;
+    }
+
+    private String resolveLabel(MethodInvocation invocation) {
+        if (Publisher.class.isAssignableFrom(invocation.getMethod().getReturnType())) {
+            return NONE;
+        }
+        String label = RetryLabelUtils.resolveLabel(invocation);
+        return labels.contains(label) ? label : NONE;
+    }
+
+    private Object argumentsKey(String label, Object[] args) {
+        if (keyGenerator instanceof LabelRoutingKeyGenerator) {
+            return ((LabelRoutingKeyGenerator) keyGenerator).getKey(label, args);
+        }
+        return keyGenerator.getKey(args);
+    }
+
+    /**
+     * @return 真正执行 (发起重试) 的调用次数
+     */
+    public long getLeaders() {
+        return leaders.sum();
+    }
+
+    /**
+     * @return 合并到别的调用上 没有自己执行的调用次数
+     */
+    public long getFollowers() {
+        return followers.sum();
+    }
+
+    /**
+     * @return 正在执行的 key 的个数
+     */
+    public int inFlight() {
+        return flights.size();
+    }
+
+    private static final class Flight {
+
+        private final Thread leader = Thread.currentThread();
+
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        /**
+         * 不响应中断 和 leader 自己的调用一样等到重试结束
+         */
+        private Object await() throws Throwable {
+            Object result = future.join();
+            if (result instanceof Failure) {
+                throw ((Failure) result).cause;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * leader 抛出的异常 原样抛给合并的调用 (不经过 CompletionException 包装)
+     */
+    private static final class Failure {
+
+        private final Throwable cause;
+
+        private Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+    private static final class FlightKey {
+
+        private final String label;
+
+        private final Object key;
+
+        private final int hash;
+
+        private FlightKey(String label, Object key) {
+            this.label = label;
+            this.key = key;
+            this.hash = 31 * label.hashCode() + Objects.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FlightKey)) {
+                return false;
+            }
+            FlightKey other = (FlightKey) o;
+            return label.equals(other.label) && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.wangji92.retry.springretryexample.support.singleflight;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 同一个 key 的并发调用合并成一次重试
+ * <pre>
+ * retry.single-flight.enabled=true
+ * retry.single-flight.labels=RetryTestService.retryTestService
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@ConfigurationProperties(prefix = "retry.single-flight")
+public class SingleFlightProperties {
+
+    private boolean enabled;
+
+    /**
+     * 合并的 @Retryable 方法的 label (没有 label 的时候为 类名.方法名)，key 的生成方式和有状态重试一样按 retry.key-generator
+     */
+    private Set<String> labels = new LinkedHashSet<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Set<String> getLabels() {
+        return labels;
+    }
+
+    public void setLabels(Set<String> labels) {
+        this.labels = labels;
+    }
+}
@@ -0,0 +1,155 @@
+package com.wangji92.retry.springretryexample.support.timelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 单次尝试限时执行
+ * <p>
+ * jdk21+ 每次尝试一个虚拟线程，阻塞等待远程调用不占用平台线程，并发再高也不用排队；
+ * 低版本 jdk 退化成一个有界的线程池。项目按 java 8 编译，虚拟线程通过反射创建
+ * <ul>
+ *     <li>调用线程的 MDC 等上下文通过 {@link TaskDecorator} 带到执行线程</li>
+ *     <li>超时之后中断执行线程，抛出 {@link AttemptTimeoutException}</li>
+ *     <li>尝试本身抛出的异常原样抛出，不会包装成 ExecutionException、UncheckedExecutionException</li>
+ * </ul>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+public class AttemptTimeLimitExecutor {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private final ExecutorService executorService;
+
+    private final boolean virtualThreads;
+
+    private final TaskDecorator taskDecorator;
+
+    /**
+     * @param preferVirtualThreads 支持虚拟线程的时候是否使用
+     * @param fallbackThreads      不能使用虚拟线程时 线程池的线程数
+     * @param fallbackQueueCapacity 线程池排队的上限 满了直接拒绝
+     * @param taskDecorator        上下文传递
+     */
+    public AttemptTimeLimitExecutor(boolean preferVirtualThreads, int fallbackThreads, int fallbackQueueCapacity,
+                                    TaskDecorator taskDecorator) {
+        ExecutorService virtualThreadExecutor = preferVirtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+        if (virtualThreadExecutor != null) {
+            this.executorService = virtualThreadExecutor;
+            this.virtualThreads = true;
+        } else {
+            ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(fallbackThreads, fallbackThreads,
+                    60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(fallbackQueueCapacity),
+                    new CustomizableThreadFactory("retry-time-limiter-"), new ThreadPoolExecutor.AbortPolicy());
+            // 空闲的时候线程可以回收
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+            this.executorService = threadPoolExecutor;
+            this.virtualThreads = false;
+        }
+        this.taskDecorator = taskDecorator;
+        log.info("attempt time limit executor virtualThreads={}", virtualThreads);
+    }
+
+    public AttemptTimeLimitExecutor(boolean preferVirtualThreads, int fallbackThreads, int fallbackQueueCapacity) {
+        this(preferVirtualThreads, fallbackThreads, fallbackQueueCapacity, new ContextPropagatingTaskDecorator());
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() jdk21 才有
+     *
+     * @return 不支持的时候返回 null
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 限时执行 超时中断执行线程
+     *
+     * @param callable 单次尝试
+     * @param duration 超时时间
+     * @param timeUnit 超时时间单位
+     * @param <V>      返回值
+     * @return 尝试的返回值
+     * @throws AttemptTimeoutException 超时
+     * @throws Exception               尝试本身抛出的异常
+     */
+    public <V> V call(Callable<V> callable, long duration, TimeUnit timeUnit) throws Exception {
+        FutureTask<V> task = new FutureTask<>(callable);
+        // 线程池满了 RejectedExecutionException 直接抛给调用方 按这次尝试失败处理
+        executorService.execute(taskDecorator == null ? task : taskDecorator.decorate(task));
+        try {
+            return task.get(duration, timeUnit);
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            throw new AttemptTimeoutException("attempt timed out after " + duration + " " + timeUnit);
+        } catch (InterruptedException e) {
+            // 调用线程被中断 尝试也不需要继续了
+            task.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new UndeclaredThrowableException(cause);
+        }
+    }
+
+    /**
+     * 不限时 在执行线程上运行 (同样带上调用线程的上下文)，对冲请求等需要自己等待多个尝试的场景使用
+     *
+     * @return 执行器 满了抛出 RejectedExecutionException
+     */
+    public Executor executor() {
+        return command -> executorService.execute(taskDecorator == null ? command : taskDecorator.decorate(command));
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * 平台线程池里面的线程数 虚拟线程的时候为 0
+     */
+    public int poolSize() {
+        return executorService instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executorService).getPoolSize() : 0;
+    }
+
+    public void shutdown() {
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.wangji92.retry.springretryexample.support.timelimit;
+
+/**
+ * 单次尝试超时 执行尝试的线程已经被中断
+ * 是否重试由 retryOn 决定，默认的策略只重试 RemoteAccessException，超时会直接走兜底
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class AttemptTimeoutException extends RuntimeException {
+
+    public AttemptTimeoutException(String message) {
+        super(message);
+    }
+}
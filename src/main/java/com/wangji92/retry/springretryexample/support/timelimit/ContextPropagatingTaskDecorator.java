@@ -0,0 +1,50 @@
+package com.wangji92.retry.springretryexample.support.timelimit;
+
+import org.slf4j.MDC;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Map;
+
+/**
+ * 切换线程执行的时候 把调用线程的 MDC、RequestContextHolder、LocaleContextHolder 带过去，执行完恢复成原来的值
+ * (池化的线程会被复用，不恢复的话上下文会串到下一个任务)
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class ContextPropagatingTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        LocaleContext localeContext = LocaleContextHolder.getLocaleContext();
+        return () -> {
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            RequestAttributes previousRequestAttributes = RequestContextHolder.getRequestAttributes();
+            LocaleContext previousLocaleContext = LocaleContextHolder.getLocaleContext();
+            setMdc(mdc);
+            RequestContextHolder.setRequestAttributes(requestAttributes);
+            LocaleContextHolder.setLocaleContext(localeContext);
+            try {
+                runnable.run();
+            } finally {
+                setMdc(previousMdc);
+                RequestContextHolder.setRequestAttributes(previousRequestAttributes);
+                LocaleContextHolder.setLocaleContext(previousLocaleContext);
+            }
+        };
+    }
+
+    private static void setMdc(Map<String, String> contextMap) {
+        if (contextMap == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(contextMap);
+        }
+    }
+}
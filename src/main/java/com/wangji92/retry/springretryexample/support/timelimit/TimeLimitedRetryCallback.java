@@ -0,0 +1,48 @@
+package com.wangji92.retry.springretryexample.support.timelimit;
+
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RetryTemplate 每次尝试限时执行
+ * RetryPolicy 只决定要不要再试，管不到尝试在哪个线程、执行多久，所以限时放在 RetryCallback 这一层
+ * <pre>
+ * retryTemplate.execute(new TimeLimitedRetryCallback<>(callback, executor, 1, TimeUnit.SECONDS), recoveryCallback);
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class TimeLimitedRetryCallback<T, E extends Throwable> implements RetryCallback<T, Exception> {
+
+    private final RetryCallback<T, E> delegate;
+
+    private final AttemptTimeLimitExecutor executor;
+
+    private final long duration;
+
+    private final TimeUnit timeUnit;
+
+    public TimeLimitedRetryCallback(RetryCallback<T, E> delegate, AttemptTimeLimitExecutor executor, long duration, TimeUnit timeUnit) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.duration = duration;
+        this.timeUnit = timeUnit;
+    }
+
+    @Override
+    public T doWithRetry(RetryContext context) throws Exception {
+        return executor.call(() -> {
+            try {
+                return delegate.doWithRetry(context);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        }, duration, timeUnit);
+    }
+}
@@ -0,0 +1,108 @@
+package com.wangji92.retry.springretryexample.support.timelimit;
+
+import com.wangji92.retry.springretryexample.support.recover.RecoverDispatcher;
+import com.wangji92.retry.springretryexample.support.recover.TargetRecoverer;
+import com.wangji92.retry.springretryexample.utils.RetryLabelUtils;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.MethodClassKey;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryOperations;
+import org.springframework.retry.interceptor.MethodInvocationRetryCallback;
+import org.springframework.retry.interceptor.RetryOperationsInterceptor;
+import org.springframework.retry.support.RetrySynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每次尝试限时执行的重试拦截器 通过 @Retryable(interceptor = "timeLimitedRetryInterceptor") 使用
+ * <p>
+ * 和 {@link RetryOperationsInterceptor} 一样使用 invocableClone().proceed() 执行每次尝试，只是放到
+ * {@link AttemptTimeLimitExecutor} 里面限时执行；兜底和注解方式一样 交给 {@link TargetRecoverer}
+ * 【指定 interceptor 之后 @Retryable 上的其他属性都不生效，重试策略以这里的 RetryOperations 为准】
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class TimeLimitedRetryInterceptor implements MethodInterceptor {
+
+    private final RetryOperations retryOperations;
+
+    private final AttemptTimeLimitExecutor executor;
+
+    private final long duration;
+
+    private final TimeUnit timeUnit;
+
+    private final Map<Method, String> labels = new ConcurrentHashMap<>();
+
+    /**
+     * 同一个方法可能有多个实现类 (接口方法)，按 方法 + 目标类型 缓存；调用时传入当前的目标对象 不绑定第一次见到的实例
+     */
+    private final Map<MethodClassKey, Optional<RecoverDispatcher>> recoverers = new ConcurrentHashMap<>();
+
+    public TimeLimitedRetryInterceptor(RetryOperations retryOperations, AttemptTimeLimitExecutor executor,
+                                       long duration, TimeUnit timeUnit) {
+        this.retryOperations = retryOperations;
+        this.executor = executor;
+        this.duration = duration;
+        this.timeUnit = timeUnit;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (!(invocation instanceof ProxyMethodInvocation)) {
+            throw new IllegalStateException("MethodInvocation of the wrong type detected: " + invocation.getClass());
+        }
+        // 和熔断、预算、指标一样使用 @Retryable 的 label
+        String label = labels.computeIfAbsent(invocation.getMethod(), method -> RetryLabelUtils.resolveLabel(invocation));
+        // 继承 MethodInvocationRetryCallback 监听器里面可以拿到方法信息
+        MethodInvocationRetryCallback<Object, Exception> retryCallback = new MethodInvocationRetryCallback<Object, Exception>(invocation, label) {
+            @Override
+            public Object doWithRetry(RetryContext context) throws Exception {
+                context.setAttribute(RetryContext.NAME, label);
+                // 每次尝试都要 clone，执行线程上用的是自己的拦截器链下标
+                ProxyMethodInvocation attempt = (ProxyMethodInvocation) ((ProxyMethodInvocation) invocation).invocableClone();
+                return executor.call(() -> {
+                    // 重试上下文是 ThreadLocal 的，执行线程上也注册一份 里面的拦截器 (比如熔断) 可以拿到
+                    RetryContext previous = RetrySynchronizationManager.register(context);
+                    try {
+                        return attempt.proceed();
+                    } catch (Exception | Error e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        throw new UndeclaredThrowableException(e);
+                    } finally {
+                        RetrySynchronizationManager.register(previous);
+                    }
+                }, duration, timeUnit);
+            }
+        };
+        Object target = invocation.getThis();
+        Class<?> targetClass = AopUtils.getTargetClass(target);
+        Optional<RecoverDispatcher> dispatcher = recoverers.computeIfAbsent(new MethodClassKey(invocation.getMethod(), targetClass),
+                key -> findRecoverer(targetClass, invocation.getMethod()));
+        if (!dispatcher.isPresent()) {
+            return retryOperations.execute(retryCallback);
+        }
+        Object[] args = Arrays.copyOf(invocation.getArguments(), invocation.getArguments().length);
+        return retryOperations.execute(retryCallback, context -> TargetRecoverer.recover(target, invocation.getMethod(), args,
+                context.getLastThrowable(), dispatcher.get()));
+    }
+
+    /**
+     * 没有返回值兼容的 @Recover 方法的时候不设置兜底 原来的异常直接抛给调用方 (不变成 Cannot locate recovery method)
+     */
+    private static Optional<RecoverDispatcher> findRecoverer(Class<?> targetClass, Method method) {
+        RecoverDispatcher dispatcher = RecoverDispatcher.forMethod(targetClass, method);
+        return dispatcher.hasCandidates() ? Optional.of(dispatcher) : Optional.empty();
+    }
+}
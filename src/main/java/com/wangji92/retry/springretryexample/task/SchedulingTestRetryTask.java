@@ -1,10 +1,8 @@
 package com.wangji92.retry.springretryexample.task;
 
-import com.github.rholder.retry.*;
-import com.google.common.base.Preconditions;
-import com.google.common.util.concurrent.SimpleTimeLimiter;
-import com.google.common.util.concurrent.TimeLimiter;
+import com.github.rholder.retry.Retryer;
 import com.wangji92.retry.springretryexample.service.RetryTestService;
+import com.wangji92.retry.springretryexample.support.registry.RetryRegistry;
 import com.wangji92.retry.springretryexample.utils.AopTargetUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,19 +12,12 @@ import org.springframework.remoting.RemoteAccessException;
 import org.springframework.retry.RecoveryCallback;
 import org.springframework.retry.RetryCallback;
 import org.springframework.retry.RetryContext;
-import org.springframework.retry.RetryListener;
 import org.springframework.retry.annotation.AnnotationAwareRetryOperationsInterceptor;
 import org.springframework.retry.interceptor.RetryOperationsInterceptor;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.Nonnull;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-
 /**
  * @author 汪小哥
  * @date 02-04-2021
@@ -35,14 +26,14 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class SchedulingTestRetryTask {
 
-
-    private static final int DELAY_TIME = 5000;
-
     @Autowired
     private RetryTestService retryTestService;
 
+    /**
+     * 重试策略在 application.properties 里面配置 启动时构建好，这里每次调度直接复用
+     */
     @Autowired
-    private RetryListener retryListener;
+    private RetryRegistry retryRegistry;
 
     /**
      * aop的方式测试
@@ -53,12 +44,102 @@ public class SchedulingTestRetryTask {
 
         @Scheduled(fixedRate = 30000)
         public void retryTestService() {
-            int responseBody = retryTestService.retryTestService();
+            // 交给死信队列 (retry.dead-letter.labels) 兜底的时候为 null
+            Integer responseBody = retryTestService.retryTestService();
             log.info("retryTestService response result is {}", responseBody);
 
         }
     }
 
+    /**
+     * aop 的方式 每次尝试限时执行
+     */
+    @ConditionalOnExpression("#{'true'.equals(environment['aopSpringRetryLimitTime'])}")
+    @Configuration
+    public class AopSpringRetryLimitTime {
+
+        @Scheduled(fixedRate = 30000)
+        public void retryTestServiceLimitTime() {
+            int responseBody = retryTestService.retryTestServiceLimitTime();
+            log.info("retryTestServiceLimitTime response result is {}", responseBody);
+        }
+    }
+
+    /**
+     * aop 的方式 对冲请求 调用频繁一点 才有足够的耗时样本算分位数
+     */
+    @ConditionalOnExpression("#{'true'.equals(environment['aopSpringRetryHedged'])}")
+    @Configuration
+    public class AopSpringRetryHedged {
+
+        @Scheduled(fixedRate = 1000)
+        public void retryTestServiceHedged() {
+            int responseBody = retryTestService.retryTestServiceHedged();
+            log.info("retryTestServiceHedged response result is {}", responseBody);
+        }
+    }
+
+    /**
+     * aop 的方式 自适应重试 调用频繁一点 EWMA 才能跟上 /outageApi 故障、恢复的变化
+     */
+    @ConditionalOnExpression("#{'true'.equals(environment['aopSpringRetryAdaptive'])}")
+    @Configuration
+    public class AopSpringRetryAdaptive {
+
+        @Scheduled(fixedRate = 1000)
+        public void retryTestServiceAdaptive() {
+            int responseBody = retryTestService.retryTestServiceAdaptive();
+            log.info("retryTestServiceAdaptive response result is {}", responseBody);
+        }
+    }
+
+    /**
+     * aop 的方式 按状态码分类重试 500、401、503 轮流，401 不重试 503 按 Retry-After 等待
+     */
+    @ConditionalOnExpression("#{'true'.equals(environment['aopSpringRetryClassified'])}")
+    @Configuration
+    public class AopSpringRetryClassified {
+
+        private final int[] statuses = {500, 401, 503};
+
+        private int next;
+
+        @Scheduled(fixedRate = 30000)
+        public void retryTestServiceClassified() {
+            int status = statuses[next++ % statuses.length];
+            Integer responseBody = retryTestService.retryTestServiceClassified(status);
+            log.info("retryTestServiceClassified status={} response result is {}", status, responseBody);
+        }
+    }
+
+    /**
+     * 非阻塞的重试 订阅之后调度线程直接返回
+     */
+    @ConditionalOnExpression("#{'true'.equals(environment['aopSpringRetryReactive'])}")
+    @Configuration
+    public class AopSpringRetryReactive {
+
+        @Scheduled(fixedRate = 30000)
+        public void retryTestServiceReactive() {
+            retryTestService.retryTestServiceReactive()
+                    .subscribe(responseBody -> log.info("reactive retryTestService response result is {}", responseBody));
+        }
+    }
+
+    /**
+     * 异步重试 退避不占用调度线程
+     */
+    @ConditionalOnExpression("#{'true'.equals(environment['asyncSpringRetry'])}")
+    @Configuration
+    public class AsyncSpringRetry {
+
+        @Scheduled(fixedRate = 30000)
+        public void retryTestServiceAsync() {
+            retryTestService.retryTestServiceAsync()
+                    .thenAccept(responseBody -> log.info("async retryTestService response result is {}", responseBody));
+        }
+    }
+
     /**
      * 编程的方式 测试 retry
      * {@link AnnotationAwareRetryOperationsInterceptor#getDelegate(java.lang.Object, java.lang.reflect.Method)}
@@ -72,14 +153,8 @@ public class SchedulingTestRetryTask {
             // 获取原始的对象
             RetryTestService targetRetryTestService = (RetryTestService) AopTargetUtils.getTarget(retryTestService);
 
-            RetryTemplate retryTemplate = RetryTemplate.builder()
-                    .maxAttempts(2)
-                    .fixedBackoff(DELAY_TIME)
-                    .retryOn(RemoteAccessException.class)
-                    .traversingCauses()
-                    // 非必须
-                    .withListener(retryListener)
-                    .build();
+            // maxAttempts=2 退避 5000 起 decorrelated 抖动 retryOn=RemoteAccessException traversingCauses 监听器是所有 RetryListener 的 bean
+            RetryTemplate retryTemplate = retryRegistry.retryTemplate("retryTestService");
 
             Integer responseBody = retryTemplate.execute(new RetryCallback<Integer, RemoteAccessException>() {
 
@@ -111,15 +186,8 @@ public class SchedulingTestRetryTask {
             RetryTestService targetRetryTestService = (RetryTestService) AopTargetUtils.getTarget(retryTestService);
 
             // RetryerBuilder 构建重试实例 guavaRetryer,可以设置重试源且可以支持多个重试源，可以配置重试次数或重试超时时间，以及可以配置等待时间间隔
-            Retryer<Integer> guavaRetryer = RetryerBuilder.<Integer>newBuilder()
-                    //设置异常重试源 根据异常 也可以 retryIfResult 根据结果
-                    .retryIfExceptionOfType(RemoteAccessException.class)
-
-                    //设置等待间隔时间
-                    .withWaitStrategy(WaitStrategies.fixedWait(5, TimeUnit.SECONDS))
-                    //设置最大重试次数
-                    .withStopStrategy(StopStrategies.stopAfterAttempt(2))
-                    .build();
+            // 异常重试源 RemoteAccessException、等待间隔 5s、最大重试次数 2 都在配置里面 启动时构建一次
+            Retryer<Integer> guavaRetryer = retryRegistry.guavaRetryer("retryTestService");
             Integer responseBody = null;
             try {
                 responseBody = guavaRetryer.call(targetRetryTestService::retryTestService);
@@ -146,18 +214,10 @@ public class SchedulingTestRetryTask {
             // 获取原始的对象
             RetryTestService targetRetryTestService = (RetryTestService) AopTargetUtils.getTarget(retryTestService);
 
-            // RetryerBuilder 构建重试实例 guavaRetryer,可以设置重试源且可以支持多个重试源，可以配置重试次数或重试超时时间，以及可以配置等待时间间隔
-            Retryer<Integer> guavaRetryer = RetryerBuilder.<Integer>newBuilder()
-                    //设置异常重试源 根据异常 也可以 retryIfResult 根据结果
-                    .retryIfExceptionOfType(RemoteAccessException.class)
-
-                    // 【这里将会使用多线程执行(other 线程执行、会导致事务问题、线程上下文传递问题 一定要小心)】 还有这个框架 这个属性高版本不支持了.
-                    .withAttemptTimeLimiter(new FixedAttemptTimeLimit<Integer>(1, TimeUnit.MINUTES))
-                    //设置等待间隔时间
-                    .withWaitStrategy(WaitStrategies.fixedWait(5, TimeUnit.SECONDS))
-                    //设置最大重试次数
-                    .withStopStrategy(StopStrategies.stopAfterAttempt(2))
-                    .build();
+            // 和上面一样 多了 attempt-timeout=60000
+            // 【这里将会使用多线程执行(other 线程执行、会导致事务问题、线程上下文传递问题 一定要小心)】 还有这个框架 这个属性高版本不支持了.
+            // 限时执行使用 registry 里面共享的执行器 (jdk21+ 虚拟线程 否则有界线程池)，MDC 会带到执行线程，超时会中断
+            Retryer<Integer> guavaRetryer = retryRegistry.guavaRetryer("retryTestServiceLimitTime");
             Integer responseBody = null;
             try {
                 log.info("guava retry retryTestService begin thread name={}", Thread.currentThread().getName());
@@ -176,40 +236,6 @@ public class SchedulingTestRetryTask {
 
         }
 
-
-        /**
-         * {@literal https://github.com/rholder/guava-retrying/issues/66 这个框架没有人支持升级}
-         * guava retry 这里过期了..
-         *
-         * @param <V>
-         */
-        private final class FixedAttemptTimeLimit<V> implements AttemptTimeLimiter<V> {
-
-            private final TimeLimiter timeLimiter;
-            private final long duration;
-            private final TimeUnit timeUnit;
-
-            public FixedAttemptTimeLimit(long duration, @Nonnull TimeUnit timeUnit) {
-                this(SimpleTimeLimiter.create(Executors.newFixedThreadPool(10)), duration, timeUnit);
-            }
-
-            public FixedAttemptTimeLimit(long duration, @Nonnull TimeUnit timeUnit, @Nonnull ExecutorService executorService) {
-                this(SimpleTimeLimiter.create(executorService), duration, timeUnit);
-            }
-
-            private FixedAttemptTimeLimit(@Nonnull TimeLimiter timeLimiter, long duration, @Nonnull TimeUnit timeUnit) {
-                Preconditions.checkNotNull(timeLimiter);
-                Preconditions.checkNotNull(timeUnit);
-                this.timeLimiter = timeLimiter;
-                this.duration = duration;
-                this.timeUnit = timeUnit;
-            }
-
-            @Override
-            public V call(Callable<V> callable) throws Exception {
-                return timeLimiter.callWithTimeout(callable, duration, timeUnit);
-            }
-        }
     }
 
 
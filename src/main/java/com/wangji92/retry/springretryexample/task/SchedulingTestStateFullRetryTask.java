@@ -2,6 +2,8 @@ package com.wangji92.retry.springretryexample.task;
 
 import com.wangji92.retry.springretryexample.dto.TextMessageDto;
 import com.wangji92.retry.springretryexample.service.StatefulRetryTestService;
+import com.wangji92.retry.springretryexample.support.batch.BatchResult;
+import com.wangji92.retry.springretryexample.support.registry.RetryRegistry;
 import com.wangji92.retry.springretryexample.utils.AopTargetUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,15 +15,15 @@ import org.springframework.retry.RetryCallback;
 import org.springframework.retry.RetryContext;
 import org.springframework.retry.RetryState;
 import org.springframework.retry.annotation.AnnotationAwareRetryOperationsInterceptor;
-import org.springframework.retry.backoff.FixedBackOffPolicy;
 import org.springframework.retry.interceptor.StatefulRetryOperationsInterceptor;
-import org.springframework.retry.policy.MapRetryContextCache;
-import org.springframework.retry.policy.SimpleRetryPolicy;
 import org.springframework.retry.support.DefaultRetryState;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * 有状态的测试
  *
@@ -35,7 +37,11 @@ public class SchedulingTestStateFullRetryTask {
     @Autowired
     private StatefulRetryTestService statefulRetryTestService;
 
-    private static final int DELAY_TIME = 5000;
+    /**
+     * 重试策略在 application.properties 里面配置 启动时构建好，这里每次调度直接复用
+     */
+    @Autowired
+    private RetryRegistry retryRegistry;
 
     /**
      * aop的方式测试
@@ -47,12 +53,32 @@ public class SchedulingTestStateFullRetryTask {
         public void retryTestService() {
             TextMessageDto messageDto = new TextMessageDto();
             messageDto.setMessageId("001");
-            int responseBody = statefulRetryTestService.stateFullRetryTestSendMessage(messageDto);
+            // 交给死信队列 (retry.dead-letter.labels) 兜底的时候为 null
+            Integer responseBody = statefulRetryTestService.stateFullRetryTestSendMessage(messageDto);
             log.info("AopStateFullRetry response result is {}", responseBody);
 
         }
     }
 
+    /**
+     * 批量发送 失败的消息单独重试
+     */
+    @ConditionalOnExpression("#{'true'.equals(environment['aopBatchRetry'])}")
+    @Configuration
+    public class AopBatchRetry {
+        @Scheduled(fixedRate = 30000)
+        public void retryTestService() {
+            List<TextMessageDto> messages = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                TextMessageDto messageDto = new TextMessageDto();
+                messageDto.setMessageId(String.format("batch-%03d", i));
+                messages.add(messageDto);
+            }
+            BatchResult<TextMessageDto, Integer> result = statefulRetryTestService.stateFullRetryTestSendMessages(messages);
+            log.info("AopBatchRetry response result is {}", result);
+        }
+    }
+
     /**
      * 编程方式测试
      * {@link AnnotationAwareRetryOperationsInterceptor#getDelegate(java.lang.Object, java.lang.reflect.Method)}
@@ -65,16 +91,9 @@ public class SchedulingTestStateFullRetryTask {
         @Scheduled(fixedRate = 30000)
         public void retryTestService() throws Throwable {
 
-            RetryTemplate template = new RetryTemplate();
-
-            SimpleRetryPolicy simple = new SimpleRetryPolicy();
-            simple.setMaxAttempts(2);
-            template.setRetryPolicy(simple);
-
-            FixedBackOffPolicy backOffPolicy = new FixedBackOffPolicy();
-            backOffPolicy.setBackOffPeriod(DELAY_TIME);
-            template.setBackOffPolicy(backOffPolicy);
-
+            // maxAttempts=2 backOffPeriod=5000 decorrelated 抖动
+            // 调用失败的缓存 默认的 MapRetryContextCache、SoftReferenceMapRetryContextCache 都存放在内存里面的! registry 里面使用的是有界的缓存
+            RetryTemplate template = retryRegistry.retryTemplate("stateFullRetryTestSendMessage");
 
             TextMessageDto messageDto = new TextMessageDto();
             messageDto.setMessageId("001");
@@ -85,9 +104,6 @@ public class SchedulingTestStateFullRetryTask {
              */
             RetryState state = new DefaultRetryState(messageDto, false, null);
 
-            // 调用失败的缓存 都存放在内存里面的! SoftReferenceMapRetryContextCache
-            template.setRetryContextCache(new MapRetryContextCache());
-
             // 获取原始的对象
             StatefulRetryTestService targetStatefulRetryTestService = (StatefulRetryTestService) AopTargetUtils.getTarget(statefulRetryTestService);
 
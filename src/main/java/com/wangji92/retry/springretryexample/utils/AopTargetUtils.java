@@ -1,65 +1,127 @@
 package com.wangji92.retry.springretryexample.utils;
 
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.aop.framework.AdvisedSupport;
-import org.springframework.aop.framework.AopProxy;
+import org.springframework.aop.SpringProxy;
+import org.springframework.aop.TargetSource;
+import org.springframework.aop.framework.Advised;
 import org.springframework.aop.support.AopUtils;
 
-import java.lang.reflect.Field;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 参考文档 https://www.letianbiji.com/spring/spring-get-target-from-proxy.html
+ * <p>
+ * 原来的实现每次调用都反射读取 CGLIB$CALLBACK_0 / h 字段再 setAccessible，jdk17 上 jdk 动态代理的 h 字段不能访问，失败的时候打日志返回代理对象；
+ * 现在通过 spring 代理都会实现的 {@link Advised} 接口取 {@link TargetSource}，不用反射。
+ * 每一层都是静态的 TargetSource (单例 bean 的 SingletonTargetSource) 的时候每个代理只解析一次，之后是一次 map 查找；
+ * 代理套代理的时候一直拆到最里面的对象
  *
  * @author 汪小哥
  * @date 02-04-2021
  */
-@Slf4j
 public class AopTargetUtils {
+
+    /**
+     * 代理对象 -> 最里面的目标对象，按对象的引用比较 (代理的 equals/hashCode 比较的是代理的配置)
+     * 【代理、目标对象都是弱引用 不会让代理一直存活：静态的 TargetSource 代理活着目标对象就活着；
+     * 目标对象可能注入了自己的代理，强引用目标对象的话代理永远不会被回收】
+     */
+    private static final Map<ProxyKey, WeakReference<Object>> TARGETS = new ConcurrentHashMap<>();
+
+    /**
+     * 被回收的代理 下一次写入的时候从 TARGETS 里面删掉
+     */
+    private static final ReferenceQueue<Object> COLLECTED = new ReferenceQueue<>();
+
     /**
      * 获取 目标对象
      *
      * @param proxy 代理对象
-     * @return
-     * @throws Exception
+     * @return 不是代理的时候为对象本身
+     * @throws IllegalStateException 代理设置了 opaque 不能转成 Advised，或者 TargetSource 取目标对象失败
      */
     public static Object getTarget(Object proxy) {
+        // isAopProxy 对 cglib 要检查类名 先查缓存
+        if (!(proxy instanceof SpringProxy)) {
+            return proxy;
+        }
+        WeakReference<Object> cached = TARGETS.get(new ProxyKey(proxy, null));
+        Object target = cached != null ? cached.get() : null;
+        if (target != null) {
+            return target;
+        }
+        target = proxy;
+        // 有一层不是静态的 (比如里面的代理是 prototype) 每次拆出来的对象都可能不一样 不缓存
+        boolean allStatic = true;
+        while (AopUtils.isAopProxy(target)) {
+            TargetSource targetSource = targetSource(target);
+            allStatic &= targetSource.isStatic();
+            target = resolve(target, targetSource);
+        }
+        if (allStatic && target != proxy) {
+            expungeCollected();
+            TARGETS.putIfAbsent(new ProxyKey(proxy, COLLECTED), new WeakReference<>(target));
+        }
+        return target;
+    }
 
-        try {
-            if (!AopUtils.isAopProxy(proxy)) {
-                return proxy;
-            }
+    private static void expungeCollected() {
+        for (Reference<?> collected; (collected = COLLECTED.poll()) != null; ) {
+            TARGETS.remove(collected);
+        }
+    }
+
+    private static TargetSource targetSource(Object proxy) {
+        if (!(proxy instanceof Advised)) {
+            throw new IllegalStateException("opaque proxy can not be unwrapped: " + proxy.getClass().getName());
+        }
+        return ((Advised) proxy).getTargetSource();
+    }
 
-            if (AopUtils.isJdkDynamicProxy(proxy)) {
-                return getJdkDynamicProxyTargetObject(proxy);
-            } else { //cglib
-                return getCglibProxyTargetObject(proxy);
+    private static Object resolve(Object proxy, TargetSource targetSource) {
+        try {
+            Object target = targetSource.getTarget();
+            if (target == null) {
+                throw new IllegalStateException("proxy has no target: " + proxy.getClass().getName());
             }
+            return target;
+        } catch (IllegalStateException e) {
+            throw e;
         } catch (Exception e) {
-            log.error("getTarget error", e);
+            throw new IllegalStateException("failed to get target of proxy: " + proxy.getClass().getName(), e);
         }
-        return proxy;
     }
 
+    /**
+     * 查找的时候 queue 为 null；被回收之后只和自己相等 从 TARGETS 里面删除
+     */
+    private static final class ProxyKey extends WeakReference<Object> {
 
-    private static Object getCglibProxyTargetObject(Object proxy) throws Exception {
-        Field h = proxy.getClass().getDeclaredField("CGLIB$CALLBACK_0");
-        h.setAccessible(true);
-        Object dynamicAdvisedInterceptor = h.get(proxy);
-
-        Field advised = dynamicAdvisedInterceptor.getClass().getDeclaredField("advised");
-        advised.setAccessible(true);
-
-        return ((AdvisedSupport) advised.get(dynamicAdvisedInterceptor)).getTargetSource().getTarget();
-    }
+        private final int hash;
 
-    private static Object getJdkDynamicProxyTargetObject(Object proxy) throws Exception {
-        Field h = proxy.getClass().getSuperclass().getDeclaredField("h");
-        h.setAccessible(true);
-        AopProxy aopProxy = (AopProxy) h.get(proxy);
+        ProxyKey(Object proxy, ReferenceQueue<Object> queue) {
+            super(proxy, queue);
+            this.hash = System.identityHashCode(proxy);
+        }
 
-        Field advised = aopProxy.getClass().getDeclaredField("advised");
-        advised.setAccessible(true);
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (!(o instanceof ProxyKey)) {
+                return false;
+            }
+            Object proxy = get();
+            return proxy != null && proxy == ((ProxyKey) o).get();
+        }
 
-        return ((AdvisedSupport) advised.get(aopProxy)).getTargetSource().getTarget();
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 }
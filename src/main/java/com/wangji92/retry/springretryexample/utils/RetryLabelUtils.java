@@ -0,0 +1,36 @@
+package com.wangji92.retry.springretryexample.utils;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * 熔断、重试预算等按 @Retryable 方法区分的组件 统一使用的名称
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+public class RetryLabelUtils {
+
+    /**
+     * 和 spring retry 的 label 保持一致，没有 label 的时候使用 类名.方法名
+     *
+     * @param invocation 方法调用
+     * @return
+     */
+    public static String resolveLabel(MethodInvocation invocation) {
+        Method method = invocation.getMethod();
+        Retryable retryable = AnnotatedElementUtils.findMergedAnnotation(method, Retryable.class);
+        if (retryable == null && invocation.getThis() != null) {
+            retryable = AnnotatedElementUtils.findMergedAnnotation(AopUtils.getTargetClass(invocation.getThis()), Retryable.class);
+        }
+        if (retryable != null && StringUtils.hasText(retryable.label())) {
+            return retryable.label();
+        }
+        return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+    }
+}
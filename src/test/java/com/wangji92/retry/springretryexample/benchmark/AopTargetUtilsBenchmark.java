@@ -0,0 +1,83 @@
+package com.wangji92.retry.springretryexample.benchmark;
+
+import com.wangji92.retry.springretryexample.utils.AopTargetUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.AdvisedSupport;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调度任务每次执行都要从代理拿到原始的对象：原来反射读 CGLIB$CALLBACK_0、advised 字段 (每次 getDeclaredField + setAccessible)，
+ * 和现在通过 Advised 解析一次之后缓存的对比
+ * 【原来的实现在 jdk17 上 jdk 动态代理的 h 字段不能 setAccessible，只对比 cglib；jdk 动态代理只有现在的实现】
+ * <pre>
+ * mvn -Pjmh verify -Djmh.includes=AopTargetUtilsBenchmark
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Benchmark)
+public class AopTargetUtilsBenchmark {
+
+    private Object cglibProxy;
+
+    private Object jdkProxy;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Service target = new Service();
+        ProxyFactory cglib = new ProxyFactory(target);
+        cglib.setProxyTargetClass(true);
+        cglibProxy = cglib.getProxy();
+        ProxyFactory jdk = new ProxyFactory(target);
+        jdk.addInterface(Callable.class);
+        jdkProxy = jdk.getProxy();
+    }
+
+    @Benchmark
+    public Object reflectiveCglib() throws Exception {
+        Field h = cglibProxy.getClass().getDeclaredField("CGLIB$CALLBACK_0");
+        h.setAccessible(true);
+        Object dynamicAdvisedInterceptor = h.get(cglibProxy);
+        Field advised = dynamicAdvisedInterceptor.getClass().getDeclaredField("advised");
+        advised.setAccessible(true);
+        return ((AdvisedSupport) advised.get(dynamicAdvisedInterceptor)).getTargetSource().getTarget();
+    }
+
+    @Benchmark
+    public Object cachedCglib() {
+        return AopTargetUtils.getTarget(cglibProxy);
+    }
+
+    @Benchmark
+    public Object cachedJdk() {
+        return AopTargetUtils.getTarget(jdkProxy);
+    }
+
+    public static class Service implements Callable<String> {
+
+        @Override
+        public String call() {
+            return "200";
+        }
+    }
+}
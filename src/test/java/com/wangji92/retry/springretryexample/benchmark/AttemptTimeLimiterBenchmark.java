@@ -0,0 +1,120 @@
+package com.wangji92.retry.springretryexample.benchmark;
+
+import com.github.rholder.retry.AttemptTimeLimiter;
+import com.wangji92.retry.springretryexample.support.guava.ExecutorAttemptTimeLimit;
+import com.wangji92.retry.springretryexample.support.guava.FixedAttemptTimeLimit;
+import com.wangji92.retry.springretryexample.support.timelimit.AttemptTimeLimitExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 1 万个调用同时做限时尝试，每次尝试阻塞 5ms (模拟远程调用)，测全部完成需要的时间
+ * <ul>
+ *     <li>fixedPool: 原来的写法 FixedAttemptTimeLimit + Executors.newFixedThreadPool(10)</li>
+ *     <li>boundedPool: AttemptTimeLimitExecutor 退化成 200 个线程的有界线程池</li>
+ *     <li>virtualThread: AttemptTimeLimitExecutor 每次尝试一个虚拟线程 (jdk21+，低版本会退化成 boundedPool)</li>
+ * </ul>
+ * 调用方本身用虚拟线程 (低版本 jdk 用 1 万个平台线程) 模拟 1 万个并发的请求
+ * <pre>
+ * mvn -Pjmh verify -Djmh.includes=AttemptTimeLimiterBenchmark "-Djmh.args=-jvm /path/to/jdk21/bin/java"
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Dlogback.configurationFile=logback-benchmark.xml", "-Xss256k"})
+@State(Scope.Benchmark)
+public class AttemptTimeLimiterBenchmark {
+
+    private static final int CONCURRENCY = 10_000;
+
+    private static final long ATTEMPT_MILLIS = 5;
+
+    @Param({"fixedPool", "boundedPool", "virtualThread"})
+    public String limiter;
+
+    private AttemptTimeLimiter<Integer> attemptTimeLimiter;
+
+    private ExecutorService fixedPool;
+
+    private AttemptTimeLimitExecutor attemptTimeLimitExecutor;
+
+    private ExecutorService callers;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        switch (limiter) {
+            case "fixedPool":
+                fixedPool = Executors.newFixedThreadPool(10);
+                attemptTimeLimiter = new FixedAttemptTimeLimit<>(1, TimeUnit.MINUTES, fixedPool);
+                break;
+            default:
+                attemptTimeLimitExecutor = new AttemptTimeLimitExecutor("virtualThread".equals(limiter), 200, CONCURRENCY);
+                attemptTimeLimiter = new ExecutorAttemptTimeLimit<>(attemptTimeLimitExecutor, 1, TimeUnit.MINUTES);
+        }
+        try {
+            callers = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            callers = Executors.newFixedThreadPool(CONCURRENCY);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        callers.shutdownNow();
+        if (fixedPool != null) {
+            fixedPool.shutdownNow();
+        }
+        if (attemptTimeLimitExecutor != null) {
+            attemptTimeLimitExecutor.shutdown();
+        }
+    }
+
+    private static Integer remoteCall() throws InterruptedException {
+        Thread.sleep(ATTEMPT_MILLIS);
+        return 200;
+    }
+
+    @Benchmark
+    public int concurrentLimitedCalls() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(CONCURRENCY);
+        AtomicInteger failed = new AtomicInteger();
+        for (int i = 0; i < CONCURRENCY; i++) {
+            callers.execute(() -> {
+                try {
+                    attemptTimeLimiter.call(AttemptTimeLimiterBenchmark::remoteCall);
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        if (failed.get() > 0) {
+            throw new IllegalStateException(failed.get() + " limited calls failed");
+        }
+        return CONCURRENCY;
+    }
+}
@@ -0,0 +1,119 @@
+package com.wangji92.retry.springretryexample.benchmark;
+
+import com.wangji92.retry.springretryexample.dto.TextMessageDto;
+import com.wangji92.retry.springretryexample.service.StatefulRetryTestService;
+import com.wangji92.retry.springretryexample.support.deadletter.DeadLetter;
+import com.wangji92.retry.springretryexample.support.deadletter.DeadLetterDrainer;
+import com.wangji92.retry.springretryexample.support.deadletter.DeadLetterQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 重试用完之后调用线程的兜底吞吐：
+ * <ul>
+ *     <li>sync: 原来的方式 调用线程上同步兜底，兜底是一次 1ms 的远程调用 (parkNanos 模拟)</li>
+ *     <li>deadLetter: 放到死信队列马上返回，刷盘线程按批次 write + force，后台不限速回放 (空的兜底) 并 ACK</li>
+ *     <li>deadLetterFlushEach: 每次放入之后调用线程自己刷盘 (每条一次 force) 返回，对比按批次刷盘的收益</li>
+ * </ul>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.includes=DeadLetterBenchmark
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@Threads(8)
+@State(Scope.Benchmark)
+public class DeadLetterBenchmark {
+
+    private static final String LABEL = "stateFullRetryTestSendMessage";
+
+    private static final long RECOVER_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Param({"sync", "deadLetter", "deadLetterFlushEach"})
+    public String mode;
+
+    private Path directory;
+
+    private DeadLetterQueue queue;
+
+    private DeadLetterDrainer drainer;
+
+    private Method method;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, NoSuchMethodException {
+        method = StatefulRetryTestService.class.getMethod("stateFullRetryTestSendMessage", TextMessageDto.class);
+        if (!"sync".equals(mode)) {
+            directory = Files.createTempDirectory("dead-letter-benchmark");
+            queue = new DeadLetterQueue(directory, Integer.MAX_VALUE, DeadLetterQueue.DEFAULT_SEGMENT_SIZE, 256, 10);
+            // 回放跟得上 文件按 ACK 删除 磁盘不会一直涨
+            drainer = new DeadLetterDrainer(queue, letter -> {
+            }, 0, 0, 0, 0);
+            drainer.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (queue != null) {
+            drainer.close();
+            queue.close();
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    private DeadLetter letter() {
+        TextMessageDto messageDto = new TextMessageDto();
+        messageDto.setMessageId(Long.toHexString(sequence.getAndIncrement() * 0x9E3779B97F4A7C15L));
+        messageDto.setMessageBody("hello");
+        return new DeadLetter(LABEL, StatefulRetryTestService.class, method, new Object[]{messageDto},
+                new RemoteAccessException("500"));
+    }
+
+    @Benchmark
+    public boolean recover() {
+        switch (mode) {
+            case "deadLetter":
+                return queue.offer(letter());
+            case "deadLetterFlushEach":
+                boolean offered = queue.offer(letter());
+                queue.flush();
+                return offered;
+            default:
+                // 兜底里面的 restTemplate.getForEntity(".../unstableApi/200")
+                letter();
+                LockSupport.parkNanos(RECOVER_NANOS);
+                return true;
+        }
+    }
+}
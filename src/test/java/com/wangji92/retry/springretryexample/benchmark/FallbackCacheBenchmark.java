@@ -0,0 +1,174 @@
+package com.wangji92.retry.springretryexample.benchmark;
+
+import com.wangji92.retry.springretryexample.config.RetryConfig;
+import com.wangji92.retry.springretryexample.support.advisor.RetryableMethodAdvisor;
+import com.wangji92.retry.springretryexample.support.fallback.FallbackCacheInterceptor;
+import com.wangji92.retry.springretryexample.support.fallback.FallbackResultCache;
+import com.wangji92.retry.springretryexample.support.key.LabelRoutingKeyGenerator;
+import com.wangji92.retry.springretryexample.support.recover.CachedRecoverer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.backoff.Sleeper;
+
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 一直失败的 @Retryable 方法 (两次尝试 不退避，异常提前创建好) 重试用完之后兜底的耗时：
+ * <ul>
+ *     <li>recover: 原来的方式 @Recover 里面一次 1ms 的远程调用 (parkNanos 模拟)</li>
+ *     <li>cache: time-to-live 之内 用最近一次成功的返回值兜底 {@link FallbackResultCache}</li>
+ *     <li>stale: 过了 time-to-live 还在 stale-while-revalidate 之内，返回旧值 同时提交后台刷新 (同一个 key 同时只有一个)</li>
+ * </ul>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.includes=FallbackCacheBenchmark
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Benchmark)
+public class FallbackCacheBenchmark {
+
+    private static final int MAX_ATTEMPTS = 2;
+
+    private static final long REMOTE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final RemoteAccessException FAILURE = new RemoteAccessException("500");
+
+    private static volatile boolean failing;
+
+    @Param({"recover", "cache", "stale"})
+    public String mode;
+
+    private AnnotationConfigApplicationContext applicationContext;
+
+    private Target target;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FallbackResultCache cache;
+        switch (mode) {
+            case "cache":
+                cache = new FallbackResultCache(new LabelRoutingKeyGenerator(LabelRoutingKeyGenerator.ARGUMENTS),
+                        Collections.singleton("quote"), 10000, TimeUnit.HOURS.toMillis(1), 0, null);
+                break;
+            case "stale":
+                // time-to-live 为 0 每次都是过期的值
+                cache = new FallbackResultCache(new LabelRoutingKeyGenerator(LabelRoutingKeyGenerator.ARGUMENTS),
+                        Collections.singleton("quote"), 10000, 0, TimeUnit.HOURS.toMillis(1), Executors.newSingleThreadExecutor());
+                break;
+            default:
+                cache = new FallbackResultCache(new LabelRoutingKeyGenerator(LabelRoutingKeyGenerator.ARGUMENTS),
+                        Collections.emptySet(), 1, 0, 0, null);
+        }
+        applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.registerBean(FallbackResultCache.class, () -> cache);
+        applicationContext.register(Config.class);
+        applicationContext.refresh();
+        target = applicationContext.getBean(Target.class);
+        failing = false;
+        target.quote("001");
+        failing = true;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        applicationContext.getBean(FallbackResultCache.class).close();
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public Integer recover() {
+        return target.quote("001");
+    }
+
+    /**
+     * 不加 @Configuration，否则 @SpringBootTest 扫描的时候会把这里的 bean 也注册进去
+     */
+    @EnableRetry(proxyTargetClass = true)
+    static class Config {
+
+        @Bean
+        public static BeanFactoryPostProcessor retryAdvisorOrderPostProcessor() {
+            return RetryConfig.retryAdvisorOrderPostProcessor();
+        }
+
+        @Bean
+        public RetryableMethodAdvisor exposeRetryInvocationAdvisor() {
+            return new RetryableMethodAdvisor(ExposeInvocationInterceptor.INSTANCE, RetryableMethodAdvisor.EXPOSE_INVOCATION_ORDER);
+        }
+
+        @Bean
+        public RetryableMethodAdvisor fallbackCacheAdvisor(FallbackResultCache fallbackResultCache) {
+            return new RetryableMethodAdvisor(new FallbackCacheInterceptor(fallbackResultCache), RetryableMethodAdvisor.FALLBACK_CACHE_ORDER);
+        }
+
+        @Bean
+        public Sleeper noSleeper() {
+            return backOffPeriod -> {
+            };
+        }
+
+        @Bean
+        public Target target() {
+            return new Target();
+        }
+    }
+
+    static class Target implements CachedRecoverer {
+
+        @Autowired
+        private FallbackResultCache fallbackResultCache;
+
+        @Retryable(label = "quote", value = RemoteAccessException.class, maxAttempts = MAX_ATTEMPTS, backoff = @Backoff(0))
+        public Integer quote(String symbol) {
+            if (failing) {
+                throw FAILURE;
+            }
+            return 100;
+        }
+
+        /**
+         * 兜底里面的 restTemplate.getForEntity(".../unstableApi/200")
+         */
+        @Recover
+        public Integer recover(RemoteAccessException e, String symbol) {
+            LockSupport.parkNanos(REMOTE_NANOS);
+            return 200;
+        }
+
+        @Override
+        public Object recover(Object[] args, Throwable cause) {
+            return fallbackResultCache.recover(args, cause, () -> CachedRecoverer.super.recover(args, cause));
+        }
+    }
+}
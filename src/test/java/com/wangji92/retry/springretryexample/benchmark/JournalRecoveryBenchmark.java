@@ -0,0 +1,139 @@
+package com.wangji92.retry.springretryexample.benchmark;
+
+import com.wangji92.retry.springretryexample.dto.TextMessageDto;
+import com.wangji92.retry.springretryexample.support.cache.CompactRetryKeyEncoder;
+import com.wangji92.retry.springretryexample.support.cache.JournalRetryContextCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JournalRetryContextCache 进程被 kill -9 之后重启的恢复时间
+ * <p>
+ * 每轮先起一个子进程写入 entries 条有状态重试的上下文，写完之后继续随机覆盖 (模拟还在处理消息)，
+ * 然后 kill -9 子进程，测量新打开 journal 重放出全部条目的时间；写入、读取的吞吐看 RetryContextCacheBenchmark 的 journal
+ * <pre>
+ * mvn -Pjmh verify -Djmh.includes=JournalRecoveryBenchmark
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Benchmark)
+public class JournalRecoveryBenchmark {
+
+    private static final String LABEL = "stateFullRetryTestSendMessage";
+
+    private static final String READY = "READY";
+
+    @Param({"1000000"})
+    public int entries;
+
+    private Path directory;
+
+    private JournalRetryContextCache recovered;
+
+    @Setup(Level.Iteration)
+    public void killWriter() throws IOException, InterruptedException {
+        directory = Files.createTempDirectory("retry-journal-recovery");
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process writer = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "-Dlogback.configurationFile=logback-benchmark.xml",
+                JournalRecoveryBenchmark.class.getName(), directory.toString(), String.valueOf(entries))
+                .redirectErrorStream(true)
+                .start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(writer.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null && !READY.equals(line)) {
+                // 等待写完
+            }
+            if (line == null) {
+                throw new IllegalStateException("journal writer exited before ready, exit code " + writer.waitFor());
+            }
+            // 让它继续写一会儿 kill 的时候大概率有一条写了一半的记录
+            TimeUnit.MILLISECONDS.sleep(200);
+            writer.destroyForcibly().waitFor();
+        }
+    }
+
+    @Benchmark
+    public int replay() {
+        recovered = open(directory, entries);
+        if (recovered.size() != entries) {
+            throw new IllegalStateException("expect " + entries + " entries but replayed " + recovered.size());
+        }
+        return recovered.size();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        if (recovered != null) {
+            recovered.close();
+            recovered = null;
+        }
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    private static JournalRetryContextCache open(Path directory, int entries) {
+        return new JournalRetryContextCache(directory, entries * 2, TimeUnit.MINUTES.toMillis(10),
+                new CompactRetryKeyEncoder().register(TextMessageDto.class, TextMessageDto::getMessageId),
+                JournalRetryContextCache.DEFAULT_SEGMENT_SIZE, 0);
+    }
+
+    private static Object key(long sequence) {
+        TextMessageDto messageDto = new TextMessageDto();
+        messageDto.setMessageId(Long.toHexString(sequence * 0x9E3779B97F4A7C15L));
+        return Arrays.asList(LABEL, messageDto);
+    }
+
+    /**
+     * 子进程：写入 entries 条之后输出 READY，然后一直覆盖已有的条目 直到被 kill
+     */
+    public static void main(String[] args) {
+        Path directory = Paths.get(args[0]);
+        int entries = Integer.parseInt(args[1]);
+        JournalRetryContextCache cache = open(directory, entries);
+        SimpleRetryPolicy policy = new SimpleRetryPolicy(3);
+        RetryContext context = policy.open(null);
+        policy.registerThrowable(context, new RemoteAccessException("500"));
+        for (int i = 0; i < entries; i++) {
+            cache.put(key(i), context);
+        }
+        System.out.println(READY);
+        System.out.flush();
+        while (true) {
+            cache.put(key(ThreadLocalRandom.current().nextInt(entries)), context);
+        }
+    }
+}
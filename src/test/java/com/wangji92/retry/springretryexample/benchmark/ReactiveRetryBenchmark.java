@@ -0,0 +1,222 @@
+package com.wangji92.retry.springretryexample.benchmark;
+
+import com.wangji92.retry.springretryexample.support.backoff.BackOffJitterProperties;
+import com.wangji92.retry.springretryexample.support.http.PooledClientHttpRequestFactory;
+import com.wangji92.retry.springretryexample.support.http.PooledHttpClientProperties;
+import com.wangji92.retry.springretryexample.support.metrics.RetryMetricsListener;
+import com.wangji92.retry.springretryexample.support.reactive.ReactiveRetryAdvisor;
+import com.wangji92.retry.springretryexample.support.reactive.ReactiveRetryInterceptor;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.annotation.AnnotationAwareRetryOperationsInterceptor;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.policy.MapRetryContextCache;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同样一批 inFlight 个 @Retryable 调用 (下游 10~30ms，每次尝试 20% 的概率 500 重试)，对比两种方式的吞吐
+ * <ul>
+ *     <li>blocking: RestTemplate + 注解的 RetryTemplate，提交到 workerThreads 个线程的线程池 (类比 tomcat、调度线程池)，退避 sleep 占着线程</li>
+ *     <li>reactive: WebClient + ReactiveRetryInterceptor，eventLoops 个 event loop 线程上同时发出全部请求，退避用定时器</li>
+ * </ul>
+ * 一次操作为一整批调用完成，吞吐 * inFlight 为每秒完成的调用数
+ * <pre>
+ * mvn -Pjmh verify -Djmh.includes=ReactiveRetryBenchmark
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Dlogback.configurationFile=logback-benchmark.xml", "-Dspring.devtools.restart.enabled=false"})
+@State(Scope.Benchmark)
+public class ReactiveRetryBenchmark {
+
+    @Param({"128"})
+    public int inFlight;
+
+    @Param({"16"})
+    public int workerThreads;
+
+    @Param({"1"})
+    public int eventLoops;
+
+    private DisposableServer server;
+
+    private PooledClientHttpRequestFactory pooledClientHttpRequestFactory;
+
+    private ExecutorService workers;
+
+    private LoopResources loopResources;
+
+    private ConnectionProvider connectionProvider;
+
+    private BlockingClient blockingClient;
+
+    private ReactiveClient reactiveClient;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 下游用 reactor-netty 的 server 延迟响应，不占线程 开销也比 tomcat + spring mvc 小 (单核机器上 mvc 本身就是瓶颈)
+        server = HttpServer.create().host("localhost").port(0)
+                .route(routes -> routes
+                        .get("/latencyApi", (request, response) -> response
+                                .header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+                                .sendString(Mono.just("200")
+                                .delayElement(Duration.ofMillis(ThreadLocalRandom.current().nextLong(10, 31)))))
+                        .get("/unstableApi/500", (request, response) -> response.status(500).send()))
+                .bindNow();
+        String baseUrl = "http://localhost:" + server.port();
+
+        PooledHttpClientProperties properties = new PooledHttpClientProperties();
+        properties.setMaxTotal(inFlight);
+        properties.setMaxPerRoute(inFlight);
+        pooledClientHttpRequestFactory = new PooledClientHttpRequestFactory(properties);
+        workers = Executors.newFixedThreadPool(workerThreads, new CustomizableThreadFactory("blocking-worker-"));
+        blockingClient = proxy(new BlockingClient(new RestTemplate(pooledClientHttpRequestFactory), baseUrl),
+                new DefaultPointcutAdvisor(new AnnotationAwareRetryOperationsInterceptor()));
+
+        loopResources = LoopResources.create("reactive-loop", eventLoops, true);
+        connectionProvider = ConnectionProvider.builder("benchmark").maxConnections(inFlight).build();
+        WebClient webClient = WebClient.builder().baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider).runOn(loopResources)))
+                .build();
+        reactiveClient = proxy(new ReactiveClient(webClient), new ReactiveRetryAdvisor(new ReactiveRetryInterceptor(
+                new MapRetryContextCache(), null, new RetryMetricsListener(null), new BackOffJitterProperties(), null, Schedulers.parallel())));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        workers.shutdownNow();
+        pooledClientHttpRequestFactory.destroy();
+        connectionProvider.disposeLater().block(Duration.ofSeconds(5));
+        loopResources.disposeLater().block(Duration.ofSeconds(5));
+        server.disposeNow();
+    }
+
+    @Benchmark
+    public int blocking() throws InterruptedException, ExecutionException {
+        List<Future<Integer>> futures = new ArrayList<>(inFlight);
+        for (int i = 0; i < inFlight; i++) {
+            futures.add(workers.submit(blockingClient::call));
+        }
+        int sum = 0;
+        for (Future<Integer> future : futures) {
+            sum += future.get();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int reactive() {
+        return Flux.range(0, inFlight)
+                .flatMap(i -> reactiveClient.call(), inFlight)
+                .reduce(0, Integer::sum)
+                .block(Duration.ofSeconds(30));
+    }
+
+    private static <T> T proxy(T target, Advisor advisor) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(advisor);
+        @SuppressWarnings("unchecked")
+        T proxy = (T) proxyFactory.getProxy();
+        return proxy;
+    }
+
+    /**
+     * 每次尝试 20% 的概率调用失败的接口
+     */
+    private static String path() {
+        return ThreadLocalRandom.current().nextInt(5) == 0 ? "/unstableApi/500" : "/latencyApi";
+    }
+
+    public static class BlockingClient {
+
+        private final RestTemplate restTemplate;
+
+        private final String baseUrl;
+
+        public BlockingClient(RestTemplate restTemplate, String baseUrl) {
+            this.restTemplate = restTemplate;
+            this.baseUrl = baseUrl;
+        }
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = 5, backoff = @Backoff(10))
+        public Integer call() {
+            try {
+                return restTemplate.getForObject(baseUrl + path(), Integer.class);
+            } catch (Exception e) {
+                throw new RemoteAccessException("500", e);
+            }
+        }
+
+        @Recover
+        public Integer recover(RemoteAccessException e) {
+            return 0;
+        }
+    }
+
+    public static class ReactiveClient {
+
+        private final WebClient webClient;
+
+        public ReactiveClient(WebClient webClient) {
+            this.webClient = webClient;
+        }
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = 5, backoff = @Backoff(10))
+        public Mono<Integer> call() {
+            return webClient.get().uri(path()).retrieve().bodyToMono(Integer.class)
+                    .onErrorMap(e -> new RemoteAccessException("500", e));
+        }
+
+        @Recover
+        public Mono<Integer> recover(RemoteAccessException e) {
+            return Mono.just(0);
+        }
+    }
+}
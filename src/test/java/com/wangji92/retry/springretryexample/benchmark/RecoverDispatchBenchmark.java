@@ -0,0 +1,162 @@
+package com.wangji92.retry.springretryexample.benchmark;
+
+import com.wangji92.retry.springretryexample.dto.TextMessageDto;
+import com.wangji92.retry.springretryexample.support.advisor.RetryableMethodAdvisor;
+import com.wangji92.retry.springretryexample.support.batch.BatchResult;
+import com.wangji92.retry.springretryexample.support.batch.BatchRetryExhaustedException;
+import com.wangji92.retry.springretryexample.support.recover.CachedRecoverHandler;
+import com.wangji92.retry.springretryexample.support.recover.CachedRecoverer;
+import com.wangji92.retry.springretryexample.support.timelimit.AttemptTimeoutException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.annotation.AnnotationAwareRetryOperationsInterceptor;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.annotation.RecoverAnnotationRecoveryHandler;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.interceptor.MethodInvocationRecoverer;
+import org.springframework.util.ReflectionUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 兜底方法的分发：spring 的 RecoverAnnotationRecoveryHandler (每次遍历 @Recover 方法、比较参数、Method.invoke) 和
+ * 按异常类型缓存、LambdaMetafactory 生成调用的 CachedRecoverHandler 对比；@Recover 方法和 RetryTestService、
+ * StatefulRetryTestService 的写法一样，只是不发 http 请求
+ * <ul>
+ *     <li>stateless: retryTestService 的兜底 recover(RemoteAccessException)，同一个类里面还有 Mono、超时的兜底</li>
+ *     <li>stateful: stateFullRetryTestSendMessage 的兜底 recover(RemoteAccessException, TextMessageDto)，还有批量的兜底</li>
+ *     <li>annotation: 整个注解的调用 maxAttempts = 1 失败之后直接兜底，cached 的目标对象实现 CachedRecoverer</li>
+ * </ul>
+ * <pre>
+ * mvn -Pjmh verify -Djmh.includes=RecoverDispatchBenchmark
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Benchmark)
+public class RecoverDispatchBenchmark {
+
+    /**
+     * 提前创建好 不把填充调用栈的开销算进去
+     */
+    private static final RemoteAccessException FAILURE = new RemoteAccessException("500");
+
+    @Param({"spring", "cached"})
+    public String dispatch;
+
+    private MethodInvocationRecoverer<?> statelessRecoverer;
+
+    private MethodInvocationRecoverer<?> statefulRecoverer;
+
+    private RetryService retryService;
+
+    private final Object[] noArgs = new Object[0];
+
+    private Object[] messageArgs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boolean cached = "cached".equals(dispatch);
+        RetryService target = cached ? new CachedRetryService() : new RetryService();
+        StatefulService statefulTarget = new StatefulService();
+        statelessRecoverer = recoverer(cached, target, ReflectionUtils.findMethod(RetryService.class, "retryTestService"));
+        statefulRecoverer = recoverer(cached, statefulTarget,
+                ReflectionUtils.findMethod(StatefulService.class, "stateFullRetryTestSendMessage", TextMessageDto.class));
+
+        TextMessageDto messageDto = new TextMessageDto();
+        messageDto.setMessageId("001");
+        messageArgs = new Object[]{messageDto};
+
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(new RetryableMethodAdvisor(ExposeInvocationInterceptor.INSTANCE, RetryableMethodAdvisor.EXPOSE_INVOCATION_ORDER));
+        proxyFactory.addAdvisor(new DefaultPointcutAdvisor(new AnnotationAwareRetryOperationsInterceptor()));
+        retryService = (RetryService) proxyFactory.getProxy();
+    }
+
+    private static MethodInvocationRecoverer<?> recoverer(boolean cached, Object target, java.lang.reflect.Method method) {
+        return cached ? new CachedRecoverHandler<>(target, method) : new RecoverAnnotationRecoveryHandler<>(target, method);
+    }
+
+    @Benchmark
+    public Object stateless() {
+        return statelessRecoverer.recover(noArgs, FAILURE);
+    }
+
+    @Benchmark
+    public Object stateful() {
+        return statefulRecoverer.recover(messageArgs, FAILURE);
+    }
+
+    @Benchmark
+    public Object annotation() {
+        return retryService.retryTestService();
+    }
+
+    public static class RetryService {
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = 1, backoff = @Backoff(0), recover = "recover")
+        public Integer retryTestService() {
+            throw FAILURE;
+        }
+
+        @Recover
+        public Integer recover(RemoteAccessException e) {
+            return 200;
+        }
+
+        @Recover
+        public Mono<Integer> recoverReactive(RemoteAccessException e) {
+            return Mono.just(200);
+        }
+
+        @Recover
+        public Integer recoverTimeout(AttemptTimeoutException e) {
+            return 200;
+        }
+    }
+
+    public static class CachedRetryService extends RetryService implements CachedRecoverer {
+    }
+
+    public static class StatefulService {
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = 2, recover = "recover", stateful = true)
+        public Integer stateFullRetryTestSendMessage(TextMessageDto messageDto) {
+            throw FAILURE;
+        }
+
+        @Recover
+        public BatchResult<TextMessageDto, Integer> recoverMessages(BatchRetryExhaustedException e, List<TextMessageDto> messages) {
+            return new BatchResult<>();
+        }
+
+        @Recover
+        public Integer recover(RemoteAccessException e, TextMessageDto messageDto) {
+            return messageDto.getMessageId().length();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.wangji92.retry.springretryexample.benchmark;
+
+import com.wangji92.retry.springretryexample.controller.MockApiController;
+import com.wangji92.retry.springretryexample.support.http.PooledClientHttpRequestFactory;
+import com.wangji92.retry.springretryexample.support.http.PooledHttpClientProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动 MockApiController 16 个线程并发调用 MockApiController 的 /unstableApi/200，对比 RestTemplate 的两种请求工厂
+ * <ul>
+ *     <li>simple: 原来的 new RestTemplate()，每次请求一个 HttpURLConnection (jdk 每个 host 最多缓存 5 个空闲连接)</li>
+ *     <li>pooled: PooledClientHttpRequestFactory 连接池 keep-alive 复用</li>
+ * </ul>
+ * Throughput 看吞吐，SampleTime 看 p99 延迟
+ * <pre>
+ * mvn -Pjmh verify -Djmh.includes=RestTemplateBenchmark "-Djmh.args=-prof gc"
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(value = 1, jvmArgsAppend = {"-Dlogback.configurationFile=logback-benchmark.xml", "-Dspring.devtools.restart.enabled=false"})
+@State(Scope.Benchmark)
+public class RestTemplateBenchmark {
+
+    @Param({"simple", "pooled"})
+    public String client;
+
+    private ServletWebServerApplicationContext applicationContext;
+
+    private PooledClientHttpRequestFactory pooledClientHttpRequestFactory;
+
+    private RestTemplate restTemplate;
+
+    private String url;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 只启动 web 层和 MockApiController，不扫描 (test 目录下的配置类也会被扫描到)、不启动定时任务
+        applicationContext = (ServletWebServerApplicationContext) new SpringApplicationBuilder(
+                ServletWebServerFactoryAutoConfiguration.class, DispatcherServletAutoConfiguration.class,
+                WebMvcAutoConfiguration.class, HttpMessageConvertersAutoConfiguration.class,
+                JacksonAutoConfiguration.class, MockApiController.class)
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run();
+        url = "http://localhost:" + applicationContext.getWebServer().getPort() + "/unstableApi/200";
+        if ("pooled".equals(client)) {
+            pooledClientHttpRequestFactory = new PooledClientHttpRequestFactory(new PooledHttpClientProperties());
+            restTemplate = new RestTemplate(pooledClientHttpRequestFactory);
+        } else {
+            restTemplate = new RestTemplate(new SimpleClientHttpRequestFactory());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (pooledClientHttpRequestFactory != null) {
+            pooledClientHttpRequestFactory.destroy();
+        }
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public String unstableApi() {
+        return restTemplate.getForObject(url, String.class);
+    }
+}
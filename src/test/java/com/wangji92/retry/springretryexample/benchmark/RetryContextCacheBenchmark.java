@@ -0,0 +1,129 @@
+package com.wangji92.retry.springretryexample.benchmark;
+
+import com.wangji92.retry.springretryexample.dto.TextMessageDto;
+import com.wangji92.retry.springretryexample.support.cache.BoundedRetryContextCache;
+import com.wangji92.retry.springretryexample.support.cache.CompactRetryKeyEncoder;
+import com.wangji92.retry.springretryexample.support.cache.JournalRetryContextCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.policy.MapRetryContextCache;
+import org.springframework.retry.policy.RetryContextCache;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.policy.SoftReferenceMapRetryContextCache;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 有状态重试 上下文缓存的对比：内置的 MapRetryContextCache、SoftReferenceMapRetryContextCache、BoundedRetryContextCache
+ * 和持久化的 JournalRetryContextCache
+ * <p>
+ * 每次操作模拟一条新的失败消息 (put)、一条之前失败消息的重新投递 (containsKey + get)、一条消息处理完成 (remove)，
+ * 每条消息都是新的 TextMessageDto 对象，只有 messageId 相同；加上 -prof gc 可以看到每次操作的分配
+ * <pre>
+ * mvn -Pjmh verify -Djmh.includes=RetryContextCacheBenchmark
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@Threads(4)
+@State(Scope.Benchmark)
+public class RetryContextCacheBenchmark {
+
+    private static final String LABEL = "stateFullRetryTestSendMessage";
+
+    /**
+     * 同时处于重试中的消息数
+     */
+    private static final long IN_FLIGHT = 50_000;
+
+    @Param({"map", "softReference", "bounded", "boundedOffHeap", "journal"})
+    public String cacheType;
+
+    private RetryContextCache cache;
+
+    private RetryContext context;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private Path journalDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        switch (cacheType) {
+            case "map":
+                cache = new MapRetryContextCache(Integer.MAX_VALUE);
+                break;
+            case "softReference":
+                cache = new SoftReferenceMapRetryContextCache(Integer.MAX_VALUE);
+                break;
+            case "journal":
+                journalDirectory = Files.createTempDirectory("retry-journal-benchmark");
+                // 每次操作都要写两条记录 压缩检查的间隔短一点 不然磁盘上的文件一直涨
+                cache = new JournalRetryContextCache(journalDirectory, (int) IN_FLIGHT * 2, TimeUnit.MINUTES.toMillis(10),
+                        new CompactRetryKeyEncoder().register(TextMessageDto.class, TextMessageDto::getMessageId),
+                        JournalRetryContextCache.DEFAULT_SEGMENT_SIZE, 1000);
+                break;
+            default:
+                CompactRetryKeyEncoder keyEncoder = new CompactRetryKeyEncoder()
+                        .register(TextMessageDto.class, TextMessageDto::getMessageId);
+                cache = new BoundedRetryContextCache((int) IN_FLIGHT * 2, TimeUnit.MINUTES.toMillis(10),
+                        BoundedRetryContextCache.DEFAULT_CONCURRENCY_LEVEL, keyEncoder, "boundedOffHeap".equals(cacheType));
+        }
+        SimpleRetryPolicy policy = new SimpleRetryPolicy(2);
+        context = policy.open(null);
+        policy.registerThrowable(context, new RemoteAccessException("500"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (cache instanceof JournalRetryContextCache) {
+            ((JournalRetryContextCache) cache).close();
+            FileSystemUtils.deleteRecursively(journalDirectory);
+        }
+    }
+
+    private static Object key(long sequence) {
+        TextMessageDto messageDto = new TextMessageDto();
+        // 线上的 messageId 一般是 uuid 之类的随机串，连续的数字会让 hash 挨在一起 访问局部性好得不真实
+        messageDto.setMessageId(Long.toHexString(sequence * 0x9E3779B97F4A7C15L));
+        return Arrays.asList(LABEL, messageDto);
+    }
+
+    @Benchmark
+    public void failRedeliverComplete(Blackhole blackhole) {
+        long id = sequence.getAndIncrement();
+        cache.put(key(id), context);
+        Object redelivered = key(Math.max(0, id - IN_FLIGHT / 2));
+        if (cache.containsKey(redelivered)) {
+            blackhole.consume(cache.get(redelivered));
+        }
+        cache.remove(key(id - IN_FLIGHT));
+    }
+}
@@ -0,0 +1,218 @@
+package com.wangji92.retry.springretryexample.benchmark;
+
+import com.github.rholder.retry.RetryException;
+import com.github.rholder.retry.Retryer;
+import com.github.rholder.retry.RetryerBuilder;
+import com.github.rholder.retry.StopStrategies;
+import com.github.rholder.retry.WaitStrategies;
+import com.wangji92.retry.springretryexample.support.guava.FixedAttemptTimeLimit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 项目里面对比的四种重试方式 每次调用框架本身的开销
+ * <ul>
+ *     <li>aop @Retryable</li>
+ *     <li>编程式 RetryTemplate</li>
+ *     <li>guava Retryer</li>
+ *     <li>guava Retryer + FixedAttemptTimeLimit (每次尝试都要切换到线程池)</li>
+ * </ul>
+ * 每种方式测两个场景：第一次就成功、两次都失败走兜底；退避时间都是 0，异常对象提前创建好，
+ * 这样测出来的只有框架本身的开销。重试器都只构建一次，和 SchedulingTestRetryTask 里面每次构建的写法不同
+ * <pre>
+ * mvn -Pjmh verify -Djmh.includes=RetryStrategyBenchmark
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Benchmark)
+public class RetryStrategyBenchmark {
+
+    private static final int MAX_ATTEMPTS = 2;
+
+    private static final Integer OK = 200;
+
+    /**
+     * 提前创建 不把 fillInStackTrace 的开销算进来
+     */
+    private static final RemoteAccessException FAILURE = new RemoteAccessException("500");
+
+    private AnnotationConfigApplicationContext applicationContext;
+
+    private AopTarget aopTarget;
+
+    private RetryTemplate retryTemplate;
+
+    private Retryer<Integer> guavaRetryer;
+
+    private Retryer<Integer> guavaTimeLimitRetryer;
+
+    private ExecutorService timeLimitExecutor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        applicationContext = new AnnotationConfigApplicationContext(AopConfig.class);
+        aopTarget = applicationContext.getBean(AopTarget.class);
+
+        retryTemplate = RetryTemplate.builder()
+                .maxAttempts(MAX_ATTEMPTS)
+                .noBackoff()
+                .retryOn(RemoteAccessException.class)
+                .traversingCauses()
+                .build();
+
+        guavaRetryer = RetryerBuilder.<Integer>newBuilder()
+                .retryIfExceptionOfType(RemoteAccessException.class)
+                .withWaitStrategy(WaitStrategies.noWait())
+                .withStopStrategy(StopStrategies.stopAfterAttempt(MAX_ATTEMPTS))
+                .build();
+
+        timeLimitExecutor = Executors.newFixedThreadPool(10);
+        guavaTimeLimitRetryer = RetryerBuilder.<Integer>newBuilder()
+                .retryIfExceptionOfType(RemoteAccessException.class)
+                .withAttemptTimeLimiter(new FixedAttemptTimeLimit<>(1, TimeUnit.MINUTES, timeLimitExecutor))
+                .withWaitStrategy(WaitStrategies.noWait())
+                .withStopStrategy(StopStrategies.stopAfterAttempt(MAX_ATTEMPTS))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        applicationContext.close();
+        timeLimitExecutor.shutdownNow();
+    }
+
+    static Integer succeed() {
+        return OK;
+    }
+
+    static Integer fail() {
+        throw FAILURE;
+    }
+
+    static Integer recover(Throwable e) {
+        return OK;
+    }
+
+    @Benchmark
+    public Integer baselineDirectCall() {
+        return succeed();
+    }
+
+    @Benchmark
+    public Integer aopSuccess() {
+        return aopTarget.succeed();
+    }
+
+    @Benchmark
+    public Integer aopFailThenRecover() {
+        return aopTarget.fail();
+    }
+
+    @Benchmark
+    public Integer retryTemplateSuccess() {
+        return retryTemplate.execute(context -> succeed(), context -> recover(context.getLastThrowable()));
+    }
+
+    @Benchmark
+    public Integer retryTemplateFailThenRecover() {
+        return retryTemplate.execute(context -> fail(), context -> recover(context.getLastThrowable()));
+    }
+
+    @Benchmark
+    public Integer guavaSuccess() {
+        return callGuava(guavaRetryer, true);
+    }
+
+    @Benchmark
+    public Integer guavaFailThenRecover() {
+        return callGuava(guavaRetryer, false);
+    }
+
+    @Benchmark
+    public Integer guavaTimeLimitSuccess() {
+        return callGuava(guavaTimeLimitRetryer, true);
+    }
+
+    @Benchmark
+    public Integer guavaTimeLimitFailThenRecover() {
+        return callGuava(guavaTimeLimitRetryer, false);
+    }
+
+    private static Integer callGuava(Retryer<Integer> retryer, boolean success) {
+        try {
+            return retryer.call(success ? RetryStrategyBenchmark::succeed : RetryStrategyBenchmark::fail);
+        } catch (ExecutionException | RetryException e) {
+            return recover(e);
+        }
+    }
+
+    /**
+     * 不加 @Configuration，否则 @SpringBootTest 扫描的时候会把这里的 bean 也注册进去
+     */
+    @EnableRetry(proxyTargetClass = true)
+    static class AopConfig {
+
+        @Bean
+        public AopTarget aopTarget() {
+            return new AopTarget();
+        }
+
+        /**
+         * 注解上 @Backoff(0) 还是会 Thread.sleep(0)，这里换成什么都不做的 sleeper 和其他方式保持一致
+         */
+        @Bean
+        public Sleeper noSleeper() {
+            return backOffPeriod -> {
+            };
+        }
+    }
+
+    static class AopTarget {
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = MAX_ATTEMPTS, backoff = @Backoff(0), recover = "recover")
+        public Integer succeed() {
+            return RetryStrategyBenchmark.succeed();
+        }
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = MAX_ATTEMPTS, backoff = @Backoff(0), recover = "recover")
+        public Integer fail() {
+            return RetryStrategyBenchmark.fail();
+        }
+
+        @Recover
+        public Integer recover(RemoteAccessException e) {
+            return RetryStrategyBenchmark.recover(e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.wangji92.retry.springretryexample.benchmark;
+
+import com.wangji92.retry.springretryexample.support.advisor.RetryableMethodAdvisor;
+import com.wangji92.retry.springretryexample.support.key.LabelRoutingKeyGenerator;
+import com.wangji92.retry.springretryexample.support.singleflight.SingleFlightInterceptor;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.backoff.Sleeper;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 16 个线程同时调用同一个一直失败的 @Retryable 方法 (参数一样)，每次尝试是一次 1ms 的远程调用 (parkNanos 模拟)，
+ * 最多 3 次 走兜底：
+ * <ul>
+ *     <li>none: 原来的方式 每个调用各自重试 每次调用 3 个请求</li>
+ *     <li>singleFlight: 同时进来的调用合并到一组重试上 {@link SingleFlightInterceptor}</li>
+ * </ul>
+ * outbound / calls 就是每次调用平均发出去的请求数
+ * <pre>
+ * mvn -Pjmh verify -Djmh.includes=SingleFlightBenchmark
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@Threads(16)
+@State(Scope.Benchmark)
+public class SingleFlightBenchmark {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final long REMOTE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final RemoteAccessException FAILURE = new RemoteAccessException("500");
+
+    /**
+     * 发出请求的是 leader 的线程 记在 leader 的计数上，JMH 汇总的时候是所有线程的和
+     */
+    private static final ThreadLocal<Counters> COUNTERS = new ThreadLocal<>();
+
+    @Param({"none", "singleFlight"})
+    public String mode;
+
+    private AnnotationConfigApplicationContext applicationContext;
+
+    private Target target;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.register(Config.class);
+        if ("singleFlight".equals(mode)) {
+            applicationContext.register(SingleFlightConfig.class);
+        }
+        applicationContext.refresh();
+        target = applicationContext.getBean(Target.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+
+        public long calls;
+
+        public long outbound;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            calls = 0;
+            outbound = 0;
+            COUNTERS.set(this);
+        }
+    }
+
+    @Benchmark
+    public String call(Counters counters) {
+        counters.calls++;
+        return target.send("001");
+    }
+
+    /**
+     * 不加 @Configuration，否则 @SpringBootTest 扫描的时候会把这里的 bean 也注册进去
+     */
+    @EnableRetry(proxyTargetClass = true)
+    static class Config {
+
+        @Bean
+        public Target target() {
+            return new Target();
+        }
+
+        /**
+         * 不退避 只比较请求数
+         */
+        @Bean
+        public Sleeper noSleeper() {
+            return backOffPeriod -> {
+            };
+        }
+    }
+
+    static class SingleFlightConfig {
+
+        @Bean
+        public RetryableMethodAdvisor singleFlightAdvisor() {
+            return new RetryableMethodAdvisor(new SingleFlightInterceptor(
+                    new LabelRoutingKeyGenerator(LabelRoutingKeyGenerator.ARGUMENTS), Collections.singleton("send")), RetryableMethodAdvisor.SINGLE_FLIGHT_ORDER);
+        }
+    }
+
+    static class Target {
+
+        @Retryable(label = "send", value = RemoteAccessException.class, maxAttempts = MAX_ATTEMPTS, backoff = @Backoff(0))
+        public String send(String messageId) {
+            COUNTERS.get().outbound++;
+            LockSupport.parkNanos(REMOTE_NANOS);
+            throw FAILURE;
+        }
+
+        @Recover
+        public String recover(RemoteAccessException e, String messageId) {
+            return messageId;
+        }
+    }
+}
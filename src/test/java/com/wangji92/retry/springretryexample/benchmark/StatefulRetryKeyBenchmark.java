@@ -0,0 +1,165 @@
+package com.wangji92.retry.springretryexample.benchmark;
+
+import com.wangji92.retry.springretryexample.dto.TextMessageDto;
+import com.wangji92.retry.springretryexample.support.advisor.RetryableMethodAdvisor;
+import com.wangji92.retry.springretryexample.support.cache.BoundedRetryContextCache;
+import com.wangji92.retry.springretryexample.support.cache.CompactRetryKeyEncoder;
+import com.wangji92.retry.springretryexample.support.key.LabelRoutingKeyGenerator;
+import com.wangji92.retry.springretryexample.support.key.RetryKeyStrategy;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.interceptor.MethodArgumentsKeyGenerator;
+import org.springframework.retry.policy.MapRetryContextCache;
+import org.springframework.retry.policy.RetryContextCache;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 注解方式有状态重试 每次调用的 key 生成 + 缓存查找 (和 StatefulRetryOperationsInterceptor 一样 [label, 生成的 key])
+ * <ul>
+ *     <li>objectsHash: 原来的 TextMessageDto，默认的 key 为参数本身，hashCode 为 Objects.hash(messageId)</li>
+ *     <li>arguments: 默认的 key，hashCode 改成 Objects.hashCode(messageId)</li>
+ *     <li>retryKey: LabelRoutingKeyGenerator 按 label 选择 @RetryKey 字段 key 为 messageId 本身</li>
+ * </ul>
+ * 每次调用都是新的消息对象 (重新投递)，只有 messageId 相同；三种方式都经过同样的代理 (暴露调用 + 计算 key、查缓存的拦截器)，
+ * 差别只在 key 的生成和缓存里面的 hashCode/equals；加上 -prof gc 可以看到每次调用的分配
+ * <pre>
+ * mvn -Pjmh verify -Djmh.includes=StatefulRetryKeyBenchmark
+ * </pre>
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@State(Scope.Benchmark)
+public class StatefulRetryKeyBenchmark {
+
+    private static final String LABEL = "stateFullRetryTestSendMessage";
+
+    /**
+     * 同时处于重试中的消息数
+     */
+    private static final int IN_FLIGHT = 50_000;
+
+    @Param({"objectsHash", "arguments", "retryKey"})
+    public String keyStrategy;
+
+    @Param({"map", "bounded"})
+    public String cacheType;
+
+    private Messages messages;
+
+    private String[] messageIds;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RetryContextCache cache = "map".equals(cacheType) ? new MapRetryContextCache(Integer.MAX_VALUE)
+                : new BoundedRetryContextCache(IN_FLIGHT * 2, TimeUnit.MINUTES.toMillis(10),
+                BoundedRetryContextCache.DEFAULT_CONCURRENCY_LEVEL,
+                new CompactRetryKeyEncoder().register(TextMessageDto.class, TextMessageDto::getMessageId)
+                        .register(ObjectsHashMessageDto.class, ObjectsHashMessageDto::getMessageId), false);
+        MethodArgumentsKeyGenerator keyGenerator = "retryKey".equals(keyStrategy)
+                ? new LabelRoutingKeyGenerator(LabelRoutingKeyGenerator.ARGUMENTS).register(LABEL,
+                LabelRoutingKeyGenerator.generator(RetryKeyStrategy.RETRY_KEY))
+                : LabelRoutingKeyGenerator.ARGUMENTS;
+
+        SimpleRetryPolicy policy = new SimpleRetryPolicy(2);
+        RetryContext context = policy.open(null);
+        policy.registerThrowable(context, new RemoteAccessException("500"));
+        messageIds = new String[IN_FLIGHT];
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            // 线上的 messageId 一般是 uuid 之类的随机串
+            messageIds[i] = Long.toHexString(i * 0x9E3779B97F4A7C15L);
+            Object generated = keyGenerator.getKey(new Object[]{message(messageIds[i])});
+            cache.put(Arrays.asList(LABEL, generated), context);
+        }
+
+        ProxyFactory proxyFactory = new ProxyFactory(new Messages());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(new RetryableMethodAdvisor(ExposeInvocationInterceptor.INSTANCE, RetryableMethodAdvisor.EXPOSE_INVOCATION_ORDER));
+        proxyFactory.addAdvisor(new DefaultPointcutAdvisor((MethodInterceptor) invocation -> {
+            Object key = Arrays.asList(LABEL, keyGenerator.getKey(invocation.getArguments()));
+            return cache.containsKey(key) ? cache.get(key) : null;
+        }));
+        messages = (Messages) proxyFactory.getProxy();
+    }
+
+    private Object message(String messageId) {
+        if ("objectsHash".equals(keyStrategy)) {
+            return new ObjectsHashMessageDto(messageId);
+        }
+        TextMessageDto messageDto = new TextMessageDto();
+        messageDto.setMessageId(messageId);
+        return messageDto;
+    }
+
+    @Benchmark
+    public Object redeliver() {
+        int index = next;
+        next = index + 1 == IN_FLIGHT ? 0 : index + 1;
+        // 重新投递的消息是新的对象 messageId 也是反序列化出来的新字符串 hash 没有缓存
+        return messages.send(message(new String(messageIds[index])));
+    }
+
+    public static class Messages {
+
+        @Retryable(label = LABEL, stateful = true)
+        public RetryContext send(Object message) {
+            return null;
+        }
+    }
+
+    /**
+     * 原来的 TextMessageDto
+     */
+    public static class ObjectsHashMessageDto {
+
+        private final String messageId;
+
+        ObjectsHashMessageDto(String messageId) {
+            this.messageId = messageId;
+        }
+
+        public String getMessageId() {
+            return messageId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return Objects.equals(messageId, ((ObjectsHashMessageDto) o).messageId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(messageId);
+        }
+    }
+}
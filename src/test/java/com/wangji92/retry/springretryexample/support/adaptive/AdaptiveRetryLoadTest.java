@@ -0,0 +1,106 @@
+package com.wangji92.retry.springretryexample.support.adaptive;
+
+import com.wangji92.retry.springretryexample.controller.MockApiController;
+import com.wangji92.retry.springretryexample.service.RetryTestService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 对 MockApiController 的 /outageApi 回放 正常 -> 故障 -> 恢复 -> 再次故障，
+ * 走 @Retryable(interceptor = "adaptiveRetryInterceptor") 真正发出去的请求数 看每次调用的尝试次数
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT, properties = {
+        "programmingGuavaRetryLimitTime=false",
+        // 只看自适应的效果 预算、熔断也会减少重试
+        "retry.budget.enabled=false",
+        "retry.circuit-breaker.enabled=false",
+        "retry.registry.policies.retryTestServiceAdaptive.back-off-period=1",
+        "retry.registry.policies.retryTestServiceAdaptive.max-back-off-period=20",
+        "mock.outage.latency-millis=1"})
+@DirtiesContext
+class AdaptiveRetryLoadTest {
+
+    private static final int MAX_ATTEMPTS = 4;
+
+    @Autowired
+    private RetryTestService retryTestService;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private MockApiController mockApiController;
+
+    @Autowired
+    private DownstreamHealthRegistry downstreamHealthRegistry;
+
+    private final AtomicInteger outboundCalls = new AtomicInteger();
+
+    private final ClientHttpRequestInterceptor outboundCounter = (request, body, execution) -> {
+        if (request.getURI().getPath().equals("/outageApi")) {
+            outboundCalls.incrementAndGet();
+        }
+        return execution.execute(request, body);
+    };
+
+    @BeforeEach
+    void setUp() {
+        restTemplate.getInterceptors().add(0, outboundCounter);
+    }
+
+    @AfterEach
+    void tearDown() {
+        restTemplate.getInterceptors().remove(outboundCounter);
+    }
+
+    /**
+     * @return 每次调用发出去的请求数
+     */
+    private List<Integer> replay(int calls, double failureRate) {
+        ReflectionTestUtils.setField(mockApiController, "outageTrace", new double[]{failureRate});
+        List<Integer> attempts = new ArrayList<>();
+        for (int i = 0; i < calls; i++) {
+            int before = outboundCalls.get();
+            // 成功返回 200，兜底调用 /unstableApi/200 同样返回 200
+            assertThat(retryTestService.retryTestServiceAdaptive()).isEqualTo(200);
+            attempts.add(outboundCalls.get() - before);
+        }
+        log.info("failureRate={} attempts={} {}", failureRate, attempts,
+                downstreamHealthRegistry.find("localhost:8080/outageApi"));
+        return attempts;
+    }
+
+    @Test
+    void attemptsFollowOutageAndRecovery() {
+        assertThat(replay(20, 0)).containsOnly(1);
+
+        List<Integer> outage = replay(30, 1);
+        // 故障刚开始还会重试 每次失败之后错误率都在上升，同一次调用里面也会少重试几次
+        assertThat(outage.get(0)).isBetween(2, MAX_ATTEMPTS);
+        // 错误率上去之后 不再重试 直接兜底
+        assertThat(outage.subList(10, outage.size())).containsOnly(1);
+
+        assertThat(replay(30, 0)).containsOnly(1);
+
+        // 恢复之后 新的故障又会和一开始一样重试
+        assertThat(replay(1, 1)).containsExactly(outage.get(0));
+    }
+}
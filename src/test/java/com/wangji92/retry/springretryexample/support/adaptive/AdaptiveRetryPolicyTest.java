@@ -0,0 +1,180 @@
+package com.wangji92.retry.springretryexample.support.adaptive;
+
+import com.wangji92.retry.springretryexample.support.backoff.JitterBackOff;
+import com.wangji92.retry.springretryexample.support.backoff.JitterMode;
+import com.wangji92.retry.springretryexample.support.registry.RetryRegistry;
+import com.wangji92.retry.springretryexample.support.registry.RetryRegistryProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 回放合成的下游 正常 -> 故障 -> 恢复 的序列，看尝试次数、退避跟着变化
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class AdaptiveRetryPolicyTest {
+
+    private static final String TARGET = "localhost:8080/outageApi";
+
+    private static final int MAX_ATTEMPTS = 4;
+
+    private final DownstreamHealthRegistry downstreamHealthRegistry = new DownstreamHealthRegistry(new AdaptiveRetryProperties());
+
+    private RetryRegistry retryRegistry;
+
+    /**
+     * 下游请求的序号 按失败比例确定性地失败
+     */
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        RetryRegistryProperties properties = new RetryRegistryProperties();
+        RetryRegistryProperties.Policy policy = new RetryRegistryProperties.Policy();
+        policy.setAdaptive(true);
+        policy.setMaxAttempts(MAX_ATTEMPTS);
+        policy.setRetryOn(Collections.singletonList(RemoteAccessException.class));
+        properties.getPolicies().put("adaptive", policy);
+        // 退避 0，只看次数
+        retryRegistry = RetryRegistry.builder(properties)
+                .sleeper(delay -> {
+                })
+                .downstreamHealthRegistry(downstreamHealthRegistry)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        retryRegistry.shutdown();
+    }
+
+    /**
+     * @param failureRate 0 ~ 1 每 1/failureRate 个请求失败一个
+     * @return 每次调用的尝试次数
+     */
+    private List<Integer> replay(int calls, double failureRate) {
+        RetryTemplate retryTemplate = retryRegistry.retryTemplate("adaptive");
+        List<Integer> attempts = new ArrayList<>();
+        for (int i = 0; i < calls; i++) {
+            AtomicInteger count = new AtomicInteger();
+            retryTemplate.execute(context -> {
+                count.incrementAndGet();
+                // 和 DownstreamHealthClientHttpRequestInterceptor 一样 记录这次请求、标记下游
+                context.setAttribute(AdaptiveRetryPolicy.TARGET, TARGET);
+                int request = requests.incrementAndGet();
+                boolean failed = failureRate >= 1 || (failureRate > 0 && request % Math.round(1 / failureRate) == 0);
+                downstreamHealthRegistry.health(TARGET).record(failed, 20);
+                if (failed) {
+                    throw new RemoteAccessException("500");
+                }
+                return 200;
+            }, context -> -1);
+            attempts.add(count.get());
+        }
+        return attempts;
+    }
+
+    @Test
+    void attemptsShrinkDuringOutageAndGrowBackAfterRecovery() {
+        AdaptiveRetryPolicy policy = new AdaptiveRetryPolicy(null, MAX_ATTEMPTS, downstreamHealthRegistry);
+
+        // 正常 5% 失败
+        replay(100, 0.05);
+        assertThat(policy.allowedAttempts(TARGET)).isEqualTo(MAX_ATTEMPTS);
+
+        // 故障 全部失败：刚开始还会重试 (每次失败错误率都在上升 第一次调用里面就会少重试几次)，错误率上去之后每次调用只尝试一次
+        List<Integer> outage = replay(20, 1);
+        assertThat(outage.get(0)).isBetween(2, MAX_ATTEMPTS);
+        assertThat(outage.subList(10, outage.size())).containsOnly(1);
+        assertThat(policy.allowedAttempts(TARGET)).isEqualTo(1);
+        // 没有自适应的时候 20 次调用会发出 80 个请求
+        assertThat(outage.stream().mapToInt(Integer::intValue).sum()).isLessThan(2 * 20);
+
+        // 部分恢复 25% 失败：错误率在两个阈值之间 次数在中间
+        replay(40, 0.25);
+        assertThat(policy.allowedAttempts(TARGET)).isBetween(2, MAX_ATTEMPTS - 1);
+
+        // 恢复 新的故障又可以和一开始一样重试
+        replay(30, 0);
+        assertThat(policy.allowedAttempts(TARGET)).isEqualTo(MAX_ATTEMPTS);
+        assertThat(replay(1, 1)).containsExactly(outage.get(0));
+    }
+
+    @Test
+    void unknownTargetUsesConfiguredAttempts() {
+        AdaptiveRetryPolicy policy = new AdaptiveRetryPolicy(null, MAX_ATTEMPTS, downstreamHealthRegistry);
+        assertThat(policy.allowedAttempts(null)).isEqualTo(MAX_ATTEMPTS);
+        assertThat(policy.allowedAttempts(TARGET)).isEqualTo(MAX_ATTEMPTS);
+
+        // 样本不够 min-samples 的时候不调整
+        for (int i = 0; i < 4; i++) {
+            downstreamHealthRegistry.health(TARGET).record(true, 20);
+        }
+        assertThat(policy.allowedAttempts(TARGET)).isEqualTo(MAX_ATTEMPTS);
+        downstreamHealthRegistry.health(TARGET).record(true, 20);
+        assertThat(policy.allowedAttempts(TARGET)).isEqualTo(1);
+    }
+
+    @Test
+    void backOffFollowsLatencyAndErrorRateWithinBounds() {
+        AdaptiveBackOffPolicy backOffPolicy = new AdaptiveBackOffPolicy(new JitterBackOff(JitterMode.NONE, 100, 2000, 2), 0,
+                downstreamHealthRegistry);
+        DownstreamHealth health = downstreamHealthRegistry.health(TARGET);
+
+        // 下游很快、没有错误：不低于配置的 back-off-period，按 multiplier 增长
+        for (int i = 0; i < 10; i++) {
+            health.record(false, 10);
+        }
+        assertThat(backOffPolicy.ceiling(health, 1)).isEqualTo(100);
+        assertThat(backOffPolicy.ceiling(health, 2)).isEqualTo(200);
+
+        // 下游变慢 退避至少是耗时的 latency-multiplier 倍
+        DownstreamHealth slow = downstreamHealthRegistry.health("localhost:8080/slow");
+        for (int i = 0; i < 10; i++) {
+            slow.record(false, 300);
+        }
+        assertThat(backOffPolicy.ceiling(slow, 1)).isEqualTo(600);
+
+        // 错误率上去之后等久一点 不超过 max-back-off-period
+        for (int i = 0; i < 3; i++) {
+            health.record(true, 10);
+        }
+        long degraded = backOffPolicy.ceiling(health, 1);
+        assertThat(degraded).isGreaterThan(100).isLessThan(500);
+        for (int i = 0; i < 50; i++) {
+            health.record(true, 10);
+        }
+        assertThat(backOffPolicy.ceiling(health, 1)).isBetween(degraded, 500L);
+        assertThat(backOffPolicy.ceiling(health, 5)).isEqualTo(2000);
+    }
+
+    @Test
+    void downstreamIsKeyedByEndpointTemplateOrHost() {
+        AdaptiveRetryProperties properties = new AdaptiveRetryProperties();
+        properties.setEndpoints(Arrays.asList("localhost:8080/users/{id}", "localhost:8080/outageApi"));
+        DownstreamHealthRegistry registry = new DownstreamHealthRegistry(properties);
+
+        // 带 id 的 path 算一个下游，没有配置模板的按 host:port，不会每个 path 都留一份
+        for (int id = 0; id < 100; id++) {
+            registry.health(registry.name(URI.create("http://localhost:8080/users/" + id + "?page=1"))).record(false, 10);
+            registry.health(registry.name(URI.create("http://localhost:8081/orders/" + id))).record(false, 10);
+        }
+        assertThat(registry.name(URI.create("http://localhost:8080/outageApi"))).isEqualTo("localhost:8080/outageApi");
+        assertThat(registry.healths()).hasSize(2);
+        assertThat(registry.find("localhost:8080/users/{id}").samples()).isEqualTo(100);
+        assertThat(registry.find("localhost:8081").samples()).isEqualTo(100);
+    }
+}
@@ -0,0 +1,142 @@
+package com.wangji92.retry.springretryexample.support.async;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.backoff.FixedBackOffPolicy;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 几千个重试同时处于退避中 只占用定时器的两个线程
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class AsyncRetryTemplateTest {
+
+    private static final int CALLS = 5000;
+
+    private static final long BACK_OFF_PERIOD = 200;
+
+    private AsyncRetryTemplate template;
+
+    @AfterEach
+    void tearDown() {
+        template.shutdown();
+    }
+
+    private AsyncRetryTemplate newTemplate(int maxAttempts) {
+        SimpleRetryPolicy retryPolicy = new SimpleRetryPolicy(maxAttempts,
+                Collections.singletonMap(RemoteAccessException.class, true), true);
+        FixedBackOffPolicy backOffPolicy = new FixedBackOffPolicy();
+        backOffPolicy.setBackOffPeriod(BACK_OFF_PERIOD);
+        return new AsyncRetryTemplate(retryPolicy, backOffPolicy,
+                new ScheduledThreadPoolExecutor(2, new CustomizableThreadFactory("test-retry-timer-")),
+                Executors.newSingleThreadExecutor());
+    }
+
+    @Test
+    void thousandsOfRetriesWaitOnHandfulOfThreads() {
+        template = newTemplate(3);
+        Set<String> retryThreads = ConcurrentHashMap.newKeySet();
+        AtomicInteger waiting = new AtomicInteger();
+        AtomicInteger maxWaiting = new AtomicInteger();
+
+        long begin = System.nanoTime();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>(CALLS);
+        for (int i = 0; i < CALLS; i++) {
+            AtomicInteger attempts = new AtomicInteger();
+            int value = i;
+            futures.add(template.executeAsync(() -> {
+                int attempt = attempts.incrementAndGet();
+                CompletableFuture<Integer> future = new CompletableFuture<>();
+                if (attempt > 1) {
+                    waiting.decrementAndGet();
+                    retryThreads.add(Thread.currentThread().getName());
+                }
+                if (attempt < 3) {
+                    maxWaiting.accumulateAndGet(waiting.incrementAndGet(), Math::max);
+                    future.completeExceptionally(new RemoteAccessException("500"));
+                } else {
+                    future.complete(value);
+                }
+                return future;
+            }, null));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        for (int i = 0; i < CALLS; i++) {
+            assertThat(futures.get(i).join()).isEqualTo(i);
+        }
+        // 同步 sleep 的方式需要 CALLS * 2 * BACK_OFF_PERIOD
+        assertThat(elapsedMillis).isLessThan(10_000);
+        assertThat(maxWaiting.get()).isGreaterThanOrEqualTo(CALLS / 2);
+        assertThat(retryThreads).hasSizeLessThanOrEqualTo(2)
+                .allMatch(name -> name.startsWith("test-retry-timer-"));
+    }
+
+    @Test
+    void recoverAfterAttemptsExhausted() {
+        template = newTemplate(2);
+        AtomicInteger attempts = new AtomicInteger();
+
+        Integer result = template.<Integer>execute(() -> {
+            attempts.incrementAndGet();
+            throw new RemoteAccessException("500");
+        }, e -> {
+            assertThat(e).isInstanceOf(RemoteAccessException.class);
+            return 200;
+        }).join();
+
+        assertThat(result).isEqualTo(200);
+        assertThat(attempts.get()).isEqualTo(2);
+    }
+
+    @Test
+    void notRetryableExceptionGoesStraightToRecover() {
+        template = newTemplate(3);
+        AtomicInteger attempts = new AtomicInteger();
+
+        Integer result = template.<Integer>execute(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("401");
+        }, e -> -1).join();
+
+        assertThat(result).isEqualTo(-1);
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectedRecoverCompletesExceptionally() {
+        SimpleRetryPolicy retryPolicy = new SimpleRetryPolicy(1,
+                Collections.singletonMap(RemoteAccessException.class, true), true);
+        template = new AsyncRetryTemplate(retryPolicy, null,
+                new ScheduledThreadPoolExecutor(1), command -> {
+            throw new RejectedExecutionException("worker pool is full");
+        });
+        CompletableFuture<Integer> stage = new CompletableFuture<>();
+        stage.completeExceptionally(new RemoteAccessException("500"));
+
+        CompletableFuture<Integer> result = template.executeAsync(() -> stage, e -> 200);
+
+        assertThat(result).isCompletedExceptionally();
+        assertThatThrownBy(result::join).hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+}
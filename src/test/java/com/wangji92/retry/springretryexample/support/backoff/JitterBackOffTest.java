@@ -0,0 +1,230 @@
+package com.wangji92.retry.springretryexample.support.backoff;
+
+import com.github.rholder.retry.RetryException;
+import com.github.rholder.retry.Retryer;
+import com.github.rholder.retry.RetryerBuilder;
+import com.github.rholder.retry.StopStrategies;
+import com.wangji92.retry.springretryexample.support.guava.JitterWaitStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.FixedBackOffPolicy;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+class JitterBackOffTest {
+
+    private static final int CLIENTS = 1000;
+
+    private static final int RETRIES = 3;
+
+    private static final long BASE = 5000;
+
+    private static final long CAP = 20000;
+
+    /**
+     * 下游的统计粒度 100ms 一个桶
+     */
+    private static final long BUCKET = 100;
+
+    /**
+     * CLIENTS 个调用方在 t=0 同时失败，之后一直失败 每个都重试 RETRIES 次，统计同一个桶里面最多有多少个重试
+     */
+    private static int peakRetriesPerBucket(JitterBackOff jitterBackOff) {
+        int[] buckets = new int[(int) (CAP * RETRIES / BUCKET) + 1];
+        for (int client = 0; client < CLIENTS; client++) {
+            long time = 0;
+            long previous = 0;
+            for (int retry = 1; retry <= RETRIES; retry++) {
+                long delay = jitterBackOff.nextDelay(retry, previous);
+                assertThat(delay).isBetween(0L, CAP);
+                previous = delay;
+                time += delay;
+                buckets[(int) (time / BUCKET)]++;
+            }
+        }
+        int peak = 0;
+        for (int count : buckets) {
+            peak = Math.max(peak, count);
+        }
+        return peak;
+    }
+
+    @Test
+    void jitterSpreadsSynchronizedRetries() {
+        int fixedPeak = peakRetriesPerBucket(new JitterBackOff(JitterMode.NONE, BASE, CAP, 1));
+        assertThat(fixedPeak).isEqualTo(CLIENTS);
+        for (JitterMode mode : new JitterMode[]{JitterMode.FULL, JitterMode.EQUAL, JitterMode.DECORRELATED}) {
+            int peak = peakRetriesPerBucket(new JitterBackOff(mode, BASE, CAP, 2));
+            log.info("mode={} peak retries per {}ms fixed={} jitter={} reduction={}x", mode, BUCKET, fixedPeak, peak,
+                    fixedPeak / peak);
+            // 均匀分布的时候 FULL、EQUAL 每个桶 20~40 个，DECORRELATED 更分散
+            assertThat(peak).isLessThan(fixedPeak / 10);
+        }
+    }
+
+    @Test
+    void exponentialCeilingIsCapped() {
+        JitterBackOff jitterBackOff = new JitterBackOff(JitterMode.NONE, BASE, CAP, 2);
+        assertThat(jitterBackOff.ceiling(1)).isEqualTo(5000);
+        assertThat(jitterBackOff.ceiling(2)).isEqualTo(10000);
+        assertThat(jitterBackOff.ceiling(3)).isEqualTo(CAP);
+        assertThat(jitterBackOff.ceiling(100)).isEqualTo(CAP);
+        JitterBackOff equal = new JitterBackOff(JitterMode.EQUAL, BASE, CAP, 1);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(equal.nextDelay(1, 0)).isBetween(BASE / 2, BASE);
+        }
+    }
+
+    /**
+     * 用假的时钟 休眠只是把时钟往后拨
+     */
+    private static final class FakeClockBackOffPolicy extends JitterBackOffPolicy {
+
+        private final AtomicLong clock;
+
+        private FakeClockBackOffPolicy(JitterBackOff jitterBackOff, long deadline, AtomicLong clock) {
+            super(jitterBackOff, deadline, clock::addAndGet);
+            this.clock = clock;
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return clock.get();
+        }
+    }
+
+    @Test
+    void backOffPolicyNeverSleepsPastDeadline() {
+        long deadline = 30000;
+        for (int round = 0; round < 100; round++) {
+            AtomicLong clock = new AtomicLong();
+            RetryTemplate retryTemplate = new RetryTemplate();
+            retryTemplate.setRetryPolicy(new SimpleRetryPolicy(100));
+            retryTemplate.setBackOffPolicy(new FakeClockBackOffPolicy(new JitterBackOff(JitterMode.DECORRELATED, BASE, CAP, 1),
+                    deadline, clock));
+            AtomicInteger attempts = new AtomicInteger();
+            Integer result = retryTemplate.execute(context -> {
+                attempts.incrementAndGet();
+                // 每次尝试 1s
+                clock.addAndGet(1000);
+                throw new RemoteAccessException("500");
+            }, context -> -1);
+
+            assertThat(result).isEqualTo(-1);
+            // 最后一次尝试在截止时间之前开始，不会为了一次注定超时的尝试睡过截止时间
+            assertThat(clock.get() - 1000).isLessThan(deadline);
+            assertThat(attempts.get()).isBetween(2, 6);
+        }
+    }
+
+    @Test
+    void sleeperJittersAnnotationBackOff() {
+        List<Long> sleeps = new ArrayList<>();
+        FixedBackOffPolicy backOffPolicy = new FixedBackOffPolicy();
+        backOffPolicy.setBackOffPeriod(BASE);
+        // 和 @Backoff(5000) 一样 每次都是 sleeper.sleep(5000)
+        backOffPolicy.setSleeper(new JitterSleeper(JitterMode.DECORRELATED, CAP, 0, sleeps::add));
+        RetryTemplate retryTemplate = new RetryTemplate();
+        retryTemplate.setRetryPolicy(new SimpleRetryPolicy(6));
+        retryTemplate.setBackOffPolicy(backOffPolicy);
+
+        retryTemplate.execute(context -> {
+            throw new RemoteAccessException("500");
+        }, context -> -1);
+
+        assertThat(sleeps).hasSize(5);
+        long previous = BASE;
+        for (Long sleep : sleeps) {
+            assertThat(sleep).isBetween(BASE, Math.min(CAP, previous * 3));
+            previous = sleep;
+        }
+    }
+
+    @Test
+    void sleeperOnlyJittersConfiguredLabels() {
+        BackOffJitterProperties properties = new BackOffJitterProperties();
+        properties.setMaxDelay(CAP);
+        properties.getLabels().put("jittered", JitterMode.FULL);
+        List<Long> sleeps = new ArrayList<>();
+        FixedBackOffPolicy backOffPolicy = new FixedBackOffPolicy();
+        backOffPolicy.setBackOffPeriod(BASE);
+        backOffPolicy.setSleeper(new JitterSleeper(properties, sleeps::add));
+        RetryTemplate retryTemplate = new RetryTemplate();
+        retryTemplate.setRetryPolicy(new SimpleRetryPolicy(6));
+        retryTemplate.setBackOffPolicy(backOffPolicy);
+
+        for (String label : new String[]{"plain", "jittered"}) {
+            retryTemplate.execute(context -> {
+                context.setAttribute(RetryContext.NAME, label);
+                throw new RemoteAccessException("500");
+            }, context -> -1);
+        }
+
+        assertThat(sleeps).hasSize(10);
+        // 没有配置的 label 还是注解上的固定退避时间
+        assertThat(sleeps.subList(0, 5)).containsOnly(BASE);
+        assertThat(sleeps.subList(5, 10)).allMatch(sleep -> sleep >= 0 && sleep <= BASE);
+    }
+
+    @Test
+    void sleeperStopsRetryingAtDeadline() {
+        AtomicInteger sleeps = new AtomicInteger();
+        FixedBackOffPolicy backOffPolicy = new FixedBackOffPolicy();
+        backOffPolicy.setBackOffPeriod(BASE);
+        // 截止时间比一次退避还短 第一次退避就放弃
+        backOffPolicy.setSleeper(new JitterSleeper(JitterMode.NONE, CAP, BASE - 1, backOffPeriod -> sleeps.incrementAndGet()));
+        RetryTemplate retryTemplate = new RetryTemplate();
+        retryTemplate.setRetryPolicy(new SimpleRetryPolicy(3));
+        retryTemplate.setBackOffPolicy(backOffPolicy);
+        AtomicInteger attempts = new AtomicInteger();
+
+        Integer result = retryTemplate.execute(context -> {
+            attempts.incrementAndGet();
+            throw new RemoteAccessException("500");
+        }, context -> -1);
+
+        assertThat(result).isEqualTo(-1);
+        assertThat(attempts).hasValue(1);
+        assertThat(sleeps).hasValue(0);
+    }
+
+    @Test
+    void guavaWaitStrategyStopsBeforeDeadline() {
+        long deadline = 500;
+        JitterWaitStrategy waitStrategy = new JitterWaitStrategy(StopStrategies.stopAfterAttempt(100),
+                new JitterBackOff(JitterMode.FULL, 100, 200, 2), deadline);
+        AtomicLong planned = new AtomicLong();
+        Retryer<Integer> retryer = RetryerBuilder.<Integer>newBuilder()
+                .retryIfExceptionOfType(RemoteAccessException.class)
+                .withWaitStrategy(waitStrategy)
+                .withStopStrategy(waitStrategy)
+                .withBlockStrategy(sleepTime -> {
+                    planned.addAndGet(sleepTime);
+                    Thread.sleep(sleepTime);
+                })
+                .build();
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retryer.call(() -> {
+            attempts.incrementAndGet();
+            throw new RemoteAccessException("500");
+        })).isInstanceOf(RetryException.class);
+        assertThat(attempts.get()).isGreaterThan(1);
+        assertThat(planned.get()).isLessThan(deadline);
+    }
+}
@@ -0,0 +1,205 @@
+package com.wangji92.retry.springretryexample.support.batch;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class BatchRetryInterceptorTest {
+
+    private static BatchRetryInterceptor interceptor() {
+        RetryTemplate retryTemplate = RetryTemplate.builder().maxAttempts(3).noBackoff()
+                .retryOn(RemoteAccessException.class).build();
+        return new BatchRetryInterceptor(retryTemplate, RemoteAccessException.class::isInstance);
+    }
+
+    private static <T> T proxy(T target) {
+        return proxy(target, interceptor());
+    }
+
+    private static <T> T proxy(T target, BatchRetryInterceptor interceptor) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        @SuppressWarnings("unchecked")
+        T proxy = (T) proxyFactory.getProxy();
+        return proxy;
+    }
+
+    @Test
+    void resendsOnlyFailedItems() {
+        Sender sender = new Sender();
+        sender.failures.put("b", 1);
+        sender.failures.put("d", 2);
+
+        BatchResult<String, Integer> result = proxy(sender).send(Arrays.asList("a", "b", "c", "d", "e"));
+
+        assertThat(sender.calls).containsExactly(
+                Arrays.asList("a", "b", "c", "d", "e"),
+                Arrays.asList("b", "d"),
+                Arrays.asList("d"));
+        assertThat(result.getResults()).containsOnlyKeys("a", "b", "c", "d", "e");
+        assertThat(result.hasFailures()).isFalse();
+        assertThat(sender.recovered).isEmpty();
+    }
+
+    @Test
+    void exhaustedAndNotRetryableItemsGoToBatchRecover() {
+        Sender sender = new Sender();
+        sender.failures.put("c", Integer.MAX_VALUE);
+        sender.notRetryable = "e";
+
+        BatchResult<String, Integer> result = proxy(sender).send(Arrays.asList("a", "b", "c", "d", "e"));
+
+        // e 不可以重试 第一轮之后就不再发送
+        assertThat(sender.calls).containsExactly(
+                Arrays.asList("a", "b", "c", "d", "e"),
+                Arrays.asList("c"),
+                Arrays.asList("c"));
+        assertThat(sender.recovered).containsExactly("e", "c");
+        assertThat(sender.attempts).containsOnly(entry("e", 1), entry("c", 3));
+        assertThat(result.getResults()).containsEntry("a", 200).containsEntry("c", -1).containsEntry("e", -1);
+        assertThat(result.hasFailures()).isFalse();
+    }
+
+    @Test
+    void batchRecoverRunsOnTheCalledInstance() {
+        // 同一个拦截器 两个实例 兜底方法要在各自的实例上执行
+        BatchRetryInterceptor interceptor = interceptor();
+        Sender first = new Sender();
+        first.failures.put("a", Integer.MAX_VALUE);
+        Sender second = new Sender();
+        second.failures.put("b", Integer.MAX_VALUE);
+
+        proxy(first, interceptor).send(Arrays.asList("a"));
+        proxy(second, interceptor).send(Arrays.asList("b"));
+
+        assertThat(first.recovered).containsExactly("a");
+        assertThat(second.recovered).containsExactly("b");
+    }
+
+    @Test
+    void wholeCallFailureRetriesAllPendingItems() {
+        Sender sender = new Sender();
+        sender.callFailures = 1;
+
+        BatchResult<String, Integer> result = proxy(sender).send(Arrays.asList("a", "b", "a"));
+
+        // 相同的条目只发送一次
+        assertThat(sender.calls).containsExactly(Arrays.asList("a", "b"), Arrays.asList("a", "b"));
+        assertThat(result.getResults()).containsOnlyKeys("a", "b");
+    }
+
+    @Test
+    void throwsWhenNoBatchRecoverMethod() {
+        BatchSender sender = new SenderWithoutRecover();
+        sender.failures.put("b", Integer.MAX_VALUE);
+
+        assertThatThrownBy(() -> proxy(sender).send(Arrays.asList("a", "b")))
+                .isInstanceOfSatisfying(BatchRetryExhaustedException.class, e -> {
+                    assertThat(e.<String>getFailures()).containsOnlyKeys("b");
+                    assertThat(e.getAttempts("b")).isEqualTo(3);
+                    assertThat(e.getAttempts("a")).isEqualTo(1);
+                });
+    }
+
+    @Test
+    void nullBatchResultFailsItemsWithClearCause() {
+        BatchSender sender = new NullSender();
+
+        assertThatThrownBy(() -> proxy(sender).send(Arrays.asList("a", "b")))
+                .isInstanceOfSatisfying(BatchRetryExhaustedException.class, e -> {
+                    assertThat(e.<String>getFailures()).containsOnlyKeys("a", "b");
+                    assertThat(e.<String>getFailures().get("a")).isInstanceOf(IllegalStateException.class)
+                            .hasMessageContaining("returned null instead of a BatchResult");
+                    // 不是可以重试的异常 只调用一次
+                    assertThat(sender.calls).hasSize(1);
+                });
+    }
+
+    public static class BatchSender {
+
+        final List<List<String>> calls = new ArrayList<>();
+
+        /**
+         * 条目 -> 还要失败的次数
+         */
+        final Map<String, Integer> failures = new HashMap<>();
+
+        String notRetryable;
+
+        int callFailures;
+
+        public BatchResult<String, Integer> send(List<String> items) {
+            calls.add(new ArrayList<>(items));
+            if (callFailures-- > 0) {
+                throw new RemoteAccessException("500");
+            }
+            BatchResult<String, Integer> result = new BatchResult<>();
+            for (String item : items) {
+                if (item.equals(notRetryable)) {
+                    result.failure(item, new IllegalArgumentException("400"));
+                } else if (failures.getOrDefault(item, 0) > 0) {
+                    failures.merge(item, -1, Integer::sum);
+                    result.failure(item, new RemoteAccessException("500"));
+                } else {
+                    result.success(item, 200);
+                }
+            }
+            return result;
+        }
+    }
+
+    public static class Sender extends BatchSender {
+
+        final List<String> recovered = new ArrayList<>();
+
+        final Map<String, Integer> attempts = new HashMap<>();
+
+        @Recover
+        public BatchResult<String, Integer> recover(BatchRetryExhaustedException e, List<String> items) {
+            BatchResult<String, Integer> result = new BatchResult<>();
+            for (String item : items) {
+                recovered.add(item);
+                attempts.put(item, e.getAttempts(item));
+                result.success(item, -1);
+            }
+            return result;
+        }
+    }
+
+    public static class SenderWithoutRecover extends BatchSender {
+
+        /**
+         * 单条的兜底方法 不能处理批量的失败
+         */
+        @Recover
+        public Integer recover(RemoteAccessException e, String item) {
+            return -1;
+        }
+    }
+
+    public static class NullSender extends BatchSender {
+
+        @Override
+        public BatchResult<String, Integer> send(List<String> items) {
+            calls.add(new ArrayList<>(items));
+            return null;
+        }
+    }
+}
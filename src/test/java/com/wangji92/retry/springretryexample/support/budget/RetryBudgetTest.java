@@ -0,0 +1,215 @@
+package com.wangji92.retry.springretryexample.support.budget;
+
+import com.github.rholder.retry.RetryException;
+import com.github.rholder.retry.Retryer;
+import com.github.rholder.retry.RetryerBuilder;
+import com.github.rholder.retry.StopStrategies;
+import com.wangji92.retry.springretryexample.support.guava.RetryBudgetStopStrategy;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.backoff.FixedBackOffPolicy;
+import org.springframework.retry.interceptor.RetryInterceptorBuilder;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class RetryBudgetTest {
+
+    private static final int THREADS = 8;
+
+    private static RetryBudgetProperties.Config config(double ratio, int initialTokens) {
+        RetryBudgetProperties.Config config = new RetryBudgetProperties.Config();
+        config.setRatio(ratio);
+        config.setInitialTokens(initialTokens);
+        config.setMaxTokens(100);
+        return config;
+    }
+
+    private static RetryBudgetRegistry registry(RetryBudgetProperties.Config global, RetryBudgetProperties.Config defaults) {
+        RetryBudgetProperties properties = new RetryBudgetProperties();
+        properties.setGlobal(global);
+        properties.setDefaults(defaults);
+        return new RetryBudgetRegistry(properties);
+    }
+
+    /**
+     * 每个线程都执行 thread -> task(thread)，全部线程同时开始
+     */
+    private static void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executorService.submit(() -> {
+                start.await();
+                task.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executorService.shutdown();
+    }
+
+    interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+
+    @Test
+    void tokenBucketRatioHoldsUnderContention() throws Exception {
+        TokenBucketRetryBudget budget = new TokenBucketRetryBudget("test", config(0.1, 10));
+        int calls = 100_000;
+        runConcurrently(thread -> {
+            for (int i = 0; i < calls; i++) {
+                // 每次调用都失败 都想重试
+                budget.onFirstAttempt();
+                budget.tryAcquire();
+            }
+        });
+        long firstAttempts = budget.getFirstAttempts();
+        assertThat(firstAttempts).isEqualTo((long) THREADS * calls);
+        assertThat(budget.getRetries() + budget.getRejectedRetries()).isEqualTo(firstAttempts);
+        // 不会超出预算，桶一直没满 存入的令牌也不会丢
+        assertThat(budget.getRetries()).isLessThanOrEqualTo(10 + firstAttempts / 10);
+        assertThat(budget.getRetries()).isGreaterThanOrEqualTo(firstAttempts / 10 - 1);
+    }
+
+    @Test
+    void fullBucketCapsBurst() {
+        TokenBucketRetryBudget budget = new TokenBucketRetryBudget("test", config(0.5, 0));
+        for (int i = 0; i < 1000; i++) {
+            budget.onFirstAttempt();
+        }
+        assertThat(budget.getAvailableTokens()).isEqualTo(100);
+        int retries = 0;
+        while (budget.tryAcquire()) {
+            retries++;
+        }
+        assertThat(retries).isEqualTo(100);
+    }
+
+    @Test
+    void retryPolicyKeepsRetriesWithinRatioAcrossLabels() throws Exception {
+        RetryBudgetRegistry registry = registry(config(0.1, 10), config(1, 1000));
+        RetryTemplate[] templates = new RetryTemplate[2];
+        for (int i = 0; i < templates.length; i++) {
+            templates[i] = new RetryTemplate();
+            templates[i].setRetryPolicy(new RetryBudgetPolicy(new SimpleRetryPolicy(3), registry, "label-" + i));
+        }
+        AtomicLong attempts = new AtomicLong();
+        int calls = 5_000;
+        runConcurrently(thread -> {
+            RetryTemplate retryTemplate = templates[thread % templates.length];
+            for (int i = 0; i < calls; i++) {
+                Integer result = retryTemplate.execute(context -> {
+                    attempts.incrementAndGet();
+                    throw new RemoteAccessException("500");
+                }, context -> -1);
+                assertThat(result).isEqualTo(-1);
+            }
+        });
+        long totalCalls = (long) THREADS * calls;
+        long retries = attempts.get() - totalCalls;
+        // label 的预算很宽 两个 label 共用全局 10% 的预算；一次失败之后的两次 canRetry 只取一次令牌
+        assertThat(retries).isEqualTo(registry.global().getRetries());
+        assertThat(retries).isLessThanOrEqualTo(10 + totalCalls / 10);
+        assertThat(retries).isGreaterThanOrEqualTo(totalCalls / 10 - 1);
+        assertThat(registry.budget("label-0").getRetries() + registry.budget("label-1").getRetries()).isEqualTo(retries);
+    }
+
+    @Test
+    void disabledBudgetAlwaysRetries() {
+        RetryBudgetProperties properties = new RetryBudgetProperties();
+        properties.setEnabled(false);
+        properties.setGlobal(config(0, 0));
+        RetryTemplate retryTemplate = new RetryTemplate();
+        retryTemplate.setRetryPolicy(new RetryBudgetPolicy(new SimpleRetryPolicy(3), new RetryBudgetRegistry(properties), "test"));
+        AtomicInteger attempts = new AtomicInteger();
+        retryTemplate.execute(context -> {
+            attempts.incrementAndGet();
+            throw new RemoteAccessException("500");
+        }, context -> -1);
+        assertThat(attempts).hasValue(3);
+    }
+
+    public interface RemoteService {
+        int call();
+    }
+
+    @Test
+    void interceptorSkipsBackOffWhenBudgetIsSpent() {
+        RetryBudgetRegistry registry = registry(config(0, 1), config(0, 1));
+        AtomicInteger sleeps = new AtomicInteger();
+        FixedBackOffPolicy backOffPolicy = new FixedBackOffPolicy();
+        backOffPolicy.setBackOffPeriod(5000);
+        backOffPolicy.setSleeper(backOffPeriod -> sleeps.incrementAndGet());
+        RetryTemplate retryTemplate = new RetryTemplate();
+        retryTemplate.setRetryPolicy(new SimpleRetryPolicy(2));
+        retryTemplate.setBackOffPolicy(backOffPolicy);
+
+        AtomicInteger invocations = new AtomicInteger();
+        ProxyFactory proxyFactory = new ProxyFactory((RemoteService) () -> {
+            invocations.incrementAndGet();
+            throw new RemoteAccessException("500");
+        });
+        proxyFactory.addInterface(RemoteService.class);
+        proxyFactory.addAdvice(RetryInterceptorBuilder.stateless().retryOperations(retryTemplate)
+                .recoverer((args, cause) -> -1).build());
+        proxyFactory.addAdvice(new RetryBudgetInterceptor(registry));
+        RemoteService remoteService = (RemoteService) proxyFactory.getProxy();
+
+        // 唯一的一个令牌 第一次调用重试一次
+        assertThat(remoteService.call()).isEqualTo(-1);
+        assertThat(invocations).hasValue(2);
+        assertThat(sleeps).hasValue(1);
+        // 预算用完了 失败之后不退避 直接兜底
+        assertThat(remoteService.call()).isEqualTo(-1);
+        assertThat(invocations).hasValue(3);
+        assertThat(sleeps).hasValue(1);
+        assertThat(registry.budget("RemoteService.call").getFirstAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void guavaStopStrategySharesBudget() {
+        RetryBudgetRegistry registry = registry(config(0, 1), config(0, 1));
+        RetryBudgetStopStrategy stopStrategy = new RetryBudgetStopStrategy(StopStrategies.stopAfterAttempt(3), registry, "guava");
+        Retryer<Integer> retryer = RetryerBuilder.<Integer>newBuilder()
+                .retryIfExceptionOfType(RemoteAccessException.class)
+                .withRetryListener(stopStrategy)
+                .withStopStrategy(stopStrategy)
+                .build();
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retryer.call(() -> {
+            attempts.incrementAndGet();
+            throw new RemoteAccessException("500");
+        })).isInstanceOf(RetryException.class);
+        assertThat(attempts).hasValue(2);
+        assertThatThrownBy(() -> retryer.call(() -> {
+            attempts.incrementAndGet();
+            throw new RemoteAccessException("500");
+        })).isInstanceOf(RetryException.class);
+        assertThat(attempts).hasValue(3);
+        assertThat(registry.budget("guava").getFirstAttempts()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,179 @@
+package com.wangji92.retry.springretryexample.support.bulkhead;
+
+import com.wangji92.retry.springretryexample.config.RetryConfig;
+import com.wangji92.retry.springretryexample.support.advisor.RetryableMethodAdvisor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.annotation.Retryable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 16 个线程 (相当于 tomcat 的线程池) 同时处理两个接口的请求：sick 的下游每次 20ms 之后失败 重试 3 次、退避 20ms，healthy 的下游 1ms 成功。
+ * 不隔离的时候 sick 的调用在重试、退避里面占满线程 healthy 的请求排队；sick 最多 2 个并发 其他的直接兜底之后，healthy 的耗时不受影响
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+class BulkheadLoadTest {
+
+    private static final int THREADS = 16;
+
+    private static final int CALLS = 200;
+
+    private AnnotationConfigApplicationContext applicationContext;
+
+    private Target target;
+
+    private BulkheadProperties properties;
+
+    private BulkheadRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        applicationContext = new AnnotationConfigApplicationContext(Config.class);
+        target = applicationContext.getBean(Target.class);
+        properties = applicationContext.getBean(BulkheadProperties.class);
+        registry = applicationContext.getBean(BulkheadRegistry.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        applicationContext.close();
+    }
+
+    /**
+     * @return healthy 的请求从提交到返回的耗时 (毫秒) 排好序
+     */
+    private long[] runLoad() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> sick = new ArrayList<>();
+        List<Future<Long>> healthy = new ArrayList<>();
+        try {
+            for (int i = 0; i < CALLS; i++) {
+                sick.add(executor.submit(target::sick));
+                long submitted = System.nanoTime();
+                healthy.add(executor.submit(() -> {
+                    assertThat(target.healthy()).isEqualTo(200);
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitted);
+                }));
+            }
+            for (Future<Integer> future : sick) {
+                // 重试用完、隔离舱拒绝都是兜底的返回值
+                assertThat(future.get(60, TimeUnit.SECONDS)).isEqualTo(-1);
+            }
+            long[] latencies = new long[CALLS];
+            for (int i = 0; i < CALLS; i++) {
+                latencies[i] = healthy.get(i).get(60, TimeUnit.SECONDS);
+            }
+            Arrays.sort(latencies);
+            return latencies;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long p99(long[] sorted) {
+        return sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+    }
+
+    @Test
+    void sickLabelDoesNotStarveHealthyOne() throws Exception {
+        properties.setEnabled(false);
+        long[] withoutBulkhead = runLoad();
+
+        properties.setEnabled(true);
+        long[] withBulkhead = runLoad();
+        Bulkhead bulkhead = registry.bulkhead("sick");
+
+        log.info("healthy p50/p99 latency ms: without bulkhead={}/{} with bulkhead={}/{} rejected={}",
+                withoutBulkhead[CALLS / 2], p99(withoutBulkhead), withBulkhead[CALLS / 2], p99(withBulkhead),
+                bulkhead.rejectedCount());
+        // 不隔离的时候 healthy 的请求排在 sick 的重试后面
+        assertThat(p99(withoutBulkhead)).isGreaterThan(200);
+        assertThat(p99(withBulkhead)).isLessThan(p99(withoutBulkhead) / 5);
+        assertThat(bulkhead.rejectedCount()).isGreaterThan(CALLS / 2);
+        assertThat(bulkhead.activeCalls()).isZero();
+    }
+
+    /**
+     * 不加 @Configuration，否则 @SpringBootTest 扫描的时候会把这里的 bean 也注册进去
+     */
+    @EnableRetry(proxyTargetClass = true)
+    static class Config {
+
+        @Bean
+        public static BeanFactoryPostProcessor retryAdvisorOrderPostProcessor() {
+            return RetryConfig.retryAdvisorOrderPostProcessor();
+        }
+
+        @Bean
+        public RetryableMethodAdvisor exposeRetryInvocationAdvisor() {
+            return new RetryableMethodAdvisor(ExposeInvocationInterceptor.INSTANCE, RetryableMethodAdvisor.EXPOSE_INVOCATION_ORDER);
+        }
+
+        @Bean
+        public BulkheadProperties bulkheadProperties() {
+            BulkheadProperties properties = new BulkheadProperties();
+            BulkheadProperties.Config config = new BulkheadProperties.Config();
+            config.setMaxConcurrentCalls(2);
+            properties.getInstances().put("sick", config);
+            return properties;
+        }
+
+        @Bean
+        public BulkheadRegistry bulkheadRegistry(BulkheadProperties bulkheadProperties) {
+            return new BulkheadRegistry(bulkheadProperties);
+        }
+
+        @Bean
+        public RetryableMethodAdvisor bulkheadAdvisor(BulkheadRegistry bulkheadRegistry) {
+            return new RetryableMethodAdvisor(new BulkheadInterceptor(bulkheadRegistry), RetryableMethodAdvisor.BULKHEAD_ORDER);
+        }
+
+        @Bean
+        public Target target() {
+            return new Target();
+        }
+    }
+
+    static class Target {
+
+        @Retryable(label = "sick", value = RemoteAccessException.class, maxAttempts = 3, backoff = @Backoff(20))
+        public Integer sick() {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+            throw new RemoteAccessException("500");
+        }
+
+        @Retryable(label = "healthy", value = RemoteAccessException.class, maxAttempts = 3, backoff = @Backoff(20))
+        public Integer healthy() {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            return 200;
+        }
+
+        @Recover
+        public Integer recover(RemoteAccessException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.wangji92.retry.springretryexample.support.bulkhead;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 满了之后排队、排队满了或者等待超时拒绝
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class BulkheadTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static Bulkhead bulkhead(int maxConcurrentCalls, int queueCapacity, long maxWait) {
+        BulkheadProperties.Config config = new BulkheadProperties.Config();
+        config.setMaxConcurrentCalls(maxConcurrentCalls);
+        config.setQueueCapacity(queueCapacity);
+        config.setMaxWait(maxWait);
+        return new Bulkhead("test", config);
+    }
+
+    @Test
+    void fullBulkheadRejectsWithoutQueue() {
+        Bulkhead bulkhead = bulkhead(2, 0, 0);
+        assertThat(bulkhead.tryAcquire()).isTrue();
+        assertThat(bulkhead.tryAcquire()).isTrue();
+        assertThat(bulkhead.activeCalls()).isEqualTo(2);
+        long start = System.nanoTime();
+        assertThat(bulkhead.tryAcquire()).isFalse();
+        // 不排队的时候马上拒绝
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(50);
+        assertThat(bulkhead.rejectedCount()).isEqualTo(1);
+        bulkhead.release();
+        assertThat(bulkhead.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void queuedCallGetsReleasedPermit() throws Exception {
+        Bulkhead bulkhead = bulkhead(1, 1, 5000);
+        assertThat(bulkhead.tryAcquire()).isTrue();
+        Future<Boolean> queued = executor.submit(bulkhead::tryAcquire);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (bulkhead.waitingCalls() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        // 排队满了 直接拒绝
+        assertThat(bulkhead.tryAcquire()).isFalse();
+        bulkhead.release();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(bulkhead.waitingCalls()).isZero();
+        assertThat(bulkhead.activeCalls()).isEqualTo(1);
+        assertThat(bulkhead.rejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void queuedCallIsRejectedAfterMaxWait() {
+        Bulkhead bulkhead = bulkhead(1, 10, 50);
+        assertThat(bulkhead.tryAcquire()).isTrue();
+        long start = System.nanoTime();
+        assertThat(bulkhead.tryAcquire()).isFalse();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(45);
+        assertThat(bulkhead.waitingCalls()).isZero();
+        assertThat(bulkhead.rejectedCount()).isEqualTo(1);
+    }
+}
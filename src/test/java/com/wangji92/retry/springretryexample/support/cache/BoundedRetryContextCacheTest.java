@@ -0,0 +1,139 @@
+package com.wangji92.retry.springretryexample.support.cache;
+
+import com.wangji92.retry.springretryexample.dto.TextMessageDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.DefaultRetryState;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class BoundedRetryContextCacheTest {
+
+    private static final String LABEL = "stateFullRetryTestSendMessage";
+
+    private final CompactRetryKeyEncoder keyEncoder = new CompactRetryKeyEncoder()
+            .register(TextMessageDto.class, TextMessageDto::getMessageId);
+
+    private static TextMessageDto message(String messageId) {
+        TextMessageDto messageDto = new TextMessageDto();
+        messageDto.setMessageId(messageId);
+        return messageDto;
+    }
+
+    private static RetryContext context(int retryCount) {
+        SimpleRetryPolicy policy = new SimpleRetryPolicy(10);
+        RetryContext context = policy.open(null);
+        for (int i = 0; i < retryCount; i++) {
+            policy.registerThrowable(context, new RemoteAccessException("500"));
+        }
+        return context;
+    }
+
+    @Test
+    void evictsLeastRecentlyWrittenInsteadOfThrowing() {
+        BoundedRetryContextCache cache = new BoundedRetryContextCache(100, 0, 1, keyEncoder, false);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(Arrays.asList(LABEL, message("m" + i)), context(1));
+            // m0 一直在失败 每次失败都会重新 put
+            cache.put(Arrays.asList(LABEL, message("m0")), context(2));
+        }
+        assertThat(cache.size()).isEqualTo(100);
+        assertThat(cache.evictionCount()).isEqualTo(10_000 - 100);
+        assertThat(cache.containsKey(Arrays.asList(LABEL, message("m0")))).isTrue();
+        assertThat(cache.containsKey(Arrays.asList(LABEL, message("m1")))).isFalse();
+    }
+
+    @Test
+    void expiresAfterTimeToLive() {
+        AtomicLong now = new AtomicLong(1_000);
+        BoundedRetryContextCache cache = new BoundedRetryContextCache(100, 50, 4, keyEncoder, false) {
+            @Override
+            protected long currentTimeMillis() {
+                return now.get();
+            }
+        };
+        cache.put(Arrays.asList(LABEL, message("001")), context(1));
+        now.addAndGet(49);
+        assertThat(cache.containsKey(Arrays.asList(LABEL, message("001")))).isTrue();
+        now.addAndGet(1);
+        assertThat(cache.containsKey(Arrays.asList(LABEL, message("001")))).isFalse();
+        assertThat(cache.evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void compactKeyDoesNotHoldArgumentAndSeparatesTypes() {
+        assertThat(keyEncoder.encode(Arrays.asList(LABEL, message("001"))))
+                .isEqualTo(keyEncoder.encode(Arrays.asList(LABEL, message("001"))))
+                .isInstanceOf(CompactRetryKeyEncoder.CompactKey.class);
+        assertThat(keyEncoder.encode(Arrays.asList(LABEL, "001")))
+                .isNotEqualTo(keyEncoder.encode(Arrays.asList(LABEL, message("001"))));
+        assertThat(keyEncoder.encode(Arrays.asList("a,b", "c")))
+                .isNotEqualTo(keyEncoder.encode(Arrays.asList("a", "b,c")));
+        // 没有注册提取器的类型 使用原始的 key
+        Object unknown = Arrays.asList(LABEL, new Object());
+        assertThat(keyEncoder.encode(unknown)).isSameAs(unknown);
+    }
+
+    @Test
+    void offHeapKeepsRetryCount() {
+        BoundedRetryContextCache cache = new BoundedRetryContextCache(100, 0, 4, keyEncoder, true);
+        RetryContext context = context(2);
+        context.setAttribute(RetryContext.STATE_KEY, Arrays.asList(LABEL, message("001")));
+        cache.put(Arrays.asList(LABEL, message("001")), context);
+
+        RetryContext restored = cache.get(Arrays.asList(LABEL, message("001")));
+        assertThat(restored).isNotSameAs(context);
+        assertThat(restored.getRetryCount()).isEqualTo(2);
+        assertThat(restored.getLastThrowable()).isInstanceOf(RemoteAccessException.class);
+    }
+
+    @Test
+    void offHeapReusesReleasedBuffers() {
+        BoundedRetryContextCache cache = new BoundedRetryContextCache(8, 0, 1, keyEncoder, true);
+        for (int i = 0; i < 1000; i++) {
+            // 同一个 key 覆盖、不同的 key 淘汰 都会把旧的 buffer 还回池子
+            cache.put(Arrays.asList(LABEL, message("001")), context(i % 3));
+            cache.put(Arrays.asList(LABEL, message(String.valueOf(i))), context(1));
+        }
+        assertThat(cache.get(Arrays.asList(LABEL, message("001"))).getRetryCount()).isEqualTo(999 % 3);
+        // 最多同时存活 8 条 加上覆盖时刚释放的那一个 其余全部复用
+        assertThat(cache.directAllocationCount()).isLessThanOrEqualTo(16);
+    }
+
+    @Test
+    void statefulRetryTemplateWithOffHeapCache() throws Throwable {
+        RetryTemplate template = new RetryTemplate();
+        template.setRetryPolicy(new SimpleRetryPolicy(2));
+        template.setRetryContextCache(new BoundedRetryContextCache(100, 0, 4, keyEncoder, true));
+        AtomicInteger attempts = new AtomicInteger();
+
+        for (int redelivery = 0; redelivery < 2; redelivery++) {
+            // 每次重新投递都是一个新的对象 只有 messageId 相同
+            DefaultRetryState state = new DefaultRetryState(Arrays.asList(LABEL, message("001")), false, null);
+            assertThatThrownBy(() -> template.execute(context -> {
+                attempts.incrementAndGet();
+                throw new RemoteAccessException("500");
+            }, state)).isInstanceOf(RemoteAccessException.class);
+        }
+        DefaultRetryState state = new DefaultRetryState(Arrays.asList(LABEL, message("001")), false, null);
+        Integer result = template.execute(context -> {
+            attempts.incrementAndGet();
+            return 500;
+        }, context -> 200, state);
+
+        assertThat(result).isEqualTo(200);
+        assertThat(attempts.get()).isEqualTo(2);
+    }
+}
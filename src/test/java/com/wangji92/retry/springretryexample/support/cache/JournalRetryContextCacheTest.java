@@ -0,0 +1,220 @@
+package com.wangji92.retry.springretryexample.support.cache;
+
+import com.wangji92.retry.springretryexample.dto.TextMessageDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.policy.RetryCacheCapacityExceededException;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.DefaultRetryState;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class JournalRetryContextCacheTest {
+
+    private static final String LABEL = "stateFullRetryTestSendMessage";
+
+    private final CompactRetryKeyEncoder keyEncoder = new CompactRetryKeyEncoder()
+            .register(TextMessageDto.class, TextMessageDto::getMessageId);
+
+    @TempDir
+    Path directory;
+
+    private static Object key(String messageId) {
+        TextMessageDto messageDto = new TextMessageDto();
+        messageDto.setMessageId(messageId);
+        return Arrays.asList(LABEL, messageDto);
+    }
+
+    private static RetryContext context(int retryCount) {
+        SimpleRetryPolicy policy = new SimpleRetryPolicy(10);
+        RetryContext context = policy.open(null);
+        for (int i = 0; i < retryCount; i++) {
+            policy.registerThrowable(context, new RemoteAccessException("500"));
+        }
+        return context;
+    }
+
+    private JournalRetryContextCache open(int segmentSize) {
+        return new JournalRetryContextCache(directory, 1000, 0, keyEncoder, segmentSize, 0);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void replaysRetryCountAfterRestart() {
+        JournalRetryContextCache cache = open(64 * 1024);
+        cache.put(key("001"), context(1));
+        cache.put(key("001"), context(2));
+        cache.put(key("002"), context(1));
+        cache.put(key("003"), context(1));
+        cache.remove(key("003"));
+        // 新的 TextMessageDto 对象 messageId 相同
+        assertThat(cache.get(key("001")).getRetryCount()).isEqualTo(2);
+        cache.close();
+
+        JournalRetryContextCache reopened = open(64 * 1024);
+        assertThat(reopened.size()).isEqualTo(2);
+        assertThat(reopened.get(key("001")).getRetryCount()).isEqualTo(2);
+        assertThat(reopened.get(key("002")).getRetryCount()).isEqualTo(1);
+        assertThat(reopened.containsKey(key("003"))).isFalse();
+        // 重放出来的上下文还是 SimpleRetryPolicy 能用的类型
+        assertThat(new SimpleRetryPolicy(3).canRetry(reopened.get(key("001")))).isTrue();
+        reopened.close();
+    }
+
+    @Test
+    void statefulRetryContinuesAfterRestart() {
+        AtomicInteger calls = new AtomicInteger();
+        DefaultRetryState state = new DefaultRetryState(key("001"));
+
+        JournalRetryContextCache cache = open(64 * 1024);
+        RetryTemplate retryTemplate = RetryTemplate.builder().maxAttempts(2).noBackoff().build();
+        retryTemplate.setRetryContextCache(cache);
+        assertThatThrownBy(() -> retryTemplate.execute(context -> {
+            calls.incrementAndGet();
+            throw new RemoteAccessException("500");
+        }, context -> "recover", state)).isInstanceOf(RemoteAccessException.class);
+        cache.close();
+
+        // 重启之后消息重新投递 接着之前的次数，第二次失败之后再投递就直接兜底 而不是从头开始计数
+        JournalRetryContextCache reopened = open(64 * 1024);
+        RetryTemplate restarted = RetryTemplate.builder().maxAttempts(2).noBackoff().build();
+        restarted.setRetryContextCache(reopened);
+        RetryCallback<String, RemoteAccessException> callback = context -> {
+            calls.incrementAndGet();
+            throw new RemoteAccessException("500");
+        };
+        assertThatThrownBy(() -> restarted.execute(callback, context -> "recover", state))
+                .isInstanceOf(RemoteAccessException.class);
+        assertThat(restarted.execute(callback, context -> "recover", state)).isEqualTo("recover");
+        assertThat(calls).hasValue(2);
+        assertThat(reopened.containsKey(key("001"))).isFalse();
+        reopened.close();
+    }
+
+    @Test
+    void ignoresTornTailAndKeepsAppending() throws IOException {
+        JournalRetryContextCache cache = open(64 * 1024);
+        cache.put(key("001"), context(1));
+        long written = cache.journalBytes();
+        cache.close();
+        // kill -9 的时候最后一条记录写了一半：长度已经写了 内容不完整
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            file.seek(written);
+            file.writeInt(500);
+            file.writeInt(12345);
+            file.write(new byte[]{1, 2, 3});
+        }
+
+        JournalRetryContextCache reopened = open(64 * 1024);
+        assertThat(reopened.size()).isEqualTo(1);
+        assertThat(reopened.journalBytes()).isEqualTo(written);
+        reopened.put(key("002"), context(3));
+        reopened.close();
+
+        JournalRetryContextCache again = open(64 * 1024);
+        assertThat(again.size()).isEqualTo(2);
+        assertThat(again.get(key("002")).getRetryCount()).isEqualTo(3);
+        again.close();
+    }
+
+    @Test
+    void compactionKeepsLiveEntriesAndDeletesOldSegments() throws IOException {
+        JournalRetryContextCache cache = open(16 * 1024);
+        for (int i = 0; i < 2000; i++) {
+            cache.put(key("m" + (i % 20)), context(i % 5));
+            if (i % 3 == 0) {
+                cache.remove(key("m" + (i % 20)));
+            }
+        }
+        int before = cache.segmentCount();
+        assertThat(before).isGreaterThan(10);
+        assertThat(cache.compactIfNecessary()).isTrue();
+        assertThat(cache.segmentCount()).isLessThan(before);
+        assertThat(segments()).hasSize(cache.segmentCount());
+        assertThat(cache.garbageBytes()).isZero();
+        int size = cache.size();
+        int retryCount = cache.get(key("m19")).getRetryCount();
+        cache.close();
+
+        JournalRetryContextCache reopened = open(16 * 1024);
+        assertThat(reopened.size()).isEqualTo(size);
+        assertThat(reopened.get(key("m19")).getRetryCount()).isEqualTo(retryCount);
+        reopened.close();
+    }
+
+    @Test
+    void expiresAfterTimeToLiveAcrossRestart() {
+        AtomicLong now = new AtomicLong(1_000);
+        JournalRetryContextCache cache = new JournalRetryContextCache(directory, 1000, 50, keyEncoder, 64 * 1024, 0) {
+            @Override
+            protected long currentTimeMillis() {
+                return now.get();
+            }
+        };
+        cache.put(key("001"), context(1));
+        now.addAndGet(30);
+        cache.put(key("002"), context(1));
+        now.addAndGet(19);
+        assertThat(cache.containsKey(key("001"))).isTrue();
+        now.addAndGet(1);
+        assertThat(cache.containsKey(key("001"))).isFalse();
+        cache.close();
+
+        JournalRetryContextCache reopened = new JournalRetryContextCache(directory, 1000, 50, keyEncoder, 64 * 1024, 0) {
+            @Override
+            protected long currentTimeMillis() {
+                return now.get();
+            }
+        };
+        assertThat(reopened.containsKey(key("001"))).isFalse();
+        assertThat(reopened.containsKey(key("002"))).isTrue();
+        reopened.close();
+    }
+
+    @Test
+    void rejectsWhenFullAndSecondInstanceOnSameDirectory() {
+        JournalRetryContextCache cache = new JournalRetryContextCache(directory, 2, 0, keyEncoder, 64 * 1024, 0);
+        cache.put(key("001"), context(1));
+        cache.put(key("002"), context(1));
+        // 已有的 key 可以更新
+        cache.put(key("002"), context(2));
+        assertThatThrownBy(() -> cache.put(key("003"), context(1))).isInstanceOf(RetryCacheCapacityExceededException.class);
+        assertThatThrownBy(() -> open(64 * 1024)).isInstanceOf(IllegalStateException.class);
+        cache.close();
+    }
+
+    @Test
+    void rejectsKeysThatCannotBeEncoded() {
+        JournalRetryContextCache cache = open(64 * 1024);
+        // 没有注册提取器的参数类型 toString 带着 hashCode，重启之后对不上
+        Object key = Arrays.asList(LABEL, new Object());
+        assertThatThrownBy(() -> cache.put(key, context(1))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(cache.size()).isZero();
+        cache.close();
+    }
+}
@@ -0,0 +1,110 @@
+package com.wangji92.retry.springretryexample.support.circuit;
+
+import com.wangji92.retry.springretryexample.service.RetryTestService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 下游 /unstableApi/500 一直失败的时候 同样的并发调用，关闭熔断和打开熔断各跑一遍，对比真正发出去的失败请求数
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT, properties = {
+        "programmingGuavaRetryLimitTime=false",
+        // 只看熔断的效果 重试预算也会减少重试
+        "retry.budget.enabled=false",
+        "retry.circuit-breaker.instances[RetryTestService.retryTestService].wait-duration-in-open-state=60000"})
+@DirtiesContext
+class CircuitBreakerLoadTest {
+
+    private static final int CALLS = 400;
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private RetryTestService retryTestService;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private CircuitBreakerProperties circuitBreakerProperties;
+
+    /**
+     * 注解上的退避是 5s，压测的时候不等待 (替换掉唯一的 Sleeper bean)
+     */
+    @MockBean
+    private Sleeper sleeper;
+
+    private final AtomicInteger failedOutboundCalls = new AtomicInteger();
+
+    private final ClientHttpRequestInterceptor outboundCounter = (request, body, execution) -> {
+        if (request.getURI().getPath().endsWith("/500")) {
+            failedOutboundCalls.incrementAndGet();
+        }
+        return execution.execute(request, body);
+    };
+
+    @BeforeEach
+    void setUp() {
+        restTemplate.getInterceptors().add(0, outboundCounter);
+    }
+
+    @AfterEach
+    void tearDown() {
+        restTemplate.getInterceptors().remove(outboundCounter);
+        circuitBreakerProperties.setEnabled(true);
+    }
+
+    private int runLoad() throws Exception {
+        failedOutboundCalls.set(0);
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLS; i++) {
+            futures.add(executorService.submit(() -> retryTestService.retryTestService()));
+        }
+        for (Future<Integer> future : futures) {
+            // 成功返回 500 (接口原来的写法)，兜底返回 200，调用方不会收到异常
+            assertThat(future.get(60, TimeUnit.SECONDS)).isIn(200, 500);
+        }
+        executorService.shutdown();
+        return failedOutboundCalls.get();
+    }
+
+    @Test
+    void circuitBreakerCutsWastedOutboundCalls() throws Exception {
+        circuitBreakerProperties.setEnabled(false);
+        int withoutCircuitBreaker = runLoad();
+
+        circuitBreakerProperties.setEnabled(true);
+        int withCircuitBreaker = runLoad();
+
+        log.info("failed outbound calls for {} calls: without circuit breaker={} with circuit breaker={}",
+                CALLS, withoutCircuitBreaker, withCircuitBreaker);
+        // 每 10 次调用只有 1 次成功，不熔断的时候几乎每次调用都要尝试两次
+        assertThat(withoutCircuitBreaker).isGreaterThan(CALLS);
+        // 熔断打开之前只需要 minimum-calls 左右的失败
+        assertThat(withCircuitBreaker).isLessThan(withoutCircuitBreaker / 10);
+    }
+}
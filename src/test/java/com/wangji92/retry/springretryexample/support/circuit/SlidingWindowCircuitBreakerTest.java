@@ -0,0 +1,249 @@
+package com.wangji92.retry.springretryexample.support.circuit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class SlidingWindowCircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    private static CircuitBreakerProperties.Config config() {
+        CircuitBreakerProperties.Config config = new CircuitBreakerProperties.Config();
+        config.setWindowSize(10);
+        config.setMinimumCalls(5);
+        config.setFailureRateThreshold(50);
+        config.setWaitDurationInOpenState(1_000);
+        config.setPermittedCallsInHalfOpenState(2);
+        return config;
+    }
+
+    private SlidingWindowCircuitBreaker circuitBreaker() {
+        return new SlidingWindowCircuitBreaker("test", config()) {
+            @Override
+            protected long currentTimeMillis() {
+                return now.get();
+            }
+        };
+    }
+
+    private static void call(SlidingWindowCircuitBreaker circuitBreaker, boolean success) {
+        SlidingWindowCircuitBreaker.Permit permit = circuitBreaker.tryAcquirePermission();
+        assertThat(permit).isNotNull();
+        if (success) {
+            permit.onSuccess();
+        } else {
+            permit.onError();
+        }
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThresholdInWindow() {
+        SlidingWindowCircuitBreaker circuitBreaker = circuitBreaker();
+        for (int i = 0; i < 5; i++) {
+            call(circuitBreaker, true);
+        }
+        for (int i = 0; i < 4; i++) {
+            call(circuitBreaker, false);
+        }
+        // 4 / 9 还没有到 50%
+        assertThat(circuitBreaker.getState()).isEqualTo(SlidingWindowCircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.getFailureRate()).isEqualTo(400f / 9);
+        call(circuitBreaker, false);
+        assertThat(circuitBreaker.getState()).isEqualTo(SlidingWindowCircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isNull();
+        assertThat(circuitBreaker.getNotPermittedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void notEnoughCallsDoNotOpen() {
+        SlidingWindowCircuitBreaker circuitBreaker = circuitBreaker();
+        for (int i = 0; i < 4; i++) {
+            call(circuitBreaker, false);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(SlidingWindowCircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.getFailureRate()).isEqualTo(-1);
+    }
+
+    @Test
+    void oldFailuresSlideOutOfWindow() {
+        SlidingWindowCircuitBreaker circuitBreaker = circuitBreaker();
+        for (int i = 0; i < 5; i++) {
+            call(circuitBreaker, true);
+        }
+        for (int i = 0; i < 4; i++) {
+            call(circuitBreaker, false);
+        }
+        for (int i = 0; i < 10; i++) {
+            call(circuitBreaker, true);
+        }
+        assertThat(circuitBreaker.getFailureRate()).isZero();
+    }
+
+    @Test
+    void stuckHalfOpenProbesAreReleasedAfterWaitDuration() {
+        SlidingWindowCircuitBreaker circuitBreaker = circuitBreaker();
+        for (int i = 0; i < 5; i++) {
+            call(circuitBreaker, false);
+        }
+        now.addAndGet(1_000);
+        // 两个探测请求一直没有返回
+        SlidingWindowCircuitBreaker.Permit first = circuitBreaker.tryAcquirePermission();
+        SlidingWindowCircuitBreaker.Permit second = circuitBreaker.tryAcquirePermission();
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        now.addAndGet(999);
+        assertThat(circuitBreaker.tryAcquirePermission()).isNull();
+
+        now.addAndGet(1);
+        call(circuitBreaker, true);
+        call(circuitBreaker, true);
+        assertThat(circuitBreaker.getState()).isEqualTo(SlidingWindowCircuitBreaker.State.CLOSED);
+        // 卡住的探测晚到的结果不影响新的状态
+        first.onError();
+        assertThat(circuitBreaker.getState()).isEqualTo(SlidingWindowCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void registryOnlyCreatesConfiguredCircuitBreakers() {
+        CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.getInstances().put("configured", config());
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry(properties);
+
+        assertThat(registry.circuitBreaker("configured")).isNotNull();
+        assertThat(registry.circuitBreaker("RetryTestService.other")).isNull();
+        assertThat(registry.circuitBreakers()).hasSize(1);
+    }
+
+    @Test
+    void halfOpenProbesCloseOrReopen() {
+        SlidingWindowCircuitBreaker circuitBreaker = circuitBreaker();
+        for (int i = 0; i < 5; i++) {
+            call(circuitBreaker, false);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(SlidingWindowCircuitBreaker.State.OPEN);
+
+        now.addAndGet(1_000);
+        // 只放两个探测请求
+        SlidingWindowCircuitBreaker.Permit first = circuitBreaker.tryAcquirePermission();
+        SlidingWindowCircuitBreaker.Permit second = circuitBreaker.tryAcquirePermission();
+        assertThat(circuitBreaker.getState()).isEqualTo(SlidingWindowCircuitBreaker.State.HALF_OPEN);
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(circuitBreaker.tryAcquirePermission()).isNull();
+        first.onSuccess();
+        second.onError();
+        assertThat(circuitBreaker.getState()).isEqualTo(SlidingWindowCircuitBreaker.State.OPEN);
+
+        now.addAndGet(1_000);
+        call(circuitBreaker, true);
+        call(circuitBreaker, true);
+        assertThat(circuitBreaker.getState()).isEqualTo(SlidingWindowCircuitBreaker.State.CLOSED);
+        // 关闭之后是一个新的窗口
+        assertThat(circuitBreaker.getFailureRate()).isEqualTo(-1);
+    }
+
+    @Test
+    void staysConsistentUnderConcurrentCalls() throws Exception {
+        CircuitBreakerProperties.Config config = config();
+        config.setWindowSize(100);
+        config.setMinimumCalls(50);
+        config.setWaitDurationInOpenState(1);
+        SlidingWindowCircuitBreaker circuitBreaker = new SlidingWindowCircuitBreaker("concurrent", config);
+        int threads = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executorService.submit(() -> {
+                start.await();
+                long permitted = 0;
+                for (int i = 0; i < 200_000; i++) {
+                    SlidingWindowCircuitBreaker.Permit permit = circuitBreaker.tryAcquirePermission();
+                    if (permit == null) {
+                        continue;
+                    }
+                    permitted++;
+                    // 下游 60% 的失败率
+                    if (ThreadLocalRandom.current().nextInt(100) < 60) {
+                        permit.onError();
+                    } else {
+                        permit.onSuccess();
+                    }
+                }
+                return permitted;
+            }));
+        }
+        start.countDown();
+        long permitted = 0;
+        for (Future<Long> future : futures) {
+            permitted += future.get(60, TimeUnit.SECONDS);
+        }
+        executorService.shutdown();
+
+        assertThat(permitted + circuitBreaker.getNotPermittedCalls()).isEqualTo(threads * 200_000L);
+        // 一直在打开、半开之间切换 大部分调用被拦住
+        assertThat(circuitBreaker.getNotPermittedCalls()).isPositive();
+        float failureRate = circuitBreaker.getFailureRate();
+        assertThat(failureRate == -1 || (failureRate >= 0 && failureRate <= 100)).isTrue();
+    }
+
+    @Test
+    void onlyRecordsConfiguredExceptions() {
+        SlidingWindowCircuitBreaker circuitBreaker = circuitBreaker();
+        assertThat(circuitBreaker.isRecordable(new RemoteAccessException("500"))).isTrue();
+        assertThat(circuitBreaker.isRecordable(new CallNotPermittedException("test"))).isTrue();
+        assertThat(circuitBreaker.isRecordable(new IllegalArgumentException())).isFalse();
+    }
+
+    @Test
+    void endpointInterceptorShortCircuitsConfiguredEndpoint() {
+        CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.getInstances().put("localhost:8080/unstableApi/500", config());
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry(properties);
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add(new CircuitBreakerClientHttpRequestInterceptor(registry));
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        for (int i = 0; i < 5; i++) {
+            server.expect(requestTo("http://localhost:8080/unstableApi/500")).andExpect(method(HttpMethod.GET))
+                    .andRespond(withStatus(HttpStatus.INTERNAL_SERVER_ERROR));
+        }
+        server.expect(requestTo("http://localhost:8080/unstableApi/200")).andRespond(withSuccess());
+
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> restTemplate.getForEntity("http://localhost:8080/unstableApi/500", String.class))
+                    .isInstanceOf(HttpServerErrorException.class);
+        }
+        // 熔断打开 请求不会再发出去
+        assertThatThrownBy(() -> restTemplate.getForEntity("http://localhost:8080/unstableApi/500", String.class))
+                .isInstanceOf(CallNotPermittedException.class);
+        // 没有配置的 endpoint 不受影响
+        restTemplate.getForEntity("http://localhost:8080/unstableApi/200", String.class);
+        server.verify();
+    }
+}
@@ -0,0 +1,91 @@
+package com.wangji92.retry.springretryexample.support.classify;
+
+import com.wangji92.retry.springretryexample.service.RetryTestService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 对 MockApiController 的 /unstableApi/{status} 打 401 风暴，走 @Retryable(interceptor = "classifiedRetryInterceptor")
+ * 真正发出去的请求数：401 每次调用一个请求，500 重试到次数用完，503 按 Retry-After 等待
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT, properties = {
+        "programmingGuavaRetryLimitTime=false",
+        // 只看分类的效果 预算、熔断也会减少重试
+        "retry.budget.enabled=false",
+        "retry.circuit-breaker.enabled=false",
+        "retry.registry.policies.retryTestServiceClassified.back-off-period=1",
+        "retry.registry.policies.retryTestServiceClassified.max-back-off-period=1"})
+@DirtiesContext
+class HttpRetryClassifierLoadTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final int CALLS = 50;
+
+    @Autowired
+    private RetryTestService retryTestService;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    private final Map<String, AtomicInteger> outboundCalls = new ConcurrentHashMap<>();
+
+    private final ClientHttpRequestInterceptor outboundCounter = (request, body, execution) -> {
+        outboundCalls.computeIfAbsent(request.getURI().getPath(), path -> new AtomicInteger()).incrementAndGet();
+        return execution.execute(request, body);
+    };
+
+    @BeforeEach
+    void setUp() {
+        restTemplate.getInterceptors().add(0, outboundCounter);
+    }
+
+    @AfterEach
+    void tearDown() {
+        restTemplate.getInterceptors().remove(outboundCounter);
+    }
+
+    private int outbound(int status) {
+        AtomicInteger count = outboundCalls.get("/unstableApi/" + status);
+        return count == null ? 0 : count.get();
+    }
+
+    @Test
+    void unauthorizedFloodIsNotRetried() {
+        for (int i = 0; i < CALLS; i++) {
+            // 兜底调用 /unstableApi/200
+            assertThat(retryTestService.retryTestServiceClassified(401)).isEqualTo(200);
+        }
+        assertThat(outbound(401)).isEqualTo(CALLS);
+        assertThat(outbound(200)).isEqualTo(CALLS);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(retryTestService.retryTestServiceClassified(500)).isEqualTo(200);
+        }
+        assertThat(outbound(500)).isEqualTo(10 * MAX_ATTEMPTS);
+    }
+
+    @Test
+    void serviceUnavailableWaitsRetryAfter() {
+        long start = System.currentTimeMillis();
+        assertThat(retryTestService.retryTestServiceClassified(503)).isEqualTo(200);
+        // Retry-After: 1 两次重试之前各等 1 秒
+        assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(2000);
+        assertThat(outbound(503)).isEqualTo(MAX_ATTEMPTS);
+    }
+}
@@ -0,0 +1,218 @@
+package com.wangji92.retry.springretryexample.support.classify;
+
+import com.github.rholder.retry.Attempt;
+import com.github.rholder.retry.RetryListener;
+import com.github.rholder.retry.Retryer;
+import com.github.rholder.retry.RetryerBuilder;
+import com.github.rholder.retry.StopStrategies;
+import com.github.rholder.retry.WaitStrategies;
+import com.wangji92.retry.springretryexample.support.backoff.JitterBackOff;
+import com.wangji92.retry.springretryexample.support.backoff.JitterMode;
+import com.wangji92.retry.springretryexample.support.guava.RetryAfterWaitStrategy;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.lang.management.ManagementFactory;
+import java.net.SocketTimeoutException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 状态码、异常类型分类，Retry-After，RetryTemplate.builder() 和 guava retryIfResult 上 401 不再重试
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class HttpRetryClassifierTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final int CALLS = 100;
+
+    private final HttpRetryClassifier classifier = new HttpRetryClassifier(new HttpRetryClassifierProperties());
+
+    private static HttpClientErrorException unauthorized() {
+        return HttpClientErrorException.create(HttpStatus.UNAUTHORIZED, "Unauthorized", null, null, null);
+    }
+
+    private static HttpServerErrorException serviceUnavailable(String retryAfter) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+        return HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "Service Unavailable", headers, null, null);
+    }
+
+    @Test
+    void statusTable() {
+        assertThat(classifier.classify(500)).isEqualTo(RetryDecision.RETRY);
+        assertThat(classifier.classify(502)).isEqualTo(RetryDecision.RETRY);
+        assertThat(classifier.classify(408)).isEqualTo(RetryDecision.RETRY);
+        assertThat(classifier.classify(429)).isEqualTo(RetryDecision.RETRY_AFTER);
+        assertThat(classifier.classify(503)).isEqualTo(RetryDecision.RETRY_AFTER);
+        assertThat(classifier.classify(401)).isEqualTo(RetryDecision.NO_RETRY);
+        assertThat(classifier.classify(404)).isEqualTo(RetryDecision.NO_RETRY);
+        assertThat(classifier.classify(501)).isEqualTo(RetryDecision.NO_RETRY);
+        assertThat(classifier.classify(200)).isEqualTo(RetryDecision.NO_RETRY);
+        assertThat(classifier.classify(999)).isEqualTo(RetryDecision.NO_RETRY);
+
+        HttpRetryClassifierProperties properties = new HttpRetryClassifierProperties();
+        properties.setRetryableStatuses(Collections.singletonList(409));
+        properties.setNonRetryableStatuses(Collections.singletonList(502));
+        HttpRetryClassifier configured = new HttpRetryClassifier(properties);
+        assertThat(configured.classify(409)).isEqualTo(RetryDecision.RETRY);
+        assertThat(configured.classify(502)).isEqualTo(RetryDecision.NO_RETRY);
+    }
+
+    @Test
+    void exceptionChain() {
+        // 原来 RetryTestService 的包装 沿着 cause 找到状态码
+        assertThat(classifier.classify(new RemoteAccessException("500", unauthorized()))).isEqualTo(RetryDecision.NO_RETRY);
+        assertThat(classifier.classify(new RemoteAccessException("500",
+                HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "", null, null, null)))).isEqualTo(RetryDecision.RETRY);
+        assertThat(classifier.classify(new ResourceAccessException("I/O error", new SocketTimeoutException()))).isEqualTo(RetryDecision.RETRY);
+        // 没有状态码、不在列表里面
+        assertThat(classifier.classify(new IllegalStateException())).isEqualTo(RetryDecision.RETRY);
+
+        HttpRetryClassifierProperties properties = new HttpRetryClassifierProperties();
+        properties.setDefaultRetryable(false);
+        properties.setNonRetryableExceptions(Collections.singletonList(IllegalArgumentException.class));
+        properties.setRetryableExceptions(Collections.singletonList(RuntimeException.class));
+        HttpRetryClassifier configured = new HttpRetryClassifier(properties);
+        // 继承距离近的优先
+        assertThat(configured.classify(new NumberFormatException())).isEqualTo(RetryDecision.NO_RETRY);
+        assertThat(configured.classify(new IllegalStateException())).isEqualTo(RetryDecision.RETRY);
+        assertThat(configured.classify(new Exception())).isEqualTo(RetryDecision.NO_RETRY);
+    }
+
+    @Test
+    void retryAfter() {
+        assertThat(classifier.retryAfterMillis(new RemoteAccessException("500", serviceUnavailable("2")))).isEqualTo(2000);
+        String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now().plusSeconds(10));
+        assertThat(classifier.retryAfterMillis(serviceUnavailable(date))).isBetween(8000L, 10000L);
+        // 不超过 maxRetryAfter
+        assertThat(classifier.retryAfterMillis(serviceUnavailable("3600"))).isEqualTo(30000);
+        assertThat(classifier.retryAfterMillis(serviceUnavailable("soon"))).isZero();
+        // 500 不看 Retry-After
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "2");
+        assertThat(classifier.retryAfterMillis(HttpServerErrorException.create(HttpStatus.INTERNAL_SERVER_ERROR, "", headers, null, null))).isZero();
+        assertThat(classifier.resultRetryAfterMillis(ResponseEntity.status(429).headers(headers).build())).isEqualTo(2000);
+    }
+
+    @Test
+    void classifyDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Throwable[] failures = {new RemoteAccessException("500", unauthorized()), new ResourceAccessException("I/O error"),
+                new RemoteAccessException("500", HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "", null, null, null))};
+        int retryable = 0;
+        for (int i = 0; i < 100_000; i++) {
+            retryable += classifier.isRetryable(failures[i % failures.length]) ? 1 : 0;
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            retryable += classifier.isRetryable(failures[i % failures.length]) ? 1 : 0;
+        }
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+        assertThat(retryable).isGreaterThan(0);
+        // getThreadAllocatedBytes 自己可能分配一点
+        assertThat(allocated).isLessThan(1024);
+    }
+
+    /**
+     * 401 风暴 RetryTemplate.builder() 按类型重试 每次调用都尝试 MAX_ATTEMPTS 次，按状态码分类只尝试一次
+     */
+    @Test
+    void unauthorizedFloodWithRetryTemplate() {
+        RetryTemplate byType = RetryTemplate.builder().maxAttempts(MAX_ATTEMPTS).retryOn(RemoteAccessException.class).noBackoff().build();
+        RetryTemplate classified = RetryTemplate.builder().customPolicy(new HttpRetryPolicy(MAX_ATTEMPTS, classifier)).noBackoff().build();
+
+        assertThat(flood(byType)).isEqualTo(CALLS * MAX_ATTEMPTS);
+        assertThat(flood(classified)).isEqualTo(CALLS);
+    }
+
+    private static int flood(RetryTemplate retryTemplate) {
+        AtomicInteger attempts = new AtomicInteger();
+        for (int i = 0; i < CALLS; i++) {
+            Integer result = retryTemplate.execute(context -> {
+                attempts.incrementAndGet();
+                throw new RemoteAccessException("500", unauthorized());
+            }, context -> -1);
+            assertThat(result).isEqualTo(-1);
+        }
+        return attempts.get();
+    }
+
+    @Test
+    void retryTemplateHonorsRetryAfter() {
+        List<Long> sleeps = new ArrayList<>();
+        RetryTemplate retryTemplate = RetryTemplate.builder()
+                .customPolicy(new HttpRetryPolicy(MAX_ATTEMPTS, classifier))
+                .customBackoff(new RetryAfterBackOffPolicy(new JitterBackOff(JitterMode.NONE, 100, 1000, 1), 0, classifier, sleeps::add))
+                .build();
+        AtomicInteger attempts = new AtomicInteger();
+        Integer result = retryTemplate.execute(context -> {
+            switch (attempts.incrementAndGet()) {
+                case 1:
+                    throw serviceUnavailable("2");
+                case 2:
+                    throw new RemoteAccessException("500");
+                default:
+                    // 按返回值重试的方式 状态码为 200 原样返回
+                    return classifier.rejectRetryable(ResponseEntity.ok(200)).getBody();
+            }
+        });
+        assertThat(result).isEqualTo(200);
+        // 第一次按 Retry-After，第二次的 Retry-After 不会带过来
+        assertThat(sleeps).containsExactly(2000L, 100L);
+    }
+
+    @Test
+    void guavaRetryIfResult() throws Exception {
+        List<Long> sleeps = new ArrayList<>();
+        AtomicInteger attempts = new AtomicInteger();
+        Retryer<ResponseEntity<Integer>> retryer = RetryerBuilder.<ResponseEntity<Integer>>newBuilder()
+                .retryIfException(classifier::isRetryable)
+                .retryIfResult(classifier::isRetryableResult)
+                .withWaitStrategy(new RetryAfterWaitStrategy(WaitStrategies.fixedWait(0, TimeUnit.MILLISECONDS), classifier))
+                .withStopStrategy(StopStrategies.stopAfterAttempt(MAX_ATTEMPTS))
+                .withBlockStrategy(sleeps::add)
+                .withRetryListener(new RetryListener() {
+                    @Override
+                    public <V> void onRetry(Attempt<V> attempt) {
+                        attempts.incrementAndGet();
+                    }
+                })
+                .build();
+
+        // 401 直接返回 不重试
+        for (int i = 0; i < CALLS; i++) {
+            assertThat(retryer.call(() -> ResponseEntity.status(401).<Integer>build()).getStatusCodeValue()).isEqualTo(401);
+        }
+        assertThat(attempts.get()).isEqualTo(CALLS);
+        assertThat(sleeps).isEmpty();
+
+        attempts.set(0);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        AtomicInteger calls = new AtomicInteger();
+        ResponseEntity<Integer> result = retryer.call(() -> calls.incrementAndGet() == 1
+                ? ResponseEntity.status(503).headers(headers).<Integer>build() : ResponseEntity.ok(200));
+        assertThat(result.getBody()).isEqualTo(200);
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(sleeps).containsExactly(1000L);
+    }
+}
@@ -0,0 +1,262 @@
+package com.wangji92.retry.springretryexample.support.cluster;
+
+import com.wangji92.retry.springretryexample.dto.TextMessageDto;
+import com.wangji92.retry.springretryexample.support.budget.RetryBudgetProperties;
+import com.wangji92.retry.springretryexample.support.budget.RetryBudgetRegistry;
+import com.wangji92.retry.springretryexample.support.cache.CompactRetryKeyEncoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.context.RetryContextSupport;
+import org.springframework.retry.support.DefaultRetryState;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 两个节点共用一个 {@link InMemoryRetryStateStore}
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class ClusterRetryCoordinatorTest {
+
+    private static final String LABEL = "stateFullRetryTestSendMessage";
+
+    private final CompactRetryKeyEncoder keyEncoder = new CompactRetryKeyEncoder()
+            .register(TextMessageDto.class, TextMessageDto::getMessageId);
+
+    private final List<ClusterRetryCoordinator> coordinators = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        coordinators.forEach(ClusterRetryCoordinator::close);
+    }
+
+    private ClusterRetryCoordinator node(RetryStateStore store, String nodeId, int batchSize, RetryBudgetRegistry budgetRegistry) {
+        ClusterRetryProperties properties = new ClusterRetryProperties();
+        properties.setNodeId(nodeId);
+        properties.setBatchSize(batchSize);
+        ClusterRetryCoordinator coordinator = new ClusterRetryCoordinator(store, properties, budgetRegistry);
+        coordinators.add(coordinator);
+        return coordinator;
+    }
+
+    private static TextMessageDto message(String messageId) {
+        TextMessageDto messageDto = new TextMessageDto();
+        messageDto.setMessageId(messageId);
+        return messageDto;
+    }
+
+    private static RetryContext context(int retryCount) {
+        SimpleRetryPolicy policy = new SimpleRetryPolicy(10);
+        RetryContext context = policy.open(null);
+        for (int i = 0; i < retryCount; i++) {
+            policy.registerThrowable(context, new RemoteAccessException("500"));
+        }
+        return context;
+    }
+
+    private static RetryTemplate statefulTemplate(ClusterRetryContextCache cache) {
+        RetryTemplate template = new RetryTemplate();
+        template.setRetryPolicy(new SimpleRetryPolicy(2));
+        template.setRetryContextCache(cache);
+        return template;
+    }
+
+    @Test
+    void attemptsAreSharedAcrossNodes() throws Throwable {
+        InMemoryRetryStateStore store = new InMemoryRetryStateStore(10000);
+        ClusterRetryCoordinator nodeA = node(store, "a", 500, null);
+        ClusterRetryCoordinator nodeB = node(store, "b", 500, null);
+        RetryTemplate templateA = statefulTemplate(nodeA.contextCache(100, 0, keyEncoder));
+        RetryTemplate templateB = statefulTemplate(nodeB.contextCache(100, 0, keyEncoder));
+        AtomicInteger attempts = new AtomicInteger();
+
+        // 第一次投递到 A 失败
+        assertThatThrownBy(() -> templateA.execute(context -> {
+            attempts.incrementAndGet();
+            throw new RemoteAccessException("500");
+        }, new DefaultRetryState(Arrays.asList(LABEL, message("001")), false, null)))
+                .isInstanceOf(RemoteAccessException.class);
+        nodeA.sync();
+        nodeB.sync();
+
+        // 重新投递到 B，A 上已经失败过一次 这次是最后一次
+        assertThatThrownBy(() -> templateB.execute(context -> {
+            attempts.incrementAndGet();
+            throw new RemoteAccessException("500");
+        }, new DefaultRetryState(Arrays.asList(LABEL, message("001")), false, null)))
+                .isInstanceOf(RemoteAccessException.class);
+        nodeB.sync();
+        nodeA.sync();
+
+        // 再投递到 A 次数用完了 直接兜底
+        Integer result = templateA.execute(context -> {
+            attempts.incrementAndGet();
+            return 500;
+        }, context -> 200, new DefaultRetryState(Arrays.asList(LABEL, message("001")), false, null));
+
+        assertThat(result).isEqualTo(200);
+        assertThat(attempts.get()).isEqualTo(2);
+    }
+
+    @Test
+    void writesAreBatchedIntoOneRoundTrip() {
+        InMemoryRetryStateStore store = new InMemoryRetryStateStore(10000);
+        ClusterRetryCoordinator nodeA = node(store, "a", 500, null);
+        ClusterRetryCoordinator nodeB = node(store, "b", 500, null);
+        ClusterRetryContextCache cacheA = nodeA.contextCache(1000, 0, keyEncoder);
+        ClusterRetryContextCache cacheB = nodeB.contextCache(1000, 0, keyEncoder);
+
+        for (int i = 0; i < 200; i++) {
+            Object key = Arrays.asList(LABEL, message(String.valueOf(i)));
+            // 同一个 key 写多次 只提交最后一次
+            cacheA.put(key, context(1));
+            cacheA.put(key, context(2));
+        }
+        cacheA.remove(Arrays.asList(LABEL, message("0")));
+        assertThat(store.syncCount()).isZero();
+        assertThat(cacheA.pendingCount()).isEqualTo(200);
+
+        nodeA.sync();
+        assertThat(store.syncCount()).isEqualTo(1);
+        assertThat(store.size()).isEqualTo(199);
+        assertThat(cacheA.pendingCount()).isZero();
+
+        nodeB.sync();
+        assertThat(cacheB.size()).isEqualTo(199);
+        RetryContext context = cacheB.get(Arrays.asList(LABEL, message("1")));
+        assertThat(context.getRetryCount()).isEqualTo(2);
+        assertThat(context.getLastThrowable()).isInstanceOf(RemoteAccessException.class);
+
+        // 两个节点在同步之间写了同一个 key 存储以重试次数大的为准
+        cacheB.put(Arrays.asList(LABEL, message("2")), context(5));
+        cacheA.put(Arrays.asList(LABEL, message("2")), context(3));
+        nodeB.sync();
+        nodeA.sync();
+        assertThat(cacheA.get(Arrays.asList(LABEL, message("2"))).getRetryCount()).isEqualTo(5);
+    }
+
+    @Test
+    void fullBatchSyncsWithoutWaitingForInterval() throws InterruptedException {
+        InMemoryRetryStateStore store = new InMemoryRetryStateStore(10000);
+        ClusterRetryCoordinator nodeA = node(store, "a", 10, null);
+        ClusterRetryContextCache cacheA = nodeA.contextCache(1000, 0, keyEncoder);
+
+        for (int i = 0; i < 10; i++) {
+            cacheA.put(Arrays.asList(LABEL, message(String.valueOf(i))), context(1));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        // 写完存储之后才累加 syncCount
+        while ((store.size() < 10 || nodeA.syncCount() < 1) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(store.size()).isEqualTo(10);
+        assertThat(nodeA.syncCount()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void retryBudgetIsSharedByActiveNodes() {
+        InMemoryRetryStateStore store = new InMemoryRetryStateStore(10000);
+        RetryBudgetRegistry budgetA = budgetRegistry();
+        RetryBudgetRegistry budgetB = budgetRegistry();
+        ClusterRetryCoordinator nodeA = node(store, "a", 500, budgetA);
+        ClusterRetryCoordinator nodeB = node(store, "b", 500, budgetB);
+
+        // 每个节点带着初始的 10 个令牌加入
+        nodeA.sync();
+        nodeB.sync();
+        nodeA.sync();
+        assertThat(nodeA.activeNodes()).isEqualTo(2);
+        assertThat(store.counter("budget.global")).isEqualTo(20_000);
+        assertThat(budgetA.global().getAvailableTokens()).isEqualTo(10);
+
+        // A 上的下游故障 重试了 8 次
+        for (int i = 0; i < 8; i++) {
+            assertThat(budgetA.tryAcquireRetry(LABEL)).isTrue();
+        }
+        assertThat(store.syncCount()).isEqualTo(3);
+        nodeA.sync();
+        nodeB.sync();
+
+        // 剩下的 12 个令牌两个节点平分
+        assertThat(store.counter("budget.global")).isEqualTo(12_000);
+        assertThat(budgetA.global().getAvailableTokens()).isEqualTo(6);
+        assertThat(budgetB.global().getAvailableTokens()).isEqualTo(6);
+    }
+
+    @Test
+    void failedSyncKeepsPendingWritesForNextSync() {
+        InMemoryRetryStateStore memory = new InMemoryRetryStateStore(10000);
+        AtomicBoolean down = new AtomicBoolean(true);
+        RetryStateStore store = batch -> {
+            if (down.get()) {
+                throw new IllegalStateException("store unavailable");
+            }
+            return memory.sync(batch);
+        };
+        RetryBudgetRegistry budgetA = budgetRegistry();
+        ClusterRetryCoordinator nodeA = node(store, "a", 500, budgetA);
+        ClusterRetryContextCache cacheA = nodeA.contextCache(100, 0, keyEncoder);
+
+        cacheA.put(Arrays.asList(LABEL, message("001")), context(1));
+        budgetA.tryAcquireRetry(LABEL);
+        assertThatThrownBy(nodeA::sync).isInstanceOf(IllegalStateException.class);
+        assertThat(nodeA.failedSyncCount()).isEqualTo(1);
+        // 本地不受影响
+        assertThat(cacheA.pendingCount()).isEqualTo(1);
+        assertThat(cacheA.get(Arrays.asList(LABEL, message("001")))).isNotNull();
+        assertThat(budgetA.global().getAvailableTokens()).isEqualTo(9);
+
+        down.set(false);
+        nodeA.sync();
+        assertThat(memory.size()).isEqualTo(1);
+        assertThat(memory.counter("budget.global")).isEqualTo(9_000);
+        assertThat(budgetA.global().getAvailableTokens()).isEqualTo(9);
+    }
+
+    @Test
+    void putDuringDrainIsKeptForNextSync() {
+        ClusterRetryCoordinator nodeA = node(new InMemoryRetryStateStore(10000), "a", 500, budgetRegistry());
+        ClusterRetryContextCache cacheA = nodeA.contextCache(100, 0, keyEncoder);
+        List<Object> key = Arrays.asList(LABEL, message("001"));
+        RetryContext newer = context(2);
+        AtomicBoolean racing = new AtomicBoolean();
+        // 取走的时候 另一个线程写进来新的 context
+        RetryContextSupport older = new RetryContextSupport(null) {
+            @Override
+            public int getRetryCount() {
+                if (racing.getAndSet(false)) {
+                    cacheA.put(key, newer);
+                }
+                return 1;
+            }
+        };
+        cacheA.put(key, older);
+
+        racing.set(true);
+        assertThat(cacheA.drainPuts()).isEmpty();
+        assertThat(cacheA.pendingCount()).isEqualTo(1);
+        Map<String, RetryStateBatch.Context> puts = cacheA.drainPuts();
+        assertThat(puts).hasSize(1);
+        assertThat(puts.values().iterator().next().getRetryCount()).isEqualTo(2);
+        assertThat(cacheA.pendingCount()).isZero();
+    }
+
+    private static RetryBudgetRegistry budgetRegistry() {
+        RetryBudgetProperties properties = new RetryBudgetProperties();
+        properties.setEnabled(true);
+        return new RetryBudgetRegistry(properties);
+    }
+}
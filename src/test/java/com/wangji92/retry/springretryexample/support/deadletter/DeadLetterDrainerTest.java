@@ -0,0 +1,115 @@
+package com.wangji92.retry.springretryexample.support.deadletter;
+
+import com.wangji92.retry.springretryexample.dto.TextMessageDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 回放限速、回放失败之后再回放、一直失败的不再回放
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class DeadLetterDrainerTest {
+
+    @TempDir
+    Path directory;
+
+    private static void await(DeadLetterQueue queue, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (queue.size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void drainIsRateLimited() throws Exception {
+        DeadLetterQueue queue = new DeadLetterQueue(directory, 1000, DeadLetterQueue.DEFAULT_SEGMENT_SIZE, 256, 10);
+        List<Long> replayedAt = new CopyOnWriteArrayList<>();
+        DeadLetterDrainer drainer = new DeadLetterDrainer(queue, letter -> replayedAt.add(System.nanoTime()), 50, 0, 0, 0);
+        try {
+            drainer.start();
+            // 积压了一批 下游恢复之后按 50/s 回放 不会一下子全部打过去
+            for (int i = 0; i < 20; i++) {
+                assertThat(queue.offer(DeadLetterQueueTest.letter(String.valueOf(i)))).isTrue();
+            }
+            await(queue, 5000);
+            assertThat(queue.size()).isZero();
+            assertThat(drainer.replayedCount()).isEqualTo(20);
+            long elapsedMillis = (replayedAt.get(19) - replayedAt.get(0)) / 1_000_000;
+            // 19 个间隔 每个 20ms
+            assertThat(elapsedMillis).isGreaterThanOrEqualTo(350);
+        } finally {
+            drainer.close();
+            queue.close();
+        }
+    }
+
+    @Test
+    void failedReplayIsRetriedLater() throws Exception {
+        DeadLetterQueue queue = new DeadLetterQueue(directory, 1000, DeadLetterQueue.DEFAULT_SEGMENT_SIZE, 256, 10);
+        Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        // 每条死信前两次回放失败 (下游还没恢复)
+        DeadLetterDrainer drainer = new DeadLetterDrainer(queue, letter -> {
+            String messageId = ((TextMessageDto) letter.getArgs()[0]).getMessageId();
+            if (attempts.computeIfAbsent(messageId, key -> new AtomicInteger()).incrementAndGet() <= 2) {
+                throw new IllegalStateException("recover failed");
+            }
+        }, 0, 20, 100, 0);
+        try {
+            drainer.start();
+            for (int i = 0; i < 5; i++) {
+                queue.offer(DeadLetterQueueTest.letter(String.valueOf(i)));
+            }
+            await(queue, 5000);
+            assertThat(queue.size()).isZero();
+            assertThat(drainer.replayedCount()).isEqualTo(5);
+            assertThat(drainer.failedCount()).isEqualTo(10);
+            assertThat(attempts.values()).allSatisfy(count -> assertThat(count.get()).isEqualTo(3));
+        } finally {
+            drainer.close();
+            queue.close();
+        }
+    }
+
+    @Test
+    void letterFailingTooOftenIsParked() throws Exception {
+        DeadLetterQueue queue = new DeadLetterQueue(directory, 1000, DeadLetterQueue.DEFAULT_SEGMENT_SIZE, 256, 10);
+        AtomicInteger attempts = new AtomicInteger();
+        // "poison" 一直失败，其他的正常回放
+        DeadLetterDrainer drainer = new DeadLetterDrainer(queue, letter -> {
+            if ("poison".equals(((TextMessageDto) letter.getArgs()[0]).getMessageId())) {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("recover failed");
+            }
+        }, 0, 10, 20, 3);
+        try {
+            drainer.start();
+            queue.offer(DeadLetterQueueTest.letter("poison"));
+            queue.offer(DeadLetterQueueTest.letter("1"));
+            await(queue, 5000);
+            assertThat(queue.size()).isZero();
+            assertThat(attempts.get()).isEqualTo(3);
+            assertThat(drainer.replayedCount()).isEqualTo(1);
+            assertThat(drainer.parkedCount()).isEqualTo(1);
+            assertThat(queue.parkedCount()).isEqualTo(1);
+            assertThat(directory.resolve("dead-letter.parked")).exists();
+        } finally {
+            drainer.close();
+            queue.close();
+        }
+        // ACK 过了 重启之后不再回放
+        DeadLetterQueue restarted = new DeadLetterQueue(directory, 1000, DeadLetterQueue.DEFAULT_SEGMENT_SIZE, 256, 10);
+        assertThat(restarted.size()).isZero();
+        restarted.close();
+    }
+}
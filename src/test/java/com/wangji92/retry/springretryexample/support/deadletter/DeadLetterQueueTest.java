@@ -0,0 +1,208 @@
+package com.wangji92.retry.springretryexample.support.deadletter;
+
+import com.wangji92.retry.springretryexample.dto.TextMessageDto;
+import com.wangji92.retry.springretryexample.service.StatefulRetryTestService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.remoting.RemoteAccessException;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 重启之后没有回放成功的死信还在
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class DeadLetterQueueTest {
+
+    private static final String LABEL = "stateFullRetryTestSendMessage";
+
+    @TempDir
+    Path directory;
+
+    static DeadLetter letter(String messageId) throws NoSuchMethodException {
+        Method method = StatefulRetryTestService.class.getMethod("stateFullRetryTestSendMessage", TextMessageDto.class);
+        TextMessageDto messageDto = new TextMessageDto();
+        messageDto.setMessageId(messageId);
+        return new DeadLetter(LABEL, StatefulRetryTestService.class, method, new Object[]{messageDto},
+                new RemoteAccessException("500"));
+    }
+
+    private DeadLetterQueue open(int capacity, int segmentSize) {
+        return new DeadLetterQueue(directory, capacity, segmentSize, Integer.MAX_VALUE, 0);
+    }
+
+    private static List<String> drain(DeadLetterQueue queue, int count, boolean ack) throws InterruptedException {
+        List<String> messageIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            DeadLetter letter = queue.poll(1, TimeUnit.SECONDS);
+            assertThat(letter).isNotNull();
+            messageIds.add(((TextMessageDto) letter.getArgs()[0]).getMessageId());
+            if (ack) {
+                queue.ack(letter);
+            }
+        }
+        return messageIds;
+    }
+
+    @Test
+    void outstandingLettersSurviveRestart() throws Exception {
+        DeadLetterQueue queue = open(1000, DeadLetterQueue.DEFAULT_SEGMENT_SIZE);
+        for (int i = 0; i < 100; i++) {
+            assertThat(queue.offer(letter(String.valueOf(i)))).isTrue();
+        }
+        // 刷盘之前不交给回放
+        assertThat(queue.poll(0, TimeUnit.MILLISECONDS)).isNull();
+        queue.flush();
+        assertThat(queue.flushCount()).isEqualTo(1);
+        drain(queue, 40, true);
+        // 取走了没有 ACK 的 (回放中) 重启之后也要再回放
+        drain(queue, 10, false);
+        queue.flush();
+        // 最后这几条没有刷盘 close 的时候刷盘
+        queue.offer(letter("100"));
+        queue.close();
+
+        DeadLetterQueue restarted = open(1000, DeadLetterQueue.DEFAULT_SEGMENT_SIZE);
+        try {
+            assertThat(restarted.size()).isEqualTo(61);
+            List<String> expected = Stream.concat(Stream.iterate(40, i -> i + 1).limit(60), Stream.of(100))
+                    .map(String::valueOf).collect(Collectors.toList());
+            DeadLetter first = restarted.poll(1, TimeUnit.SECONDS);
+            assertThat(first.getId()).isEqualTo(41);
+            assertThat(first.getLabel()).isEqualTo(LABEL);
+            assertThat(first.getCause()).isInstanceOf(RemoteAccessException.class).hasMessage("500");
+            restarted.requeue(first);
+            assertThat(drain(restarted, 61, true)).containsExactlyInAnyOrderElementsOf(expected);
+            // id 接着上一次的
+            DeadLetter next = letter("101");
+            restarted.offer(next);
+            assertThat(next.getId()).isEqualTo(102);
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    void tornTailIsIgnored() throws Exception {
+        DeadLetterQueue queue = open(1000, DeadLetterQueue.DEFAULT_SEGMENT_SIZE);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(letter(String.valueOf(i)));
+        }
+        queue.close();
+        // kill -9 的时候最后一条记录只写了一半
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted()
+                    .reduce((a, b) -> b).orElseThrow(IllegalStateException::new);
+        }
+        Files.write(segment, new byte[]{0, 0, 1, 0, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        DeadLetterQueue restarted = open(1000, DeadLetterQueue.DEFAULT_SEGMENT_SIZE);
+        try {
+            assertThat(restarted.size()).isEqualTo(10);
+            restarted.offer(letter("10"));
+            restarted.flush();
+            assertThat(drain(restarted, 11, true)).hasSize(11);
+        } finally {
+            restarted.close();
+        }
+        DeadLetterQueue again = open(1000, DeadLetterQueue.DEFAULT_SEGMENT_SIZE);
+        assertThat(again.size()).isZero();
+        again.close();
+    }
+
+    @Test
+    void unreadableLetterIsSkippedAndParked() throws Exception {
+        DeadLetterQueue queue = open(1000, DeadLetterQueue.DEFAULT_SEGMENT_SIZE);
+        queue.offer(letter("0"));
+        queue.close();
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted()
+                    .reduce((a, b) -> b).orElseThrow(IllegalStateException::new);
+        }
+        // 长度、crc 都对 内容反序列化不出来 (比如类改了不兼容)，后面还有一条正常的
+        byte[] garbage = {1, 2, 3, 4, 5};
+        int length = 17 + garbage.length;
+        ByteBuffer record = ByteBuffer.allocate(length).putInt(length).putInt(0).put((byte) 1).putLong(2).put(garbage);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 8, length - 8);
+        record.putInt(4, (int) crc.getValue());
+        Files.write(segment, record.array(), StandardOpenOption.APPEND);
+
+        DeadLetterQueue restarted = open(1000, DeadLetterQueue.DEFAULT_SEGMENT_SIZE);
+        try {
+            assertThat(restarted.size()).isEqualTo(1);
+            assertThat(restarted.parkedCount()).isEqualTo(1);
+            assertThat(Files.size(directory.resolve("dead-letter.parked"))).isEqualTo(length);
+            assertThat(drain(restarted, 1, true)).containsExactly("0");
+            // id 跳过了读不出来的那条
+            DeadLetter next = letter("1");
+            restarted.offer(next);
+            assertThat(next.getId()).isEqualTo(3);
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    void ackedSegmentsAreDeleted() throws Exception {
+        DeadLetterQueue queue = open(1000, 4096);
+        try {
+            for (int i = 0; i < 200; i++) {
+                queue.offer(letter(String.valueOf(i)));
+            }
+            queue.flush();
+            assertThat(queue.segmentCount()).isGreaterThan(5);
+            drain(queue, 200, true);
+            queue.flush();
+            assertThat(queue.segmentCount()).isEqualTo(1);
+            assertThat(queue.size()).isZero();
+        } finally {
+            queue.close();
+        }
+    }
+
+    @Test
+    void fullQueueRejects() throws Exception {
+        DeadLetterQueue queue = open(3, DeadLetterQueue.DEFAULT_SEGMENT_SIZE);
+        try {
+            for (int i = 0; i < 3; i++) {
+                assertThat(queue.offer(letter(String.valueOf(i)))).isTrue();
+            }
+            assertThat(queue.offer(letter("3"))).isFalse();
+            assertThat(queue.rejectedCount()).isEqualTo(1);
+            queue.flush();
+            drain(queue, 1, true);
+            assertThat(queue.offer(letter("3"))).isTrue();
+        } finally {
+            queue.close();
+        }
+    }
+
+    @Test
+    void directoryIsLocked() {
+        DeadLetterQueue queue = open(10, DeadLetterQueue.DEFAULT_SEGMENT_SIZE);
+        try {
+            assertThatThrownBy(() -> open(10, DeadLetterQueue.DEFAULT_SEGMENT_SIZE))
+                    .isInstanceOf(IllegalStateException.class);
+        } finally {
+            queue.close();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.wangji92.retry.springretryexample.support.fallback;
+
+import com.wangji92.retry.springretryexample.config.RetryConfig;
+import com.wangji92.retry.springretryexample.support.advisor.RetryableMethodAdvisor;
+import com.wangji92.retry.springretryexample.support.key.LabelRoutingKeyGenerator;
+import com.wangji92.retry.springretryexample.support.recover.CachedRecoverer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.backoff.Sleeper;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 重试用完之后用最近一次成功的返回值兜底，过期之后用旧值并后台刷新
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class FallbackResultCacheTest {
+
+    private static final int MAX_ATTEMPTS = 2;
+
+    private static final long TIME_TO_LIVE = 1000;
+
+    private static final AtomicLong CLOCK = new AtomicLong();
+
+    private AnnotationConfigApplicationContext applicationContext;
+
+    private AnnotationConfigApplicationContext start(Class<?> config) {
+        CLOCK.set(1_000_000);
+        Target.price.set(100);
+        Target.failures.set(0);
+        Target.attempts.set(0);
+        Target.recovers.set(0);
+        applicationContext = new AnnotationConfigApplicationContext(config);
+        return applicationContext;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (applicationContext != null) {
+            applicationContext.close();
+        }
+    }
+
+    @Test
+    void lastSuccessIsUsedWithinTimeToLive() {
+        start(Config.class);
+        Target target = applicationContext.getBean(Target.class);
+        FallbackResultCache cache = applicationContext.getBean(FallbackResultCache.class);
+
+        // 没有成功过 走原来的 @Recover，兜底的返回值不缓存
+        Target.failures.set(Integer.MAX_VALUE);
+        assertThat(target.quote("001")).isEqualTo(-1);
+        assertThat(target.quote("001")).isEqualTo(-1);
+        assertThat(Target.recovers.get()).isEqualTo(2);
+        assertThat(cache.missCount()).isEqualTo(2);
+
+        Target.failures.set(0);
+        assertThat(target.quote("001")).isEqualTo(100);
+        Target.failures.set(Integer.MAX_VALUE);
+        CLOCK.addAndGet(TIME_TO_LIVE - 1);
+        int attempts = Target.attempts.get();
+        assertThat(target.quote("001")).isEqualTo(100);
+        // 重试还是照常进行 只是兜底不调用 @Recover
+        assertThat(Target.attempts.get() - attempts).isEqualTo(MAX_ATTEMPTS);
+        assertThat(Target.recovers.get()).isEqualTo(2);
+        assertThat(cache.hitCount()).isEqualTo(1);
+        // 参数不一样的 key 没有缓存
+        assertThat(target.quote("002")).isEqualTo(-1);
+
+        // 没有 stale-while-revalidate 过期之后不再使用
+        CLOCK.addAndGet(1);
+        assertThat(target.quote("001")).isEqualTo(-1);
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(cache.staleHitCount()).isZero();
+    }
+
+    @Test
+    void staleValueIsServedWhileRevalidating() {
+        start(StaleConfig.class);
+        Target target = applicationContext.getBean(Target.class);
+        FallbackResultCache cache = applicationContext.getBean(FallbackResultCache.class);
+
+        assertThat(target.quote("001")).isEqualTo(100);
+        CLOCK.addAndGet(TIME_TO_LIVE);
+
+        // 下游一直失败 旧值还可以用，后台刷新也失败
+        Target.failures.set(Integer.MAX_VALUE);
+        assertThat(target.quote("001")).isEqualTo(100);
+        assertThat(cache.staleHitCount()).isEqualTo(1);
+        assertThat(cache.revalidationCount()).isZero();
+
+        // 重试的两次失败 后台刷新的那一次成功了
+        Target.failures.set(MAX_ATTEMPTS);
+        Target.price.set(101);
+        assertThat(target.quote("001")).isEqualTo(100);
+        assertThat(cache.revalidationCount()).isEqualTo(1);
+
+        Target.failures.set(Integer.MAX_VALUE);
+        assertThat(target.quote("001")).isEqualTo(101);
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(Target.recovers.get()).isZero();
+
+        // 超过 time-to-live + stale-while-revalidate
+        CLOCK.addAndGet(TIME_TO_LIVE * 10);
+        assertThat(target.quote("001")).isEqualTo(-1);
+        assertThat(cache.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void sizeIsBounded() {
+        FallbackResultCache cache = new FallbackResultCache(new LabelRoutingKeyGenerator(LabelRoutingKeyGenerator.ARGUMENTS),
+                Collections.singleton("quote"), 16, TIME_TO_LIVE, 0, null);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("quote", new Object[]{String.valueOf(i)}, i);
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(16);
+        assertThat(cache.evictionCount()).isEqualTo(1000 - cache.size());
+    }
+
+    static class ClockedFallbackResultCache extends FallbackResultCache {
+
+        ClockedFallbackResultCache(long staleWhileRevalidateMillis) {
+            // 同步刷新 测试里面不用等
+            super(new LabelRoutingKeyGenerator(LabelRoutingKeyGenerator.ARGUMENTS), Collections.singleton("quote"), 100,
+                    TIME_TO_LIVE, staleWhileRevalidateMillis, staleWhileRevalidateMillis > 0 ? Runnable::run : null);
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return CLOCK.get();
+        }
+    }
+
+    /**
+     * 不加 @Configuration，否则 @SpringBootTest 扫描的时候会把这里的 bean 也注册进去
+     */
+    @EnableRetry(proxyTargetClass = true)
+    static class Config {
+
+        @Bean
+        public static BeanFactoryPostProcessor retryAdvisorOrderPostProcessor() {
+            return RetryConfig.retryAdvisorOrderPostProcessor();
+        }
+
+        @Bean
+        public RetryableMethodAdvisor exposeRetryInvocationAdvisor() {
+            return new RetryableMethodAdvisor(ExposeInvocationInterceptor.INSTANCE, RetryableMethodAdvisor.EXPOSE_INVOCATION_ORDER);
+        }
+
+        @Bean
+        public FallbackResultCache fallbackResultCache() {
+            return new ClockedFallbackResultCache(0);
+        }
+
+        @Bean
+        public RetryableMethodAdvisor fallbackCacheAdvisor(FallbackResultCache fallbackResultCache) {
+            return new RetryableMethodAdvisor(new FallbackCacheInterceptor(fallbackResultCache), RetryableMethodAdvisor.FALLBACK_CACHE_ORDER);
+        }
+
+        @Bean
+        public Sleeper noSleeper() {
+            return backOffPeriod -> {
+            };
+        }
+
+        @Bean
+        public Target target() {
+            return new Target();
+        }
+    }
+
+    static class StaleConfig extends Config {
+
+        @Override
+        @Bean
+        public FallbackResultCache fallbackResultCache() {
+            return new ClockedFallbackResultCache(TIME_TO_LIVE * 5);
+        }
+    }
+
+    static class Target implements CachedRecoverer {
+
+        /**
+         * 代理类上的字段不是目标对象的 所以放在 static 上
+         */
+        static final AtomicInteger price = new AtomicInteger();
+
+        static final AtomicInteger failures = new AtomicInteger();
+
+        static final AtomicInteger attempts = new AtomicInteger();
+
+        static final AtomicInteger recovers = new AtomicInteger();
+
+        @Autowired
+        private FallbackResultCache fallbackResultCache;
+
+        @Retryable(label = "quote", value = RemoteAccessException.class, maxAttempts = MAX_ATTEMPTS, backoff = @Backoff(0))
+        public Integer quote(String symbol) {
+            attempts.incrementAndGet();
+            if (failures.getAndUpdate(count -> count == Integer.MAX_VALUE ? count : Math.max(0, count - 1)) > 0) {
+                throw new RemoteAccessException("500");
+            }
+            return price.get();
+        }
+
+        @Recover
+        public Integer recover(RemoteAccessException e, String symbol) {
+            recovers.incrementAndGet();
+            return -1;
+        }
+
+        @Override
+        public Object recover(Object[] args, Throwable cause) {
+            return fallbackResultCache.recover(args, cause, () -> CachedRecoverer.super.recover(args, cause));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.wangji92.retry.springretryexample.support.hedge;
+
+import com.wangji92.retry.springretryexample.support.budget.RetryBudgetProperties;
+import com.wangji92.retry.springretryexample.support.budget.RetryBudgetRegistry;
+import com.wangji92.retry.springretryexample.support.timelimit.AttemptTimeLimitExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class HedgingRetryInterceptorTest {
+
+    private final AttemptTimeLimitExecutor executor = new AttemptTimeLimitExecutor(false, 8, 100);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static HedgeProperties properties() {
+        HedgeProperties properties = new HedgeProperties();
+        properties.setPercentile(0.9);
+        properties.setInitialDelay(20);
+        properties.setMinDelay(1);
+        properties.setMinSamples(20);
+        properties.setWindow(100);
+        return properties;
+    }
+
+    private HedgingRetryInterceptor interceptor(RetryBudgetRegistry retryBudgetRegistry) {
+        return interceptor(properties(), retryBudgetRegistry);
+    }
+
+    private HedgingRetryInterceptor interceptor(HedgeProperties properties, RetryBudgetRegistry retryBudgetRegistry) {
+        RetryTemplate retryTemplate = RetryTemplate.builder().maxAttempts(2).noBackoff()
+                .retryOn(RemoteAccessException.class).build();
+        return new HedgingRetryInterceptor(retryTemplate, executor, properties, retryBudgetRegistry, null);
+    }
+
+    private static <T> T proxy(T target, HedgingRetryInterceptor interceptor) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        @SuppressWarnings("unchecked")
+        T proxy = (T) proxyFactory.getProxy();
+        return proxy;
+    }
+
+    private static long p99(long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+    }
+
+    @Test
+    void hedgingCutsTailLatency() {
+        // 每 20 个请求有一个慢请求
+        LatencyService target = new LatencyService(20, 300);
+        HedgingRetryInterceptor interceptor = interceptor(null);
+        LatencyService hedged = proxy(target, interceptor);
+
+        long[] baseline = new long[200];
+        long[] withHedging = new long[200];
+        for (int i = 0; i < 200; i++) {
+            long start = System.nanoTime();
+            target.call();
+            baseline[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+        for (int i = 0; i < 200; i++) {
+            long start = System.nanoTime();
+            assertThat(hedged.call()).isEqualTo(200);
+            withHedging[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+
+        HedgingRetryInterceptor.HedgeStats stats = interceptor.stats().get("LatencyService.call");
+        assertThat(p99(baseline)).isGreaterThanOrEqualTo(300);
+        // 慢请求等一个对冲延迟之后 对冲请求很快返回
+        assertThat(p99(withHedging)).isLessThan(150);
+        assertThat(stats.getHedges()).isGreaterThanOrEqualTo(10);
+        assertThat(stats.getHedgeWins()).isGreaterThanOrEqualTo(5);
+        // 对冲延迟跟着 p90 走 不会一直是初始的 20ms
+        assertThat(stats.getDelayMicros()).isLessThan(TimeUnit.MILLISECONDS.toMicros(20));
+    }
+
+    @Test
+    void cancelsTheSlowerRequest() throws InterruptedException {
+        // 第一个请求很慢 对冲请求很快
+        LatencyService target = new LatencyService(1, 5000) {
+            @Override
+            public Integer call() {
+                return calls.get() == 0 ? super.call() : 200;
+            }
+        };
+        long start = System.nanoTime();
+        assertThat(proxy(target, interceptor(null)).call()).isEqualTo(200);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        assertThat(target.interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void failureBeforeHedgeDelayIsRetriedNotHedged() {
+        FailingService target = new FailingService();
+        // 第一次调用类加载等比较慢 延迟放大一点
+        HedgeProperties properties = properties();
+        properties.setInitialDelay(1000);
+        HedgingRetryInterceptor interceptor = interceptor(properties, null);
+
+        assertThat(proxy(target, interceptor).call()).isEqualTo(-1);
+        assertThat(target.calls).hasValue(2);
+        assertThat(interceptor.stats().get("FailingService.call").getHedges()).isZero();
+    }
+
+    @Test
+    void noHedgeWhenRetryBudgetIsEmpty() {
+        RetryBudgetProperties budgetProperties = new RetryBudgetProperties();
+        budgetProperties.getDefaults().setInitialTokens(0);
+        budgetProperties.getDefaults().setRatio(0);
+        LatencyService target = new LatencyService(1, 100);
+        HedgingRetryInterceptor interceptor = interceptor(new RetryBudgetRegistry(budgetProperties));
+
+        long start = System.nanoTime();
+        proxy(target, interceptor).call();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(100);
+        HedgingRetryInterceptor.HedgeStats stats = interceptor.stats().get("LatencyService.call");
+        assertThat(stats.getHedges()).isZero();
+        assertThat(stats.getBudgetRejected()).isEqualTo(1);
+        assertThat(target.calls).hasValue(1);
+    }
+
+    @Test
+    void rejectedHedgeKeepsWaitingForPrimary() {
+        // 一个线程、排队一个 先占住线程 第一个请求排队，对冲请求被拒绝
+        AttemptTimeLimitExecutor fullExecutor = new AttemptTimeLimitExecutor(false, 1, 1);
+        try {
+            fullExecutor.executor().execute(() -> {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            RetryTemplate retryTemplate = RetryTemplate.builder().maxAttempts(1).noBackoff().build();
+            HedgingRetryInterceptor interceptor = new HedgingRetryInterceptor(retryTemplate, fullExecutor, properties(), null, null);
+            LatencyService target = new LatencyService(1, 5);
+
+            assertThat(proxy(target, interceptor).call()).isEqualTo(200);
+            HedgingRetryInterceptor.HedgeStats stats = interceptor.stats().get("LatencyService.call");
+            assertThat(stats.getExecutorRejected()).isEqualTo(1);
+            assertThat(stats.getHedges()).isZero();
+            assertThat(target.calls).hasValue(1);
+        } finally {
+            fullExecutor.shutdown();
+        }
+    }
+
+    public static class LatencyService {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        private final int slowEvery;
+
+        private final long slowMillis;
+
+        public LatencyService(int slowEvery, long slowMillis) {
+            this.slowEvery = slowEvery;
+            this.slowMillis = slowMillis;
+        }
+
+        public Integer call() {
+            int count = calls.getAndIncrement();
+            try {
+                TimeUnit.MILLISECONDS.sleep(count % slowEvery == 0 ? slowMillis : 5);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new RemoteAccessException("cancelled");
+            }
+            return 200;
+        }
+    }
+
+    @Test
+    void recoverRunsOnTheCalledInstance() {
+        HedgeProperties properties = properties();
+        properties.setInitialDelay(1000);
+        HedgingRetryInterceptor interceptor = interceptor(properties, null);
+
+        assertThat(proxy(new FailingService(-1), interceptor).call()).isEqualTo(-1);
+        // 同一个拦截器 另一个实例的兜底用自己的状态
+        assertThat(proxy(new FailingService(-2), interceptor).call()).isEqualTo(-2);
+    }
+
+    @Test
+    void rethrowsWhenNoRecoverMatches() {
+        HedgeProperties properties = properties();
+        properties.setInitialDelay(1000);
+        FailingService proxy = proxy(new FailingService(), interceptor(properties, null));
+
+        // 只有 Integer 的 @Recover 返回 String 的方法 抛出原来的异常
+        assertThatThrownBy(proxy::text).isExactlyInstanceOf(RemoteAccessException.class);
+    }
+
+    public static class FailingService {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        private final int recovered;
+
+        public FailingService() {
+            this(-1);
+        }
+
+        public FailingService(int recovered) {
+            this.recovered = recovered;
+        }
+
+        public Integer call() {
+            calls.incrementAndGet();
+            throw new RemoteAccessException("500");
+        }
+
+        public String text() {
+            throw new RemoteAccessException("500");
+        }
+
+        @Recover
+        public Integer recover(RemoteAccessException e) {
+            return recovered;
+        }
+    }
+}
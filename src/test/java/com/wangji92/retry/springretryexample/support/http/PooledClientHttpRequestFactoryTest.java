@@ -0,0 +1,140 @@
+package com.wangji92.retry.springretryexample.support.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.pool.PoolStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class PooledClientHttpRequestFactoryTest {
+
+    private HttpServer server;
+
+    private ExecutorService serverExecutor;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private String baseUrl;
+
+    private PooledClientHttpRequestFactory requestFactory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/ok", this::ok);
+        server.createContext("/slow", exchange -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ok(exchange);
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void ok(HttpExchange exchange) throws IOException {
+        byte[] body = "200".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        release.countDown();
+        if (requestFactory != null) {
+            requestFactory.destroy();
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private RestTemplate restTemplate(PooledHttpClientProperties properties) {
+        requestFactory = new PooledClientHttpRequestFactory(properties);
+        return new RestTemplate(requestFactory);
+    }
+
+    @Test
+    void reusesKeepAliveConnection() {
+        RestTemplate restTemplate = restTemplate(new PooledHttpClientProperties());
+        for (int i = 0; i < 50; i++) {
+            assertThat(restTemplate.getForObject(baseUrl + "/ok", String.class)).isEqualTo("200");
+        }
+        assertThat(requestFactory.getOpenedConnections()).isEqualTo(1);
+        PoolStats stats = requestFactory.getRouteStats().get("localhost:" + server.getAddress().getPort());
+        assertThat(stats.getAvailable()).isEqualTo(1);
+        assertThat(stats.getLeased()).isZero();
+    }
+
+    @Test
+    void limitsConnectionsPerRoute() throws Exception {
+        PooledHttpClientProperties properties = new PooledHttpClientProperties();
+        properties.setMaxPerRoute(10);
+        properties.getRoutes().put("localhost:" + server.getAddress().getPort(), 1);
+        properties.setConnectionRequestTimeout(200);
+        RestTemplate restTemplate = restTemplate(properties);
+
+        CompletableFuture<String> slow = CompletableFuture.supplyAsync(() -> restTemplate.getForObject(baseUrl + "/slow", String.class));
+        while (requestFactory.getTotalStats().getLeased() == 0) {
+            Thread.sleep(10);
+        }
+        // 唯一的连接被占着 排队超过 connection-request-timeout 直接失败 不会再新建连接
+        assertThatThrownBy(() -> restTemplate.getForObject(baseUrl + "/ok", String.class))
+                .isInstanceOf(ResourceAccessException.class);
+        release.countDown();
+        slow.get(10, TimeUnit.SECONDS);
+        assertThat(restTemplate.getForObject(baseUrl + "/ok", String.class)).isEqualTo("200");
+        assertThat(requestFactory.getOpenedConnections()).isEqualTo(1);
+    }
+
+    @Test
+    void readTimeoutFitsAttemptBudget() {
+        PooledHttpClientProperties properties = new PooledHttpClientProperties();
+        properties.setConnectTimeout(100);
+        properties.setConnectionRequestTimeout(100);
+        properties.setReadTimeout(5000);
+        properties.setAttemptTimeout(500);
+        assertThat(PooledClientHttpRequestFactory.readTimeout(properties)).isEqualTo(300);
+        RestTemplate restTemplate = restTemplate(properties);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> restTemplate.getForObject(baseUrl + "/slow", String.class))
+                .isInstanceOf(ResourceAccessException.class)
+                .hasCauseInstanceOf(SocketTimeoutException.class);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+    }
+
+    @Test
+    void routeKeysMatchPlannedRoutes() {
+        assertThat(PooledClientHttpRequestFactory.route("localhost").getTargetHost().getPort()).isEqualTo(80);
+        assertThat(PooledClientHttpRequestFactory.route("https://example.com").getTargetHost().getPort()).isEqualTo(443);
+        assertThat(PooledClientHttpRequestFactory.route("https://example.com").isSecure()).isTrue();
+        assertThat(PooledClientHttpRequestFactory.route("localhost:8080").getTargetHost().toHostString()).isEqualTo("localhost:8080");
+    }
+}
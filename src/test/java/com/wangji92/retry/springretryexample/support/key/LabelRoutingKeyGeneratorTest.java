@@ -0,0 +1,141 @@
+package com.wangji92.retry.springretryexample.support.key;
+
+import com.wangji92.retry.springretryexample.support.advisor.RetryableMethodAdvisor;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.annotation.AnnotationAwareRetryOperationsInterceptor;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.annotation.Retryable;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class LabelRoutingKeyGeneratorTest {
+
+    @Test
+    void retryKeyFieldIsReadThroughGetterOrField() {
+        assertThat(RetryKeyAccessors.extract(new Message("m-1", "body"))).isEqualTo("m-1");
+        assertThat(RetryKeyAccessors.extract(new Order(42L))).isEqualTo(42L);
+        // 没有 @RetryKey 的参数、字段值为 null 的参数 使用参数本身
+        Message withoutId = new Message(null, "body");
+        assertThat(RetryKeyAccessors.extract(withoutId)).isSameAs(withoutId);
+        assertThat(RetryKeyAccessors.extract("plain")).isEqualTo("plain");
+        assertThat(RetryKeyAccessors.extract(null)).isNull();
+    }
+
+    @Test
+    void multipleArgumentsBecomeListOfKeys() {
+        Object key = LabelRoutingKeyGenerator.RETRY_KEY.getKey(new Object[]{new Message("m-1", "body"), new Order(7L), "x"});
+        assertThat(key).isEqualTo(Arrays.asList("m-1", 7L, "x"));
+        Message message = new Message("m-1", "body");
+        assertThat(LabelRoutingKeyGenerator.ARGUMENTS.getKey(new Object[]{message})).isSameAs(message);
+    }
+
+    @Test
+    void labelSelectsStrategyOfStatefulRetry() {
+        MessageService target = new MessageService();
+        MessageService service = proxy(target, new LabelRoutingKeyGenerator(LabelRoutingKeyGenerator.ARGUMENTS)
+                .register("keyed", LabelRoutingKeyGenerator.RETRY_KEY));
+
+        // 每次都是新的对象 (没有重写 equals) 只有 messageId 相同，按 @RetryKey 才算同一条消息
+        assertThatThrownBy(() -> service.keyed(new Message("m-1", "a"))).isInstanceOf(RemoteAccessException.class);
+        assertThatThrownBy(() -> service.keyed(new Message("m-1", "b"))).isInstanceOf(RemoteAccessException.class);
+        assertThat(service.keyed(new Message("m-1", "c"))).isEqualTo("recover m-1");
+        assertThat(target.keyedCalls).hasValue(2);
+
+        // 没有配置的 label 使用参数本身 新的对象每次都是一条新的消息
+        assertThatThrownBy(() -> service.unkeyed(new Message("m-1", "a"))).isInstanceOf(RemoteAccessException.class);
+        assertThatThrownBy(() -> service.unkeyed(new Message("m-1", "b"))).isInstanceOf(RemoteAccessException.class);
+        assertThatThrownBy(() -> service.unkeyed(new Message("m-1", "c"))).isInstanceOf(RemoteAccessException.class);
+        assertThat(target.unkeyedCalls).hasValue(3);
+    }
+
+    @Test
+    void withoutExposedInvocationUsesDefaultStrategy() {
+        LabelRoutingKeyGenerator generator = new LabelRoutingKeyGenerator(LabelRoutingKeyGenerator.RETRY_KEY)
+                .register("keyed", LabelRoutingKeyGenerator.ARGUMENTS);
+
+        assertThat(generator.getKey(new Object[]{new Message("m-1", "a")})).isEqualTo("m-1");
+        Message message = new Message("m-1", "a");
+        assertThat(generator.getKey("keyed", new Object[]{message})).isSameAs(message);
+    }
+
+    private static MessageService proxy(MessageService target, LabelRoutingKeyGenerator keyGenerator) {
+        AnnotationAwareRetryOperationsInterceptor interceptor = new AnnotationAwareRetryOperationsInterceptor();
+        interceptor.setKeyGenerator(keyGenerator);
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(new RetryableMethodAdvisor(ExposeInvocationInterceptor.INSTANCE, RetryableMethodAdvisor.EXPOSE_INVOCATION_ORDER));
+        proxyFactory.addAdvisor(new DefaultPointcutAdvisor(interceptor));
+        return (MessageService) proxyFactory.getProxy();
+    }
+
+    public static class MessageService {
+
+        final AtomicInteger keyedCalls = new AtomicInteger();
+
+        final AtomicInteger unkeyedCalls = new AtomicInteger();
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = 2, stateful = true, backoff = @Backoff(0), label = "keyed")
+        public String keyed(Message message) {
+            keyedCalls.incrementAndGet();
+            throw new RemoteAccessException("500");
+        }
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = 2, stateful = true, backoff = @Backoff(0))
+        public String unkeyed(Message message) {
+            unkeyedCalls.incrementAndGet();
+            throw new RemoteAccessException("500");
+        }
+
+        @Recover
+        public String recover(RemoteAccessException e, Message message) {
+            return "recover " + message.getId();
+        }
+    }
+
+    public static class Message {
+
+        @RetryKey
+        private final String id;
+
+        private final String body;
+
+        Message(String id, String body) {
+            this.id = id;
+            this.body = body;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * 没有 getter 的基本类型字段
+     */
+    static class Order {
+
+        @RetryKey
+        private final long orderId;
+
+        Order(long orderId) {
+            this.orderId = orderId;
+        }
+    }
+}
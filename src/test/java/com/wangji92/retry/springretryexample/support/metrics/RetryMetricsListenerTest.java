@@ -0,0 +1,156 @@
+package com.wangji92.retry.springretryexample.support.metrics;
+
+import com.wangji92.retry.springretryexample.support.budget.RetryBudgetPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.FixedBackOffPolicy;
+import org.springframework.retry.context.RetryContextSupport;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class RetryMetricsListenerTest {
+
+    private static RetryTemplate retryTemplate(RetryMetricsListener listener, String label) {
+        RetryTemplate retryTemplate = new RetryTemplate();
+        // 和 RetryRegistry 一样 label 放在 context 上
+        retryTemplate.setRetryPolicy(new SimpleRetryPolicy(3) {
+            @Override
+            public RetryContext open(RetryContext parent) {
+                RetryContext context = super.open(parent);
+                context.setAttribute(RetryBudgetPolicy.BUDGET_LABEL, label);
+                return context;
+            }
+        });
+        FixedBackOffPolicy backOffPolicy = new FixedBackOffPolicy();
+        backOffPolicy.setBackOffPeriod(100);
+        backOffPolicy.setSleeper(listener.recordingSleeper(backOffPeriod -> {
+        }));
+        retryTemplate.setBackOffPolicy(backOffPolicy);
+        retryTemplate.registerListener(listener);
+        return retryTemplate;
+    }
+
+    @Test
+    void countsAttemptsSuccessesRecoveriesAndBackOff() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RetryMetricsListener listener = new RetryMetricsListener(meterRegistry);
+        RetryTemplate retryTemplate = retryTemplate(listener, "remote");
+
+        // 第二次成功
+        int[] attempts = {0};
+        Integer success = retryTemplate.execute(context -> {
+            if (attempts[0]++ == 0) {
+                throw new RemoteAccessException("500");
+            }
+            return 200;
+        });
+        assertThat(success).isEqualTo(200);
+        // 全部失败 兜底
+        Integer recovered = retryTemplate.execute(context -> {
+            throw new RemoteAccessException("500");
+        }, context -> -1);
+        assertThat(recovered).isEqualTo(-1);
+        // 全部失败 没有兜底
+        assertThatThrownBy(() -> retryTemplate.execute(context -> {
+            throw new RemoteAccessException("500");
+        })).isInstanceOf(RemoteAccessException.class);
+
+        RetryLabelMetrics metrics = listener.labels().get("remote");
+        assertThat(metrics.getCalls()).isEqualTo(3);
+        assertThat(metrics.getAttempts()).isEqualTo(2 + 3 + 3);
+        assertThat(metrics.getFailedAttempts()).isEqualTo(1 + 3 + 3);
+        assertThat(metrics.getSuccesses()).isEqualTo(1);
+        assertThat(metrics.getRecoveries()).isEqualTo(1);
+        assertThat(metrics.getExhausted()).isEqualTo(1);
+        assertThat(metrics.getBackOffs()).isEqualTo(1 + 2 + 2);
+        assertThat(metrics.getBackOffMillis()).isEqualTo(500);
+        assertThat(metrics.getLatency().getCount()).isEqualTo(3);
+
+        assertThat(meterRegistry.get("retry.calls").tag("label", "remote").functionCounter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("retry.recoveries").tag("label", "remote").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("retry.backoff").tag("label", "remote").functionTimer().count()).isEqualTo(5);
+        assertThat(meterRegistry.get("retry.latency").tag("label", "remote").functionTimer().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("retry.latency.percentile").tags("label", "remote", "quantile", "0.99").timeGauge())
+                .isNotNull();
+    }
+
+    @Test
+    void nestedTemplatesKeepTheirOwnLabels() {
+        RetryMetricsListener listener = new RetryMetricsListener(null);
+        RetryTemplate outer = retryTemplate(listener, "outer");
+        RetryTemplate inner = retryTemplate(listener, "inner");
+
+        outer.<Integer, RuntimeException>execute(context -> inner.<Integer, RuntimeException>execute(innerContext -> {
+            throw new RemoteAccessException("500");
+        }, innerContext -> 1), context -> -1);
+
+        assertThat(listener.labels().get("inner").getRecoveries()).isEqualTo(1);
+        assertThat(listener.labels().get("inner").getBackOffs()).isEqualTo(2);
+        assertThat(listener.labels().get("outer").getSuccesses()).isEqualTo(1);
+        assertThat(listener.labels().get("outer").getBackOffs()).isEqualTo(0);
+    }
+
+    @Test
+    void histogramPercentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+        assertThat(histogram.getCount()).isEqualTo(100_000);
+        assertThat(histogram.getMax()).isEqualTo(100_000);
+        assertThat(histogram.percentile(0.5)).isBetween(50_000L, (long) (50_000 * 1.04));
+        assertThat(histogram.percentile(0.99)).isBetween(99_000L, 100_000L);
+        assertThat(histogram.percentile(1)).isEqualTo(100_000);
+
+        // 每个值都落在上限不小于它、误差不超过 1/32 的桶里面
+        for (int i = 0; i < 100_000; i++) {
+            long value = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+            long upper = LatencyHistogram.highestEquivalentValue(LatencyHistogram.index(value));
+            assertThat(upper).isGreaterThanOrEqualTo(value);
+            assertThat((double) (upper - value)).isLessThanOrEqualTo(value / 32.0 + 1);
+        }
+        assertThat(LatencyHistogram.index(Long.MAX_VALUE)).isLessThan(64 + 58 * 32);
+    }
+
+    @Test
+    void recordingDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        RetryMetricsListener listener = new RetryMetricsListener(new SimpleMeterRegistry());
+        RetryContext context = new RetryContextSupport(null);
+        context.setAttribute(RetryBudgetPolicy.BUDGET_LABEL, "remote");
+        RetryCallback<Object, RuntimeException> callback = retryContext -> null;
+        RemoteAccessException error = new RemoteAccessException("500");
+
+        Runnable call = () -> {
+            listener.open(context, callback);
+            listener.onError(context, callback, error);
+            listener.close(context, callback, null);
+        };
+        // 预热 让 JIT 编译、LongAdder 初始化
+        for (int i = 0; i < 200_000; i++) {
+            call.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            call.run();
+        }
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+        assertThat(listener.labels().get("remote").getCalls()).isEqualTo(300_000);
+        // 测量本身会分配一点点，平均每次调用远小于 1 字节
+        assertThat(allocated).isLessThan(10_000);
+    }
+}
@@ -0,0 +1,290 @@
+package com.wangji92.retry.springretryexample.support.reactive;
+
+import com.wangji92.retry.springretryexample.support.backoff.BackOffJitterProperties;
+import com.wangji92.retry.springretryexample.support.key.LabelRoutingKeyGenerator;
+import com.wangji92.retry.springretryexample.support.metrics.RetryLabelMetrics;
+import com.wangji92.retry.springretryexample.support.metrics.RetryMetricsListener;
+import com.wangji92.retry.springretryexample.support.recover.CachedRecoverer;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.ExhaustedRetryException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.policy.MapRetryContextCache;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class ReactiveRetryInterceptorTest {
+
+    private final RetryMetricsListener retryMetricsListener = new RetryMetricsListener(null);
+
+    private final MapRetryContextCache retryContextCache = new MapRetryContextCache();
+
+    private <T> T proxy(T target) {
+        return proxy(target, (LabelRoutingKeyGenerator) null);
+    }
+
+    private <T> T proxy(T target, LabelRoutingKeyGenerator keyGenerator) {
+        return proxy(target, new ReactiveRetryInterceptor(retryContextCache, null,
+                retryMetricsListener, new BackOffJitterProperties(), keyGenerator, Schedulers.parallel()));
+    }
+
+    private static <T> T proxy(T target, ReactiveRetryInterceptor interceptor) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(new ReactiveRetryAdvisor(interceptor));
+        @SuppressWarnings("unchecked")
+        T proxy = (T) proxyFactory.getProxy();
+        return proxy;
+    }
+
+    @Test
+    void retriesOnSubscribeNotOnAssembly() {
+        ReactiveService target = new ReactiveService();
+        target.failures.set(2);
+        ReactiveService service = proxy(target);
+
+        Mono<Integer> mono = service.call("a");
+        // 还没有订阅 不会调用
+        assertThat(target.calls).hasValue(0);
+        assertThat(mono.block(Duration.ofSeconds(5))).isEqualTo(200);
+        assertThat(target.calls).hasValue(3);
+
+        RetryLabelMetrics metrics = retryMetricsListener.labels().get("reactive");
+        assertThat(metrics.getAttempts()).isEqualTo(3);
+        assertThat(metrics.getSuccesses()).isEqualTo(1);
+        assertThat(metrics.getBackOffs()).isEqualTo(2);
+    }
+
+    @Test
+    void exhaustedAttemptsGoToRecover() {
+        ReactiveService target = new ReactiveService();
+        target.failures.set(Integer.MAX_VALUE);
+
+        assertThat(proxy(target).call("a").block(Duration.ofSeconds(5))).isEqualTo(-1);
+        assertThat(target.calls).hasValue(3);
+        assertThat(retryMetricsListener.labels().get("reactive").getRecoveries()).isEqualTo(1);
+    }
+
+    @Test
+    void notRetryableExceptionIsRecoveredWithoutRetry() {
+        ReactiveService target = new ReactiveService();
+        target.notRetryable = true;
+
+        assertThat(proxy(target).call("a").block(Duration.ofSeconds(5))).isEqualTo(-2);
+        assertThat(target.calls).hasValue(1);
+    }
+
+    @Test
+    void backOffDoesNotBlockTheSubscriber() {
+        ReactiveService target = new ReactiveService();
+        target.failures.set(1);
+        AtomicInteger result = new AtomicInteger();
+
+        long start = System.nanoTime();
+        proxy(target).slow().subscribe(result::set);
+        // 退避 500ms 在定时器上等待 订阅的线程直接返回
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(200);
+        assertThat(result).hasValue(0);
+        assertThat(proxy(target).slow().block(Duration.ofSeconds(5))).isEqualTo(200);
+    }
+
+    @Test
+    void fluxIsResubscribedAndRecovered() {
+        ReactiveService target = new ReactiveService();
+        target.failures.set(Integer.MAX_VALUE);
+
+        assertThat(proxy(target).stream().collectList().block(Duration.ofSeconds(5))).containsExactly(-1, -1);
+        assertThat(target.calls).hasValue(2);
+    }
+
+    @Test
+    void recoverRunsOnTheSubscribedInstance() {
+        ReactiveRetryInterceptor interceptor = new ReactiveRetryInterceptor(retryContextCache, null,
+                retryMetricsListener, new BackOffJitterProperties(), null, Schedulers.parallel());
+        ReactiveService first = new ReactiveService();
+        first.notRetryable = true;
+        ReactiveService second = new ReactiveService();
+        second.notRetryable = true;
+        second.badRequest = -4;
+
+        assertThat(proxy(first, interceptor).call("a").block(Duration.ofSeconds(5))).isEqualTo(-2);
+        // 同一个拦截器 另一个实例的兜底用自己的状态
+        assertThat(proxy(second, interceptor).call("a").block(Duration.ofSeconds(5))).isEqualTo(-4);
+    }
+
+    @Test
+    void recoverGoesThroughTargetRecoverer() {
+        RecoveringService target = new RecoveringService();
+
+        // 退避之后在调度线程上兜底 目标对象的 recover 也能取到当前调用
+        assertThat(proxy(target).call("a").block(Duration.ofSeconds(5))).isEqualTo("recover a");
+        assertThat(target.recovered).hasValue(1);
+    }
+
+    @Test
+    void statefulRetryIsKeyedOnArgument() {
+        StatefulService target = new StatefulService();
+        StatefulService service = proxy(target);
+
+        // 每次订阅只尝试一次 失败抛给调用方
+        assertThatThrownBy(() -> service.send("a").block(Duration.ofSeconds(5))).isInstanceOf(RemoteAccessException.class);
+        assertThatThrownBy(() -> service.send("a").block(Duration.ofSeconds(5))).isInstanceOf(RemoteAccessException.class);
+        assertThatThrownBy(() -> service.send("b").block(Duration.ofSeconds(5))).isInstanceOf(RemoteAccessException.class);
+        assertThat(target.calls).containsEntry("a", 2).containsEntry("b", 1);
+
+        // a 已经用完了两次 这一次直接兜底不再调用
+        assertThat(service.send("a").block(Duration.ofSeconds(5))).isEqualTo("recover a");
+        assertThat(target.calls).containsEntry("a", 2);
+
+        // 兜底之后清掉了 重新开始计数
+        assertThatThrownBy(() -> service.send("a").block(Duration.ofSeconds(5))).isInstanceOf(RemoteAccessException.class);
+        assertThat(target.calls).containsEntry("a", 3);
+    }
+
+    @Test
+    void statefulKeyGoesThroughLabelKeyGenerator() {
+        // 和注解方式一样按 label 生成 key：只取订单号 后面的版本号不同也算同一条消息
+        LabelRoutingKeyGenerator keyGenerator = new LabelRoutingKeyGenerator(LabelRoutingKeyGenerator.ARGUMENTS)
+                .register("StatefulService.send", args -> ((String) args[0]).split("#")[0]);
+        StatefulService target = new StatefulService();
+        StatefulService service = proxy(target, keyGenerator);
+
+        assertThatThrownBy(() -> service.send("a#1").block(Duration.ofSeconds(5))).isInstanceOf(RemoteAccessException.class);
+        assertThatThrownBy(() -> service.send("a#2").block(Duration.ofSeconds(5))).isInstanceOf(RemoteAccessException.class);
+        assertThat(service.send("a#3").block(Duration.ofSeconds(5))).isEqualTo("recover a#3");
+        assertThat(target.calls).containsOnlyKeys("a#1", "a#2");
+    }
+
+    @Test
+    void statefulWithoutRecoverThrowsExhausted() {
+        StatefulServiceWithoutRecover service = proxy(new StatefulServiceWithoutRecover());
+
+        assertThatThrownBy(() -> service.send("a").block(Duration.ofSeconds(5))).isInstanceOf(RemoteAccessException.class);
+        assertThatThrownBy(() -> service.send("a").block(Duration.ofSeconds(5))).isInstanceOf(ExhaustedRetryException.class);
+    }
+
+    public static class ReactiveService {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        final AtomicInteger failures = new AtomicInteger();
+
+        volatile boolean notRetryable;
+
+        volatile int badRequest = -2;
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = 3, backoff = @Backoff(10), label = "reactive")
+        public Mono<Integer> call(String item) {
+            calls.incrementAndGet();
+            return Mono.fromCallable(this::attempt);
+        }
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = 2, backoff = @Backoff(500))
+        public Mono<Integer> slow() {
+            return Mono.fromCallable(this::attempt);
+        }
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = 2, backoff = @Backoff(10))
+        public Flux<Integer> stream() {
+            calls.incrementAndGet();
+            return Flux.defer(() -> Flux.just(attempt(), attempt()));
+        }
+
+        private Integer attempt() {
+            if (notRetryable) {
+                throw new IllegalArgumentException("400");
+            }
+            if (failures.getAndDecrement() > 0) {
+                throw new RemoteAccessException("500");
+            }
+            return 200;
+        }
+
+        @Recover
+        public Mono<Integer> recover(RemoteAccessException e, String item) {
+            return Mono.just(-1);
+        }
+
+        @Recover
+        public Mono<Integer> recoverBadRequest(IllegalArgumentException e, String item) {
+            return Mono.just(badRequest);
+        }
+
+        @Recover
+        public Flux<Integer> recoverStream(RemoteAccessException e) {
+            return Flux.just(-1, -1);
+        }
+
+        /**
+         * 返回值不一样 不会用来兜底 Mono 的方法
+         */
+        @Recover
+        public Integer recoverBlocking(RemoteAccessException e) {
+            return -3;
+        }
+    }
+
+    public static class StatefulService {
+
+        final Map<String, Integer> calls = new ConcurrentHashMap<>();
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = 2, stateful = true, backoff = @Backoff(0))
+        public Mono<String> send(String item) {
+            return Mono.fromCallable(() -> {
+                calls.merge(item, 1, Integer::sum);
+                throw new RemoteAccessException("500");
+            });
+        }
+
+        @Recover
+        public Mono<String> recover(RemoteAccessException e, String item) {
+            return Mono.just("recover " + item);
+        }
+    }
+
+    public static class RecoveringService implements CachedRecoverer {
+
+        final AtomicInteger recovered = new AtomicInteger();
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = 2, backoff = @Backoff(10))
+        public Mono<String> call(String item) {
+            return Mono.error(new RemoteAccessException("500"));
+        }
+
+        @Recover
+        public Mono<String> recover(RemoteAccessException e, String item) {
+            return Mono.just("recover " + item);
+        }
+
+        @Override
+        public Object recover(Object[] args, Throwable cause) {
+            recovered.incrementAndGet();
+            return CachedRecoverer.super.recover(args, cause);
+        }
+    }
+
+    public static class StatefulServiceWithoutRecover {
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = 1, stateful = true, backoff = @Backoff(0))
+        public Mono<String> send(String item) {
+            return Mono.error(new RemoteAccessException("500"));
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.wangji92.retry.springretryexample.support.recover;
+
+import com.wangji92.retry.springretryexample.support.advisor.RetryableMethodAdvisor;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.remoting.RemoteConnectFailureException;
+import org.springframework.retry.ExhaustedRetryException;
+import org.springframework.retry.annotation.AnnotationAwareRetryOperationsInterceptor;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.annotation.RecoverAnnotationRecoveryHandler;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class RecoverDispatcherTest {
+
+    @Test
+    void matchesLikeRecoverAnnotationRecoveryHandler() {
+        Recovering target = new Recovering();
+        Object[][] cases = {
+                {"send", new Object[]{"m-1", 3}, new RemoteAccessException("500")},
+                {"send", new Object[]{"m-1", 3}, new RemoteConnectFailureException("refused", null)},
+                {"send", new Object[]{"m-1", 3}, new IllegalStateException("400")},
+                {"named", new Object[]{"m-1"}, new RemoteAccessException("500")},
+                {"named", new Object[]{"m-1"}, new RemoteConnectFailureException("refused", null)},
+                {"primitive", new Object[]{7L}, new RemoteAccessException("500")},
+                {"wide", new Object[]{"a", "b", "c", "d", "e"}, new RemoteAccessException("500")},
+                {"hidden", new Object[]{"m-1"}, new RemoteAccessException("500")},
+        };
+        for (Object[] c : cases) {
+            Method method = method((String) c[0]);
+            Object[] args = (Object[]) c[1];
+            Throwable cause = (Throwable) c[2];
+            Object expected = new RecoverAnnotationRecoveryHandler<>(target, method).recover(args, cause);
+            // 第二次走缓存 结果一样
+            CachedRecoverHandler<Object> handler = new CachedRecoverHandler<>(target, method);
+            assertThat(handler.recover(args, cause)).as(c[0] + " " + cause.getClass().getSimpleName()).isEqualTo(expected);
+            assertThat(handler.recover(args, cause)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void missingRecoverMethodAndCheckedExceptionsLikeSpring() {
+        Recovering target = new Recovering();
+        CachedRecoverHandler<Object> named = new CachedRecoverHandler<>(target, method("named"));
+        assertThatThrownBy(() -> named.recover(new Object[]{"m-1"}, new IllegalStateException("400")))
+                .isInstanceOf(ExhaustedRetryException.class).hasMessageStartingWith("Cannot locate recovery method");
+
+        CachedRecoverHandler<Object> failing = new CachedRecoverHandler<>(target, method("failing"));
+        assertThatThrownBy(() -> failing.recover(new Object[0], new RemoteAccessException("500")))
+                .isInstanceOf(UndeclaredThrowableException.class).hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    void targetImplementingCachedRecovererIsUsedByAnnotationInterceptor() {
+        Service target = new Service();
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(new RetryableMethodAdvisor(ExposeInvocationInterceptor.INSTANCE, RetryableMethodAdvisor.EXPOSE_INVOCATION_ORDER));
+        proxyFactory.addAdvisor(new DefaultPointcutAdvisor(new AnnotationAwareRetryOperationsInterceptor()));
+        Service service = (Service) proxyFactory.getProxy();
+
+        assertThat(service.call("a")).isEqualTo("recover a");
+        assertThat(service.call("b")).isEqualTo("recover b");
+        assertThat(target.calls).hasValue(4);
+
+        assertThatThrownBy(() -> service.send("m-1")).isInstanceOf(RemoteAccessException.class);
+        assertThat(service.send("m-1")).isEqualTo(-1);
+    }
+
+    private static Method method(String name) {
+        for (Method method : ReflectionUtils.getUniqueDeclaredMethods(Recovering.class)) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    public static class Recovering {
+
+        @Retryable
+        public String send(String id, Integer count) {
+            return null;
+        }
+
+        @Retryable(recover = "recoverNamed")
+        public String named(String id) {
+            return null;
+        }
+
+        @Retryable
+        public Long primitive(long id) {
+            return null;
+        }
+
+        @Retryable
+        public String wide(String a, String b, String c, String d, String e) {
+            return null;
+        }
+
+        @Retryable
+        public Number hidden(String id) {
+            return null;
+        }
+
+        @Retryable
+        public Object failing() {
+            return null;
+        }
+
+        @Recover
+        public String recover(RemoteAccessException e, String id, Integer count) {
+            return "remote " + id + " " + count;
+        }
+
+        @Recover
+        public String recoverConnect(RemoteConnectFailureException e, String id, Integer count) {
+            return "connect " + id + " " + count;
+        }
+
+        @Recover
+        public String recoverAny(String id, Integer count) {
+            return "any " + id;
+        }
+
+        @Recover
+        public String recoverNamed(RemoteAccessException e, String id) {
+            return "named " + e.getClass().getSimpleName() + " " + id;
+        }
+
+        @Recover
+        public Long recoverPrimitive(RemoteAccessException e, long id) {
+            return -id;
+        }
+
+        @Recover
+        public String recoverWide(RemoteAccessException e, String a, String b, String c, String d, String e2) {
+            return a + b + c + d + e2;
+        }
+
+        @Recover
+        private Number recoverHidden(RemoteAccessException e, String id) {
+            return 42;
+        }
+
+        @Recover
+        public Object recoverFailing(RemoteAccessException e) throws IOException {
+            throw new IOException("disk");
+        }
+    }
+
+    public static class Service implements CachedRecoverer {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = 2, backoff = @Backoff(0))
+        public String call(String item) {
+            calls.incrementAndGet();
+            throw new RemoteAccessException("500");
+        }
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = 1, stateful = true, backoff = @Backoff(0))
+        public Integer send(String id) {
+            throw new RemoteAccessException("500");
+        }
+
+        @Recover
+        public String recover(RemoteAccessException e, String item) {
+            return "recover " + item;
+        }
+
+        @Recover
+        public Integer recoverSend(RemoteAccessException e, String id) {
+            return -1;
+        }
+    }
+}
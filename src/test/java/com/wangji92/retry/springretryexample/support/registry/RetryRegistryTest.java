@@ -0,0 +1,152 @@
+package com.wangji92.retry.springretryexample.support.registry;
+
+import com.github.rholder.retry.RetryException;
+import com.github.rholder.retry.Retryer;
+import com.wangji92.retry.springretryexample.support.cache.BoundedRetryContextCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.support.DefaultRetryState;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class RetryRegistryTest {
+
+    private static final int TICKS = 5_000;
+
+    private static final int TIME_LIMITER_THREADS = 4;
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private RetryRegistry retryRegistry;
+
+    @BeforeEach
+    void setUp() {
+        RetryRegistryProperties properties = new RetryRegistryProperties();
+        // 验证的是有界线程池 不使用虚拟线程
+        properties.getTimeLimiter().setVirtualThreads(false);
+        properties.getTimeLimiter().setThreads(TIME_LIMITER_THREADS);
+        properties.getPolicies().put("retryTestService", policy(0));
+        properties.getPolicies().put("retryTestServiceLimitTime", policy(60_000));
+        properties.getPolicies().put("stateFullRetryTestSendMessage", new RetryRegistryProperties.Policy());
+        properties.getPolicies().get("stateFullRetryTestSendMessage").setMaxAttempts(2);
+        retryRegistry = RetryRegistry.builder(properties)
+                .retryContextCache(new BoundedRetryContextCache())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        retryRegistry.shutdown();
+    }
+
+    private static RetryRegistryProperties.Policy policy(long attemptTimeout) {
+        RetryRegistryProperties.Policy policy = new RetryRegistryProperties.Policy();
+        policy.setMaxAttempts(2);
+        policy.setAttemptTimeout(attemptTimeout);
+        policy.setRetryOn(Collections.singletonList(RemoteAccessException.class));
+        return policy;
+    }
+
+    private Integer unstableApi() {
+        attempts.incrementAndGet();
+        throw new RemoteAccessException("500");
+    }
+
+    private static Integer callGuava(Retryer<Integer> retryer, Callable<Integer> callable) {
+        try {
+            return retryer.call(callable);
+        } catch (ExecutionException | RetryException e) {
+            return 200;
+        }
+    }
+
+    /**
+     * 模拟 SchedulingTestRetryTask、SchedulingTestStateFullRetryTask 里面每次调度的调用
+     */
+    private void tick(int tick) throws Throwable {
+        Integer spring = retryRegistry.retryTemplate("retryTestService")
+                .execute(context -> unstableApi(), context -> 200);
+        Integer guava = callGuava(retryRegistry.guavaRetryer("retryTestService"), this::unstableApi);
+        Integer guavaLimitTime = callGuava(retryRegistry.guavaRetryer("retryTestServiceLimitTime"), this::unstableApi);
+        Integer stateFull = null;
+        DefaultRetryState state = new DefaultRetryState("message-" + tick, false, null);
+        for (int redelivery = 0; redelivery < 3 && stateFull == null; redelivery++) {
+            try {
+                stateFull = retryRegistry.retryTemplate("stateFullRetryTestSendMessage")
+                        .execute(context -> unstableApi(), context -> 200, state);
+            } catch (RemoteAccessException e) {
+                // 有状态重试 异常抛给调用方 等待下一次投递
+            }
+        }
+        assertThat(spring).isEqualTo(200);
+        assertThat(guava).isEqualTo(200);
+        assertThat(guavaLimitTime).isEqualTo(200);
+        assertThat(stateFull).isEqualTo(200);
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    @Test
+    void threadsAndHeapStayFlatOverManyTicks() throws Throwable {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        // 预热 类加载、线程池里面的线程都先创建出来
+        for (int i = 0; i < 200; i++) {
+            tick(i);
+        }
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        long heapBefore = usedHeapAfterGc(memory);
+        attempts.set(0);
+
+        for (int i = 0; i < TICKS; i++) {
+            tick(i);
+        }
+
+        int threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+        long heapAfter = usedHeapAfterGc(memory);
+        // 每次调度四种方式各尝试两次，有状态的重试分两次投递
+        assertThat(attempts.get()).isEqualTo(TICKS * 8);
+        assertThat(retryRegistry.timeLimiterPoolSize()).isLessThanOrEqualTo(TIME_LIMITER_THREADS);
+        // 留一点余量给 jvm 自己的线程
+        assertThat(threadsAfter - threadsBefore).isLessThanOrEqualTo(2);
+        // 之前每次调度 new 一个 10 个线程的线程池，5000 次调度光线程栈就不止这个数
+        assertThat(heapAfter - heapBefore).isLessThan(16 * 1024 * 1024);
+    }
+
+    @Test
+    void sameInstanceEveryLookup() {
+        assertThat(retryRegistry.retryTemplate("retryTestService")).isSameAs(retryRegistry.retryTemplate("retryTestService"));
+        assertThat(retryRegistry.<Integer>guavaRetryer("retryTestServiceLimitTime"))
+                .isSameAs(retryRegistry.<Integer>guavaRetryer("retryTestServiceLimitTime"));
+        assertThatThrownBy(() -> retryRegistry.retryTemplate("unknown"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("retryTestService");
+    }
+
+    @Test
+    void shutdownStopsTimeLimiterThreads() throws Throwable {
+        tick(0);
+        assertThat(retryRegistry.timeLimiterPoolSize()).isPositive();
+        retryRegistry.shutdown();
+        assertThat(retryRegistry.timeLimiterPoolSize()).isZero();
+    }
+}
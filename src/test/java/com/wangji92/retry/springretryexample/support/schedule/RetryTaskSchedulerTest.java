@@ -0,0 +1,206 @@
+package com.wangji92.retry.springretryexample.support.schedule;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.ScheduledMethodRunnable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 一个任务在很长的重试、退避里面 其他任务还是按自己的频率执行；上一次没执行完的调度丢掉、排队、合并；
+ * fixedDelay 的任务执行完之后才算下一次
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+@Slf4j
+class RetryTaskSchedulerTest {
+
+    private static final long PERIOD = 50;
+
+    private static final long WINDOW = 2000;
+
+    /**
+     * 和 SchedulingTestRetryTask 一样的几个任务
+     */
+    public static class Tasks {
+
+        private final RetryTemplate retryTemplate = RetryTemplate.builder()
+                .maxAttempts(4).fixedBackoff(300).retryOn(RemoteAccessException.class).build();
+
+        final AtomicInteger fast = new AtomicInteger();
+
+        final AtomicInteger other = new AtomicInteger();
+
+        final AtomicInteger slowAttempts = new AtomicInteger();
+
+        public void fast() {
+            fast.incrementAndGet();
+        }
+
+        public void other() {
+            other.incrementAndGet();
+        }
+
+        /**
+         * 下游一直失败 每次调用 4 次尝试、3 次 300ms 的退避
+         */
+        public void retryLoop() {
+            retryTemplate.execute(context -> {
+                slowAttempts.incrementAndGet();
+                throw new RemoteAccessException("500");
+            }, context -> -1);
+        }
+    }
+
+    private static Runnable task(Tasks tasks, String method) throws NoSuchMethodException {
+        return new ScheduledMethodRunnable(tasks, Tasks.class.getMethod(method));
+    }
+
+    private static void scheduleAll(ThreadPoolTaskScheduler scheduler, Tasks tasks) throws NoSuchMethodException {
+        scheduler.scheduleAtFixedRate(task(tasks, "retryLoop"), PERIOD);
+        scheduler.scheduleAtFixedRate(task(tasks, "fast"), PERIOD);
+        scheduler.scheduleAtFixedRate(task(tasks, "other"), PERIOD);
+    }
+
+    @Test
+    void independentTasksKeepTheirRate() throws Exception {
+        // 原来 spring boot 默认的单线程调度器
+        ThreadPoolTaskScheduler single = new ThreadPoolTaskScheduler();
+        single.initialize();
+        Tasks blocked = new Tasks();
+        try {
+            scheduleAll(single, blocked);
+            Thread.sleep(WINDOW);
+        } finally {
+            single.shutdown();
+        }
+
+        RetryTaskSchedulerProperties properties = new RetryTaskSchedulerProperties();
+        properties.setParallelism(4);
+        RetryTaskScheduler scheduler = new RetryTaskScheduler(properties, null);
+        scheduler.initialize();
+        Tasks tasks = new Tasks();
+        try {
+            scheduleAll(scheduler, tasks);
+            Thread.sleep(WINDOW);
+        } finally {
+            scheduler.shutdown();
+        }
+        log.info("single thread fast={} other={}, retry task scheduler fast={} other={} {}",
+                blocked.fast.get(), blocked.other.get(), tasks.fast.get(), tasks.other.get(), scheduler.getWorkers());
+
+        long expected = WINDOW / PERIOD;
+        // 单线程的时候 快的任务跟着重试任务 大约 900ms 才执行一次
+        assertThat(blocked.fast.get()).isLessThan(10);
+        assertThat(tasks.fast.get()).isGreaterThan((int) (expected * 0.8));
+        assertThat(tasks.other.get()).isGreaterThan((int) (expected * 0.8));
+
+        RetryTaskRunner fast = scheduler.runners().get("Tasks.fast");
+        assertThat(fast.getSkipped()).isZero();
+        assertThat(fast.getLag().percentile(0.99)).isLessThan(TimeUnit.MILLISECONDS.toMicros(20));
+        // 重试的任务同时只有一个 其他的调度丢掉
+        RetryTaskRunner retryLoop = scheduler.runners().get("Tasks.retryLoop");
+        assertThat(retryLoop.getExecutions()).isBetween(2L, 3L);
+        assertThat(retryLoop.getSkipped()).isGreaterThan(expected / 2);
+        assertThat(tasks.slowAttempts.get()).isBetween(5, 12);
+    }
+
+    private static RetryTaskRunner runner(OverlapPolicy overlap, CountDownLatch release, AtomicInteger runs) {
+        RetryTaskSchedulerProperties.Task config = new RetryTaskSchedulerProperties.Task();
+        config.setOverlap(overlap);
+        config.setQueueCapacity(2);
+        return new RetryTaskRunner(overlap.name(), () -> {
+            runs.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, Runnable::run, config);
+    }
+
+    /**
+     * 第一次执行卡住的时候再调度 5 次
+     */
+    private static RetryTaskRunner overlap(OverlapPolicy overlap, AtomicInteger runs) throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RetryTaskRunner runner = runner(overlap, release, runs);
+        Thread first = new Thread(runner::tick);
+        first.start();
+        while (runner.getRunning() == 0) {
+            Thread.sleep(1);
+        }
+        for (int i = 0; i < 5; i++) {
+            runner.tick();
+        }
+        release.countDown();
+        first.join();
+        return runner;
+    }
+
+    @Test
+    void overlapPolicies() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        RetryTaskRunner skip = overlap(OverlapPolicy.SKIP, runs);
+        assertThat(runs.get()).isEqualTo(1);
+        assertThat(skip.getSkipped()).isEqualTo(5);
+
+        runs.set(0);
+        RetryTaskRunner queue = overlap(OverlapPolicy.QUEUE, runs);
+        // 排队 2 次 队列满了之后丢掉 3 次
+        assertThat(runs.get()).isEqualTo(3);
+        assertThat(queue.getSkipped()).isEqualTo(3);
+
+        runs.set(0);
+        RetryTaskRunner coalesce = overlap(OverlapPolicy.COALESCE, runs);
+        assertThat(runs.get()).isEqualTo(2);
+        assertThat(coalesce.getCoalesced()).isEqualTo(4);
+        assertThat(coalesce.getTicks()).isEqualTo(6);
+        assertThat(coalesce.getRunning()).isZero();
+        assertThat(coalesce.getPending()).isZero();
+    }
+
+    @Test
+    void fixedDelayStartsAfterPreviousExecution() throws InterruptedException {
+        RetryTaskScheduler scheduler = new RetryTaskScheduler(new RetryTaskSchedulerProperties(), null);
+        scheduler.initialize();
+        // 每次执行 100ms，间隔 50ms：按执行完算 每 150ms 一次，按触发算会每 50ms 触发一次 (跑着的时候丢掉)
+        List<long[]> executions = new CopyOnWriteArrayList<>();
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        try {
+            scheduler.scheduleWithFixedDelay(() -> {
+                long start = System.nanoTime();
+                maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                concurrent.decrementAndGet();
+                executions.add(new long[]{start, System.nanoTime()});
+            }, 50);
+            Thread.sleep(1000);
+        } finally {
+            scheduler.shutdown();
+        }
+        assertThat(maxConcurrent.get()).isEqualTo(1);
+        assertThat(executions.size()).isBetween(4, 7);
+        for (int i = 1; i < executions.size(); i++) {
+            long gapMillis = TimeUnit.NANOSECONDS.toMillis(executions.get(i)[0] - executions.get(i - 1)[1]);
+            assertThat(gapMillis).isGreaterThanOrEqualTo(45);
+        }
+        RetryTaskRunner runner = scheduler.runners().values().iterator().next();
+        assertThat(runner.getSkipped()).isZero();
+    }
+}
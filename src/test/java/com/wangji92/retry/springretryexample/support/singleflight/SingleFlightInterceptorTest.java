@@ -0,0 +1,205 @@
+package com.wangji92.retry.springretryexample.support.singleflight;
+
+import com.wangji92.retry.springretryexample.support.advisor.RetryableMethodAdvisor;
+import com.wangji92.retry.springretryexample.support.key.LabelRoutingKeyGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.ExhaustedRetryException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.annotation.Retryable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 同一个 key 的并发调用只有一组重试，其他的调用拿到同一个兜底的结果
+ *
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class SingleFlightInterceptorTest {
+
+    private static final int CALLERS = 16;
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private AnnotationConfigApplicationContext applicationContext;
+
+    private Target target;
+
+    private SingleFlightInterceptor interceptor;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        applicationContext = new AnnotationConfigApplicationContext(Config.class);
+        target = applicationContext.getBean(Target.class);
+        interceptor = (SingleFlightInterceptor) applicationContext.getBean("singleFlightAdvisor", RetryableMethodAdvisor.class).getAdvice();
+        executor = Executors.newFixedThreadPool(CALLERS);
+        Target.outbound.set(0);
+        Target.firstAttempt = new CountDownLatch(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        applicationContext.close();
+    }
+
+    @Test
+    void concurrentCallersShareOneRetrySequence() throws Exception {
+        // 第一次尝试等到其他调用都合并上来之后再失败
+        Target.firstAttempt = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> target.send("001")));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (interceptor.getFollowers() < CALLERS - 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Target.firstAttempt.countDown();
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("recover-001");
+        }
+        assertThat(Target.outbound.get()).isEqualTo(MAX_ATTEMPTS);
+        assertThat(interceptor.getLeaders()).isEqualTo(1);
+        assertThat(interceptor.getFollowers()).isEqualTo(CALLERS - 1);
+        assertThat(interceptor.inFlight()).isZero();
+
+        // 结束之后进来的调用重新发起
+        assertThat(target.send("001")).isEqualTo("recover-001");
+        assertThat(Target.outbound.get()).isEqualTo(2 * MAX_ATTEMPTS);
+    }
+
+    @Test
+    void differentKeysAreNotCoalesced() throws Exception {
+        Target.firstAttempt = new CountDownLatch(1);
+        Future<String> first = executor.submit(() -> target.send("001"));
+        Future<String> second = executor.submit(() -> target.send("002"));
+        Target.firstAttempt.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("recover-001");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("recover-002");
+        assertThat(Target.outbound.get()).isEqualTo(2 * MAX_ATTEMPTS);
+        assertThat(interceptor.getFollowers()).isZero();
+    }
+
+    @Test
+    void followersGetTheSameFailure() throws Exception {
+        Target.firstAttempt = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(executor.submit(() -> target.sendWithoutRecover("001")));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (interceptor.getFollowers() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Target.firstAttempt.countDown();
+        Throwable failure = null;
+        for (Future<String> result : results) {
+            Throwable cause = catchCause(result);
+            // 没有对应的 @Recover 所有调用拿到的是同一个异常
+            assertThat(cause).isInstanceOf(ExhaustedRetryException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+            assertThat(failure == null || failure == cause).isTrue();
+            failure = cause;
+        }
+        assertThat(Target.outbound.get()).isEqualTo(1);
+    }
+
+    @Test
+    void unlistedLabelsAreNotCoalesced() {
+        assertThatThrownBy(() -> target.notCoalesced()).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(interceptor.getLeaders()).isZero();
+    }
+
+    private static Throwable catchCause(Future<?> future) throws InterruptedException {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            return null;
+        } catch (Exception e) {
+            return e.getCause();
+        }
+    }
+
+    /**
+     * 不加 @Configuration，否则 @SpringBootTest 扫描的时候会把这里的 bean 也注册进去
+     */
+    @EnableRetry(proxyTargetClass = true)
+    static class Config {
+
+        @Bean
+        public Target target() {
+            return new Target();
+        }
+
+        @Bean
+        public RetryableMethodAdvisor singleFlightAdvisor() {
+            return new RetryableMethodAdvisor(new SingleFlightInterceptor(
+                    new LabelRoutingKeyGenerator(LabelRoutingKeyGenerator.ARGUMENTS),
+                    new HashSet<>(Arrays.asList("send", "Target.sendWithoutRecover"))), RetryableMethodAdvisor.SINGLE_FLIGHT_ORDER);
+        }
+    }
+
+    static class Target {
+
+        /**
+         * 代理类上的字段不是目标对象的 所以放在 static 上
+         */
+        static final AtomicInteger outbound = new AtomicInteger();
+
+        static volatile CountDownLatch firstAttempt = new CountDownLatch(0);
+
+        private void awaitFirstAttempt() {
+            try {
+                firstAttempt.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Retryable(label = "send", value = RemoteAccessException.class, maxAttempts = MAX_ATTEMPTS, backoff = @Backoff(10))
+        public String send(String messageId) {
+            awaitFirstAttempt();
+            outbound.incrementAndGet();
+            throw new RemoteAccessException("500");
+        }
+
+        @Recover
+        public String recover(RemoteAccessException e, String messageId) {
+            return "recover-" + messageId;
+        }
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = MAX_ATTEMPTS)
+        public String sendWithoutRecover(String messageId) {
+            awaitFirstAttempt();
+            outbound.incrementAndGet();
+            // 不重试的异常
+            throw new IllegalStateException(messageId);
+        }
+
+        @Retryable(value = RemoteAccessException.class, maxAttempts = MAX_ATTEMPTS)
+        public String notCoalesced() {
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.wangji92.retry.springretryexample.support.timelimit;
+
+import com.github.rholder.retry.Retryer;
+import com.github.rholder.retry.RetryerBuilder;
+import com.github.rholder.retry.StopStrategies;
+import com.wangji92.retry.springretryexample.support.guava.ExecutorAttemptTimeLimit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.remoting.RemoteAccessException;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class AttemptTimeLimitExecutorTest {
+
+    private final AttemptTimeLimitExecutor executor = new AttemptTimeLimitExecutor(true, 4, 100);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        MDC.clear();
+    }
+
+    @Test
+    void propagatesMdcAndRestoresPooledThread() throws Exception {
+        MDC.put("traceId", "t-001");
+        assertThat(executor.call(() -> MDC.get("traceId"), 1, TimeUnit.SECONDS)).isEqualTo("t-001");
+        MDC.clear();
+        // 池化的线程被复用的时候 不能带着上一次的上下文
+        assertThat(executor.call(() -> MDC.get("traceId"), 1, TimeUnit.SECONDS)).isNull();
+    }
+
+    @Test
+    void interruptsAttemptOnTimeout() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        assertThatThrownBy(() -> executor.call(() -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return 200;
+        }, 50, TimeUnit.MILLISECONDS)).isInstanceOf(AttemptTimeoutException.class);
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void rethrowsAttemptExceptionUnwrapped() {
+        assertThatThrownBy(() -> executor.call(() -> {
+            throw new RemoteAccessException("500");
+        }, 1, TimeUnit.SECONDS)).isExactlyInstanceOf(RemoteAccessException.class);
+    }
+
+    @Test
+    void guavaRetryerRetriesRemoteAccessExceptionOnLimitedAttempts() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Retryer<Integer> retryer = RetryerBuilder.<Integer>newBuilder()
+                .retryIfExceptionOfType(RemoteAccessException.class)
+                .withAttemptTimeLimiter(new ExecutorAttemptTimeLimit<>(executor, 1, TimeUnit.SECONDS))
+                .withStopStrategy(StopStrategies.stopAfterAttempt(3))
+                .build();
+        assertThat(retryer.call(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new RemoteAccessException("500");
+            }
+            return 200;
+        })).isEqualTo(200);
+
+        // 超时不在 retryIfExceptionOfType 里面 不重试
+        attempts.set(0);
+        assertThatThrownBy(() -> retryer.call(() -> {
+            attempts.incrementAndGet();
+            Thread.sleep(10_000);
+            return 200;
+        })).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(AttemptTimeoutException.class);
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    void retryTemplateRetriesTimedOutAttempt() throws Exception {
+        RetryTemplate retryTemplate = RetryTemplate.builder()
+                .maxAttempts(2)
+                .retryOn(AttemptTimeoutException.class)
+                .build();
+        AtomicInteger attempts = new AtomicInteger();
+        Integer result = retryTemplate.execute(new TimeLimitedRetryCallback<>(context -> {
+            if (attempts.incrementAndGet() == 1) {
+                Thread.sleep(10_000);
+            }
+            return 200;
+        }, executor, 50, TimeUnit.MILLISECONDS));
+        assertThat(result).isEqualTo(200);
+        assertThat(attempts.get()).isEqualTo(2);
+    }
+
+    @Test
+    void interceptorRecoversAfterTimeout() throws Exception {
+        try (AnnotationConfigApplicationContext applicationContext = new AnnotationConfigApplicationContext(InterceptorConfig.class)) {
+            SlowService slowService = applicationContext.getBean("slowService", SlowService.class);
+            MDC.put("traceId", "t-002");
+            assertThat(slowService.call()).isEqualTo(-1);
+            // cglib 代理对象上的字段是空的 通过方法访问
+            assertThat(slowService.attempts()).isEqualTo(2);
+            assertThat(slowService.traceIds()).isEqualTo("t-002,t-002,");
+        }
+    }
+
+    @Test
+    void interceptorRecoversOnTheCalledInstance() throws Exception {
+        try (AnnotationConfigApplicationContext applicationContext = new AnnotationConfigApplicationContext(InterceptorConfig.class)) {
+            // 同一个方法 两个实例 兜底方法要在各自的实例上执行
+            assertThat(applicationContext.getBean("slowService", SlowService.class).call()).isEqualTo(-1);
+            assertThat(applicationContext.getBean("otherSlowService", SlowService.class).call()).isEqualTo(-2);
+        }
+    }
+
+    @Test
+    void interceptorRethrowsWhenNoRecoverMatches() throws Exception {
+        try (AnnotationConfigApplicationContext applicationContext = new AnnotationConfigApplicationContext(InterceptorConfig.class)) {
+            // 类里面有 @Recover 但是返回值不兼容 抛出原来的异常 不是 Cannot locate recovery method
+            assertThatThrownBy(() -> applicationContext.getBean("slowService", SlowService.class).text())
+                    .isExactlyInstanceOf(AttemptTimeoutException.class);
+        }
+    }
+
+    @Configuration
+    @EnableRetry(proxyTargetClass = true)
+    static class InterceptorConfig {
+
+        @Bean(destroyMethod = "shutdown")
+        public AttemptTimeLimitExecutor attemptTimeLimitExecutor() {
+            return new AttemptTimeLimitExecutor(true, 4, 100);
+        }
+
+        @Bean
+        public TimeLimitedRetryInterceptor timeLimitedRetryInterceptor(AttemptTimeLimitExecutor attemptTimeLimitExecutor) {
+            RetryTemplate retryTemplate = RetryTemplate.builder()
+                    .maxAttempts(2)
+                    .retryOn(AttemptTimeoutException.class)
+                    .build();
+            return new TimeLimitedRetryInterceptor(retryTemplate, attemptTimeLimitExecutor, 50, TimeUnit.MILLISECONDS);
+        }
+
+        @Bean
+        public SlowService slowService() {
+            return new SlowService(-1);
+        }
+
+        @Bean
+        public SlowService otherSlowService() {
+            return new SlowService(-2);
+        }
+    }
+
+    static class SlowService {
+
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private volatile String traceIds = "";
+
+        private final Integer fallback;
+
+        SlowService(Integer fallback) {
+            this.fallback = fallback;
+        }
+
+        @Retryable(interceptor = "timeLimitedRetryInterceptor")
+        public Integer call() throws InterruptedException {
+            attempts.incrementAndGet();
+            traceIds += MDC.get("traceId") + ",";
+            Thread.sleep(10_000);
+            return 200;
+        }
+
+        @Retryable(interceptor = "timeLimitedRetryInterceptor")
+        public String text() throws InterruptedException {
+            Thread.sleep(10_000);
+            return "200";
+        }
+
+        @Recover
+        public Integer recover(AttemptTimeoutException e) {
+            return fallback;
+        }
+
+        public int attempts() {
+            return attempts.get();
+        }
+
+        public String traceIds() {
+            return traceIds;
+        }
+    }
+}
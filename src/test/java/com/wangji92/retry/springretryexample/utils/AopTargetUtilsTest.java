@@ -0,0 +1,117 @@
+package com.wangji92.retry.springretryexample.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.target.PrototypeTargetSource;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author 汪小哥
+ * @date 18-10-2026
+ */
+class AopTargetUtilsTest {
+
+    @Test
+    void unwrapsCglibAndJdkProxies() {
+        Service target = new Service();
+        assertThat(AopTargetUtils.getTarget(proxy(target, true))).isSameAs(target);
+        assertThat(AopTargetUtils.getTarget(proxy(target, false))).isSameAs(target);
+        assertThat(AopTargetUtils.getTarget(target)).isSameAs(target);
+    }
+
+    @Test
+    void nestedProxyIsUnwrappedToInnermostTargetAndCached() {
+        Service target = new Service();
+        Object proxy = proxy(proxy(target, true), true);
+        assertThat(AopTargetUtils.getTarget(proxy)).isSameAs(target);
+        assertThat(AopTargetUtils.getTarget(proxy)).isSameAs(AopTargetUtils.getTarget(proxy));
+    }
+
+    @Test
+    void nonStaticTargetSourceIsResolvedEveryTime() {
+        Object proxy = prototypeProxy();
+
+        assertThat(AopTargetUtils.getTarget(proxy)).isInstanceOf(Service.class)
+                .isNotSameAs(AopTargetUtils.getTarget(proxy));
+    }
+
+    @Test
+    void nonStaticInnerProxyIsResolvedEveryTime() {
+        // 外面一层是单例 里面一层是 prototype
+        Object proxy = proxy(prototypeProxy(), true);
+
+        assertThat(AopTargetUtils.getTarget(proxy)).isInstanceOf(Service.class)
+                .isNotSameAs(AopTargetUtils.getTarget(proxy));
+    }
+
+    @Test
+    void cacheDoesNotKeepProxyAlive() throws InterruptedException {
+        Service target = new Service();
+        Object proxy = proxy(target, true);
+        target.self = proxy;
+        assertThat(AopTargetUtils.getTarget(proxy)).isSameAs(target);
+        WeakReference<Object> collected = new WeakReference<>(proxy);
+        proxy = null;
+        target = null;
+
+        for (int i = 0; i < 50 && collected.get() != null; i++) {
+            System.gc();
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+        assertThat(collected.get()).isNull();
+    }
+
+    @Test
+    void opaqueProxyFailsLoudly() {
+        ProxyFactory proxyFactory = new ProxyFactory(new Service());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.setOpaque(true);
+        Object proxy = proxyFactory.getProxy();
+
+        assertThatThrownBy(() -> AopTargetUtils.getTarget(proxy)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static Object prototypeProxy() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        RootBeanDefinition definition = new RootBeanDefinition(Service.class);
+        definition.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+        beanFactory.registerBeanDefinition("service", definition);
+        PrototypeTargetSource targetSource = new PrototypeTargetSource();
+        targetSource.setTargetBeanName("service");
+        targetSource.setBeanFactory(beanFactory);
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTargetSource(targetSource);
+        proxyFactory.setProxyTargetClass(true);
+        return proxyFactory.getProxy();
+    }
+
+    private static Object proxy(Object target, boolean proxyTargetClass) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(proxyTargetClass);
+        if (!proxyTargetClass) {
+            proxyFactory.addInterface(Callable.class);
+        }
+        return proxyFactory.getProxy();
+    }
+
+    public static class Service implements Callable<String> {
+
+        /**
+         * 注入自己的代理
+         */
+        Object self;
+
+        @Override
+        public String call() {
+            return "200";
+        }
+    }
+}